@@ -21,11 +21,17 @@ import androidx.core.view.WindowCompat
 import androidx.core.view.WindowInsetsCompat
 import com.electricdreams.numo.core.cashu.CashuWalletManager
 import com.electricdreams.numo.core.prefs.PreferenceStore
+import com.electricdreams.numo.core.util.MintManager
 import com.electricdreams.numo.core.worker.BitcoinPriceWorker
 import com.electricdreams.numo.feature.autowithdraw.AutoWithdrawManager
 import com.electricdreams.numo.feature.autowithdraw.AutoWithdrawProgressListener
 import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
+import com.electricdreams.numo.feature.settings.DeveloperPrefs
+import com.electricdreams.numo.payment.MintHealthTracker
+import com.electricdreams.numo.payment.MintQuotePool
 import com.electricdreams.numo.payment.PaymentMethodHandler
+import com.electricdreams.numo.payment.PaymentPreparer
+import com.electricdreams.numo.payment.PendingPaymentRecovery
 import com.electricdreams.numo.ui.components.PosUiCoordinator
 
 class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback, AutoWithdrawProgressListener {
@@ -46,6 +52,8 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
     private var progressTitle: TextView? = null
     private var progressSubtitle: TextView? = null
     private var progressAmount: TextView? = null
+    // Mint whose withdrawal the island shows; updates for other mints' workers are ignored
+    private var islandMintUrl: String? = null
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -55,6 +63,8 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
         
         // Initialize basic setup
         CashuWalletManager.init(this)
+        // Settle payments that were paid while the app was not running
+        PendingPaymentRecovery.shared.start(this)
         setContentView(R.layout.activity_modern_pos)
 
         // Initialize vibrator for haptic feedback used in auto-withdraw UI
@@ -118,8 +128,8 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
         bitcoinPriceWorker = BitcoinPriceWorker.getInstance(this).also { worker ->
             worker.setPriceUpdateListener(object : BitcoinPriceWorker.PriceUpdateListener {
                 override fun onPriceUpdated(price: Double) {
-                    // Delegate to UI coordinator when price updates
-                    // This will be handled via the display manager
+                    // Re-convert the amount and drop the stale-price note
+                    if (::uiCoordinator.isInitialized) uiCoordinator.refreshDisplay()
                 }
             })
             worker.start()
@@ -129,6 +139,8 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
     private fun setupAutoWithdrawProgress() {
         autoWithdrawManager = AutoWithdrawManager.getInstance(this)
         autoWithdrawManager.setProgressListener(this)
+        // Pick up withdrawals interrupted by a previous process exit
+        autoWithdrawManager.resumePendingWithdrawals()
 
         // Initialize progress views (Dynamic Island style). We scope lookups through the
         // included view root to avoid any surprises with the view hierarchy.
@@ -174,13 +186,24 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
         
         // Refresh display to update currency formatting when returning from settings
         uiCoordinator.refreshDisplay()
+
+        // Keep mint health fresh while the POS is in front, so the next invoice goes to a responsive mint
+        if (DeveloperPrefs.isMintHealthProbesEnabled(this)) {
+            val mintManager = MintManager.getInstance(this)
+            MintHealthTracker.shared.startProbing { mintManager.getAllowedMints() }
+        }
+        // Likewise keep invoices for recently charged amounts ready
+        MintQuotePool.shared.startRenewing()
     }
 
     override fun onPause() {
+        MintHealthTracker.shared.stopProbing()
+        MintQuotePool.shared.stopRenewing()
         super.onPause()
     }
 
     override fun onDestroy() {
+        PaymentPreparer.shared.cancel()
         uiCoordinator.stopServices()
         bitcoinPriceWorker?.stop()
         super.onDestroy()
@@ -232,6 +255,7 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
     override fun onWithdrawStarted(mintUrl: String, amount: Long, lightningAddress: String) {
         runOnUiThread {
             if (progressContainer == null || dynamicIsland == null) return@runOnUiThread
+            islandMintUrl = mintUrl
             // Reset to progress state
             dynamicIsland?.setBackgroundResource(R.drawable.bg_dynamic_island)
             progressSpinner?.visibility = View.VISIBLE
@@ -248,8 +272,9 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
         }
     }
 
-    override fun onWithdrawProgress(step: String, detail: String) {
+    override fun onWithdrawProgress(mintUrl: String, step: String, detail: String) {
         runOnUiThread {
+            if (mintUrl != islandMintUrl) return@runOnUiThread
             progressSubtitle?.text = detail
         }
     }
@@ -257,6 +282,7 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
     override fun onWithdrawCompleted(mintUrl: String, amount: Long, fee: Long) {
         runOnUiThread {
             if (progressContainer == null || dynamicIsland == null) return@runOnUiThread
+            if (mintUrl != islandMintUrl) return@runOnUiThread
             // Switch to success state with green background
             dynamicIsland?.setBackgroundResource(R.drawable.bg_dynamic_island_success)
             progressSpinner?.visibility = View.GONE
@@ -273,6 +299,9 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
             
             // Hide after 3 seconds
             android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
+                // Another mint's withdrawal may have taken over the island meanwhile
+                if (islandMintUrl != mintUrl) return@postDelayed
+                islandMintUrl = null
                 hideProgressIndicator()
             }, 3000)
         }
@@ -281,6 +310,7 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
     override fun onWithdrawFailed(mintUrl: String, error: String) {
         runOnUiThread {
             if (progressContainer == null || dynamicIsland == null) return@runOnUiThread
+            if (mintUrl != islandMintUrl) return@runOnUiThread
             // Switch to error state with red background
             dynamicIsland?.setBackgroundResource(R.drawable.bg_dynamic_island_error)
             progressSpinner?.visibility = View.GONE
@@ -296,8 +326,10 @@ class ModernPOSActivity : AppCompatActivity(), SatocashWallet.OperationFeedback,
             
             // Hide after 5 seconds (longer for errors)
             android.os.Handler(android.os.Looper.getMainLooper()).postDelayed({
-                hideProgressIndicator()
                 progressAmount?.visibility = View.VISIBLE
+                if (islandMintUrl != mintUrl) return@postDelayed
+                islandMintUrl = null
+                hideProgressIndicator()
             }, 5000)
         }
     }
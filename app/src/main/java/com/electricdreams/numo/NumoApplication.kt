@@ -2,7 +2,8 @@ package com.electricdreams.numo
 
 import android.app.Application
 import android.util.Log
-import com.electricdreams.numo.core.dev.ErrorLogCollector
+import com.electricdreams.numo.core.dev.ErrorCapture
+import com.electricdreams.numo.core.dev.Metrics
 
 /**
  * Custom Application class for global initialisation.
@@ -17,11 +18,11 @@ class NumoApplication : Application() {
         // Wallet initialisation is handled by onboarding / ModernPOS flows.
         Log.d("NumoApplication", "Application initialised")
 
-        // Start developer error log collection in debug builds so the
-        // Developer Settings > Error Logs screen can show recent errors
-        // without modifying existing Log.e() sites.
-        if (BuildConfig.DEBUG) {
-            ErrorLogCollector.start()
-        }
+        // Record crashes for the Developer Settings > Error Logs screen.
+        // Other errors reach it through DevLogger.e().
+        ErrorCapture.installUncaughtExceptionHandler()
+
+        // Periodically append mint, relay and NFC metrics to files/metrics/metrics.jsonl
+        Metrics.startPeriodicExport(filesDir)
     }
 }
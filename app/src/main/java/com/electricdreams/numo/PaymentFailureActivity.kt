@@ -14,7 +14,7 @@ import android.widget.TextView
 import android.widget.Toast
 import androidx.appcompat.app.AppCompatActivity
 import androidx.core.view.WindowCompat
-import com.electricdreams.numo.core.data.model.PaymentHistoryEntry
+import com.electricdreams.numo.core.data.PendingPaymentIndex
 import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
 import com.electricdreams.numo.feature.history.TransactionDetailActivity
 
@@ -90,11 +90,8 @@ class PaymentFailureActivity : AppCompatActivity() {
      * behavior of tapping that entry in [PaymentsHistoryActivity].
      */
     private fun handleTryAgain() {
-        val history = PaymentsHistoryActivity.getPaymentHistory(this)
-        // Latest pending = newest entry with pending status
-        val latestPending: PaymentHistoryEntry? = history
-            .filter { it.isPending() }
-            .maxByOrNull { it.date.time }
+        // Latest pending = newest entry in the pending index, without loading the full history
+        val latestPending = PendingPaymentIndex.latest(this)
 
         if (latestPending == null) {
             Toast.makeText(this, R.string.payment_failure_error_no_pending, Toast.LENGTH_SHORT).show()
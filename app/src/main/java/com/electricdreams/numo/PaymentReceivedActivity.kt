@@ -16,6 +16,7 @@ import android.widget.Toast
 import androidx.appcompat.app.AppCompatActivity
 import androidx.core.view.WindowCompat
 import com.cashujdk.nut00.Token
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
 import com.electricdreams.numo.feature.history.TransactionDetailActivity
 
@@ -124,7 +125,7 @@ class PaymentReceivedActivity : AppCompatActivity() {
             
             Log.d(TAG, "Parsed token: amount=$amount, unit=$unit")
         } catch (e: Exception) {
-            Log.e(TAG, "Error parsing token: ${e.message}", e)
+            DevLogger.e(TAG, "Error parsing token: ${e.message}", e)
             // Fallback to provided amount or 0
             unit = "sat"
         }
@@ -14,6 +14,9 @@ import android.widget.TextView
 import android.widget.Toast
 import androidx.appcompat.app.AppCompatActivity
 import com.electricdreams.numo.core.data.model.PaymentHistoryEntry
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.dev.ErrorCapture
+import com.electricdreams.numo.core.dev.PaymentTrace
 import com.electricdreams.numo.core.model.Amount
 import com.electricdreams.numo.core.model.Amount.Currency
 import com.electricdreams.numo.core.util.MintManager
@@ -21,12 +24,15 @@ import com.electricdreams.numo.core.util.SavedBasketManager
 import com.electricdreams.numo.core.worker.BitcoinPriceWorker
 import com.electricdreams.numo.core.util.CurrencyManager
 import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
+import com.electricdreams.numo.feature.settings.DeveloperPrefs
 import com.electricdreams.numo.feature.tips.TipSelectionActivity
 import com.electricdreams.numo.ndef.CashuPaymentHelper
 import com.electricdreams.numo.ndef.NdefHostCardEmulationService
 import com.electricdreams.numo.payment.LightningMintHandler
 import com.electricdreams.numo.payment.NostrPaymentHandler
 import com.electricdreams.numo.payment.PaymentTabManager
+import com.electricdreams.numo.payment.PendingPaymentRecovery
+import com.electricdreams.numo.ui.util.AnimatedQrPlayer
 import com.electricdreams.numo.ui.util.QrCodeGenerator
 import com.electricdreams.numo.feature.autowithdraw.AutoWithdrawManager
 import kotlinx.coroutines.CoroutineScope
@@ -108,6 +114,9 @@ class PaymentRequestActivity : AppCompatActivity() {
 
     private val uiScope = CoroutineScope(Dispatchers.Main)
 
+    // Loops oversized Cashu requests as an animated QR code when enabled
+    private var cashuQrPlayer: AnimatedQrPlayer? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         setContentView(R.layout.activity_payment_request)
@@ -168,7 +177,7 @@ class PaymentRequestActivity : AppCompatActivity() {
         paymentAmount = intent.getLongExtra(EXTRA_PAYMENT_AMOUNT, 0)
 
         if (paymentAmount <= 0) {
-            Log.e(TAG, "Invalid payment amount: $paymentAmount")
+            DevLogger.e(TAG, "Invalid payment amount: $paymentAmount")
             Toast.makeText(this, R.string.payment_request_error_invalid_amount, Toast.LENGTH_SHORT).show()
             finish()
             return
@@ -181,6 +190,10 @@ class PaymentRequestActivity : AppCompatActivity() {
         // Check if we're resuming a pending payment
         pendingPaymentId = intent.getStringExtra(EXTRA_RESUME_PAYMENT_ID)
         isResumingPayment = pendingPaymentId != null
+        // Stop startup recovery from settling this payment behind our back
+        pendingPaymentId?.let { PendingPaymentRecovery.shared.release(it) }
+        ErrorCapture.setPaymentContext(pendingPaymentId)
+        PaymentTrace.setPaymentContext(pendingPaymentId)
 
         // Get resume data for Lightning if available
         resumeLightningQuoteId = intent.getStringExtra(EXTRA_LIGHTNING_QUOTE_ID)
@@ -304,6 +317,10 @@ class PaymentRequestActivity : AppCompatActivity() {
             tipAmountSats = tipAmountSats,
             tipPercentage = tipPercentage,
         )
+        // This screen settles the payment; keep startup recovery off it
+        pendingPaymentId?.let { PendingPaymentRecovery.shared.release(it) }
+        ErrorCapture.setPaymentContext(pendingPaymentId)
+        PaymentTrace.setPaymentContext(pendingPaymentId)
 
         Log.d(TAG, "✅ CREATED PENDING PAYMENT: id=$pendingPaymentId")
         Log.d(TAG, "   💰 Total amount: $paymentAmount sats")
@@ -374,6 +391,10 @@ class PaymentRequestActivity : AppCompatActivity() {
         // Initialize Lightning handler with preferred mint (will be started when tab is selected)
         val preferredLightningMint = mintManager.getPreferredLightningMint()
         lightningHandler = LightningMintHandler(preferredLightningMint, allowedMints, uiScope)
+        if (resumeLightningQuoteId == null) {
+            // Have the invoice ready by the time the Lightning tab is opened
+            lightningHandler?.prefetch(paymentAmount)
+        }
 
         // Check if NDEF is available
         val ndefAvailable = NdefHostCardEmulationService.isHceAvailable(this)
@@ -396,7 +417,7 @@ class PaymentRequestActivity : AppCompatActivity() {
             )
 
             if (hcePaymentRequest == null) {
-                Log.e(TAG, "Failed to create payment request for HCE")
+                DevLogger.e(TAG, "Failed to create payment request for HCE")
                 Toast.makeText(this, R.string.payment_request_error_ndef_prepare, Toast.LENGTH_SHORT).show()
             } else {
                 Log.d(TAG, "Created HCE payment request: $hcePaymentRequest")
@@ -432,7 +453,7 @@ class PaymentRequestActivity : AppCompatActivity() {
                 Log.w(TAG, "setHceToCashu(): HCE service not available")
             }
         } catch (e: Exception) {
-            Log.e(TAG, "setHceToCashu(): Error while setting HCE Cashu payload: ${e.message}", e)
+            DevLogger.e(TAG, "setHceToCashu(): Error while setting HCE Cashu payload: ${e.message}", e)
         }
     }
 
@@ -454,7 +475,7 @@ class PaymentRequestActivity : AppCompatActivity() {
                 Log.w(TAG, "setHceToLightning(): HCE service not available")
             }
         } catch (e: Exception) {
-            Log.e(TAG, "setHceToLightning(): Error while setting HCE Lightning payload: ${e.message}", e)
+            DevLogger.e(TAG, "setHceToLightning(): Error while setting HCE Lightning payload: ${e.message}", e)
         }
     }
 
@@ -463,13 +484,26 @@ class PaymentRequestActivity : AppCompatActivity() {
 
         val callback = object : NostrPaymentHandler.Callback {
             override fun onPaymentRequestReady(paymentRequest: String) {
-                try {
-                    val qrBitmap = QrCodeGenerator.generate(paymentRequest, 512)
-                    cashuQrImageView.setImageBitmap(qrBitmap)
+                if (DeveloperPrefs.isAnimatedQrEnabled(this@PaymentRequestActivity) &&
+                    paymentRequest.length > AnimatedQrPlayer.ANIMATE_ABOVE_CHARS
+                ) {
+                    val player = cashuQrPlayer ?: AnimatedQrPlayer(cashuQrImageView, uiScope).also { cashuQrPlayer = it }
+                    player.play(paymentRequest) {
+                        statusText.text = getString(R.string.payment_request_status_error_qr)
+                    }
                     statusText.text = getString(R.string.payment_request_status_waiting_for_payment)
-                } catch (e: Exception) {
-                    Log.e(TAG, "Error generating Cashu QR bitmap: ${e.message}", e)
-                    statusText.text = getString(R.string.payment_request_status_error_qr)
+                    return
+                }
+
+                uiScope.launch {
+                    try {
+                        val qrBitmap = QrCodeGenerator.render(paymentRequest, 512)
+                        cashuQrImageView.setImageBitmap(qrBitmap)
+                        statusText.text = getString(R.string.payment_request_status_waiting_for_payment)
+                    } catch (e: Exception) {
+                        DevLogger.e(TAG, "Error generating Cashu QR bitmap: ${e.message}", e)
+                        statusText.text = getString(R.string.payment_request_status_error_qr)
+                    }
                 }
             }
 
@@ -480,7 +514,7 @@ class PaymentRequestActivity : AppCompatActivity() {
             }
 
             override fun onError(message: String) {
-                Log.e(TAG, "Nostr payment error: $message")
+                DevLogger.e(TAG, "Nostr payment error: $message")
 
                 // Show inline status and delegate to unified failure handling
                 statusText.text = getString(R.string.payment_request_status_error_generic, message)
@@ -539,16 +573,18 @@ class PaymentRequestActivity : AppCompatActivity() {
                     )
                 }
 
-                try {
-                    val qrBitmap = QrCodeGenerator.generate(bolt11, 512)
-                    lightningQrImageView.setImageBitmap(qrBitmap)
-                    // Hide loading spinner and show the bolt icon
-                    lightningLoadingSpinner.visibility = View.GONE
-                    lightningLogoCard.visibility = View.VISIBLE
-                } catch (e: Exception) {
-                    Log.e(TAG, "Error generating Lightning QR bitmap: ${e.message}", e)
-                    // Still hide spinner on error
-                    lightningLoadingSpinner.visibility = View.GONE
+                uiScope.launch {
+                    try {
+                        val qrBitmap = QrCodeGenerator.render(bolt11, 512)
+                        lightningQrImageView.setImageBitmap(qrBitmap)
+                        // Hide loading spinner and show the bolt icon
+                        lightningLoadingSpinner.visibility = View.GONE
+                        lightningLogoCard.visibility = View.VISIBLE
+                    } catch (e: Exception) {
+                        DevLogger.e(TAG, "Error generating Lightning QR bitmap: ${e.message}", e)
+                        // Still hide spinner on error
+                        lightningLoadingSpinner.visibility = View.GONE
+                    }
                 }
 
                 // If Lightning tab is currently visible, switch HCE payload to Lightning
@@ -579,8 +615,7 @@ class PaymentRequestActivity : AppCompatActivity() {
     private fun setupNdefPayment() {
         val request = hcePaymentRequest ?: return
 
-        // Match original behavior: slight delay before configuring service
-        Handler(Looper.getMainLooper()).postDelayed({
+        val configure = Runnable {
             val hceService = NdefHostCardEmulationService.getInstance()
             if (hceService != null) {
                 Log.d(TAG, "Setting up NDEF payment with HCE service")
@@ -625,12 +660,12 @@ class PaymentRequestActivity : AppCompatActivity() {
                                 }
                             } catch (e: CashuPaymentHelper.RedemptionException) {
                                 val msg = e.message ?: "Unknown redemption error"
-                                Log.e(TAG, "Error in NDEF payment redemption: $msg", e)
+                                DevLogger.e(TAG, "Error in NDEF payment redemption: $msg", e)
                                 withContext(Dispatchers.Main) {
                                     handlePaymentError("NDEF Payment failed: $msg")
                                 }
                             } catch (e: Exception) {
-                                Log.e(TAG, "Unexpected error in NDEF payment callback: ${e.message}", e)
+                                DevLogger.e(TAG, "Unexpected error in NDEF payment callback: ${e.message}", e)
                                 withContext(Dispatchers.Main) {
                                     handlePaymentError("NDEF Payment failed: ${e.message}")
                                 }
@@ -640,7 +675,7 @@ class PaymentRequestActivity : AppCompatActivity() {
 
                     override fun onCashuPaymentError(errorMessage: String) {
                         runOnUiThread {
-                            Log.e(TAG, "NDEF Payment error callback: $errorMessage")
+                            DevLogger.e(TAG, "NDEF Payment error callback: $errorMessage")
                             handlePaymentError("NDEF Payment failed: $errorMessage")
                         }
                     }
@@ -662,7 +697,15 @@ class PaymentRequestActivity : AppCompatActivity() {
 
                 Log.d(TAG, "NDEF payment service ready")
             }
-        }, 1000)
+        }
+
+        if (NdefHostCardEmulationService.getInstance() != null) {
+            // Already started while the amount was entered
+            configure.run()
+        } else {
+            // Give the service time to start before configuring it
+            Handler(Looper.getMainLooper()).postDelayed(configure, 1000)
+        }
     }
 
     private fun handlePaymentSuccess(token: String) {
@@ -701,7 +744,7 @@ class PaymentRequestActivity : AppCompatActivity() {
         setResult(Activity.RESULT_OK, resultIntent)
 
         // Use unified success handler
-        showPaymentSuccess(token, paymentAmount)
+        showPaymentSuccess(token, paymentAmount, mintUrl)
     }
 
     /**
@@ -741,7 +784,7 @@ class PaymentRequestActivity : AppCompatActivity() {
         setResult(Activity.RESULT_OK, resultIntent)
 
         // Use unified success handler
-        showPaymentSuccess("", paymentAmount)
+        showPaymentSuccess("", paymentAmount, lightningMintUrl)
     }
 
     /**
@@ -781,7 +824,7 @@ class PaymentRequestActivity : AppCompatActivity() {
         // on top of a genuine success.
         if (!beginTerminalOutcome("error: $errorMessage")) return
 
-        Log.e(TAG, "Payment error: $errorMessage")
+        DevLogger.e(TAG, "Payment error: $errorMessage")
 
         statusText.visibility = View.VISIBLE
         statusText.text = getString(R.string.payment_request_status_failed, errorMessage)
@@ -820,6 +863,8 @@ class PaymentRequestActivity : AppCompatActivity() {
         // a safety net for any paths that might reach cleanup without having
         // called [beginTerminalOutcome] explicitly.
         hasTerminalOutcome = true
+        cashuQrPlayer?.stop()
+
         // Stop Nostr handler
         nostrHandler?.stop()
         nostrHandler = null
@@ -837,7 +882,7 @@ class PaymentRequestActivity : AppCompatActivity() {
                 hceService.setPaymentCallback(null)
             }
         } catch (e: Exception) {
-            Log.e(TAG, "Error cleaning up HCE service: ${e.message}", e)
+            DevLogger.e(TAG, "Error cleaning up HCE service: ${e.message}", e)
         }
 
         finish()
@@ -849,6 +894,8 @@ class PaymentRequestActivity : AppCompatActivity() {
         // from here; simply ensure resources are cleaned up if they haven't
         // been already.
         cleanupAndFinish()
+        ErrorCapture.clearPaymentContext(pendingPaymentId)
+        PaymentTrace.clearPaymentContext(pendingPaymentId)
         super.onDestroy()
     }
 
@@ -901,7 +948,7 @@ class PaymentRequestActivity : AppCompatActivity() {
                 Log.d(TAG, "📦 Basket archived: ${archivedBasket.id} with payment $paymentId")
             }
         } catch (e: Exception) {
-            Log.e(TAG, "Error archiving basket: ${e.message}", e)
+            DevLogger.e(TAG, "Error archiving basket: ${e.message}", e)
         }
     }
 
@@ -909,12 +956,14 @@ class PaymentRequestActivity : AppCompatActivity() {
      * Unified success handler - plays feedback, triggers auto-withdrawal check, and shows success screen.
      * This is the single source of truth for payment success handling.
      */
-    private fun showPaymentSuccess(token: String, amount: Long) {
+    private fun showPaymentSuccess(token: String, amount: Long, mintUrl: String?) {
+        val start = PaymentTrace.now()
+
         // Archive the basket now that payment is complete
         markBasketAsPaid()
         
         // Check for auto-withdrawal after successful payment (runs in background, survives activity destruction)
-        AutoWithdrawManager.getInstance(this).onPaymentReceived(token, lightningMintUrl)
+        AutoWithdrawManager.getInstance(this).onPaymentReceived(mintUrl)
         
         // Play success sound
         try {
@@ -922,7 +971,7 @@ class PaymentRequestActivity : AppCompatActivity() {
             mediaPlayer?.setOnCompletionListener { it.release() }
             mediaPlayer?.start()
         } catch (e: Exception) {
-            Log.e(TAG, "Error playing success sound: ${e.message}")
+            DevLogger.e(TAG, "Error playing success sound: ${e.message}")
         }
         
         // Vibrate
@@ -930,11 +979,14 @@ class PaymentRequestActivity : AppCompatActivity() {
             val vibrator = getSystemService(android.content.Context.VIBRATOR_SERVICE) as android.os.Vibrator?
             vibrator?.vibrate(PATTERN_SUCCESS, -1)
         } catch (e: Exception) {
-            Log.e(TAG, "Error vibrating: ${e.message}")
+            DevLogger.e(TAG, "Error vibrating: ${e.message}")
         }
 
         // Show success screen
         showPaymentReceivedActivity(token)
+
+        PaymentTrace.record(PaymentTrace.Stage.UI_TRANSITION, start, pendingPaymentId)
+        PaymentTrace.paymentCompleted(pendingPaymentId)
     }
 
     companion object {
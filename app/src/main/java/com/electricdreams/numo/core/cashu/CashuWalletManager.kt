@@ -2,6 +2,8 @@ package com.electricdreams.numo.core.cashu
 
 import android.content.Context
 import android.util.Log
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.dev.Metrics
 import com.electricdreams.numo.core.util.MintManager
 import com.electricdreams.numo.core.prefs.PreferenceStore
 import kotlinx.coroutines.CoroutineScope
@@ -135,6 +137,7 @@ object CashuWalletManager : MintManager.MintChangeListener {
 
         // Add mints and restore each one
         val targetProofCount: UInt = 10u
+        val restoredMints = mutableSetOf<String>()
         for (mintUrl in mints) {
             try {
                 onMintProgress(mintUrl, "Connecting...", balancesBefore[mintUrl] ?: 0L, 0L)
@@ -149,12 +152,13 @@ object CashuWalletManager : MintManager.MintChangeListener {
                 val oldBalance = balancesBefore[mintUrl] ?: 0L
                 
                 balanceChanges[mintUrl] = Pair(oldBalance, newBalance)
+                restoredMints.add(mintUrl)
                 
                 onMintProgress(mintUrl, "Complete", oldBalance, newBalance)
                 
                 Log.d(TAG, "Restored mint $mintUrl: before=$oldBalance, after=$newBalance")
             } catch (t: Throwable) {
-                Log.e(TAG, "Failed to restore mint $mintUrl", t)
+                DevLogger.e(TAG, "Failed to restore mint $mintUrl", t)
                 val oldBalance = balancesBefore[mintUrl] ?: 0L
                 balanceChanges[mintUrl] = Pair(oldBalance, 0L)
                 onMintProgress(mintUrl, "Failed: ${t.message}", oldBalance, 0L)
@@ -164,6 +168,13 @@ object CashuWalletManager : MintManager.MintChangeListener {
         database = db
         wallet = newWallet
 
+        // Restored balances are exact; mints that failed are re-read on demand
+        for (mintUrl in mints) {
+            if (restoredMints.contains(mintUrl)) {
+                MintBalanceLedger.setBalance(mintUrl, balanceChanges[mintUrl]?.second ?: 0L)
+            }
+        }
+
         Log.d(TAG, "Wallet restore complete. Restored ${mints.size} mints.")
         return balanceChanges
     }
@@ -229,7 +240,7 @@ object CashuWalletManager : MintManager.MintChangeListener {
             val balanceMap = w.getBalances()
             balanceMap[mintUrl]?.value?.toLong() ?: 0L
         } catch (e: Exception) {
-            Log.e(TAG, "Error getting balance for mint $mintUrl: ${e.message}", e)
+            DevLogger.e(TAG, "Error getting balance for mint $mintUrl: ${e.message}", e)
             0L
         }
     }
@@ -244,7 +255,7 @@ object CashuWalletManager : MintManager.MintChangeListener {
             val balanceMap = w.getBalances()
             balanceMap.mapValues { (_, amount) -> amount.value.toLong() }
         } catch (e: Exception) {
-            Log.e(TAG, "Error getting mint balances: ${e.message}", e)
+            DevLogger.e(TAG, "Error getting mint balances: ${e.message}", e)
             emptyMap()
         }
     }
@@ -256,9 +267,9 @@ object CashuWalletManager : MintManager.MintChangeListener {
     suspend fun fetchMintInfo(mintUrl: String): org.cashudevkit.MintInfo? {
         val w = wallet ?: return null
         return try {
-            w.fetchMintInfo(MintUrl(mintUrl))
+            Metrics.timed("mint.info", mintUrl) { w.fetchMintInfo(MintUrl(mintUrl)) }
         } catch (e: Exception) {
-            Log.e(TAG, "Error fetching mint info for $mintUrl: ${e.message}", e)
+            DevLogger.e(TAG, "Error fetching mint info for $mintUrl: ${e.message}", e)
             null
         }
     }
@@ -438,11 +449,14 @@ object CashuWalletManager : MintManager.MintChangeListener {
 
             Log.d(TAG, "Initialized MultiMintWallet with ${'$'}{mints.size} mints; DB=${'$'}{dbFile.absolutePath}")
         } catch (t: Throwable) {
-            Log.e(TAG, "Failed to initialize MultiMintWallet", t)
+            DevLogger.e(TAG, "Failed to initialize MultiMintWallet", t)
         }
     }
 
     private fun closeResources() {
+        // Cached balances belong to the wallet being closed
+        MintBalanceLedger.invalidateAll()
+
         try {
             wallet?.close()
         } catch (t: Throwable) {
@@ -0,0 +1,159 @@
+package com.electricdreams.numo.core.cashu
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * In-memory, per-mint balance cache kept in step with wallet operations.
+ *
+ * Receive and mint operations credit the amount they added, restores set the recovered
+ * balance, and operations whose effect is not known exactly up front (melts, wallet
+ * rebuilds) invalidate the affected mints. Reading a known balance is an O(1) map lookup;
+ * only an unknown balance costs a round trip to the wallet, and that single
+ * balance query repopulates every mint at once.
+ *
+ * Every change is published to registered [BalanceChangeListener]s.
+ */
+object MintBalanceLedger {
+
+    /**
+     * Notified whenever the cached balance of a mint changes.
+     * [balance] is null when the mint was invalidated and will be re-read on next access.
+     */
+    fun interface BalanceChangeListener {
+        fun onMintBalanceChanged(mintUrl: String, balance: Long?)
+    }
+
+    /**
+     * Cached balance of one mint. [version] is the ledger version of the last
+     * incremental change, so a refresh that started earlier cannot overwrite it.
+     */
+    private class Entry(val balance: Long?, val version: Long)
+
+    private val lock = Any()
+    private val entries = HashMap<String, Entry>()
+    private var version = 0L
+
+    private val listeners = CopyOnWriteArrayList<BalanceChangeListener>()
+
+    /**
+     * Source of authoritative balances; replaced in tests.
+     */
+    @Volatile
+    internal var balanceSource: suspend () -> Map<String, Long> = { CashuWalletManager.getAllMintBalances() }
+
+    fun addListener(listener: BalanceChangeListener) {
+        listeners.addIfAbsent(listener)
+    }
+
+    fun removeListener(listener: BalanceChangeListener) {
+        listeners.remove(listener)
+    }
+
+    /**
+     * Cached balance for [mintUrl], or null if it is not currently known.
+     */
+    fun peek(mintUrl: String): Long? = synchronized(lock) { entries[mintUrl]?.balance }
+
+    /**
+     * Balance for [mintUrl] in satoshis, reading from the wallet only when the
+     * cached value is unknown.
+     */
+    suspend fun getBalance(mintUrl: String): Long {
+        peek(mintUrl)?.let { return it }
+        return refresh()[mintUrl] ?: 0L
+    }
+
+    /**
+     * Re-read every mint balance from the wallet and return the resulting snapshot.
+     */
+    suspend fun refresh(): Map<String, Long> {
+        val startVersion = synchronized(lock) { version }
+        val fresh = balanceSource()
+
+        val changed = ArrayList<Pair<String, Long>>()
+        val snapshot: Map<String, Long>
+        synchronized(lock) {
+            for ((mintUrl, balance) in fresh) {
+                val existing = entries[mintUrl]
+                // Incremental updates made while we were reading win over the older read
+                if (existing != null && existing.version > startVersion) continue
+                if (existing?.balance != balance) changed.add(mintUrl to balance)
+                entries[mintUrl] = Entry(balance, existing?.version ?: 0L)
+            }
+            snapshot = entries.mapNotNull { (mintUrl, entry) -> entry.balance?.let { mintUrl to it } }.toMap()
+        }
+        changed.forEach { (mintUrl, balance) -> notifyListeners(mintUrl, balance) }
+        return snapshot
+    }
+
+    /**
+     * Record [amountSats] added to [mintUrl] by a receive or mint.
+     * If the current balance is unknown it stays unknown until the next refresh.
+     */
+    fun credit(mintUrl: String, amountSats: Long) {
+        if (amountSats == 0L) return
+        update(mintUrl) { it?.plus(amountSats) }
+    }
+
+    /**
+     * Record [amountSats] spent from [mintUrl].
+     */
+    fun debit(mintUrl: String, amountSats: Long) {
+        if (amountSats == 0L) return
+        update(mintUrl) { it?.minus(amountSats)?.coerceAtLeast(0L) }
+    }
+
+    /**
+     * Record an exactly known balance, e.g. after a restore.
+     */
+    fun setBalance(mintUrl: String, balanceSats: Long) {
+        update(mintUrl) { balanceSats }
+    }
+
+    /**
+     * Forget the cached balance of [mintUrl]; the next read goes to the wallet.
+     */
+    fun invalidate(mintUrl: String) {
+        update(mintUrl) { null }
+    }
+
+    /**
+     * Forget every cached balance, e.g. after the wallet was rebuilt.
+     */
+    fun invalidateAll() {
+        val cleared: List<String>
+        synchronized(lock) {
+            version++
+            cleared = entries.filterValues { it.balance != null }.keys.toList()
+            entries.keys.forEach { entries[it] = Entry(null, version) }
+        }
+        cleared.forEach { notifyListeners(it, null) }
+    }
+
+    private inline fun update(mintUrl: String, transform: (Long?) -> Long?) {
+        val before: Long?
+        val after: Long?
+        synchronized(lock) {
+            version++
+            before = entries[mintUrl]?.balance
+            after = transform(before)
+            entries[mintUrl] = Entry(after, version)
+        }
+        if (before != after) notifyListeners(mintUrl, after)
+    }
+
+    private fun notifyListeners(mintUrl: String, balance: Long?) {
+        listeners.forEach { it.onMintBalanceChanged(mintUrl, balance) }
+    }
+
+    /**
+     * Drop all cached state and listeners. Intended for tests.
+     */
+    internal fun reset() {
+        synchronized(lock) {
+            entries.clear()
+            version = 0L
+        }
+        listeners.clear()
+    }
+}
@@ -0,0 +1,194 @@
+package com.electricdreams.numo.core.cashu
+
+import android.util.Log
+import com.electricdreams.numo.core.dev.DevLogger
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import org.cashudevkit.KeySetInfo
+import org.cashudevkit.Wallet
+
+/**
+ * A temporary single-mint wallet together with the mint's keysets.
+ */
+data class TemporaryWallet(
+    val wallet: Wallet,
+    val keysets: List<KeySetInfo>
+) {
+    fun close() {
+        try {
+            wallet.close()
+        } catch (_: Throwable) {
+        }
+    }
+}
+
+/**
+ * Keeps isolated temporary wallets ready for unknown mints that were seen recently.
+ *
+ * Creating a temporary wallet means a fresh mnemonic, a new in-memory database and a
+ * keyset fetch from the mint, all on the payer's critical path. After a wallet for a
+ * mint is handed out, the pool prepares the next one in the background so a repeat
+ * payment from the same mint can start right away.
+ *
+ * Wallets are single use: whoever [acquire]s one owns it and closes it, and it never
+ * returns to the pool, so no proofs or state carry over between swaps. At most
+ * [MAX_WALLETS] are kept, least recently prepared first out, and each is closed after
+ * [IDLE_TTL_MS] without use.
+ *
+ * @param loader Creates a temporary wallet and fetches its mint's keysets
+ */
+class TemporaryWalletPool(
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO),
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val loader: suspend (mintUrl: String) -> TemporaryWallet = ::loadTemporaryWallet
+) {
+
+    companion object {
+        private const val TAG = "TemporaryWalletPool"
+
+        // Keysets rarely rotate, but do not hold on to them for long
+        const val IDLE_TTL_MS = 10 * 60_000L
+
+        const val MAX_WALLETS = 4
+
+        /** Pool shared by all unknown-mint swaps. */
+        @JvmStatic
+        val shared: TemporaryWalletPool by lazy { TemporaryWalletPool() }
+
+        private suspend fun loadTemporaryWallet(mintUrl: String): TemporaryWallet {
+            val wallet = CashuWalletManager.getTemporaryWalletForMint(mintUrl)
+            return try {
+                TemporaryWallet(wallet, wallet.refreshKeysets())
+            } catch (t: Throwable) {
+                try { wallet.close() } catch (_: Throwable) {}
+                throw t
+            }
+        }
+    }
+
+    private class Entry(val wallet: TemporaryWallet, val readyAt: Long)
+
+    private val lock = Any()
+
+    // Prepared wallets per mint, oldest first
+    private val ready = LinkedHashMap<String, Entry>()
+    private val warming = HashMap<String, CompletableDeferred<TemporaryWallet>>()
+
+    /**
+     * Take a temporary wallet for [mintUrl]: a prepared one if available, otherwise a
+     * new one. The caller must close it when done.
+     */
+    suspend fun acquire(mintUrl: String): TemporaryWallet {
+        val (entry, pending) = synchronized(lock) { ready.remove(mintUrl) to warming.remove(mintUrl) }
+
+        val wallet = when {
+            entry != null && clock() - entry.readyAt < IDLE_TTL_MS -> {
+                Log.d(TAG, "Using prepared temporary wallet for $mintUrl")
+                entry.wallet
+            }
+            pending != null -> {
+                Log.d(TAG, "Waiting for temporary wallet being prepared for $mintUrl")
+                try {
+                    pending.await()
+                } catch (e: CancellationException) {
+                    // The wallet was claimed for this caller, so nobody else will close it
+                    scope.launch {
+                        try {
+                            pending.await().close()
+                        } catch (_: Exception) {
+                        }
+                    }
+                    throw e
+                } catch (e: Exception) {
+                    loader(mintUrl)
+                }
+            }
+            else -> {
+                entry?.wallet?.close()
+                loader(mintUrl)
+            }
+        }
+
+        prepare(mintUrl)
+        return wallet
+    }
+
+    /**
+     * Close every prepared wallet.
+     */
+    fun clear() {
+        val wallets = synchronized(lock) {
+            warming.values.forEach { it.cancel() }
+            warming.clear()
+            ready.values.map { it.wallet }.also { ready.clear() }
+        }
+        wallets.forEach { it.close() }
+    }
+
+    /**
+     * Prepare a wallet for [mintUrl] in the background unless one is ready or on its way.
+     */
+    private fun prepare(mintUrl: String) {
+        val deferred = CompletableDeferred<TemporaryWallet>()
+        synchronized(lock) {
+            if (ready.containsKey(mintUrl) || warming.containsKey(mintUrl)) return
+            warming[mintUrl] = deferred
+        }
+
+        scope.launch {
+            val wallet = try {
+                loader(mintUrl)
+            } catch (e: Exception) {
+                DevLogger.e(TAG, "Failed to prepare temporary wallet for $mintUrl: ${e.message}", e)
+                synchronized(lock) {
+                    if (warming[mintUrl] === deferred) warming.remove(mintUrl)
+                }
+                deferred.completeExceptionally(e)
+                return@launch
+            }
+
+            // If an acquire() already claimed this wallet, it is handed over through
+            // the deferred and not pooled.
+            val entry = Entry(wallet, clock())
+            val evicted = mutableListOf<TemporaryWallet>()
+            val pooled = synchronized(lock) {
+                if (warming[mintUrl] !== deferred) return@synchronized false
+                warming.remove(mintUrl)
+                ready[mintUrl] = entry
+                while (ready.size > MAX_WALLETS) {
+                    val eldest = ready.keys.first()
+                    ready.remove(eldest)?.let { evicted.add(it.wallet) }
+                }
+                true
+            }
+            // Nobody will take it if the pool was cleared meanwhile
+            if (!deferred.complete(wallet)) wallet.close()
+            evicted.forEach { it.close() }
+
+            if (pooled) {
+                Log.d(TAG, "Prepared temporary wallet for $mintUrl")
+                scheduleExpiry(mintUrl, entry)
+            }
+        }
+    }
+
+    private fun scheduleExpiry(mintUrl: String, entry: Entry) {
+        scope.launch {
+            delay(IDLE_TTL_MS)
+            val expired = synchronized(lock) {
+                if (ready[mintUrl] !== entry) return@synchronized false
+                ready.remove(mintUrl)
+                true
+            }
+            if (expired) {
+                Log.d(TAG, "Closing unused temporary wallet for $mintUrl")
+                entry.wallet.close()
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.electricdreams.numo.core.data
+
+import android.content.ContentValues
+import android.content.Context
+import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteOpenHelper
+import com.electricdreams.numo.core.model.Item
+import com.electricdreams.numo.core.model.PriceType
+import java.util.UUID
+
+/**
+ * SQLite table backing the merchant catalog.
+ *
+ * One row per [Item]; catalog order is kept in an explicit `sort_order` column so that
+ * adding, editing, removing, or moving one item only touches the rows involved.
+ * Callers own the order values: they only need to be strictly increasing along the
+ * catalog, gaps are allowed.
+ *
+ * A replacing import is written to a staging table with the same columns and only
+ * swapped into the catalog by [replaceWithStaged], so an interrupted import never
+ * leaves a half-replaced catalog behind.
+ */
+class ItemStore(context: Context) :
+    SQLiteOpenHelper(context.applicationContext, DB_NAME, null, DB_VERSION) {
+
+    companion object {
+        const val DB_NAME = "catalog.db"
+        private const val DB_VERSION = 2
+
+        private const val TABLE_ITEMS = "items"
+        private const val TABLE_STAGED = "items_staged"
+        private const val COL_ID = "id"
+        private const val COL_UUID = "uuid"
+        private const val COL_NAME = "name"
+        private const val COL_VARIATION_NAME = "variation_name"
+        private const val COL_SKU = "sku"
+        private const val COL_DESCRIPTION = "description"
+        private const val COL_CATEGORY = "category"
+        private const val COL_GTIN = "gtin"
+        private const val COL_PRICE = "price"
+        private const val COL_PRICE_SATS = "price_sats"
+        private const val COL_PRICE_TYPE = "price_type"
+        private const val COL_VAT_ENABLED = "vat_enabled"
+        private const val COL_VAT_RATE = "vat_rate"
+        private const val COL_TRACK_INVENTORY = "track_inventory"
+        private const val COL_QUANTITY = "quantity"
+        private const val COL_ALERT_ENABLED = "alert_enabled"
+        private const val COL_ALERT_THRESHOLD = "alert_threshold"
+        private const val COL_IMAGE_PATH = "image_path"
+        private const val COL_SORT_ORDER = "sort_order"
+    }
+
+    /**
+     * A catalog row together with its persisted order value.
+     */
+    data class Row(val item: Item, val sortOrder: Long)
+
+    init {
+        setWriteAheadLoggingEnabled(true)
+    }
+
+    override fun onCreate(db: SQLiteDatabase) {
+        createItemsTable(db, TABLE_ITEMS)
+        db.execSQL("CREATE INDEX idx_items_sort_order ON $TABLE_ITEMS ($COL_SORT_ORDER)")
+        createItemsTable(db, TABLE_STAGED)
+    }
+
+    override fun onUpgrade(db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
+        if (oldVersion < 2) {
+            createItemsTable(db, TABLE_STAGED)
+        }
+    }
+
+    private fun createItemsTable(db: SQLiteDatabase, table: String) {
+        db.execSQL(
+            """
+            CREATE TABLE $table (
+                $COL_ID TEXT PRIMARY KEY NOT NULL,
+                $COL_UUID TEXT NOT NULL,
+                $COL_NAME TEXT,
+                $COL_VARIATION_NAME TEXT,
+                $COL_SKU TEXT,
+                $COL_DESCRIPTION TEXT,
+                $COL_CATEGORY TEXT,
+                $COL_GTIN TEXT,
+                $COL_PRICE REAL NOT NULL DEFAULT 0,
+                $COL_PRICE_SATS INTEGER NOT NULL DEFAULT 0,
+                $COL_PRICE_TYPE TEXT NOT NULL DEFAULT '${PriceType.FIAT.name}',
+                $COL_VAT_ENABLED INTEGER NOT NULL DEFAULT 0,
+                $COL_VAT_RATE INTEGER NOT NULL DEFAULT 0,
+                $COL_TRACK_INVENTORY INTEGER NOT NULL DEFAULT 0,
+                $COL_QUANTITY INTEGER NOT NULL DEFAULT 0,
+                $COL_ALERT_ENABLED INTEGER NOT NULL DEFAULT 0,
+                $COL_ALERT_THRESHOLD INTEGER NOT NULL DEFAULT 0,
+                $COL_IMAGE_PATH TEXT,
+                $COL_SORT_ORDER INTEGER NOT NULL
+            )
+            """.trimIndent()
+        )
+    }
+
+    /**
+     * Read the whole catalog in order.
+     */
+    fun loadAll(): List<Row> {
+        val rows = mutableListOf<Row>()
+        readableDatabase.query(
+            TABLE_ITEMS, null, null, null, null, null, "$COL_SORT_ORDER ASC"
+        ).use { cursor ->
+            while (cursor.moveToNext()) {
+                rows.add(Row(readItem(cursor), cursor.getLong(cursor.getColumnIndexOrThrow(COL_SORT_ORDER))))
+            }
+        }
+        return rows
+    }
+
+    fun insert(item: Item, sortOrder: Long) {
+        writableDatabase.insertWithOnConflict(
+            TABLE_ITEMS, null, toValues(item, sortOrder), SQLiteDatabase.CONFLICT_REPLACE
+        )
+    }
+
+    /**
+     * Insert several rows in one transaction. [sortOrders] is parallel to [items].
+     */
+    fun insertAll(items: List<Item>, sortOrders: List<Long>) {
+        inTransaction { db ->
+            for (i in items.indices) {
+                db.insertWithOnConflict(
+                    TABLE_ITEMS, null, toValues(items[i], sortOrders[i]), SQLiteDatabase.CONFLICT_REPLACE
+                )
+            }
+        }
+    }
+
+    /**
+     * Overwrite an item's fields, leaving its order untouched.
+     */
+    fun update(item: Item) {
+        val values = toValues(item, 0L).apply { remove(COL_SORT_ORDER) }
+        writableDatabase.update(TABLE_ITEMS, values, "$COL_ID = ?", arrayOf(item.id))
+    }
+
+    fun delete(itemId: String) {
+        writableDatabase.delete(TABLE_ITEMS, "$COL_ID = ?", arrayOf(itemId))
+    }
+
+    fun deleteAll() {
+        writableDatabase.delete(TABLE_ITEMS, null, null)
+    }
+
+    /**
+     * Persist new order values for the given item IDs in one transaction.
+     */
+    fun updateSortOrders(orders: List<Pair<String, Long>>) {
+        inTransaction { db ->
+            val values = ContentValues(1)
+            for ((itemId, sortOrder) in orders) {
+                values.put(COL_SORT_ORDER, sortOrder)
+                db.update(TABLE_ITEMS, values, "$COL_ID = ?", arrayOf(itemId))
+            }
+        }
+    }
+
+    /**
+     * Add rows to the staging table of a replacing import. [sortOrders] is parallel
+     * to [items].
+     */
+    fun insertStaged(items: List<Item>, sortOrders: List<Long>) {
+        inTransaction { db ->
+            for (i in items.indices) {
+                db.insertWithOnConflict(
+                    TABLE_STAGED, null, toValues(items[i], sortOrders[i]), SQLiteDatabase.CONFLICT_REPLACE
+                )
+            }
+        }
+    }
+
+    fun clearStaged() {
+        writableDatabase.delete(TABLE_STAGED, null, null)
+    }
+
+    /**
+     * Replace the catalog with the staged rows in one transaction and empty the
+     * staging table.
+     */
+    fun replaceWithStaged() {
+        inTransaction { db ->
+            db.delete(TABLE_ITEMS, null, null)
+            db.execSQL("INSERT INTO $TABLE_ITEMS SELECT * FROM $TABLE_STAGED")
+            db.delete(TABLE_STAGED, null, null)
+        }
+    }
+
+    /**
+     * Run [block] inside a single write transaction.
+     */
+    fun inTransaction(block: (SQLiteDatabase) -> Unit) {
+        val db = writableDatabase
+        db.beginTransaction()
+        try {
+            block(db)
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    private fun toValues(item: Item, sortOrder: Long): ContentValues = ContentValues().apply {
+        put(COL_ID, item.id)
+        put(COL_UUID, item.uuid)
+        put(COL_NAME, item.name)
+        put(COL_VARIATION_NAME, item.variationName)
+        put(COL_SKU, item.sku)
+        put(COL_DESCRIPTION, item.description)
+        put(COL_CATEGORY, item.category)
+        put(COL_GTIN, item.gtin)
+        put(COL_PRICE, item.price)
+        put(COL_PRICE_SATS, item.priceSats)
+        put(COL_PRICE_TYPE, item.priceType.name)
+        put(COL_VAT_ENABLED, if (item.vatEnabled) 1 else 0)
+        put(COL_VAT_RATE, item.vatRate)
+        put(COL_TRACK_INVENTORY, if (item.trackInventory) 1 else 0)
+        put(COL_QUANTITY, item.quantity)
+        put(COL_ALERT_ENABLED, if (item.alertEnabled) 1 else 0)
+        put(COL_ALERT_THRESHOLD, item.alertThreshold)
+        put(COL_IMAGE_PATH, item.imagePath)
+        put(COL_SORT_ORDER, sortOrder)
+    }
+
+    private fun readItem(cursor: Cursor): Item {
+        fun string(column: String): String? {
+            val index = cursor.getColumnIndexOrThrow(column)
+            return if (cursor.isNull(index)) null else cursor.getString(index)
+        }
+        fun int(column: String): Int = cursor.getInt(cursor.getColumnIndexOrThrow(column))
+        fun long(column: String): Long = cursor.getLong(cursor.getColumnIndexOrThrow(column))
+
+        return Item(
+            id = string(COL_ID),
+            uuid = string(COL_UUID) ?: UUID.randomUUID().toString(),
+            name = string(COL_NAME),
+            variationName = string(COL_VARIATION_NAME),
+            sku = string(COL_SKU),
+            description = string(COL_DESCRIPTION),
+            category = string(COL_CATEGORY),
+            gtin = string(COL_GTIN),
+            price = cursor.getDouble(cursor.getColumnIndexOrThrow(COL_PRICE)),
+            priceSats = long(COL_PRICE_SATS),
+            priceType = try {
+                PriceType.valueOf(string(COL_PRICE_TYPE) ?: PriceType.FIAT.name)
+            } catch (e: IllegalArgumentException) {
+                PriceType.FIAT
+            },
+            vatEnabled = int(COL_VAT_ENABLED) != 0,
+            vatRate = int(COL_VAT_RATE),
+            trackInventory = int(COL_TRACK_INVENTORY) != 0,
+            quantity = int(COL_QUANTITY),
+            alertEnabled = int(COL_ALERT_ENABLED) != 0,
+            alertThreshold = int(COL_ALERT_THRESHOLD),
+            imagePath = string(COL_IMAGE_PATH),
+        )
+    }
+}
@@ -0,0 +1,171 @@
+package com.electricdreams.numo.core.data
+
+import android.content.Context
+import android.util.Log
+import com.electricdreams.numo.core.data.model.PaymentHistoryEntry
+import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import com.google.gson.reflect.TypeToken
+
+/**
+ * Compact index of pending payments, stored apart from the payment history.
+ *
+ * Holds only what is needed to resume or settle a pending payment: its amount and
+ * the Lightning quote and Nostr key it is waiting on. Finding a resumable payment
+ * therefore does not deserialize the whole history, which grows with every sale.
+ * [PaymentsHistoryActivity] keeps the index in step with every write to a pending
+ * entry; on first use it is built once from the existing history.
+ */
+object PendingPaymentIndex {
+
+    private const val TAG = "PendingPaymentIndex"
+    private const val PREFS_NAME = "PendingPayments"
+    private const val KEY_INDEX = "index"
+
+    /**
+     * Resume information for one pending payment.
+     *
+     * @property swapLightningMintUrl Lightning mint of an in-flight swap from an unknown mint
+     * @property swapLightningQuoteId Quote the swap's melt pays, settled like [lightningQuoteId]
+     */
+    data class Entry(
+        val id: String,
+        val amount: Long,
+        val createdAt: Long,
+        val formattedAmount: String? = null,
+        val lightningQuoteId: String? = null,
+        val lightningMintUrl: String? = null,
+        val lightningInvoice: String? = null,
+        val nostrSecretHex: String? = null,
+        val nostrNprofile: String? = null,
+        val swapLightningMintUrl: String? = null,
+        val swapLightningQuoteId: String? = null,
+    )
+
+    private val gson = Gson()
+    private val lock = Any()
+    private var entries: LinkedHashMap<String, Entry>? = null
+
+    /**
+     * All pending payments, oldest first.
+     */
+    @JvmStatic
+    fun getAll(context: Context): List<Entry> = synchronized(lock) { load(context).values.toList() }
+
+    @JvmStatic
+    fun get(context: Context, paymentId: String): Entry? = synchronized(lock) { load(context)[paymentId] }
+
+    /**
+     * The most recently created pending payment, or null if there is none.
+     */
+    @JvmStatic
+    fun latest(context: Context): Entry? = synchronized(lock) { load(context).values.maxByOrNull { it.createdAt } }
+
+    /**
+     * Record the current state of a history entry: indexed while pending, dropped otherwise.
+     */
+    @JvmStatic
+    fun onHistoryEntryWritten(context: Context, entry: PaymentHistoryEntry) {
+        synchronized(lock) {
+            val index = load(context)
+            if (entry.isPending()) {
+                index[entry.id] = fromHistoryEntry(entry)
+            } else if (index.remove(entry.id) == null) {
+                return
+            }
+            save(context, index)
+        }
+    }
+
+    @JvmStatic
+    fun remove(context: Context, paymentId: String) {
+        synchronized(lock) {
+            val index = load(context)
+            if (index.remove(paymentId) != null) save(context, index)
+        }
+    }
+
+    /**
+     * Remove every entry, e.g. when the history is cleared.
+     */
+    @JvmStatic
+    fun clear(context: Context) {
+        synchronized(lock) { save(context, LinkedHashMap()) }
+    }
+
+    /**
+     * Drop every entry that is not pending in [history], e.g. after entries were deleted.
+     */
+    @JvmStatic
+    fun retainPending(context: Context, history: List<PaymentHistoryEntry>) {
+        synchronized(lock) {
+            val pendingIds = history.filter { it.isPending() }.mapTo(HashSet()) { it.id }
+            val index = load(context)
+            if (index.keys.retainAll(pendingIds)) save(context, index)
+        }
+    }
+
+    internal fun fromHistoryEntry(entry: PaymentHistoryEntry): Entry {
+        val swapFrame = entry.swapToLightningMintJson?.let {
+            try {
+                gson.fromJson(it, PaymentHistoryEntry.Companion.SwapToLightningMintFrame::class.java)
+            } catch (e: JsonParseException) {
+                Log.w(TAG, "Ignoring unreadable swap frame for payment ${entry.id}")
+                null
+            }
+        }
+        return Entry(
+            id = entry.id,
+            amount = entry.amount,
+            createdAt = entry.date.time,
+            formattedAmount = entry.formattedAmount,
+            lightningQuoteId = entry.lightningQuoteId,
+            lightningMintUrl = entry.lightningMintUrl,
+            lightningInvoice = entry.lightningInvoice,
+            nostrSecretHex = entry.nostrSecretHex,
+            nostrNprofile = entry.nostrNprofile,
+            swapLightningMintUrl = swapFrame?.lightningMintUrl,
+            swapLightningQuoteId = swapFrame?.lightningQuoteId,
+        )
+    }
+
+    private fun load(context: Context): LinkedHashMap<String, Entry> {
+        entries?.let { return it }
+
+        val prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+        val json = prefs.getString(KEY_INDEX, null)
+        val loaded = if (json != null) {
+            try {
+                val type = object : TypeToken<List<Entry>>() {}.type
+                gson.fromJson<List<Entry>>(json, type).associateByTo(LinkedHashMap()) { it.id }
+            } catch (e: JsonParseException) {
+                Log.w(TAG, "Rebuilding unreadable pending payment index")
+                null
+            }
+        } else {
+            null
+        }
+
+        return loaded?.also { entries = it } ?: rebuild(context)
+    }
+
+    private fun rebuild(context: Context): LinkedHashMap<String, Entry> {
+        val index = PaymentsHistoryActivity.getPaymentHistory(context)
+            .filter { it.isPending() }
+            .sortedBy { it.date.time }
+            .map { fromHistoryEntry(it) }
+            .associateByTo(LinkedHashMap()) { it.id }
+        Log.d(TAG, "Built pending payment index with ${index.size} entries from history")
+        save(context, index)
+        return index
+    }
+
+    private fun save(context: Context, index: LinkedHashMap<String, Entry>) {
+        entries = index
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+            .edit()
+            .putString(KEY_INDEX, gson.toJson(index.values.toList()))
+            .apply()
+    }
+}
@@ -6,7 +6,8 @@ package com.electricdreams.numo.core.data.model
 import java.util.Date
 
 /**
- * Represents a single error log line, including optional stack trace.
+ * Represents a single captured error, including optional stack trace.
+ * Identical errors raised in quick succession are folded into one entry with a [count].
  */
 data class ErrorLogEntry(
     /** Unique identifier for this log entry (for stable list handling). */
@@ -19,4 +20,10 @@ data class ErrorLogEntry(
     val message: String,
     /** Optional stack trace string, if a throwable was provided. */
     val stackTrace: String? = null,
+    /** Number of identical errors folded into this entry. */
+    val count: Int = 1,
+    /** Name of the thread the error was raised on, if known. */
+    val threadName: String? = null,
+    /** Payment in progress when the error was raised, if any. */
+    val paymentId: String? = null,
 )
@@ -2,8 +2,8 @@
  * Developer logging helper.
  *
  * This wrapper mirrors [android.util.Log] for error-level logging while
- * additionally persisting error information to [ErrorLogStore] so it can
- * be inspected from the in-app Developer Settings.
+ * additionally handing the error to [ErrorCapture], which persists it to
+ * [ErrorLogStore] so it can be inspected from the in-app Developer Settings.
  */
 package com.electricdreams.numo.core.dev
 
@@ -12,7 +12,7 @@ import android.util.Log
 object DevLogger {
 
     /**
-     * Log an error message and persist it to [ErrorLogStore].
+     * Log an error message and queue it for [ErrorLogStore].
      */
     @JvmStatic
     fun e(tag: String, message: String, throwable: Throwable? = null) {
@@ -22,7 +22,7 @@ object DevLogger {
             Log.e(tag, message)
         }
 
-        ErrorLogStore.appendError(tag = tag, message = message, throwable = throwable)
+        ErrorCapture.capture(tag = tag, message = message, throwable = throwable)
     }
 
     /**
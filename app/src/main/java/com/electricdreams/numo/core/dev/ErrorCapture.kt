@@ -0,0 +1,168 @@
+/**
+ * In-process error capture pipeline feeding [ErrorLogStore].
+ *
+ * [DevLogger.e] and the uncaught-exception hook hand structured events (tag, message,
+ * throwable, thread, timestamp, current payment) to a lock-free queue. The caller only
+ * pays for one allocation and a queue insert; stack traces are rendered later on a
+ * single background thread, which drains the queue in batches and folds identical
+ * errors within a batch into one entry with a count. This keeps capture cheap enough
+ * to leave on in release builds, and a storm of the same exception becomes one entry.
+ */
+package com.electricdreams.numo.core.dev
+
+import com.electricdreams.numo.core.data.model.ErrorLogEntry
+import java.util.Date
+import java.util.UUID
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+object ErrorCapture {
+
+    private const val DRAIN_DELAY_MS = 1_000L
+
+    // Beyond this many undrained events new ones are counted but not kept
+    private const val MAX_QUEUED_EVENTS = 2_000
+
+    /**
+     * A single captured error, as recorded on the calling thread.
+     */
+    class ErrorEvent(
+        val tag: String,
+        val message: String,
+        val throwable: Throwable?,
+        val threadName: String,
+        val timestamp: Long,
+        val paymentId: String?,
+    )
+
+    private val queue = ConcurrentLinkedQueue<ErrorEvent>()
+    private val queuedCount = AtomicInteger(0)
+    private val droppedCount = AtomicInteger(0)
+    private val drainScheduled = AtomicBoolean(false)
+    private val installed = AtomicBoolean(false)
+
+    private val drainer: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "Numo-ErrorCapture").apply { isDaemon = true }
+    }
+
+    @Volatile
+    private var currentPaymentId: String? = null
+
+    /**
+     * Destination for drained entries; replaced in tests.
+     */
+    @Volatile
+    internal var sink: (ErrorLogEntry) -> Unit = { ErrorLogStore.append(it) }
+
+    /**
+     * Mark [paymentId] as the payment in progress; errors captured until
+     * [clearPaymentContext] are tagged with it.
+     */
+    fun setPaymentContext(paymentId: String?) {
+        currentPaymentId = paymentId
+    }
+
+    /**
+     * Clear the payment context, but only if it still belongs to [paymentId].
+     */
+    fun clearPaymentContext(paymentId: String?) {
+        if (currentPaymentId == paymentId) currentPaymentId = null
+    }
+
+    /**
+     * Queue an error for persistence. Safe to call from any thread.
+     */
+    fun capture(tag: String, message: String, throwable: Throwable? = null) {
+        if (queuedCount.incrementAndGet() > MAX_QUEUED_EVENTS) {
+            queuedCount.decrementAndGet()
+            droppedCount.incrementAndGet()
+            return
+        }
+        queue.offer(
+            ErrorEvent(
+                tag = tag,
+                message = message,
+                throwable = throwable,
+                threadName = Thread.currentThread().name,
+                timestamp = System.currentTimeMillis(),
+                paymentId = currentPaymentId,
+            ),
+        )
+        if (drainScheduled.compareAndSet(false, true)) {
+            drainer.schedule({ drain() }, DRAIN_DELAY_MS, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    /**
+     * Record uncaught exceptions before handing them to the previous handler.
+     * Safe to call multiple times; only the first call installs the hook.
+     */
+    fun installUncaughtExceptionHandler() {
+        if (!installed.compareAndSet(false, true)) return
+
+        val previous = Thread.getDefaultUncaughtExceptionHandler()
+        Thread.setDefaultUncaughtExceptionHandler { thread, throwable ->
+            try {
+                capture("UncaughtException", "Uncaught exception on thread ${thread.name}", throwable)
+                // The process is about to die: persist synchronously
+                drainer.submit { drain() }.get(2, TimeUnit.SECONDS)
+                ErrorLogStore.flush()
+            } catch (_: Throwable) {
+                // Never let diagnostics get in the way of the crash itself.
+            }
+            previous?.uncaughtException(thread, throwable)
+        }
+    }
+
+    /**
+     * Drain queued events, folding identical errors. Runs on the drainer thread.
+     */
+    internal fun drain() {
+        drainScheduled.set(false)
+
+        val folded = LinkedHashMap<String, ErrorLogEntry>()
+        while (true) {
+            val event = queue.poll() ?: break
+            queuedCount.decrementAndGet()
+
+            val stackTrace = event.throwable?.stackTraceToString()
+            val key = foldKey(event, stackTrace)
+            val existing = folded[key]
+            folded[key] = existing?.copy(count = existing.count + 1)
+                ?: ErrorLogEntry(
+                    id = UUID.randomUUID().toString(),
+                    timestamp = Date(event.timestamp),
+                    tag = event.tag,
+                    message = event.message,
+                    stackTrace = stackTrace,
+                    threadName = event.threadName,
+                    paymentId = event.paymentId,
+                )
+        }
+
+        val dropped = droppedCount.getAndSet(0)
+        if (dropped > 0) {
+            folded["dropped"] = ErrorLogEntry(
+                id = UUID.randomUUID().toString(),
+                timestamp = Date(),
+                tag = "ErrorCapture",
+                message = "Dropped $dropped errors while the capture queue was full",
+            )
+        }
+
+        for (entry in folded.values) {
+            try {
+                sink(entry)
+            } catch (_: Exception) {
+                // Storage not available (e.g. before AppGlobals.init); drop the entry.
+            }
+        }
+    }
+
+    private fun foldKey(event: ErrorEvent, stackTrace: String?): String =
+        "${event.tag}\u0000${event.message}\u0000${event.paymentId}\u0000${stackTrace.orEmpty()}"
+}
@@ -0,0 +1,188 @@
+/**
+ * Append-only on-disk journal backing [ErrorLogStore].
+ *
+ * Entries are written as length-prefixed binary records, so persisting a batch is a
+ * single append regardless of how many entries are already stored. Once the file holds
+ * more than twice [capacity] records it is compacted by rewriting only the retained
+ * entries, which keeps the file bounded and the cost per entry amortized O(1).
+ */
+package com.electricdreams.numo.core.dev
+
+import com.electricdreams.numo.core.data.model.ErrorLogEntry
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.util.Date
+
+/**
+ * Not thread-safe: [ErrorLogStore] only touches it from its single writer thread
+ * (and once while loading, before the writer has anything to do).
+ */
+internal class ErrorLogJournal(
+    private val file: File,
+    private val capacity: Int,
+) {
+
+    companion object {
+        // "NLE1" records predate folding and carry no count/thread/payment fields
+        private const val RECORD_MAGIC_V1 = 0x4E4C4531
+        private const val RECORD_MAGIC = 0x4E4C4532 // "NLE2"
+
+        // Guards against reading garbage lengths from a corrupted file
+        private const val MAX_FIELD_BYTES = 1 shl 20
+
+        // Longer strings are truncated on write so every record stays readable
+        private const val MAX_FIELD_CHARS = MAX_FIELD_BYTES / 4
+    }
+
+    /** Number of records currently in the file, including ones older than [capacity]. */
+    var recordCount: Int = 0
+        private set
+
+    /**
+     * Read the newest [capacity] entries in append order.
+     * A truncated or corrupted tail (e.g. after a crash mid-write) ends the read and is
+     * cut off so that later appends stay readable.
+     */
+    fun readAll(): List<ErrorLogEntry> {
+        val entries = ArrayDeque<ErrorLogEntry>()
+        recordCount = 0
+        if (!file.exists()) return emptyList()
+
+        var validBytes = 0L
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                while (true) {
+                    val (entry, size) = readRecord(input) ?: break
+                    validBytes += size
+                    recordCount++
+                    entries.addLast(entry)
+                    if (entries.size > capacity) entries.removeFirst()
+                }
+            }
+        } catch (_: IOException) {
+            // Keep whatever was read before the damaged record.
+        }
+
+        if (validBytes < file.length()) {
+            try {
+                RandomAccessFile(file, "rw").use { it.setLength(validBytes) }
+            } catch (_: IOException) {
+                // The next compaction rewrites the file anyway.
+            }
+        }
+        return entries.toList()
+    }
+
+    /**
+     * Append [batch] to the end of the file in one write.
+     */
+    @Throws(IOException::class)
+    fun append(batch: List<ErrorLogEntry>) {
+        if (batch.isEmpty()) return
+        DataOutputStream(BufferedOutputStream(FileOutputStream(file, true))).use { output ->
+            batch.forEach { writeRecord(output, it) }
+        }
+        recordCount += batch.size
+    }
+
+    /**
+     * True when appending [incoming] more records should rewrite the file instead.
+     */
+    fun needsCompaction(incoming: Int): Boolean = recordCount + incoming > capacity * 2
+
+    /**
+     * Replace the file contents with [entries], atomically via a temporary file.
+     */
+    @Throws(IOException::class)
+    fun rewrite(entries: List<ErrorLogEntry>) {
+        val tmp = File(file.parentFile, file.name + ".tmp")
+        DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { output ->
+            entries.forEach { writeRecord(output, it) }
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete()
+            throw IOException("Failed to replace ${file.name}")
+        }
+        recordCount = entries.size
+    }
+
+    fun clear() {
+        file.delete()
+        recordCount = 0
+    }
+
+    private fun writeRecord(output: DataOutputStream, entry: ErrorLogEntry) {
+        output.writeInt(RECORD_MAGIC)
+        output.writeLong(entry.timestamp.time)
+        writeString(output, entry.id)
+        writeString(output, entry.tag)
+        writeString(output, entry.message)
+        output.writeBoolean(entry.stackTrace != null)
+        entry.stackTrace?.let { writeString(output, it) }
+        output.writeInt(entry.count)
+        writeString(output, entry.threadName.orEmpty())
+        writeString(output, entry.paymentId.orEmpty())
+    }
+
+    /**
+     * Read one record and its size in bytes, or null at the end of the valid data.
+     */
+    private fun readRecord(input: DataInputStream): Pair<ErrorLogEntry, Long>? {
+        var size = 4L + 8L + 1L // magic, timestamp, stack trace flag
+
+        fun readString(): String? {
+            val length = input.readInt()
+            if (length < 0 || length > MAX_FIELD_BYTES) return null
+            val bytes = ByteArray(length)
+            input.readFully(bytes)
+            size += 4L + length
+            return String(bytes, Charsets.UTF_8)
+        }
+
+        return try {
+            val magic = input.readInt()
+            if (magic != RECORD_MAGIC && magic != RECORD_MAGIC_V1) return null
+            val timestamp = input.readLong()
+            val id = readString() ?: return null
+            val tag = readString() ?: return null
+            val message = readString() ?: return null
+            val stackTrace = if (input.readBoolean()) readString() ?: return null else null
+
+            var count = 1
+            var threadName: String? = null
+            var paymentId: String? = null
+            if (magic == RECORD_MAGIC) {
+                count = input.readInt()
+                size += 4L
+                threadName = readString()?.ifEmpty { null }
+                paymentId = readString()?.ifEmpty { null }
+            }
+            ErrorLogEntry(
+                id = id,
+                timestamp = Date(timestamp),
+                tag = tag,
+                message = message,
+                stackTrace = stackTrace,
+                count = count.coerceAtLeast(1),
+                threadName = threadName,
+                paymentId = paymentId,
+            ) to size
+        } catch (_: EOFException) {
+            null
+        }
+    }
+
+    private fun writeString(output: DataOutputStream, value: String) {
+        val bytes = value.take(MAX_FIELD_CHARS).toByteArray(Charsets.UTF_8)
+        output.writeInt(bytes.size)
+        output.write(bytes)
+    }
+}
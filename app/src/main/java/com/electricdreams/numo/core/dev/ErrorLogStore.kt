@@ -1,58 +1,94 @@
 /**
  * Persistent storage for developer error logs.
  *
- * This store keeps a bounded list of [ErrorLogEntry] objects in SharedPreferences,
- * allowing the Developer Settings > Error Logs screen to display recent
- * application errors without relying on external logcat access.
+ * This store keeps a bounded ring of [ErrorLogEntry] objects in memory, backed by an
+ * append-only [ErrorLogJournal] file, allowing the Developer Settings > Error Logs
+ * screen to display recent application errors without relying on external logcat access.
+ *
+ * Appending is O(1) and never touches disk on the caller's thread: new entries are
+ * queued and written in batches by a single background writer, so a burst of errors
+ * costs one file append rather than one full rewrite per entry.
  */
 package com.electricdreams.numo.core.dev
 
 import android.content.Context
+import android.util.Log
 import com.electricdreams.numo.AppGlobals
 import com.electricdreams.numo.core.data.model.ErrorLogEntry
 import com.google.gson.Gson
 import com.google.gson.reflect.TypeToken
+import java.io.File
+import java.io.IOException
 import java.util.Date
 import java.util.UUID
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
 
 object ErrorLogStore {
 
+    private const val TAG = "ErrorLogStore"
+
+    // Legacy storage, migrated into the journal on first load
     private const val PREFS_NAME = "DeveloperErrorLogs"
     private const val KEY_LOGS = "logs"
+
+    private const val LOG_FILE_NAME = "developer_error_logs.bin"
     private const val MAX_ENTRIES = 500
+    private const val FLUSH_DELAY_MS = 500L
 
     private val gson = Gson()
 
     private val context: Context
         get() = AppGlobals.getAppContext()
 
+    private val lock = Any()
+
+    // Ring buffer in append order: [head] is the oldest entry
+    private val ring = arrayOfNulls<ErrorLogEntry>(MAX_ENTRIES)
+    private var head = 0
+    private var size = 0
+
+    // True while every entry in the ring was appended with a timestamp >= the previous one
+    private var inTimestampOrder = true
+    private var lastTimestamp = Long.MIN_VALUE
+
+    private val pending = ArrayList<ErrorLogEntry>()
+    private var clearRequested = false
+    private var journal: ErrorLogJournal? = null
+
+    private val flushScheduled = AtomicBoolean(false)
+    private val writer: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "Numo-ErrorLogWriter").apply { isDaemon = true }
+    }
+
     /**
      * Append a new error entry to the store.
      * Oldest entries are discarded when [MAX_ENTRIES] is exceeded.
      */
-    @Synchronized
     fun appendError(tag: String, message: String, throwable: Throwable? = null) {
-        val entries = loadAllInternal().toMutableList()
-
-        val stack = throwable?.stackTraceToString()
-
-        entries.add(
+        append(
             ErrorLogEntry(
                 id = UUID.randomUUID().toString(),
                 timestamp = Date(),
                 tag = tag,
                 message = message,
-                stackTrace = stack,
+                stackTrace = throwable?.stackTraceToString(),
             ),
         )
+    }
 
-        val trimmedEntries = if (entries.size > MAX_ENTRIES) {
-            entries.takeLast(MAX_ENTRIES)
-        } else {
-            entries
+    /**
+     * Append a fully built entry, e.g. one carrying its original timestamp.
+     */
+    fun append(entry: ErrorLogEntry) {
+        synchronized(lock) {
+            ensureLoaded()
+            push(entry)
+            pending.add(entry)
         }
-
-        saveAll(trimmedEntries)
+        scheduleFlush()
     }
 
     /**
@@ -60,36 +96,144 @@ object ErrorLogStore {
      * Entries are sorted by timestamp ascending.
      */
     fun getErrorsUpTo(endInclusive: Date): List<ErrorLogEntry> {
-        return loadAllInternal()
-            .filter { it.timestamp.time <= endInclusive.time }
-            .sortedBy { it.timestamp.time }
+        val cutoff = endInclusive.time
+        synchronized(lock) {
+            ensureLoaded()
+            if (!inTimestampOrder) {
+                return snapshot().filter { it.timestamp.time <= cutoff }.sortedBy { it.timestamp.time }
+            }
+
+            // Entries are in timestamp order: binary search for the first one after the cutoff
+            var low = 0
+            var high = size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (entryAt(mid).timestamp.time <= cutoff) low = mid + 1 else high = mid
+            }
+            return List(low) { entryAt(it) }
+        }
     }
 
     /**
      * Returns all stored error entries sorted by timestamp ascending.
      */
-    fun getAllErrors(): List<ErrorLogEntry> =
-        loadAllInternal().sortedBy { it.timestamp.time }
+    fun getAllErrors(): List<ErrorLogEntry> = synchronized(lock) {
+        ensureLoaded()
+        if (inTimestampOrder) snapshot() else snapshot().sortedBy { it.timestamp.time }
+    }
 
     /**
      * Remove all stored error entries.
      */
-    @Synchronized
     fun clearAll() {
-        val prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
-        prefs.edit().putString(KEY_LOGS, "[]").apply()
+        synchronized(lock) {
+            ensureLoaded()
+            ring.fill(null)
+            head = 0
+            size = 0
+            inTimestampOrder = true
+            lastTimestamp = Long.MIN_VALUE
+            pending.clear()
+            clearRequested = true
+        }
+        scheduleFlush()
     }
 
-    private fun loadAllInternal(): List<ErrorLogEntry> {
-        val prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
-        val json = prefs.getString(KEY_LOGS, "[]")
-        val type = object : TypeToken<ArrayList<ErrorLogEntry>>() {}.type
-        return gson.fromJson(json, type) ?: emptyList()
+    /**
+     * Block until everything appended so far has been written to disk.
+     */
+    fun flush() {
+        writer.submit { writePending() }.get()
+    }
+
+    private fun entryAt(index: Int): ErrorLogEntry = ring[(head + index) % MAX_ENTRIES]!!
+
+    private fun snapshot(): List<ErrorLogEntry> = List(size) { entryAt(it) }
+
+    private fun push(entry: ErrorLogEntry) {
+        val time = entry.timestamp.time
+        if (time < lastTimestamp) inTimestampOrder = false
+        lastTimestamp = time
+
+        if (size < MAX_ENTRIES) {
+            ring[(head + size) % MAX_ENTRIES] = entry
+            size++
+        } else {
+            ring[head] = entry
+            head = (head + 1) % MAX_ENTRIES
+        }
     }
 
-    private fun saveAll(entries: List<ErrorLogEntry>) {
+    private fun scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            writer.schedule({ writePending() }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    /**
+     * Runs on the writer thread only.
+     */
+    private fun writePending() {
+        flushScheduled.set(false)
+
+        val target = journal ?: return
+        val batch: List<ErrorLogEntry>
+        val clear: Boolean
+        var retained: List<ErrorLogEntry>? = null
+        synchronized(lock) {
+            batch = ArrayList(pending)
+            pending.clear()
+            clear = clearRequested
+            clearRequested = false
+            // Decide under the lock so the rewrite contains exactly the drained entries
+            if (!clear && target.needsCompaction(batch.size)) {
+                retained = snapshot()
+            }
+        }
+
+        try {
+            if (clear) target.clear()
+            val rewriteWith = retained
+            if (rewriteWith != null) {
+                target.rewrite(rewriteWith)
+            } else {
+                target.append(batch)
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to persist error logs: ${e.message}")
+        }
+    }
+
+    /**
+     * Load persisted entries on first use. Must be called while holding [lock].
+     */
+    private fun ensureLoaded() {
+        if (journal != null) return
+
+        val loaded = ErrorLogJournal(File(context.filesDir, LOG_FILE_NAME), MAX_ENTRIES)
+        loaded.readAll().forEach { push(it) }
+
+        val legacy = loadLegacyEntries()
+        if (legacy.isNotEmpty()) {
+            legacy.sortedBy { it.timestamp.time }.forEach { push(it) }
+            pending.addAll(legacy)
+            scheduleFlush()
+        }
+        journal = loaded
+    }
+
+    private fun loadLegacyEntries(): List<ErrorLogEntry> {
         val prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
-        val json = gson.toJson(entries)
-        prefs.edit().putString(KEY_LOGS, json).apply()
+        val json = prefs.getString(KEY_LOGS, null) ?: return emptyList()
+        prefs.edit().remove(KEY_LOGS).apply()
+        return try {
+            val type = object : TypeToken<ArrayList<ErrorLogEntry>>() {}.type
+            val entries: List<ErrorLogEntry> = gson.fromJson(json, type) ?: emptyList()
+            // Gson bypasses constructor defaults, so fields added since then come back as 0/null
+            entries.map { it.copy(count = it.count.coerceAtLeast(1)) }
+        } catch (e: Exception) {
+            Log.w(TAG, "Discarding unreadable legacy error logs: ${e.message}")
+            emptyList()
+        }
     }
 }
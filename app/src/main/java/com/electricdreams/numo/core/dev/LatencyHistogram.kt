@@ -0,0 +1,107 @@
+/**
+ * Lock-free latency histogram with bounded relative error, in the style of HdrHistogram.
+ *
+ * Values are recorded in microseconds into log-linear buckets: every power-of-two range
+ * is split into [SUB_BUCKETS] equal buckets, so a reported percentile is within about 3%
+ * of the true value from 1 µs up to [MAX_MICROS], using a fixed ~8 KB of counters.
+ * Recording is a few atomic increments and never allocates, so it can sit on the NFC
+ * binder thread or inside coroutine hot paths.
+ */
+package com.electricdreams.numo.core.dev
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+class LatencyHistogram {
+
+    companion object {
+        private const val SUB_BUCKET_BITS = 5
+        const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+
+        // Values past this (about 38 hours) are clamped
+        private const val MAX_SHIFT = 31
+        const val MAX_MICROS = (1L shl (MAX_SHIFT + SUB_BUCKET_BITS + 1)) - 1
+
+        internal const val BUCKET_COUNT = SUB_BUCKETS + (MAX_SHIFT + 1) * SUB_BUCKETS
+
+        internal fun bucketOf(micros: Long): Int {
+            val value = micros.coerceIn(0L, MAX_MICROS)
+            if (value < SUB_BUCKETS) return value.toInt()
+            val shift = 63 - java.lang.Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS
+            val sub = (value ushr shift).toInt() - SUB_BUCKETS
+            return SUB_BUCKETS + shift * SUB_BUCKETS + sub
+        }
+
+        /** Largest value that falls into [bucket]. */
+        internal fun upperBoundOf(bucket: Int): Long {
+            if (bucket < SUB_BUCKETS) return bucket.toLong()
+            val shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS
+            val sub = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS
+            return ((sub + 1L) shl shift) - 1
+        }
+    }
+
+    /**
+     * Point-in-time view of a histogram. All values are in microseconds.
+     */
+    class Summary(
+        val count: Long,
+        val meanMicros: Long,
+        val p50Micros: Long,
+        val p90Micros: Long,
+        val p99Micros: Long,
+        val maxMicros: Long,
+    )
+
+    private val counts = AtomicLongArray(BUCKET_COUNT)
+    private val sum = AtomicLong()
+    private val max = AtomicLong()
+
+    fun recordNanos(nanos: Long) {
+        recordMicros(nanos / 1_000)
+    }
+
+    fun recordMicros(micros: Long) {
+        val value = micros.coerceIn(0L, MAX_MICROS)
+        counts.incrementAndGet(bucketOf(value))
+        sum.addAndGet(value)
+        max.accumulateAndGet(value, ::maxOf)
+    }
+
+    /**
+     * Percentiles are computed from a copy of the buckets, so concurrent recording can
+     * only make the summary miss the newest values, never make it inconsistent.
+     */
+    fun summary(): Summary {
+        val copy = LongArray(BUCKET_COUNT) { counts.get(it) }
+        val count = copy.sum()
+        val maxMicros = max.get()
+        if (count == 0L) return Summary(0, 0, 0, 0, 0, 0)
+
+        fun percentile(p: Int): Long {
+            // Rank of the value at p, 1-based
+            val rank = maxOf(1L, (count * p + 99) / 100)
+            var seen = 0L
+            for (bucket in copy.indices) {
+                seen += copy[bucket]
+                if (seen >= rank) return minOf(upperBoundOf(bucket), maxMicros)
+            }
+            return maxMicros
+        }
+
+        return Summary(
+            count = count,
+            meanMicros = sum.get() / count,
+            p50Micros = percentile(50),
+            p90Micros = percentile(90),
+            p99Micros = percentile(99),
+            maxMicros = maxMicros,
+        )
+    }
+
+    fun reset() {
+        for (bucket in 0 until BUCKET_COUNT) counts.set(bucket, 0)
+        sum.set(0)
+        max.set(0)
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * In-app metrics for mint, relay and NFC operations.
+ *
+ * Metrics are identified by a name and an optional label, typically a mint or relay URL,
+ * so the same operation can be compared across mints and relays. Three kinds exist:
+ * [Counter]s for events such as reconnects or failures, [Gauge]s for current values such
+ * as open connections, and [LatencyHistogram]s for durations. Updating any of them is a
+ * few atomic operations; callers on hot paths can keep the returned instance instead of
+ * looking it up each time.
+ *
+ * [snapshot] copies the current values without blocking writers. When started from the
+ * Application, [startPeriodicExport] appends a snapshot as one JSON line to
+ * `files/metrics/metrics.jsonl` every few minutes, so latencies and failure rates can be
+ * collected from a device and compared across a fleet.
+ */
+package com.electricdreams.numo.core.dev
+
+import android.util.Log
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.coroutines.cancellation.CancellationException
+
+object Metrics {
+
+    private const val TAG = "Metrics"
+
+    private const val EXPORT_DIR = "metrics"
+    private const val EXPORT_FILE = "metrics.jsonl"
+    private const val EXPORT_INTERVAL_MINUTES = 5L
+
+    // The current file is rotated to "<name>.1" once it grows past this
+    internal const val MAX_EXPORT_BYTES = 512 * 1024L
+
+    class Counter internal constructor(val name: String, val label: String) {
+        private val value = AtomicLong()
+
+        fun increment() {
+            value.incrementAndGet()
+        }
+
+        fun add(delta: Long) {
+            value.addAndGet(delta)
+        }
+
+        fun get(): Long = value.get()
+
+        internal fun reset() = value.set(0)
+    }
+
+    class Gauge internal constructor(val name: String, val label: String) {
+        private val value = AtomicLong()
+
+        fun set(newValue: Long) {
+            value.set(newValue)
+        }
+
+        fun increment() {
+            value.incrementAndGet()
+        }
+
+        fun decrement() {
+            value.decrementAndGet()
+        }
+
+        fun get(): Long = value.get()
+
+        internal fun reset() = value.set(0)
+    }
+
+    class Value(val name: String, val label: String, val value: Long)
+
+    class HistogramValue(val name: String, val label: String, val summary: LatencyHistogram.Summary)
+
+    /**
+     * Metric values at [takenAtMillis], each list sorted by name and label.
+     */
+    class Snapshot(
+        val takenAtMillis: Long,
+        val counters: List<Value>,
+        val gauges: List<Value>,
+        val histograms: List<HistogramValue>,
+    )
+
+    private data class Key(val name: String, val label: String)
+
+    private val counters = ConcurrentHashMap<Key, Counter>()
+    private val gauges = ConcurrentHashMap<Key, Gauge>()
+    private val histograms = ConcurrentHashMap<Key, LatencyHistogram>()
+
+    private val exportStarted = AtomicBoolean(false)
+    private var lastExportedFingerprint = 0L
+    private val exporter: ScheduledExecutorService by lazy {
+        Executors.newSingleThreadScheduledExecutor { runnable ->
+            Thread(runnable, "Numo-MetricsExporter").apply { isDaemon = true }
+        }
+    }
+
+    @JvmStatic
+    @JvmOverloads
+    fun counter(name: String, label: String? = null): Counter {
+        val key = Key(name, label.orEmpty())
+        return counters.getOrPut(key) { Counter(key.name, key.label) }
+    }
+
+    @JvmStatic
+    @JvmOverloads
+    fun gauge(name: String, label: String? = null): Gauge {
+        val key = Key(name, label.orEmpty())
+        return gauges.getOrPut(key) { Gauge(key.name, key.label) }
+    }
+
+    @JvmStatic
+    @JvmOverloads
+    fun histogram(name: String, label: String? = null): LatencyHistogram {
+        val key = Key(name, label.orEmpty())
+        return histograms.getOrPut(key) { LatencyHistogram() }
+    }
+
+    /**
+     * Run [block], record its duration in histogram [name], and count it in
+     * `<name>.errors` if it throws. Cancellation is not counted as an error.
+     */
+    inline fun <T> timed(name: String, label: String? = null, block: () -> T): T {
+        val start = System.nanoTime()
+        var failed = true
+        try {
+            val result = block()
+            failed = false
+            return result
+        } catch (e: CancellationException) {
+            failed = false
+            throw e
+        } finally {
+            histogram(name, label).recordNanos(System.nanoTime() - start)
+            if (failed) counter("$name.errors", label).increment()
+        }
+    }
+
+    @JvmStatic
+    fun snapshot(): Snapshot {
+        val order = compareBy<Value>({ it.name }, { it.label })
+        return Snapshot(
+            takenAtMillis = System.currentTimeMillis(),
+            counters = counters.values.map { Value(it.name, it.label, it.get()) }.sortedWith(order),
+            gauges = gauges.values.map { Value(it.name, it.label, it.get()) }.sortedWith(order),
+            histograms = histograms.entries
+                .map { (key, histogram) -> HistogramValue(key.name, key.label, histogram.summary()) }
+                .sortedWith(compareBy({ it.name }, { it.label })),
+        )
+    }
+
+    /**
+     * One snapshot as a single-line JSON object. Latencies are in milliseconds.
+     */
+    @JvmStatic
+    fun toJson(snapshot: Snapshot = snapshot()): String {
+        fun JsonObject.identify(name: String, label: String) {
+            addProperty("name", name)
+            if (label.isNotEmpty()) addProperty("label", label)
+        }
+
+        val counterArray = JsonArray()
+        snapshot.counters.forEach { value ->
+            counterArray.add(JsonObject().apply {
+                identify(value.name, value.label)
+                addProperty("value", value.value)
+            })
+        }
+        val gaugeArray = JsonArray()
+        snapshot.gauges.forEach { value ->
+            gaugeArray.add(JsonObject().apply {
+                identify(value.name, value.label)
+                addProperty("value", value.value)
+            })
+        }
+        val histogramArray = JsonArray()
+        snapshot.histograms.forEach { value ->
+            val summary = value.summary
+            histogramArray.add(JsonObject().apply {
+                identify(value.name, value.label)
+                addProperty("count", summary.count)
+                addProperty("meanMs", summary.meanMicros / 1_000.0)
+                addProperty("p50Ms", summary.p50Micros / 1_000.0)
+                addProperty("p90Ms", summary.p90Micros / 1_000.0)
+                addProperty("p99Ms", summary.p99Micros / 1_000.0)
+                addProperty("maxMs", summary.maxMicros / 1_000.0)
+            })
+        }
+
+        return JsonObject().apply {
+            addProperty("timestamp", snapshot.takenAtMillis)
+            add("counters", counterArray)
+            add("gauges", gaugeArray)
+            add("histograms", histogramArray)
+        }.toString()
+    }
+
+    /**
+     * Append a snapshot to `<filesDir>/metrics/metrics.jsonl` every few minutes, skipping
+     * intervals in which nothing changed. Safe to call more than once.
+     */
+    @JvmStatic
+    fun startPeriodicExport(filesDir: File) {
+        if (!exportStarted.compareAndSet(false, true)) return
+        val file = File(File(filesDir, EXPORT_DIR), EXPORT_FILE)
+        exporter.scheduleWithFixedDelay(
+            { exportIfChanged(file) },
+            EXPORT_INTERVAL_MINUTES,
+            EXPORT_INTERVAL_MINUTES,
+            TimeUnit.MINUTES,
+        )
+    }
+
+    /**
+     * Append the current snapshot to [file] now, rotating it when it grows too large.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun exportTo(file: File) {
+        file.parentFile?.mkdirs()
+        if (file.length() > MAX_EXPORT_BYTES) {
+            val previous = File(file.path + ".1")
+            previous.delete()
+            if (!file.renameTo(previous)) file.delete()
+        }
+        file.appendText(toJson() + "\n")
+    }
+
+    /**
+     * Zero every metric. Metric instances held by callers stay registered.
+     */
+    @JvmStatic
+    fun reset() {
+        counters.values.forEach { it.reset() }
+        gauges.values.forEach { it.reset() }
+        histograms.values.forEach { it.reset() }
+    }
+
+    private fun exportIfChanged(file: File) {
+        // Counters and histogram counts only grow between resets, so this changes whenever
+        // anything was recorded; gauges are mixed in so a changed gauge alone is exported too
+        val fingerprint = counters.values.sumOf { it.get() } +
+            histograms.values.sumOf { it.summary().count } +
+            gauges.values.sumOf { it.get() * 31 }
+        if (fingerprint == lastExportedFingerprint) return
+        try {
+            exportTo(file)
+            lastExportedFingerprint = fingerprint
+        } catch (e: IOException) {
+            Log.w(TAG, "Failed to export metrics: ${e.message}")
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Lightweight latency tracing for the payment flow.
+ *
+ * Each finished stage of a payment (NFC transfer, NDEF parsing, token validation,
+ * wallet receive, swap, history write, UI transition) is recorded as a span with
+ * monotonic [System.nanoTime] timestamps, a span id and the pending payment id it
+ * belongs to. Spans go into a fixed-size ring without locks: a writer claims a slot
+ * with one atomic increment and publishes it with a sequence number, so recording
+ * never blocks the NFC or UI thread. Readers copy the ring and skip slots that are
+ * being overwritten. Developer Settings > Payment Timings shows per-stage percentiles
+ * and exports the spans as a Chrome trace file.
+ */
+package com.electricdreams.numo.core.dev
+
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import java.util.concurrent.atomic.AtomicIntegerArray
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+object PaymentTrace {
+
+    // Power of two so slots can be picked with a mask
+    const val CAPACITY = 1024
+    private const val MASK = CAPACITY - 1L
+
+    enum class Stage(val label: String) {
+        APDU_TRANSFER("NFC transfer"),
+        NDEF_PARSE("NDEF parsing"),
+        TOKEN_VALIDATION("Token validation"),
+        WALLET_RECEIVE("Wallet receive"),
+        SWAP("Swap to Lightning mint"),
+        HISTORY_WRITE("History write"),
+        UI_TRANSITION("Success screen"),
+        TAP_TO_PAID("Tap to paid"),
+    }
+
+    /**
+     * A recorded stage.
+     * @property spanId Unique and increasing in recording order
+     * @property startNanos Monotonic start time, comparable only within this process
+     */
+    class Span(
+        val spanId: Long,
+        val stage: Stage,
+        val paymentId: String?,
+        val startNanos: Long,
+        val durationNanos: Long,
+        val threadName: String,
+    )
+
+    class StageStats(
+        val stage: Stage,
+        val count: Int,
+        val p50Nanos: Long,
+        val p95Nanos: Long,
+        val maxNanos: Long,
+    )
+
+    private val cursor = AtomicLong()
+
+    // Per slot: spanId + 1 once published, 0 while empty or being written
+    private val published = AtomicLongArray(CAPACITY)
+    private val stages = AtomicIntegerArray(CAPACITY)
+    private val starts = AtomicLongArray(CAPACITY)
+    private val durations = AtomicLongArray(CAPACITY)
+    private val paymentIds = AtomicReferenceArray<String?>(CAPACITY)
+    private val threadNames = AtomicReferenceArray<String>(CAPACITY)
+
+    // Lets exported timestamps be shown as wall-clock time
+    private val epochMillisAtOrigin = System.currentTimeMillis()
+    private val nanosAtOrigin = System.nanoTime()
+
+    @Volatile
+    private var currentPaymentId: String? = null
+
+    private val tapStart = AtomicLong()
+    private val transferredTapStart = AtomicLong()
+
+    @JvmStatic
+    fun now(): Long = System.nanoTime()
+
+    /**
+     * Tag spans recorded without an explicit payment id with [paymentId] until
+     * [clearPaymentContext].
+     */
+    @JvmStatic
+    fun setPaymentContext(paymentId: String?) {
+        currentPaymentId = paymentId
+    }
+
+    /**
+     * Clear the payment context, but only if it still belongs to [paymentId].
+     */
+    @JvmStatic
+    fun clearPaymentContext(paymentId: String?) {
+        if (currentPaymentId == paymentId) currentPaymentId = null
+    }
+
+    /**
+     * Record a stage that started at [startNanos] (from [now]) and ends now.
+     * @return The span id
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun record(stage: Stage, startNanos: Long, paymentId: String? = currentPaymentId): Long {
+        val end = now()
+        val spanId = cursor.getAndIncrement()
+        val slot = (spanId and MASK).toInt()
+
+        published.set(slot, 0)
+        stages.set(slot, stage.ordinal)
+        starts.set(slot, startNanos)
+        durations.set(slot, end - startNanos)
+        paymentIds.set(slot, paymentId)
+        threadNames.set(slot, Thread.currentThread().name)
+        published.set(slot, spanId + 1)
+        return spanId
+    }
+
+    /**
+     * Run [block] and record it as [stage], whether it returns or throws.
+     */
+    inline fun <T> trace(stage: Stage, paymentId: String? = null, block: () -> T): T {
+        val start = now()
+        try {
+            return block()
+        } finally {
+            if (paymentId != null) record(stage, start, paymentId) else record(stage, start)
+        }
+    }
+
+    /**
+     * The first APDU of an NFC tap arrived.
+     */
+    @JvmStatic
+    fun tapStarted() {
+        tapStart.set(now())
+    }
+
+    /**
+     * The tap ended without a message being written.
+     */
+    @JvmStatic
+    fun tapAbandoned() {
+        tapStart.set(0)
+    }
+
+    /**
+     * A complete message was written by the payer: records [Stage.APDU_TRANSFER] since
+     * [tapStarted] and remembers the tap for [paymentCompleted].
+     */
+    @JvmStatic
+    fun tapTransferred() {
+        val start = tapStart.getAndSet(0)
+        if (start == 0L) return
+        record(Stage.APDU_TRANSFER, start)
+        transferredTapStart.set(start)
+    }
+
+    /**
+     * The payment succeeded: records [Stage.TAP_TO_PAID] if it was paid by NFC.
+     */
+    @JvmStatic
+    fun paymentCompleted(paymentId: String?) {
+        val start = transferredTapStart.getAndSet(0)
+        if (start != 0L) record(Stage.TAP_TO_PAID, start, paymentId)
+    }
+
+    /**
+     * The spans still in the ring, oldest first.
+     */
+    @JvmStatic
+    fun snapshot(): List<Span> {
+        val end = cursor.get()
+        val first = maxOf(0L, end - CAPACITY)
+        val spans = ArrayList<Span>((end - first).toInt())
+        for (spanId in first until end) {
+            val slot = (spanId and MASK).toInt()
+            if (published.get(slot) != spanId + 1) continue
+            val span = Span(
+                spanId = spanId,
+                stage = Stage.entries[stages.get(slot)],
+                paymentId = paymentIds.get(slot),
+                startNanos = starts.get(slot),
+                durationNanos = durations.get(slot),
+                threadName = threadNames.get(slot),
+            )
+            // Overwritten while we were reading it
+            if (published.get(slot) != spanId + 1) continue
+            spans.add(span)
+        }
+        return spans
+    }
+
+    /**
+     * Count and percentiles per stage, in [Stage] order, for stages with any spans.
+     */
+    @JvmStatic
+    fun stageStats(spans: List<Span> = snapshot()): List<StageStats> =
+        spans.groupBy { it.stage }.toSortedMap().map { (stage, stageSpans) ->
+            val sorted = stageSpans.map { it.durationNanos }.sorted()
+            StageStats(
+                stage = stage,
+                count = sorted.size,
+                p50Nanos = percentile(sorted, 50),
+                p95Nanos = percentile(sorted, 95),
+                maxNanos = sorted.last(),
+            )
+        }
+
+    /**
+     * Spans in Chrome trace event format, viewable in Perfetto or chrome://tracing.
+     * Each payment is shown as its own track.
+     */
+    @JvmStatic
+    fun toChromeTrace(spans: List<Span> = snapshot()): String {
+        val events = JsonArray()
+        val tracks = LinkedHashMap<String?, Int>()
+        for (span in spans) {
+            val track = tracks.getOrPut(span.paymentId) { tracks.size + 1 }
+            events.add(JsonObject().apply {
+                addProperty("name", span.stage.label)
+                addProperty("cat", span.stage.name)
+                addProperty("ph", "X")
+                addProperty("ts", (span.startNanos - nanosAtOrigin) / 1_000.0)
+                addProperty("dur", span.durationNanos / 1_000.0)
+                addProperty("pid", 1)
+                addProperty("tid", track)
+                add("args", JsonObject().apply {
+                    addProperty("spanId", span.spanId)
+                    addProperty("paymentId", span.paymentId)
+                    addProperty("thread", span.threadName)
+                })
+            })
+        }
+        for ((paymentId, track) in tracks) {
+            events.add(JsonObject().apply {
+                addProperty("name", "thread_name")
+                addProperty("ph", "M")
+                addProperty("pid", 1)
+                addProperty("tid", track)
+                add("args", JsonObject().apply { addProperty("name", paymentId ?: "No payment") })
+            })
+        }
+        return JsonObject().apply {
+            add("traceEvents", events)
+            addProperty("displayTimeUnit", "ms")
+            add("otherData", JsonObject().apply {
+                addProperty("originEpochMillis", epochMillisAtOrigin)
+            })
+        }.toString()
+    }
+
+    /**
+     * Drop all recorded spans.
+     */
+    @JvmStatic
+    fun clear() {
+        for (slot in 0 until CAPACITY) published.set(slot, 0)
+        tapStart.set(0)
+        transferredTapStart.set(0)
+    }
+
+    private fun percentile(sorted: List<Long>, p: Int): Long = sorted[((sorted.size - 1) * p) / 100]
+}
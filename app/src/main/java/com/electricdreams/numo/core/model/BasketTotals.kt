@@ -0,0 +1,51 @@
+package com.electricdreams.numo.core.model
+
+/**
+ * Immutable snapshot of the running basket totals maintained by
+ * [com.electricdreams.numo.core.util.BasketManager].
+ *
+ * Fiat amounts are kept in minor units (cents) and include VAT, so adding and
+ * removing lines never accumulates floating-point error. Each unit price is
+ * rounded to cents the same way the item's formatted price is.
+ */
+data class BasketTotals(
+    /** Sum of all line quantities */
+    val itemCount: Int = 0,
+
+    /** Gross total of fiat-priced lines, in minor units */
+    val fiatTotalCents: Long = 0L,
+
+    /** Total of sats-priced lines */
+    val satsDirectTotal: Long = 0L,
+
+    /** Number of fiat-priced lines */
+    val fiatLineCount: Int = 0,
+
+    /** Number of sats-priced lines */
+    val satsLineCount: Int = 0,
+
+    /** VAT amount of fiat lines in minor units, keyed by VAT rate (e.g. 20 for 20%) */
+    val vatByRateCents: Map<Int, Long> = emptyMap(),
+) {
+
+    /** Gross total of fiat-priced lines, in major units */
+    val fiatTotal: Double
+        get() = fiatTotalCents / 100.0
+
+    /** VAT amount of fiat lines in major units, keyed by VAT rate */
+    val vatByRate: Map<Int, Double>
+        get() = vatByRateCents.mapValues { it.value / 100.0 }
+
+    /** Total VAT over all rates, in major units */
+    val vatTotal: Double
+        get() = vatByRateCents.values.sum() / 100.0
+
+    fun isEmpty(): Boolean = fiatLineCount == 0 && satsLineCount == 0
+
+    fun hasMixedPriceTypes(): Boolean = fiatLineCount > 0 && satsLineCount > 0
+
+    companion object {
+        @JvmField
+        val EMPTY = BasketTotals()
+    }
+}
@@ -10,6 +10,9 @@ import java.util.Date
  * 
  * This is serialized to JSON and stored with the payment history entry
  * to enable reconstruction of a detailed receipt view.
+ *
+ * The basket never changes after checkout, so its totals are computed in a single
+ * pass on first use and cached for subsequent receipt renders.
  */
 data class CheckoutBasket(
     /** Unique identifier for this basket */
@@ -37,6 +40,70 @@ data class CheckoutBasket(
     val totalSatoshis: Long,
 ) {
 
+    /**
+     * Totals over [items], in minor units for fiat and sats for sats-priced items.
+     */
+    private class Totals(
+        val itemCount: Int,
+        val fiatNetCents: Long,
+        val fiatVatCents: Long,
+        val fiatGrossCents: Long,
+        val satsDirect: Long,
+        val hasFiat: Boolean,
+        val hasSats: Boolean,
+        val hasVat: Boolean,
+        val vatBreakdown: Map<Int, Long>,
+    )
+
+    // Not serialized; also null after Gson deserialization, which bypasses the constructor
+    @Transient
+    private var cachedTotals: Totals? = null
+
+    private fun totals(): Totals {
+        cachedTotals?.let { return it }
+
+        var itemCount = 0
+        var netCents = 0L
+        var vatCents = 0L
+        var grossCents = 0L
+        var satsDirect = 0L
+        var hasFiat = false
+        var hasSats = false
+        var hasVat = false
+        val vatBreakdown = LinkedHashMap<Int, Long>()
+
+        for (item in items) {
+            itemCount += item.quantity
+            if (item.vatEnabled && item.vatRate > 0) hasVat = true
+            if (item.isSatsPrice()) {
+                hasSats = true
+                satsDirect += item.getNetTotalSats()
+            }
+            if (item.isFiatPrice()) {
+                hasFiat = true
+                val lineVat = item.getTotalVatCents()
+                netCents += item.getNetTotalCents()
+                vatCents += lineVat
+                grossCents += item.getGrossTotalCents()
+                if (item.vatEnabled && item.vatRate > 0) {
+                    vatBreakdown[item.vatRate] = (vatBreakdown[item.vatRate] ?: 0L) + lineVat
+                }
+            }
+        }
+
+        return Totals(
+            itemCount = itemCount,
+            fiatNetCents = netCents,
+            fiatVatCents = vatCents,
+            fiatGrossCents = grossCents,
+            satsDirect = satsDirect,
+            hasFiat = hasFiat,
+            hasSats = hasSats,
+            hasVat = hasVat,
+            vatBreakdown = vatBreakdown,
+        ).also { cachedTotals = it }
+    }
+
     /**
      * Get all fiat-priced items.
      */
@@ -50,52 +117,43 @@ data class CheckoutBasket(
     /**
      * Check if basket contains mixed price types.
      */
-    fun hasMixedPriceTypes(): Boolean {
-        val hasFiat = items.any { it.isFiatPrice() }
-        val hasSats = items.any { it.isSatsPrice() }
-        return hasFiat && hasSats
-    }
+    fun hasMixedPriceTypes(): Boolean = totals().let { it.hasFiat && it.hasSats }
 
     /**
      * Check if any items have VAT enabled.
      */
-    fun hasVat(): Boolean = items.any { it.vatEnabled && it.vatRate > 0 }
+    fun hasVat(): Boolean = totals().hasVat
 
     /**
      * Calculate total item count (sum of all quantities).
      */
-    fun getTotalItemCount(): Int = items.sumOf { it.quantity }
+    fun getTotalItemCount(): Int = totals().itemCount
 
     /**
      * Calculate total net amount for fiat items (in minor units/cents).
      */
-    fun getFiatNetTotalCents(): Long = getFiatItems().sumOf { it.getNetTotalCents() }
+    fun getFiatNetTotalCents(): Long = totals().fiatNetCents
 
     /**
      * Calculate total VAT amount for fiat items (in minor units/cents).
      */
-    fun getFiatVatTotalCents(): Long = getFiatItems().sumOf { it.getTotalVatCents() }
+    fun getFiatVatTotalCents(): Long = totals().fiatVatCents
 
     /**
      * Calculate total gross amount for fiat items (in minor units/cents).
      */
-    fun getFiatGrossTotalCents(): Long = getFiatItems().sumOf { it.getGrossTotalCents() }
+    fun getFiatGrossTotalCents(): Long = totals().fiatGrossCents
 
     /**
      * Calculate total sats for directly sats-priced items.
      */
-    fun getSatsDirectTotal(): Long = getSatsItems().sumOf { it.getNetTotalSats() }
+    fun getSatsDirectTotal(): Long = totals().satsDirect
 
     /**
      * Get grouped VAT breakdown by rate.
      * Returns a map of VAT rate (e.g., 20) to total VAT amount in cents.
      */
-    fun getVatBreakdown(): Map<Int, Long> {
-        return getFiatItems()
-            .filter { it.vatEnabled && it.vatRate > 0 }
-            .groupBy { it.vatRate }
-            .mapValues { (_, items) -> items.sumOf { it.getTotalVatCents() } }
-    }
+    fun getVatBreakdown(): Map<Int, Long> = totals().vatBreakdown
 
     /**
      * Get the checkout date as a Date object.
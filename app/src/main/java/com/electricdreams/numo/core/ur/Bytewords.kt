@@ -0,0 +1,77 @@
+package com.electricdreams.numo.core.ur
+
+import java.util.zip.CRC32
+
+/**
+ * Bytewords encoding used by Uniform Resources (BCR-2020-012), in its minimal style:
+ * every byte becomes the first and last letter of one of 256 four-letter words, and a
+ * CRC32 of the data is appended so a misread frame is rejected instead of decoded.
+ */
+object Bytewords {
+
+    private const val WORDS =
+        "ableacidalsoapexaquaarchatomauntawayaxisbackbaldbarnbeltbetabiasbluebodybragbrewbulbbuzzcalm" +
+            "cashcatschefcityclawcodecolacookcostcruxcurlcuspcyandarkdatadaysdelidicedietdoordowndraw" +
+            "dropdrumdulldutyeacheasyechoedgeepicevenexamexiteyesfactfairfernfigsfilmfishfizzflapflew" +
+            "fluxfoxyfreefrogfuelfundgalagamegeargemsgiftgirlglowgoodgraygrimgurugushgyrohalfhanghard" +
+            "hawkheathelphighhillholyhopehornhutsicedideaidleinchinkyintoirisironitemjadejazzjoinjolt" +
+            "jowljudojugsjumpjunkjurykeepkenokeptkeyskickkilnkingkitekiwiknoblamblavalazyleaflegsliar" +
+            "limplionlistlogoloudloveluaulucklungmainmanymathmazememomenumeowmildmintmissmonknailnavy" +
+            "neednewsnextnoonnotenumbobeyoboeomitonyxopenovalowlspaidpartpeckplaypluspoempoolposepuff" +
+            "pumapurrquadquizraceramprealredorichroadrockroofrubyruinrunsrustsafesagascarsetssilkskew" +
+            "slotsoapsolosongstubsurfswantacotasktaxitenttiedtimetinytoiltombtoystriptunatwinuglyundo" +
+            "uniturgeuservastveryvetovialvibeviewvisavoidvowswallwandwarmwaspwavewaxywebswhatwhenwhiz" +
+            "wolfworkyankyawnyellyogayurtzapszerozestzinczonezoom"
+
+    // Byte value for each minimal (first + last letter) pair, -1 if unused
+    private val minimalValues = IntArray(26 * 26) { -1 }.also { table ->
+        for (i in 0 until 256) {
+            table[pairIndex(WORDS[i * 4], WORDS[i * 4 + 3])] = i
+        }
+    }
+
+    private fun pairIndex(first: Char, last: Char): Int = (first - 'a') * 26 + (last - 'a')
+
+    /**
+     * Encode [data] followed by its checksum, two lowercase letters per byte.
+     */
+    fun encodeMinimal(data: ByteArray): String {
+        val withChecksum = data + crc32Bytes(data)
+        val out = StringBuilder(withChecksum.size * 2)
+        for (b in withChecksum) {
+            val i = (b.toInt() and 0xFF) * 4
+            out.append(WORDS[i]).append(WORDS[i + 3])
+        }
+        return out.toString()
+    }
+
+    /**
+     * Decode minimal bytewords and verify the trailing checksum.
+     * @throws IllegalArgumentException if the text is malformed or the checksum does not match
+     */
+    fun decodeMinimal(text: String): ByteArray {
+        val lower = text.lowercase()
+        require(lower.length % 2 == 0 && lower.length >= 10) { "Invalid bytewords length" }
+        val bytes = ByteArray(lower.length / 2)
+        for (i in bytes.indices) {
+            val first = lower[i * 2]
+            val last = lower[i * 2 + 1]
+            require(first in 'a'..'z' && last in 'a'..'z') { "Invalid byteword" }
+            val value = minimalValues[pairIndex(first, last)]
+            require(value >= 0) { "Invalid byteword" }
+            bytes[i] = value.toByte()
+        }
+        val data = bytes.copyOfRange(0, bytes.size - 4)
+        require(crc32Bytes(data).contentEquals(bytes.copyOfRange(bytes.size - 4, bytes.size))) {
+            "Invalid bytewords checksum"
+        }
+        return data
+    }
+
+    internal fun crc32(data: ByteArray): Long = CRC32().apply { update(data) }.value
+
+    private fun crc32Bytes(data: ByteArray): ByteArray {
+        val crc = crc32(data)
+        return byteArrayOf((crc ushr 24).toByte(), (crc ushr 16).toByte(), (crc ushr 8).toByte(), crc.toByte())
+    }
+}
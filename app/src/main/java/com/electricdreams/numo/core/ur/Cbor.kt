@@ -0,0 +1,107 @@
+package com.electricdreams.numo.core.ur
+
+import java.io.ByteArrayOutputStream
+
+/**
+ * The small subset of CBOR that URs of type `bytes` use: unsigned integers, byte strings
+ * and arrays.
+ */
+internal object Cbor {
+
+    private const val MAJOR_UNSIGNED = 0
+    private const val MAJOR_BYTES = 2
+    private const val MAJOR_ARRAY = 4
+
+    fun writeUnsigned(out: ByteArrayOutputStream, value: Long) = writeHeader(out, MAJOR_UNSIGNED, value)
+
+    fun writeBytes(out: ByteArrayOutputStream, value: ByteArray) {
+        writeHeader(out, MAJOR_BYTES, value.size.toLong())
+        out.write(value)
+    }
+
+    fun writeArrayHeader(out: ByteArrayOutputStream, size: Int) = writeHeader(out, MAJOR_ARRAY, size.toLong())
+
+    /** Encode [value] as a single byte string. */
+    fun encodeBytes(value: ByteArray): ByteArray =
+        ByteArrayOutputStream(value.size + 9).also { writeBytes(it, value) }.toByteArray()
+
+    /** Decode a single byte string. */
+    fun decodeBytes(data: ByteArray): ByteArray = Reader(data).run {
+        readBytes().also { require(isAtEnd) { "Trailing CBOR data" } }
+    }
+
+    private fun writeHeader(out: ByteArrayOutputStream, major: Int, value: Long) {
+        val type = major shl 5
+        when {
+            value < 24 -> out.write(type or value.toInt())
+            value <= 0xFF -> {
+                out.write(type or 24)
+                out.write(value.toInt())
+            }
+            value <= 0xFFFF -> {
+                out.write(type or 25)
+                writeBigEndian(out, value, 2)
+            }
+            value <= 0xFFFFFFFFL -> {
+                out.write(type or 26)
+                writeBigEndian(out, value, 4)
+            }
+            else -> {
+                out.write(type or 27)
+                writeBigEndian(out, value, 8)
+            }
+        }
+    }
+
+    private fun writeBigEndian(out: ByteArrayOutputStream, value: Long, bytes: Int) {
+        for (i in bytes - 1 downTo 0) out.write((value ushr (i * 8)).toInt() and 0xFF)
+    }
+
+    /**
+     * Reads items in order.
+     * @throws IllegalArgumentException on malformed or unexpected input
+     */
+    class Reader(private val data: ByteArray) {
+        private var pos = 0
+
+        val isAtEnd: Boolean get() = pos == data.size
+
+        fun readUnsigned(): Long = readHeader(MAJOR_UNSIGNED)
+
+        fun readBytes(): ByteArray {
+            val length = readHeader(MAJOR_BYTES)
+            require(length <= data.size - pos) { "Truncated CBOR byte string" }
+            return data.copyOfRange(pos, pos + length.toInt()).also { pos += length.toInt() }
+        }
+
+        fun readArrayHeader(): Int {
+            val size = readHeader(MAJOR_ARRAY)
+            require(size <= Int.MAX_VALUE) { "CBOR array too large" }
+            return size.toInt()
+        }
+
+        private fun readHeader(expectedMajor: Int): Long {
+            val initial = readByte()
+            require(initial ushr 5 == expectedMajor) { "Unexpected CBOR type" }
+            return when (val info = initial and 0x1F) {
+                in 0..23 -> info.toLong()
+                24 -> readBigEndian(1)
+                25 -> readBigEndian(2)
+                26 -> readBigEndian(4)
+                27 -> readBigEndian(8).also { require(it >= 0) { "CBOR value too large" } }
+                else -> throw IllegalArgumentException("Unsupported CBOR length")
+            }
+        }
+
+        private fun readBigEndian(bytes: Int): Long {
+            var value = 0L
+            repeat(bytes) { value = (value shl 8) or readByte().toLong() }
+            return value
+        }
+
+        private fun readByte(): Int {
+            require(pos < data.size) { "Truncated CBOR data" }
+            return data[pos++].toInt() and 0xFF
+        }
+    }
+}
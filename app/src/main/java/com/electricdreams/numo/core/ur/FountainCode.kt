@@ -0,0 +1,76 @@
+package com.electricdreams.numo.core.ur
+
+/**
+ * Fragment selection shared by [FountainEncoder] and [FountainDecoder].
+ *
+ * The first [seqLen] parts carry one fragment each, in order. Every later part mixes a
+ * pseudo-random set of fragments whose size follows the ideal soliton distribution,
+ * derived only from the part's sequence number and the message checksum so the
+ * decoder can tell which fragments a part contains.
+ */
+internal object FountainCode {
+
+    fun chooseFragments(seqNum: Long, seqLen: Int, checksum: Long): List<Int> {
+        if (seqNum <= seqLen) return listOf((seqNum - 1).toInt())
+
+        val seed = ByteArray(8)
+        for (i in 0 until 4) {
+            seed[i] = (seqNum ushr (24 - i * 8)).toByte()
+            seed[4 + i] = (checksum ushr (24 - i * 8)).toByte()
+        }
+        val rng = Xoshiro256(seed)
+        val degree = chooseDegree(seqLen, rng)
+        return shuffle((0 until seqLen).toList(), rng).subList(0, degree)
+    }
+
+    fun shuffle(items: List<Int>, rng: Xoshiro256): List<Int> {
+        val remaining = items.toMutableList()
+        val result = ArrayList<Int>(items.size)
+        while (remaining.isNotEmpty()) {
+            result.add(remaining.removeAt(rng.nextInt(0, remaining.size - 1)))
+        }
+        return result
+    }
+
+    private fun chooseDegree(seqLen: Int, rng: Xoshiro256): Int {
+        val probabilities = DoubleArray(seqLen) { 1.0 / (it + 1) }
+        return RandomSampler(probabilities).next(rng) + 1
+    }
+
+    /**
+     * Walker's alias method, set up exactly as the reference implementation does so
+     * that both ends draw the same degree.
+     */
+    private class RandomSampler(weights: DoubleArray) {
+        private val probs = DoubleArray(weights.size)
+        private val aliases = IntArray(weights.size)
+
+        init {
+            val n = weights.size
+            val sum = weights.sum()
+            val p = DoubleArray(n) { weights[it] * n / sum }
+            val small = ArrayList<Int>()
+            val large = ArrayList<Int>()
+            for (i in n - 1 downTo 0) {
+                if (p[i] < 1) small.add(i) else large.add(i)
+            }
+            while (small.isNotEmpty() && large.isNotEmpty()) {
+                val a = small.removeAt(small.size - 1)
+                val g = large.removeAt(large.size - 1)
+                probs[a] = p[a]
+                aliases[a] = g
+                p[g] += p[a] - 1
+                if (p[g] < 1) small.add(g) else large.add(g)
+            }
+            for (i in large) probs[i] = 1.0
+            for (i in small) probs[i] = 1.0
+        }
+
+        fun next(rng: Xoshiro256): Int {
+            val r1 = rng.nextDouble()
+            val r2 = rng.nextDouble()
+            val i = (probs.size * r1).toInt()
+            return if (r2 < probs[i]) i else aliases[i]
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.electricdreams.numo.core.ur
+
+/**
+ * Reassembles a message from [FountainEncoder] parts received in any order, with any
+ * number of them missing or repeated.
+ *
+ * Single-fragment parts are kept as solved fragments. Mixed parts are reduced by every
+ * fragment already solved and by every other mixed part whose fragments they contain;
+ * whenever a reduction leaves a single fragment it is solved in turn.
+ */
+internal class FountainDecoder {
+
+    private class Part(val indexes: Set<Int>, val data: ByteArray) {
+        val isSimple: Boolean get() = indexes.size == 1
+    }
+
+    private var seqLen = 0
+    private var messageLen = 0
+    private var checksum = 0L
+    private var fragmentLen = 0
+
+    private val receivedSeqNums = HashSet<Long>()
+    private val solved = HashMap<Int, ByteArray>()
+    private val mixed = HashMap<Set<Int>, Part>()
+    private val queue = ArrayDeque<Part>()
+
+    /** The message once every fragment is solved and the checksum matched. */
+    var result: ByteArray? = null
+        private set
+
+    /** Set if all fragments were solved but did not match the checksum. */
+    var error: Exception? = null
+        private set
+
+    val isComplete: Boolean get() = result != null || error != null
+
+    val expectedPartCount: Int get() = seqLen
+
+    val solvedFragmentCount: Int get() = solved.size
+
+    val processedPartCount: Int get() = receivedSeqNums.size
+
+    /**
+     * Add a part.
+     * @return false if it was a repeat, did not belong to this message, or decoding had
+     * already finished
+     */
+    fun receivePart(part: FountainPart): Boolean {
+        if (isComplete) return false
+        if (receivedSeqNums.isEmpty()) {
+            if (part.seqLen.toLong() != (part.messageLen.toLong() + part.data.size - 1) / part.data.size) return false
+            seqLen = part.seqLen
+            messageLen = part.messageLen
+            checksum = part.checksum
+            fragmentLen = part.data.size
+        } else if (part.seqLen != seqLen || part.messageLen != messageLen ||
+            part.checksum != checksum || part.data.size != fragmentLen
+        ) {
+            return false
+        }
+        if (!receivedSeqNums.add(part.seqNum)) return false
+
+        val indexes = FountainCode.chooseFragments(part.seqNum, seqLen, checksum).toSet()
+        queue.addLast(Part(indexes, part.data))
+        while (queue.isNotEmpty() && !isComplete) {
+            val next = queue.removeFirst()
+            if (next.isSimple) processSimple(next) else processMixed(next)
+        }
+        return true
+    }
+
+    private fun processSimple(part: Part) {
+        val index = part.indexes.single()
+        if (solved.containsKey(index)) return
+        solved[index] = part.data
+
+        if (solved.size == seqLen) {
+            val message = ByteArray(seqLen * fragmentLen)
+            for ((i, fragment) in solved) System.arraycopy(fragment, 0, message, i * fragmentLen, fragmentLen)
+            val trimmed = message.copyOfRange(0, messageLen)
+            if (Bytewords.crc32(trimmed) == checksum) {
+                result = trimmed
+            } else {
+                error = IllegalStateException("Fountain message checksum mismatch")
+            }
+            return
+        }
+        reduceMixedBy(part)
+    }
+
+    private fun processMixed(part: Part) {
+        if (mixed.containsKey(part.indexes)) return
+
+        var reduced = part
+        for ((index, data) in solved) {
+            reduced = reduce(reduced, Part(setOf(index), data))
+        }
+        for (other in mixed.values) {
+            reduced = reduce(reduced, other)
+        }
+        if (reduced.isSimple) {
+            queue.addLast(reduced)
+        } else if (!mixed.containsKey(reduced.indexes)) {
+            reduceMixedBy(reduced)
+            mixed[reduced.indexes] = reduced
+        }
+    }
+
+    private fun reduceMixedBy(part: Part) {
+        val updated = ArrayList<Part>()
+        val iterator = mixed.values.iterator()
+        while (iterator.hasNext()) {
+            val current = iterator.next()
+            val reduced = reduce(current, part)
+            if (reduced === current) continue
+            iterator.remove()
+            if (reduced.isSimple) queue.addLast(reduced) else updated.add(reduced)
+        }
+        for (p in updated) mixed.putIfAbsent(p.indexes, p)
+    }
+
+    /** [a] with the fragments of [b] removed, if [b]'s are a proper subset of [a]'s. */
+    private fun reduce(a: Part, b: Part): Part {
+        if (b.indexes.size >= a.indexes.size || !a.indexes.containsAll(b.indexes)) return a
+        val data = ByteArray(fragmentLen) { (a.data[it].toInt() xor b.data[it].toInt()).toByte() }
+        return Part(a.indexes - b.indexes, data)
+    }
+}
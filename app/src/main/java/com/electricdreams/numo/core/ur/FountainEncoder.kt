@@ -0,0 +1,66 @@
+package com.electricdreams.numo.core.ur
+
+import kotlin.math.ceil
+
+/**
+ * Splits a message into equal fragments and produces an endless stream of parts: first
+ * each fragment on its own, then random mixes of them, so a reader that missed some
+ * frames can still recover the message from whichever later frames it catches.
+ */
+internal class FountainEncoder(
+    message: ByteArray,
+    maxFragmentLen: Int,
+    minFragmentLen: Int = 10
+) {
+
+    val messageLen = message.size
+    val checksum = Bytewords.crc32(message)
+    val fragmentLen = nominalFragmentLength(message.size, minFragmentLen, maxFragmentLen)
+    private val fragments: List<ByteArray> = partition(message, fragmentLen)
+
+    val seqLen: Int get() = fragments.size
+
+    var seqNum = 0L
+        private set
+
+    init {
+        require(message.isNotEmpty()) { "Message must not be empty" }
+    }
+
+    fun nextPart(): FountainPart {
+        seqNum++
+        val mixed = ByteArray(fragmentLen)
+        for (index in FountainCode.chooseFragments(seqNum, seqLen, checksum)) {
+            val fragment = fragments[index]
+            for (i in mixed.indices) mixed[i] = (mixed[i].toInt() xor fragment[i].toInt()).toByte()
+        }
+        return FountainPart(seqNum, seqLen, messageLen, checksum, mixed)
+    }
+
+    companion object {
+        /**
+         * The shortest fragment length at or below [maxFragmentLen] that splits the
+         * message into equal parts, as in the reference encoder.
+         */
+        fun nominalFragmentLength(messageLen: Int, minFragmentLen: Int, maxFragmentLen: Int): Int {
+            require(minFragmentLen in 1..maxFragmentLen) { "Invalid fragment length bounds" }
+            val maxFragmentCount = maxOf(1, messageLen / minFragmentLen)
+            var fragmentLen = 0
+            for (fragmentCount in 1..maxFragmentCount) {
+                fragmentLen = ceil(messageLen.toDouble() / fragmentCount).toInt()
+                if (fragmentLen <= maxFragmentLen) break
+            }
+            return fragmentLen
+        }
+
+        private fun partition(message: ByteArray, fragmentLen: Int): List<ByteArray> {
+            val count = (message.size + fragmentLen - 1) / fragmentLen
+            return List(count) { i ->
+                val fragment = ByteArray(fragmentLen)
+                val start = i * fragmentLen
+                System.arraycopy(message, start, fragment, 0, minOf(fragmentLen, message.size - start))
+                fragment
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.electricdreams.numo.core.ur
+
+import java.io.ByteArrayOutputStream
+
+/**
+ * One frame of a fountain-coded message: the XOR of the fragments chosen for [seqNum].
+ *
+ * @property seqLen Number of fragments the message was split into
+ * @property messageLen Message length before padding to whole fragments
+ * @property checksum CRC32 of the whole message
+ */
+internal class FountainPart(
+    val seqNum: Long,
+    val seqLen: Int,
+    val messageLen: Int,
+    val checksum: Long,
+    val data: ByteArray
+) {
+
+    fun toCbor(): ByteArray {
+        val out = ByteArrayOutputStream(data.size + 32)
+        Cbor.writeArrayHeader(out, 5)
+        Cbor.writeUnsigned(out, seqNum)
+        Cbor.writeUnsigned(out, seqLen.toLong())
+        Cbor.writeUnsigned(out, messageLen.toLong())
+        Cbor.writeUnsigned(out, checksum)
+        Cbor.writeBytes(out, data)
+        return out.toByteArray()
+    }
+
+    companion object {
+        /** Largest message accepted from a scanned code. */
+        const val MAX_MESSAGE_LEN = 256 * 1024
+
+        /** Most fragments a scanned message may be split into. */
+        const val MAX_SEQ_LEN = 1024
+
+        /**
+         * @throws IllegalArgumentException if [cbor] is not a valid part, or its header
+         * describes a message larger than [MAX_MESSAGE_LEN] or [MAX_SEQ_LEN] fragments
+         */
+        fun fromCbor(cbor: ByteArray): FountainPart {
+            val reader = Cbor.Reader(cbor)
+            require(reader.readArrayHeader() == 5) { "Invalid fountain part" }
+            val seqNum = reader.readUnsigned()
+            val seqLen = reader.readUnsigned()
+            val messageLen = reader.readUnsigned()
+            val checksum = reader.readUnsigned()
+            val data = reader.readBytes()
+            require(reader.isAtEnd) { "Trailing data in fountain part" }
+            require(seqNum in 1..0xFFFFFFFFL && seqLen in 1..MAX_SEQ_LEN) { "Invalid fountain sequence" }
+            require(messageLen in 1..MAX_MESSAGE_LEN && checksum <= 0xFFFFFFFFL) { "Invalid fountain header" }
+            require(data.isNotEmpty()) { "Empty fountain fragment" }
+            // Every fragment has the same length, so the header fixes the fragment count
+            require(seqLen == (messageLen + data.size - 1) / data.size) { "Inconsistent fountain header" }
+            return FountainPart(seqNum, seqLen.toInt(), messageLen.toInt(), checksum, data)
+        }
+    }
+}
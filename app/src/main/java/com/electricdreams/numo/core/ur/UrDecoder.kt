@@ -0,0 +1,82 @@
+package com.electricdreams.numo.core.ur
+
+/**
+ * Reassembles a `bytes` Uniform Resource from scanned parts, as produced by [UrEncoder]
+ * or another wallet. Parts may arrive in any order and repeat; anything unreadable or
+ * from a different message is ignored.
+ */
+class UrDecoder {
+
+    companion object {
+        private const val PREFIX = "ur:"
+
+        /** Whether [text] looks like a UR part this decoder can take. */
+        @JvmStatic
+        fun isUr(text: String): Boolean = text.startsWith(PREFIX + UrEncoder.TYPE_BYTES + "/", ignoreCase = true)
+    }
+
+    private val fountain = FountainDecoder()
+
+    /** The decoded payload once complete. */
+    var result: ByteArray? = null
+        private set
+
+    /** Set if the parts were all read but did not add up to a valid payload. */
+    var error: Exception? = null
+        private set
+
+    val isComplete: Boolean get() = result != null || error != null
+
+    /** Number of fragments in the message, or 0 before the first multi-part frame. */
+    val expectedPartCount: Int get() = fountain.expectedPartCount
+
+    /** Share of fragments recovered so far, from 0 to 1. */
+    val progress: Double
+        get() = when {
+            isComplete -> 1.0
+            expectedPartCount == 0 -> 0.0
+            else -> minOf(0.99, fountain.solvedFragmentCount.toDouble() / expectedPartCount)
+        }
+
+    /**
+     * Add a scanned part.
+     * @return true if it was new and belonged to this message
+     */
+    fun receivePart(text: String): Boolean {
+        if (isComplete || !isUr(text)) return false
+        val components = text.substring(PREFIX.length).lowercase().split('/')
+
+        return try {
+            when (components.size) {
+                2 -> {
+                    result = Cbor.decodeBytes(Bytewords.decodeMinimal(components[1]))
+                    true
+                }
+                3 -> receiveMultiPart(components[1], components[2])
+                else -> false
+            }
+        } catch (e: IllegalArgumentException) {
+            false
+        }
+    }
+
+    private fun receiveMultiPart(seq: String, body: String): Boolean {
+        val (seqNum, seqLen) = seq.split('-').takeIf { it.size == 2 }
+            ?.map { it.toLongOrNull() ?: return false }
+            ?: return false
+
+        val part = FountainPart.fromCbor(Bytewords.decodeMinimal(body))
+        if (part.seqNum != seqNum || part.seqLen.toLong() != seqLen) return false
+        if (!fountain.receivePart(part)) return false
+
+        fountain.error?.let { error = it }
+        fountain.result?.let { message ->
+            try {
+                result = Cbor.decodeBytes(message)
+            } catch (e: IllegalArgumentException) {
+                error = e
+            }
+        }
+        return true
+    }
+}
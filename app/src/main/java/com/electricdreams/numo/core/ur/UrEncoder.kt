@@ -0,0 +1,38 @@
+package com.electricdreams.numo.core.ur
+
+/**
+ * Encodes a payload as a Uniform Resource of type `bytes` (BCR-2020-005), the format
+ * other Cashu wallets use for animated QR codes.
+ *
+ * A payload that fits in one fragment gives a single `ur:bytes/...` string. Larger ones
+ * give an endless sequence of `ur:bytes/<n>-<total>/...` parts to show in turn: the first
+ * `total` parts each carry one fragment, and later ones are fountain-coded mixes that let
+ * the reader fill in whatever it missed. Parts can be uppercased for a denser QR code.
+ */
+class UrEncoder @JvmOverloads constructor(
+    payload: ByteArray,
+    maxFragmentLen: Int = DEFAULT_MAX_FRAGMENT_LEN,
+    minFragmentLen: Int = MIN_FRAGMENT_LEN
+) {
+
+    companion object {
+        const val TYPE_BYTES = "bytes"
+        const val DEFAULT_MAX_FRAGMENT_LEN = 200
+        private const val MIN_FRAGMENT_LEN = 10
+    }
+
+    private val message = Cbor.encodeBytes(payload)
+    private val fountain = FountainEncoder(message, maxFragmentLen, minFragmentLen)
+
+    /** Number of fragments; parts after this many are mixes. */
+    val seqLen: Int get() = fountain.seqLen
+
+    val isSinglePart: Boolean get() = seqLen == 1
+
+    /** The next part to show, in lowercase. */
+    fun nextPart(): String {
+        if (isSinglePart) return "ur:$TYPE_BYTES/${Bytewords.encodeMinimal(message)}"
+        val part = fountain.nextPart()
+        return "ur:$TYPE_BYTES/${part.seqNum}-${part.seqLen}/${Bytewords.encodeMinimal(part.toCbor())}"
+    }
+}
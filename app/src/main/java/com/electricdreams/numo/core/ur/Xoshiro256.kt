@@ -0,0 +1,46 @@
+package com.electricdreams.numo.core.ur
+
+import java.security.MessageDigest
+
+/**
+ * The xoshiro256** generator, seeded from the SHA-256 of a byte string as the UR
+ * fountain code requires, so that encoder and decoder pick the same fragments for a
+ * given part.
+ */
+internal class Xoshiro256(seed: ByteArray) {
+
+    private val s = LongArray(4)
+
+    init {
+        val digest = MessageDigest.getInstance("SHA-256").digest(seed)
+        for (i in 0 until 4) {
+            var v = 0L
+            for (j in 0 until 8) {
+                v = (v shl 8) or (digest[i * 8 + j].toLong() and 0xFF)
+            }
+            s[i] = v
+        }
+    }
+
+    fun next(): Long {
+        val result = java.lang.Long.rotateLeft(s[1] * 5, 7) * 9
+        val t = s[1] shl 17
+        s[2] = s[2] xor s[0]
+        s[3] = s[3] xor s[1]
+        s[1] = s[1] xor s[2]
+        s[0] = s[0] xor s[3]
+        s[2] = s[2] xor t
+        s[3] = java.lang.Long.rotateLeft(s[3], 45)
+        return result
+    }
+
+    /** Uniform in [0, 1]. */
+    fun nextDouble(): Double = next().toULong().toDouble() / TWO_POW_64
+
+    /** Uniform in [low, high]. */
+    fun nextInt(low: Int, high: Int): Int = (nextDouble() * (high - low + 1)).toInt() + low
+
+    private companion object {
+        const val TWO_POW_64 = 18446744073709551616.0
+    }
+}
@@ -1,14 +1,27 @@
 package com.electricdreams.numo.core.util
 
 import com.electricdreams.numo.core.model.BasketItem
+import com.electricdreams.numo.core.model.BasketTotals
 import com.electricdreams.numo.core.model.Item
+import com.electricdreams.numo.core.model.PriceType
+import kotlin.math.roundToLong
 
 /**
  * Manager class for handling the customer's basket.
+ *
+ * Totals are maintained incrementally as lines change rather than recomputed from the
+ * basket on every read; [getTotals] returns the current snapshot and
+ * [BasketTotalsListener] is told whenever it changes.
  */
 class BasketManager private constructor() {
 
+    interface BasketTotalsListener {
+        fun onBasketTotalsChanged(totals: BasketTotals)
+    }
+
     companion object {
+        const val DEFAULT_MAX_HISTORY_SIZE = 100
+
         @Volatile
         private var instance: BasketManager? = null
 
@@ -23,43 +36,153 @@ class BasketManager private constructor() {
     }
 
     private val basketItems: MutableList<BasketItem> = mutableListOf()
+    private val entriesById: MutableMap<String?, BasketItem> = HashMap()
 
     // ─────────────────────────────────────────────────────────────────────────────
-    // Basket history (undo / redo)
+    // Running totals, adjusted by every line change in applyQuantity()
     // ─────────────────────────────────────────────────────────────────────────────
-    private val undoStack: ArrayDeque<List<BasketItem>> = ArrayDeque()
-    private val redoStack: ArrayDeque<List<BasketItem>> = ArrayDeque()
-    private val maxHistorySize: Int = 100
-
-    private fun snapshot(): List<BasketItem> = basketItems.map { original ->
-        BasketItem(
-            item = original.item.copy(),
-            quantity = original.quantity,
-        )
+
+    private class VatBucket(var lineCount: Int = 0, var amountCents: Long = 0L)
+
+    private var itemCount: Int = 0
+    private var fiatTotalCents: Long = 0L
+    private var satsDirectTotal: Long = 0L
+    private var fiatLineCount: Int = 0
+    private var satsLineCount: Int = 0
+    private val vatBuckets: MutableMap<Int, VatBucket> = HashMap()
+
+    @Volatile
+    private var totals: BasketTotals = BasketTotals.EMPTY
+    private var totalsListener: BasketTotalsListener? = null
+
+    /** Set a listener to be notified when the basket totals change. */
+    fun setBasketTotalsListener(listener: BasketTotalsListener?) {
+        totalsListener = listener
+    }
+
+    /** Current basket totals. */
+    fun getTotals(): BasketTotals = totals
+
+    /**
+     * Adjust the running totals for [item]'s line going from [before] to [after] units.
+     */
+    private fun accumulate(item: Item, before: Int, after: Int) {
+        val delta = after - before
+        if (delta == 0) return
+        val lineDelta = (if (after > 0) 1 else 0) - (if (before > 0) 1 else 0)
+        itemCount += delta
+
+        if (item.priceType == PriceType.SATS) {
+            satsDirectTotal += item.priceSats * delta
+            satsLineCount += lineDelta
+            return
+        }
+
+        fiatLineCount += lineDelta
+        fiatTotalCents += toCents(item.getGrossPrice()) * delta
+
+        val vatCents = toCents(item.getVatAmount())
+        if (vatCents > 0) {
+            val bucket = vatBuckets.getOrPut(item.vatRate) { VatBucket() }
+            bucket.lineCount += lineDelta
+            bucket.amountCents += vatCents * delta
+            if (bucket.lineCount <= 0) vatBuckets.remove(item.vatRate)
+        }
     }
 
-    private fun restoreFromSnapshot(state: List<BasketItem>) {
-        basketItems.clear()
-        // Deep copy again so history snapshots remain immutable
-        basketItems.addAll(state.map { original ->
-            BasketItem(
-                item = original.item.copy(),
-                quantity = original.quantity,
-            )
-        })
+    /** Round a per-unit amount to cents, as the item's formatted prices do. */
+    private fun toCents(amount: Double): Long = (amount * 100).roundToLong()
+
+    /**
+     * Publish the running totals as a new snapshot after a user action.
+     */
+    private fun publishTotals() {
+        val snapshot = BasketTotals(
+            itemCount = itemCount,
+            fiatTotalCents = fiatTotalCents,
+            satsDirectTotal = satsDirectTotal,
+            fiatLineCount = fiatLineCount,
+            satsLineCount = satsLineCount,
+            vatByRateCents = vatBuckets.mapValues { it.value.amountCents },
+        )
+        if (snapshot == totals) return
+        totals = snapshot
+        totalsListener?.onBasketTotalsChanged(snapshot)
     }
 
+    // ─────────────────────────────────────────────────────────────────────────────
+    // Basket history (undo / redo)
+    //
+    // History is command based: each user action records only the entries it
+    // touched (item, position, quantity before/after) instead of a copy of the
+    // whole basket, so a quantity tap costs the same on a 3-line and a 300-line
+    // basket. Entries share the basket's Item instances rather than copying them.
+    // ─────────────────────────────────────────────────────────────────────────────
+
     /**
-     * Capture the current basket state into the undo history.
+     * One basket line going from [before] to [after] units. A quantity of 0 means
+     * the line is absent; [index] is the line's position when it was inserted or removed.
+     */
+    private class EntryChange(
+        val item: Item,
+        val index: Int,
+        val before: Int,
+        val after: Int,
+    )
+
+    /** A single user action, made of one or more line changes applied in order. */
+    private class BasketEdit(val changes: List<EntryChange>)
+
+    private val undoStack: ArrayDeque<BasketEdit> = ArrayDeque()
+    private val redoStack: ArrayDeque<BasketEdit> = ArrayDeque()
+
+    /**
+     * Maximum number of actions kept for undo. Lowering it drops the oldest actions.
+     */
+    var maxHistorySize: Int = DEFAULT_MAX_HISTORY_SIZE
+        set(value) {
+            field = value.coerceAtLeast(0)
+            while (undoStack.size > field) undoStack.removeFirst()
+            while (redoStack.size > field) redoStack.removeFirst()
+        }
+
+    /**
+     * Record a new user action in the undo history.
      * Clears redo history because a new user action invalidates the redo chain.
      */
-    private fun captureStateForUndo() {
-        // Push current state if there is already at least one state (we don't store initial empty twice)
-        undoStack.addLast(snapshot())
+    private fun recordEdit(vararg changes: EntryChange) {
+        recordEdit(changes.toList())
+    }
+
+    private fun recordEdit(changes: List<EntryChange>) {
+        if (changes.isEmpty()) return
+        redoStack.clear()
+        if (maxHistorySize == 0) return
+        undoStack.addLast(BasketEdit(changes))
         if (undoStack.size > maxHistorySize) {
             undoStack.removeFirst()
         }
-        redoStack.clear()
+    }
+
+    /**
+     * Set the quantity of [item]'s line, inserting it at [index] or removing it as needed.
+     * This is the only place the basket contents change, which keeps the totals in step.
+     */
+    private fun applyQuantity(item: Item, index: Int, quantity: Int) {
+        val existing = entriesById[item.id]
+        accumulate(existing?.item ?: item, existing?.quantity ?: 0, quantity.coerceAtLeast(0))
+        when {
+            quantity <= 0 -> if (existing != null) {
+                basketItems.remove(existing)
+                entriesById.remove(item.id)
+            }
+            existing != null -> existing.quantity = quantity
+            else -> {
+                val entry = BasketItem(item, quantity)
+                basketItems.add(index.coerceIn(0, basketItems.size), entry)
+                entriesById[item.id] = entry
+            }
+        }
     }
 
     fun canUndo(): Boolean = undoStack.isNotEmpty()
@@ -67,22 +190,22 @@ class BasketManager private constructor() {
     fun canRedo(): Boolean = redoStack.isNotEmpty()
 
     fun undo(): Boolean {
-        if (undoStack.isEmpty()) return false
-        val current = snapshot()
-        val previous = undoStack.removeLast()
-        // Current state becomes top of redo stack
-        redoStack.addLast(current)
-        restoreFromSnapshot(previous)
+        val edit = undoStack.removeLastOrNull() ?: return false
+        for (change in edit.changes.asReversed()) {
+            applyQuantity(change.item, change.index, change.before)
+        }
+        redoStack.addLast(edit)
+        publishTotals()
         return true
     }
 
     fun redo(): Boolean {
-        if (redoStack.isEmpty()) return false
-        val current = snapshot()
-        val next = redoStack.removeLast()
-        // Current state goes back to undo stack
-        undoStack.addLast(current)
-        restoreFromSnapshot(next)
+        val edit = redoStack.removeLastOrNull() ?: return false
+        for (change in edit.changes) {
+            applyQuantity(change.item, change.index, change.after)
+        }
+        undoStack.addLast(edit)
+        publishTotals()
         return true
     }
 
@@ -103,19 +226,22 @@ class BasketManager private constructor() {
      * @param quantity Quantity to add.
      */
     fun addItem(item: Item, quantity: Int) {
-        captureStateForUndo()
-
-        // Check if item is already in basket
-        for (basketItem in basketItems) {
-            if (basketItem.item.id == item.id) {
-                // Increase quantity
-                basketItem.quantity += quantity
-                return
-            }
+        val existing = entriesById[item.id]
+        if (existing != null) {
+            // Increase quantity
+            val before = existing.quantity
+            val after = before + quantity
+            recordEdit(EntryChange(existing.item, basketItems.indexOf(existing), before, after))
+            applyQuantity(existing.item, 0, after)
+            publishTotals()
+            return
         }
 
         // If not in basket, add new entry
-        basketItems.add(BasketItem(item, quantity))
+        val index = basketItems.size
+        recordEdit(EntryChange(item, index, 0, quantity))
+        applyQuantity(item, index, quantity)
+        publishTotals()
     }
 
     /**
@@ -125,21 +251,16 @@ class BasketManager private constructor() {
      * @return true if updated successfully, false if not found or quantity is 0.
      */
     fun updateItemQuantity(itemId: String, quantity: Int): Boolean {
-        captureStateForUndo()
-
         if (quantity <= 0) {
-            return removeItemInternal(itemId)
+            return removeItem(itemId)
         }
 
-        for (basketItem in basketItems) {
-            if (basketItem.item.id == itemId) {
-                basketItem.quantity = quantity
-                return true
-            }
-        }
-
-        // If we get here, item is not in basket yet
-        return false
+        // If the item is not in the basket yet there is nothing to update
+        val existing = entriesById[itemId] ?: return false
+        recordEdit(EntryChange(existing.item, basketItems.indexOf(existing), existing.quantity, quantity))
+        applyQuantity(existing.item, 0, quantity)
+        publishTotals()
+        return true
     }
 
     /**
@@ -148,70 +269,43 @@ class BasketManager private constructor() {
      * @return true if removed successfully, false if not found.
      */
     fun removeItem(itemId: String): Boolean {
-        captureStateForUndo()
-        return removeItemInternal(itemId)
-    }
-
-    private fun removeItemInternal(itemId: String): Boolean {
-        val iterator = basketItems.iterator()
-        while (iterator.hasNext()) {
-            val basketItem = iterator.next()
-            if (basketItem.item.id == itemId) {
-                iterator.remove()
-                return true
-            }
-        }
-        return false
+        val existing = entriesById[itemId] ?: return false
+        recordEdit(EntryChange(existing.item, basketItems.indexOf(existing), existing.quantity, 0))
+        applyQuantity(existing.item, 0, 0)
+        publishTotals()
+        return true
     }
 
     /**
      * Clear the basket.
      */
     fun clearBasket() {
-        if (basketItems.isNotEmpty()) {
-            captureStateForUndo()
+        if (basketItems.isEmpty()) return
+        // Lines are removed front to back, so each one is at index 0 when it goes
+        val changes = basketItems.map { EntryChange(it.item, 0, it.quantity, 0) }
+        recordEdit(changes)
+        for (change in changes) {
+            applyQuantity(change.item, 0, 0)
         }
-        basketItems.clear()
+        publishTotals()
     }
 
     /**
      * Get the total number of items in the basket.
      */
-    fun getTotalItemCount(): Int {
-        var count = 0
-        for (item in basketItems) {
-            count += item.quantity
-        }
-        return count
-    }
+    fun getTotalItemCount(): Int = totals.itemCount
 
     /**
      * Calculate the total fiat price of all items in the basket.
      * Only includes items priced in fiat.
      */
-    fun getTotalPrice(): Double {
-        var total = 0.0
-        for (item in basketItems) {
-            if (!item.isSatsPrice()) {
-                total += item.getTotalPrice()
-            }
-        }
-        return total
-    }
-    
+    fun getTotalPrice(): Double = totals.fiatTotal
+
     /**
      * Calculate the total sats price of all items in the basket.
      * Only includes items priced in sats.
      */
-    fun getTotalSatsDirectPrice(): Long {
-        var total = 0L
-        for (item in basketItems) {
-            if (item.isSatsPrice()) {
-                total += item.getTotalSats()
-            }
-        }
-        return total
-    }
+    fun getTotalSatsDirectPrice(): Long = totals.satsDirectTotal
 
     /**
      * Calculate the total price in satoshis (combining fiat and sats priced items).
@@ -234,20 +328,5 @@ class BasketManager private constructor() {
     /**
      * Check if the basket contains items with mixed price types (both fiat and sats).
      */
-    fun hasMixedPriceTypes(): Boolean {
-        var hasFiat = false
-        var hasSats = false
-        
-        for (item in basketItems) {
-            if (item.isSatsPrice()) {
-                hasSats = true
-            } else {
-                hasFiat = true
-            }
-            
-            if (hasFiat && hasSats) return true
-        }
-        
-        return false
-    }
+    fun hasMixedPriceTypes(): Boolean = totals.hasMixedPriceTypes()
 }
@@ -0,0 +1,286 @@
+package com.electricdreams.numo.core.util
+
+import android.util.Log
+import com.electricdreams.numo.core.model.Item
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.withContext
+import java.io.BufferedReader
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.util.UUID
+
+/**
+ * Streaming importer for Square-style catalog CSV exports.
+ *
+ * Rows are parsed one line at a time and handed to [ItemManager] in chunks of
+ * [batchSize], so memory use is bounded by the batch rather than the file and
+ * progress can be reported between batches. An appending import that is cancelled
+ * keeps the batches that were already committed. A replacing import stages its
+ * batches and only swaps them in once the whole file has been read, so cancelling
+ * it or failing part-way leaves the existing catalog untouched.
+ *
+ * Rows whose GTIN or SKU already exists in the catalog (or earlier in the same file)
+ * are skipped rather than imported twice. A completed replacing import clears the
+ * catalog even when the file has no valid rows.
+ */
+class CatalogCsvImporter(
+    private val itemManager: ItemManager,
+    private val batchSize: Int = DEFAULT_BATCH_SIZE
+) {
+
+    companion object {
+        private const val TAG = "CatalogCsvImporter"
+        const val DEFAULT_BATCH_SIZE = 250
+
+        // Square template: the first 5 lines are headers/metadata
+        private const val HEADER_LINES = 5
+        private const val MIN_COLUMNS = 14
+
+        /**
+         * Parse a CSV line, handling quoted fields that may contain commas.
+         */
+        @JvmStatic
+        fun parseCsvLine(line: String): Array<String> {
+            val result = mutableListOf<String>()
+            val field = StringBuilder()
+            var inQuotes = false
+
+            for (c in line) {
+                when {
+                    c == '"' -> {
+                        if (inQuotes && field.isNotEmpty() && field.last() == '"') {
+                            // Escaped quote within quotes
+                            field.append('"')
+                        }
+                        inQuotes = !inQuotes
+                    }
+                    c == ',' && !inQuotes -> {
+                        result.add(field.toString())
+                        field.setLength(0)
+                    }
+                    else -> field.append(c)
+                }
+            }
+
+            // Add the last field
+            result.add(field.toString())
+
+            return result.toTypedArray()
+        }
+    }
+
+    /**
+     * Snapshot of an import in progress, delivered after each committed batch.
+     * [totalBytes] is -1 when the size of the source is unknown.
+     */
+    data class Progress(
+        val bytesRead: Long,
+        val totalBytes: Long,
+        val importedCount: Int,
+        val skippedCount: Int
+    ) {
+        val fraction: Float
+            get() = if (totalBytes > 0) (bytesRead.toFloat() / totalBytes).coerceIn(0f, 1f) else -1f
+    }
+
+    data class Result(
+        val importedCount: Int,
+        val duplicateCount: Int,
+        val invalidCount: Int,
+        val cancelled: Boolean
+    )
+
+    /**
+     * Import from [input] on [Dispatchers.IO]. Cancelling the calling coroutine, or
+     * [isCancelled] returning true, stops the import after the current batch; a
+     * cancelled replacing import reports no imported items.
+     * [onProgress] is invoked on the IO thread.
+     */
+    suspend fun importCsv(
+        input: InputStream,
+        totalBytes: Long,
+        clearExisting: Boolean,
+        isCancelled: () -> Boolean = { false },
+        onProgress: (Progress) -> Unit = {}
+    ): Result = withContext(Dispatchers.IO) {
+        val context = currentCoroutineContext()
+        importCsvBlocking(input, totalBytes, clearExisting, onProgress) {
+            isCancelled() || !context.isActive
+        }
+    }
+
+    /**
+     * Blocking variant of [importCsv] for callers that already run off the main thread.
+     */
+    @Throws(IOException::class)
+    fun importCsvBlocking(
+        input: InputStream,
+        totalBytes: Long,
+        clearExisting: Boolean,
+        onProgress: (Progress) -> Unit = {},
+        isCancelled: () -> Boolean = { false }
+    ): Result {
+        val counter = CountingInputStream(input)
+        val reader = BufferedReader(InputStreamReader(counter, Charsets.UTF_8))
+
+        val batch = ArrayList<Item>(batchSize)
+        val seenGtins = HashSet<String>()
+        val seenSkus = HashSet<String>()
+        var imported = 0
+        var duplicates = 0
+        var invalid = 0
+        var cancelled = false
+
+        fun flush() {
+            if (batch.isEmpty()) return
+            if (clearExisting) {
+                itemManager.stageImportBatch(batch)
+            } else {
+                itemManager.commitImportBatch(batch)
+            }
+            imported += batch.size
+            batch.clear()
+            onProgress(Progress(counter.bytesRead, totalBytes, imported, duplicates + invalid))
+        }
+
+        var replaced = false
+        if (clearExisting) itemManager.beginReplacingImport()
+        try {
+            repeat(HEADER_LINES) { reader.readLine() }
+
+            while (true) {
+                val line = reader.readLine() ?: break
+                val item = parseRow(line)
+                if (item == null) {
+                    invalid++
+                    continue
+                }
+
+                val gtinKey = ItemManager.normalizeKey(item.gtin)
+                val skuKey = ItemManager.normalizeKey(item.sku)
+                val gtinTaken = gtinKey != null &&
+                    (gtinKey in seenGtins || (!clearExisting && itemManager.isGtinDuplicate(gtinKey)))
+                val skuTaken = skuKey != null &&
+                    (skuKey in seenSkus || (!clearExisting && itemManager.isSkuDuplicate(skuKey)))
+                if (gtinTaken || skuTaken) {
+                    duplicates++
+                    continue
+                }
+                if (gtinKey != null) seenGtins.add(gtinKey)
+                if (skuKey != null) seenSkus.add(skuKey)
+
+                batch.add(item)
+                if (batch.size >= batchSize) {
+                    flush()
+                    if (isCancelled()) {
+                        cancelled = true
+                        break
+                    }
+                }
+            }
+
+            if (!cancelled) {
+                flush()
+                if (clearExisting) {
+                    itemManager.finishReplacingImport()
+                    replaced = true
+                }
+            }
+        } finally {
+            reader.close()
+            if (clearExisting && !replaced) {
+                itemManager.abortReplacingImport()
+            }
+        }
+        if (clearExisting && !replaced) imported = 0
+
+        Log.d(TAG, "Imported $imported items from CSV ($duplicates duplicates, $invalid invalid rows, cancelled=$cancelled)")
+        return Result(imported, duplicates, invalid, cancelled)
+    }
+
+    /**
+     * Convert one CSV row into an [Item], or null if the row is not an item row.
+     */
+    private fun parseRow(line: String): Item? {
+        val values = parseCsvLine(line)
+        if (values.size < MIN_COLUMNS) { // Need at least 14 columns for basic item data
+            return null
+        }
+
+        // Item data starts at column 1 (index 0 is token)
+        val name = values[1]
+
+        // Parse price (index 12)
+        var price = 0.0
+        try {
+            price = values[12].toDouble()
+        } catch (e: NumberFormatException) {
+            Log.w(TAG, "Invalid price format for item: $name")
+        }
+
+        // Parse quantity (index 20)
+        var quantity = 0
+        if (values.size > 20) {
+            try {
+                quantity = values[20].toInt()
+            } catch (e: NumberFormatException) {
+                Log.w(TAG, "Invalid quantity format for item: $name")
+            }
+        }
+
+        // Parse stock alert (index 22-23)
+        val alertEnabled = values.size > 22 && values[22].equals("Y", ignoreCase = true)
+        var alertThreshold = 0
+        if (values.size > 23) {
+            try {
+                alertThreshold = values[23].toInt()
+            } catch (e: NumberFormatException) {
+                Log.w(TAG, "Invalid alert threshold format for item: $name")
+            }
+        }
+
+        return Item().apply {
+            id = UUID.randomUUID().toString()
+            this.name = name
+            this.variationName = values[2]
+            this.sku = values[3]
+            this.description = values[4]
+            this.category = values[5]
+            this.gtin = values[7]
+            this.price = price
+            this.quantity = quantity
+            this.alertEnabled = alertEnabled
+            this.alertThreshold = alertThreshold
+        }
+    }
+
+    /**
+     * Tracks how many bytes have been pulled from the source for progress reporting.
+     */
+    private class CountingInputStream(input: InputStream) : FilterInputStream(input) {
+        var bytesRead: Long = 0
+            private set
+
+        override fun read(): Int {
+            val b = super.read()
+            if (b >= 0) bytesRead++
+            return b
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            val n = super.read(b, off, len)
+            if (n > 0) bytesRead += n
+            return n
+        }
+
+        override fun skip(n: Long): Long {
+            val skipped = super.skip(n)
+            bytesRead += skipped
+            return skipped
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.electricdreams.numo.core.util
 import android.content.Context
 import android.content.SharedPreferences
 import android.util.Log
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.model.Amount
 
 /**
@@ -74,7 +75,7 @@ class CurrencyManager private constructor(context: Context) {
     /** Set the preferred currency and save to preferences. */
     fun setPreferredCurrency(currencyCode: String): Boolean {
         if (!isValidCurrency(currencyCode)) {
-            Log.e(TAG, "Invalid currency code: $currencyCode")
+            DevLogger.e(TAG, "Invalid currency code: $currencyCode")
             return false
         }
 
@@ -0,0 +1,40 @@
+package com.electricdreams.numo.core.util
+
+import com.electricdreams.numo.core.dev.Metrics
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import okhttp3.Response
+import java.util.concurrent.TimeUnit
+
+/**
+ * HTTP client shared across the app.
+ *
+ * All callers go through one connection pool and dispatcher, so repeated requests
+ * to the same host reuse warm TLS connections. Callers that need different timeouts
+ * should derive a client with [OkHttpClient.newBuilder], which keeps the shared pool.
+ * Request latency and failures are recorded per host in [Metrics].
+ */
+object HttpClients {
+
+    @JvmStatic
+    val shared: OkHttpClient by lazy {
+        OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .addInterceptor(MetricsInterceptor)
+            .build()
+    }
+
+    /**
+     * Records each call in `http.request`, and I/O errors and 4xx/5xx responses in
+     * `http.request.errors`, labelled with the host.
+     */
+    private object MetricsInterceptor : Interceptor {
+        override fun intercept(chain: Interceptor.Chain): Response {
+            val host = chain.request().url.host
+            val response = Metrics.timed("http.request", host) { chain.proceed(chain.request()) }
+            if (response.code >= 400) Metrics.counter("http.request.errors", host).increment()
+            return response
+        }
+    }
+}
@@ -6,21 +6,27 @@ import android.graphics.BitmapFactory
 import android.net.Uri
 import android.text.TextUtils
 import android.util.Log
+import com.electricdreams.numo.core.data.ItemStore
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.model.Item
 import org.json.JSONArray
 import org.json.JSONException
-import org.json.JSONObject
-import java.io.BufferedReader
 import java.io.File
+import java.io.FileInputStream
 import java.io.FileOutputStream
-import java.io.FileReader
 import java.io.IOException
 import java.io.InputStream
+import java.util.Locale
 import java.util.UUID
 
 /**
  * Manager class for handling the merchant's catalog items.
  *
+ * Items are persisted one row per item in [ItemStore]; the catalog is only read from
+ * disk the first time it is needed, not when the singleton is created. Catalogs saved
+ * by older versions as a single JSON string in SharedPreferences are migrated into the
+ * store on first load.
+ *
  * Kotlin version of the original Java ItemManager.
  */
 class ItemManager private constructor(context: Context) {
@@ -41,156 +47,175 @@ class ItemManager private constructor(context: Context) {
             }
             return instance as ItemManager
         }
+
+        /**
+         * Key under which a GTIN or SKU is indexed and compared for duplicates,
+         * or null if it is blank.
+         */
+        @JvmStatic
+        fun normalizeKey(rawKey: String?): String? {
+            if (rawKey.isNullOrBlank()) return null
+            return rawKey.trim().lowercase(Locale.ROOT)
+        }
     }
 
     private val context: Context = context.applicationContext
     private val prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+    private val store = ItemStore(this.context)
     private val items: MutableList<Item> = mutableListOf()
+    // Persisted sort_order of items[i]; strictly increasing, may contain gaps.
+    private val sortOrders: MutableList<Long> = mutableListOf()
+    private val searchIndex = ItemSearchIndex()
+    private val gtinIndex = KeyIndex()
+    private val skuIndex = KeyIndex()
 
-    init {
+    @Volatile
+    private var loaded = false
+
+    // Rows staged so far by a replacing import
+    private var stagedCount = 0L
+
+    /**
+     * Load the catalog from the store on first use.
+     */
+    @Synchronized
+    private fun ensureLoaded() {
+        if (loaded) return
         loadItems()
+        searchIndex.rebuild(items)
+        items.forEach { indexKeys(it) }
+        loaded = true
     }
 
     /**
-     * Load items from SharedPreferences.
+     * Load items from the store, migrating a legacy SharedPreferences catalog first.
      */
     private fun loadItems() {
         items.clear()
-        val itemsJson = prefs.getString(KEY_ITEM_LIST, "")
-
-        if (!itemsJson.isNullOrEmpty()) {
-            try {
-                val array = JSONArray(itemsJson)
-                for (i in 0 until array.length()) {
-                    val obj = array.getJSONObject(i)
-                    val item = Item().apply {
-                        id = obj.getString("id")
-                        name = obj.getString("name")
-                        price = obj.getDouble("price")
-
-                        // UUID - generate if missing (migration for old items)
-                        uuid = if (!obj.isNull("uuid")) {
-                            obj.getString("uuid")
-                        } else {
-                            UUID.randomUUID().toString()
-                        }
-
-                        if (!obj.isNull("variationName")) {
-                            variationName = obj.getString("variationName")
-                        }
-                        if (!obj.isNull("sku")) {
-                            sku = obj.getString("sku")
-                        }
-                        if (!obj.isNull("description")) {
-                            description = obj.getString("description")
-                        }
-                        if (!obj.isNull("category")) {
-                            category = obj.getString("category")
-                        }
-                        if (!obj.isNull("gtin")) {
-                            gtin = obj.getString("gtin")
-                        }
-                        if (!obj.isNull("quantity")) {
-                            quantity = obj.getInt("quantity")
-                        }
-                        if (!obj.isNull("alertEnabled")) {
-                            alertEnabled = obj.getBoolean("alertEnabled")
-                        }
-                        if (!obj.isNull("alertThreshold")) {
-                            alertThreshold = obj.getInt("alertThreshold")
-                        }
-                        if (!obj.isNull("imagePath")) {
-                            imagePath = obj.getString("imagePath")
-                        }
-                        // New fields for sats/fiat pricing
-                        if (!obj.isNull("priceSats")) {
-                            priceSats = obj.getLong("priceSats")
-                        }
-                        if (!obj.isNull("priceType")) {
-                            priceType = try {
-                                com.electricdreams.numo.core.model.PriceType.valueOf(obj.getString("priceType"))
-                            } catch (e: IllegalArgumentException) {
-                                com.electricdreams.numo.core.model.PriceType.FIAT
-                            }
-                        }
-                        if (!obj.isNull("trackInventory")) {
-                            trackInventory = obj.getBoolean("trackInventory")
-                        }
-                        // VAT fields
-                        if (!obj.isNull("vatEnabled")) {
-                            vatEnabled = obj.getBoolean("vatEnabled")
-                        }
-                        if (!obj.isNull("vatRate")) {
-                            vatRate = obj.getInt("vatRate")
-                        }
-                    }
-
-                    items.add(item)
-                }
+        sortOrders.clear()
 
-                Log.d(TAG, "Loaded ${items.size} items from storage")
-            } catch (e: JSONException) {
-                Log.e(TAG, "Error loading items: ${e.message}", e)
+        val legacyItems = loadLegacyItems()
+        if (legacyItems != null) {
+            store.inTransaction { _ ->
+                store.deleteAll()
+                store.insertAll(legacyItems, legacyItems.indices.map { it.toLong() })
             }
+            prefs.edit().remove(KEY_ITEM_LIST).apply()
+            Log.d(TAG, "Migrated ${legacyItems.size} items from SharedPreferences")
         }
+
+        for (row in store.loadAll()) {
+            items.add(row.item)
+            sortOrders.add(row.sortOrder)
+        }
+        Log.d(TAG, "Loaded ${items.size} items from storage")
     }
 
+    private fun nextSortOrder(): Long = (sortOrders.lastOrNull() ?: -1L) + 1
+
     /**
-     * Save items to SharedPreferences.
+     * Parse the catalog saved by older versions as one JSON string in SharedPreferences.
+     * @return The legacy items, or null if there is nothing to migrate.
      */
-    private fun saveItems() {
+    private fun loadLegacyItems(): List<Item>? {
+        val itemsJson = prefs.getString(KEY_ITEM_LIST, "")
+        if (itemsJson.isNullOrEmpty()) return null
+
+        val legacyItems = mutableListOf<Item>()
         try {
-            val array = JSONArray()
-            for (item in items) {
-                val obj = JSONObject().apply {
-                    put("id", item.id)
-                    put("uuid", item.uuid)
-                    put("name", item.name)
-                    put("price", item.price)
-
-                    item.variationName?.let { put("variationName", it) }
-                    item.sku?.let { put("sku", it) }
-                    item.description?.let { put("description", it) }
-                    item.category?.let { put("category", it) }
-                    item.gtin?.let { put("gtin", it) }
-
-                    put("quantity", item.quantity)
-                    put("alertEnabled", item.alertEnabled)
-                    put("alertThreshold", item.alertThreshold)
-                    item.imagePath?.let { put("imagePath", it) }
-                    
+            val array = JSONArray(itemsJson)
+            for (i in 0 until array.length()) {
+                val obj = array.getJSONObject(i)
+                val item = Item().apply {
+                    id = obj.getString("id")
+                    name = obj.getString("name")
+                    price = obj.getDouble("price")
+
+                    // UUID - generate if missing (migration for old items)
+                    uuid = if (!obj.isNull("uuid")) {
+                        obj.getString("uuid")
+                    } else {
+                        UUID.randomUUID().toString()
+                    }
+
+                    if (!obj.isNull("variationName")) {
+                        variationName = obj.getString("variationName")
+                    }
+                    if (!obj.isNull("sku")) {
+                        sku = obj.getString("sku")
+                    }
+                    if (!obj.isNull("description")) {
+                        description = obj.getString("description")
+                    }
+                    if (!obj.isNull("category")) {
+                        category = obj.getString("category")
+                    }
+                    if (!obj.isNull("gtin")) {
+                        gtin = obj.getString("gtin")
+                    }
+                    if (!obj.isNull("quantity")) {
+                        quantity = obj.getInt("quantity")
+                    }
+                    if (!obj.isNull("alertEnabled")) {
+                        alertEnabled = obj.getBoolean("alertEnabled")
+                    }
+                    if (!obj.isNull("alertThreshold")) {
+                        alertThreshold = obj.getInt("alertThreshold")
+                    }
+                    if (!obj.isNull("imagePath")) {
+                        imagePath = obj.getString("imagePath")
+                    }
                     // New fields for sats/fiat pricing
-                    put("priceSats", item.priceSats)
-                    put("priceType", item.priceType.name)
-                    put("trackInventory", item.trackInventory)
-                    
+                    if (!obj.isNull("priceSats")) {
+                        priceSats = obj.getLong("priceSats")
+                    }
+                    if (!obj.isNull("priceType")) {
+                        priceType = try {
+                            com.electricdreams.numo.core.model.PriceType.valueOf(obj.getString("priceType"))
+                        } catch (e: IllegalArgumentException) {
+                            com.electricdreams.numo.core.model.PriceType.FIAT
+                        }
+                    }
+                    if (!obj.isNull("trackInventory")) {
+                        trackInventory = obj.getBoolean("trackInventory")
+                    }
                     // VAT fields
-                    put("vatEnabled", item.vatEnabled)
-                    put("vatRate", item.vatRate)
+                    if (!obj.isNull("vatEnabled")) {
+                        vatEnabled = obj.getBoolean("vatEnabled")
+                    }
+                    if (!obj.isNull("vatRate")) {
+                        vatRate = obj.getInt("vatRate")
+                    }
                 }
-                array.put(obj)
-            }
 
-            prefs.edit().putString(KEY_ITEM_LIST, array.toString()).apply()
-            Log.d(TAG, "Saved ${items.size} items to storage")
+                legacyItems.add(item)
+            }
         } catch (e: JSONException) {
-            Log.e(TAG, "Error saving items: ${e.message}", e)
+            DevLogger.e(TAG, "Error loading items: ${e.message}", e)
+            return null
         }
+        return legacyItems
     }
 
     /**
      * Get all items in the catalog.
      * @return List of items.
      */
-    fun getAllItems(): List<Item> = ArrayList(items)
+    @Synchronized
+    fun getAllItems(): List<Item> {
+        ensureLoaded()
+        return ArrayList(items)
+    }
 
     /**
      * Find an item by its Gtin (barcode).
      * @param gtin Gtin to search for.
      * @return Item if found, null otherwise.
      */
+    @Synchronized
     fun findItemByGtin(gtin: String): Item? {
-        return items.find { it.gtin?.equals(gtin, ignoreCase = true) == true }
+        ensureLoaded()
+        return gtinIndex.find(gtin)
     }
 
     /**
@@ -199,11 +224,11 @@ class ItemManager private constructor(context: Context) {
      * @param excludeItemId Optional item ID to exclude from the check (for editing existing items).
      * @return true if Gtin exists (and belongs to a different item), false otherwise.
      */
+    @Synchronized
     fun isGtinDuplicate(gtin: String, excludeItemId: String? = null): Boolean {
         if (gtin.isBlank()) return false
-        return items.any { item ->
-            item.gtin?.equals(gtin, ignoreCase = true) == true && item.id != excludeItemId
-        }
+        ensureLoaded()
+        return gtinIndex.containsOther(gtin, excludeItemId)
     }
 
     /**
@@ -212,18 +237,20 @@ class ItemManager private constructor(context: Context) {
      * @param excludeItemId Optional item ID to exclude from the check (for editing existing items).
      * @return true if SKU exists (and belongs to a different item), false otherwise.
      */
+    @Synchronized
     fun isSkuDuplicate(sku: String, excludeItemId: String? = null): Boolean {
         if (sku.isBlank()) return false
-        return items.any { item ->
-            item.sku?.equals(sku, ignoreCase = true) == true && item.id != excludeItemId
-        }
+        ensureLoaded()
+        return skuIndex.containsOther(sku, excludeItemId)
     }
 
     /**
      * Get all unique categories from existing items.
      * @return Sorted list of unique category names (non-null, non-empty).
      */
+    @Synchronized
     fun getAllCategories(): List<String> {
+        ensureLoaded()
         return items
             .mapNotNull { it.category }
             .filter { it.isNotBlank() }
@@ -233,20 +260,15 @@ class ItemManager private constructor(context: Context) {
     }
 
     /**
-     * Search items by name, SKU, or variation.
+     * Search items by name, SKU, variation, or category.
+     * Matching is case- and accent-insensitive and results are ranked by match quality.
+     * Safe to call from a background thread.
      * @param query Search query.
-     * @return List of matching items.
+     * @return List of matching items, best matches first.
      */
     fun searchItems(query: String): List<Item> {
-        if (query.isBlank()) return ArrayList(items)
-        
-        val lowerQuery = query.lowercase().trim()
-        return items.filter { item ->
-            item.name?.lowercase()?.contains(lowerQuery) == true ||
-            item.sku?.lowercase()?.contains(lowerQuery) == true ||
-            item.variationName?.lowercase()?.contains(lowerQuery) == true ||
-            item.category?.lowercase()?.contains(lowerQuery) == true
-        }
+        ensureLoaded()
+        return searchIndex.search(query)
     }
 
     /**
@@ -254,7 +276,9 @@ class ItemManager private constructor(context: Context) {
      * @param item Item to add.
      * @return true if added successfully, false if already exists.
      */
+    @Synchronized
     fun addItem(item: Item): Boolean {
+        ensureLoaded()
         if (item.id.isNullOrEmpty()) {
             item.id = UUID.randomUUID().toString()
         }
@@ -264,8 +288,12 @@ class ItemManager private constructor(context: Context) {
             return false
         }
 
+        val sortOrder = nextSortOrder()
         items.add(item)
-        saveItems()
+        sortOrders.add(sortOrder)
+        indexKeys(item)
+        searchIndex.add(item)
+        store.insert(item, sortOrder)
         return true
     }
 
@@ -274,11 +302,15 @@ class ItemManager private constructor(context: Context) {
      * @param item Item to update.
      * @return true if updated successfully, false if not found.
      */
+    @Synchronized
     fun updateItem(item: Item): Boolean {
+        ensureLoaded()
         for (i in items.indices) {
             if (items[i].id == item.id) {
                 items[i] = item
-                saveItems()
+                indexKeys(item)
+                searchIndex.update(item)
+                store.update(item)
                 return true
             }
         }
@@ -290,11 +322,17 @@ class ItemManager private constructor(context: Context) {
      * @param itemId ID of the item to remove.
      * @return true if removed successfully, false if not found.
      */
+    @Synchronized
     fun removeItem(itemId: String): Boolean {
+        ensureLoaded()
         val index = items.indexOfFirst { it.id == itemId }
         return if (index >= 0) {
             items.removeAt(index)
-            saveItems()
+            sortOrders.removeAt(index)
+            gtinIndex.remove(itemId)
+            skuIndex.remove(itemId)
+            searchIndex.remove(itemId)
+            store.delete(itemId)
             true
         } else {
             false
@@ -304,172 +342,179 @@ class ItemManager private constructor(context: Context) {
     /**
      * Clear all items.
      */
+    @Synchronized
     fun clearItems() {
         items.clear()
-        saveItems()
+        sortOrders.clear()
+        gtinIndex.clear()
+        skuIndex.clear()
+        searchIndex.clear()
+        store.deleteAll()
+        prefs.edit().remove(KEY_ITEM_LIST).apply()
+        loaded = true
     }
 
     /**
      * Reorder items by moving an item from one position to another.
+     * Only the rows between the two positions are rewritten: the order values of that
+     * range are reassigned to the items in their new sequence.
      * @param fromPosition The current position of the item.
      * @param toPosition The target position to move the item to.
      */
+    @Synchronized
     fun reorderItems(fromPosition: Int, toPosition: Int) {
+        ensureLoaded()
         if (fromPosition < 0 || fromPosition >= items.size ||
             toPosition < 0 || toPosition >= items.size) {
             return
         }
         val item = items.removeAt(fromPosition)
         items.add(toPosition, item)
-        saveItems()
+        searchIndex.move(fromPosition, toPosition)
+        val changed = (minOf(fromPosition, toPosition)..maxOf(fromPosition, toPosition)).mapNotNull { position ->
+            items[position].id?.let { it to sortOrders[position] }
+        }
+        store.updateSortOrders(changed)
     }
 
     /**
      * Import items from a CSV file.
+     * Rows are streamed and committed in batches; see [CatalogCsvImporter].
      * @param csvFilePath Path to the CSV file.
      * @param clearExisting Whether to clear existing items before importing.
      * @return Number of items imported.
      */
     fun importItemsFromCsv(csvFilePath: String, clearExisting: Boolean): Int {
-        if (clearExisting) {
-            items.clear()
+        val file = File(csvFilePath)
+        if (!file.exists()) {
+            DevLogger.e(TAG, "CSV file not found: $csvFilePath")
+            return 0
         }
 
-        var importedCount = 0
-        var reader: BufferedReader? = null
-
-        try {
-            val file = File(csvFilePath)
-            if (!file.exists()) {
-                Log.e(TAG, "CSV file not found: $csvFilePath")
-                return 0
-            }
-
-            reader = BufferedReader(FileReader(file))
-
-            // Skip header lines (first 5 lines based on Square template)
-            repeat(5) {
-                reader.readLine()
+        return try {
+            FileInputStream(file).use { input ->
+                CatalogCsvImporter(this)
+                    .importCsvBlocking(input, file.length(), clearExisting)
+                    .importedCount
             }
+        } catch (e: IOException) {
+            DevLogger.e(TAG, "Error importing items from CSV: ${e.message}", e)
+            0
+        }
+    }
 
-            var line: String?
-            while (reader.readLine().also { line = it } != null) {
-                val currentLine = line ?: continue
-                // Parse CSV line
-                val values = parseCsvLine(currentLine)
-                if (values.size < 14) { // Need at least 14 columns for basic item data
-                    continue
-                }
-
-                // Item data starts at column 1 (index 0 is token)
-                val name = values[1]
-                val variationName = values[2]
-                val sku = values[3]
-                val description = values[4]
-                val category = values[5]
-                val gtin = values[7]
-
-                // Parse price (index 12)
-                var price = 0.0
-                try {
-                    price = values[12].toDouble()
-                } catch (e: NumberFormatException) {
-                    Log.w(TAG, "Invalid price format for item: $name")
-                }
-
-                // Parse quantity (index 20)
-                var quantity = 0
-                if (values.size > 20) {
-                    try {
-                        quantity = values[20].toInt()
-                    } catch (e: NumberFormatException) {
-                        Log.w(TAG, "Invalid quantity format for item: $name")
-                    }
-                }
-
-                // Parse stock alert (index 22-23)
-                var alertEnabled = false
-                var alertThreshold = 0
-
-                if (values.size > 22) {
-                    alertEnabled = values[22].equals("Y", ignoreCase = true)
-                }
-
-                if (values.size > 23) {
-                    try {
-                        alertThreshold = values[23].toInt()
-                    } catch (e: NumberFormatException) {
-                        Log.w(TAG, "Invalid alert threshold format for item: $name")
-                    }
-                }
-
-                // Create new item
-                val item = Item().apply {
-                    id = UUID.randomUUID().toString()
-                    this.name = name
-                    this.variationName = variationName
-                    this.sku = sku
-                    this.description = description
-                    this.category = category
-                    this.gtin = gtin
-                    this.price = price
-                    this.quantity = quantity
-                    this.alertEnabled = alertEnabled
-                    this.alertThreshold = alertThreshold
-                }
+    /**
+     * Append one batch of imported items and persist it in a single transaction.
+     * @param batch Items parsed from the import source.
+     */
+    @Synchronized
+    fun commitImportBatch(batch: List<Item>) {
+        ensureLoaded()
+        val batchOrders = ArrayList<Long>(batch.size)
+        for (item in batch) {
+            val sortOrder = nextSortOrder()
+            items.add(item)
+            sortOrders.add(sortOrder)
+            batchOrders.add(sortOrder)
+            indexKeys(item)
+            searchIndex.add(item)
+        }
+        store.insertAll(batch, batchOrders)
+    }
 
-                items.add(item)
-                importedCount++
-            }
+    /**
+     * Start an import that replaces the whole catalog. Batches passed to
+     * [stageImportBatch] are kept apart from the current catalog until
+     * [finishReplacingImport]; [abortReplacingImport] leaves the catalog as it was.
+     */
+    @Synchronized
+    fun beginReplacingImport() {
+        store.clearStaged()
+        stagedCount = 0
+    }
 
-            // Save imported items
-            if (importedCount > 0) {
-                saveItems()
-            }
+    /**
+     * Persist one batch of a replacing import without touching the current catalog.
+     */
+    @Synchronized
+    fun stageImportBatch(batch: List<Item>) {
+        val batchOrders = batch.indices.map { stagedCount + it.toLong() }
+        store.insertStaged(batch, batchOrders)
+        stagedCount += batch.size
+    }
 
-            Log.d(TAG, "Imported $importedCount items from CSV")
-        } catch (e: IOException) {
-            Log.e(TAG, "Error importing items from CSV: ${e.message}", e)
-        } finally {
-            try {
-                reader?.close()
-            } catch (e: IOException) {
-                Log.e(TAG, "Error closing CSV reader: ${e.message}", e)
-            }
+    /**
+     * Swap the staged batches in as the new catalog, in one transaction.
+     */
+    @Synchronized
+    fun finishReplacingImport() {
+        store.replaceWithStaged()
+        stagedCount = 0
+        gtinIndex.clear()
+        skuIndex.clear()
+        items.clear()
+        sortOrders.clear()
+        for (row in store.loadAll()) {
+            items.add(row.item)
+            sortOrders.add(row.sortOrder)
         }
+        searchIndex.rebuild(items)
+        items.forEach { indexKeys(it) }
+        prefs.edit().remove(KEY_ITEM_LIST).apply()
+        loaded = true
+    }
 
-        return importedCount
+    /**
+     * Drop the staged batches of a cancelled or failed replacing import.
+     */
+    @Synchronized
+    fun abortReplacingImport() {
+        store.clearStaged()
+        stagedCount = 0
+    }
+
+    private fun indexKeys(item: Item) {
+        gtinIndex.put(item, item.gtin)
+        skuIndex.put(item, item.sku)
     }
 
     /**
-     * Parse a CSV line, handling quoted fields that may contain commas.
+     * Case-insensitive lookup from a GTIN or SKU to the items carrying it.
+     * Keys are tracked per item ID so an item mutated in place can still be re-indexed.
      */
-    private fun parseCsvLine(line: String): Array<String> {
-        val result = mutableListOf<String>()
-        val field = StringBuilder()
-        var inQuotes = false
-
-        for (c in line) {
-            when {
-                c == '"' -> {
-                    if (inQuotes && field.isNotEmpty() && field.last() == '"') {
-                        // Escaped quote within quotes
-                        field.append('"')
-                    }
-                    inQuotes = !inQuotes
-                }
-                c == ',' && !inQuotes -> {
-                    result.add(field.toString())
-                    field.setLength(0)
-                }
-                else -> field.append(c)
-            }
+    private class KeyIndex {
+        private val itemsByKey = HashMap<String, MutableList<Item>>()
+        private val keyByItemId = HashMap<String, String>()
+
+        fun put(item: Item, rawKey: String?) {
+            val id = item.id ?: return
+            remove(id)
+            val key = normalizeKey(rawKey) ?: return
+            itemsByKey.getOrPut(key) { mutableListOf() }.add(item)
+            keyByItemId[id] = key
+        }
+
+        fun remove(itemId: String) {
+            val key = keyByItemId.remove(itemId) ?: return
+            val bucket = itemsByKey[key] ?: return
+            bucket.removeAll { it.id == itemId }
+            if (bucket.isEmpty()) itemsByKey.remove(key)
         }
 
-        // Add the last field
-        result.add(field.toString())
+        fun find(rawKey: String): Item? {
+            val key = normalizeKey(rawKey) ?: return null
+            return itemsByKey[key]?.firstOrNull()
+        }
 
-        return result.toTypedArray()
+        fun containsOther(rawKey: String, excludeItemId: String?): Boolean {
+            val key = normalizeKey(rawKey) ?: return false
+            return itemsByKey[key]?.any { it.id != excludeItemId } == true
+        }
+
+        fun clear() {
+            itemsByKey.clear()
+            keyByItemId.clear()
+        }
     }
 
     /**
@@ -483,7 +528,7 @@ class ItemManager private constructor(context: Context) {
             // Create images directory if it doesn't exist
             val imagesDir = File(context.filesDir, "item_images")
             if (!imagesDir.exists() && !imagesDir.mkdirs()) {
-                Log.e(TAG, "Failed to create images directory")
+                DevLogger.e(TAG, "Failed to create images directory")
                 return false
             }
 
@@ -493,7 +538,7 @@ class ItemManager private constructor(context: Context) {
 
             // If file already exists, delete it
             if (imageFile.exists() && !imageFile.delete()) {
-                Log.e(TAG, "Failed to delete existing image file")
+                DevLogger.e(TAG, "Failed to delete existing image file")
             }
 
             // Copy the image from the Uri to the file
@@ -524,11 +569,11 @@ class ItemManager private constructor(context: Context) {
                     return true // Success
                 }
             } else {
-                Log.e(TAG, "Failed to open input stream for image URI")
+                DevLogger.e(TAG, "Failed to open input stream for image URI")
                 return false
             }
         } catch (e: IOException) {
-            Log.e(TAG, "Error saving item image: ${e.message}", e)
+            DevLogger.e(TAG, "Error saving item image: ${e.message}", e)
             false
         }
     }
@@ -543,7 +588,7 @@ class ItemManager private constructor(context: Context) {
         return try {
             val imagesDir = File(context.filesDir, "item_images")
             if (!imagesDir.exists() && !imagesDir.mkdirs()) {
-                Log.e(TAG, "Failed to create images directory")
+                DevLogger.e(TAG, "Failed to create images directory")
                 return false
             }
 
@@ -551,7 +596,7 @@ class ItemManager private constructor(context: Context) {
             val imageFile = File(imagesDir, filename)
 
             if (imageFile.exists() && !imageFile.delete()) {
-                Log.e(TAG, "Failed to delete existing image file")
+                DevLogger.e(TAG, "Failed to delete existing image file")
             }
 
             // Scale down if necessary
@@ -573,7 +618,7 @@ class ItemManager private constructor(context: Context) {
             updateItem(item)
             true
         } catch (e: IOException) {
-            Log.e(TAG, "Error saving item image bitmap: ${e.message}", e)
+            DevLogger.e(TAG, "Error saving item image bitmap: ${e.message}", e)
             false
         }
     }
@@ -593,7 +638,7 @@ class ItemManager private constructor(context: Context) {
                 updateItem(item)
                 true
             } else {
-                Log.e(TAG, "Failed to delete image file: $path")
+                DevLogger.e(TAG, "Failed to delete image file: $path")
                 false
             }
         } else {
@@ -621,7 +666,7 @@ class ItemManager private constructor(context: Context) {
         return try {
             BitmapFactory.decodeFile(path)
         } catch (e: Exception) {
-            Log.e(TAG, "Error loading item image: ${e.message}", e)
+            DevLogger.e(TAG, "Error loading item image: ${e.message}", e)
             null
         }
     }
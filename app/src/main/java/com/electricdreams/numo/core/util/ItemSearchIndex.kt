@@ -0,0 +1,256 @@
+package com.electricdreams.numo.core.util
+
+import com.electricdreams.numo.core.model.Item
+import java.text.Normalizer
+import java.util.Locale
+import java.util.TreeMap
+
+/**
+ * Precomputed search index over the catalog used by [ItemManager.searchItems].
+ *
+ * Every searchable field (name, variation, SKU, category) is normalized once when
+ * an item is indexed: lowercased and accent-folded so that "creme" finds "Crème".
+ * Two structures are maintained incrementally as the catalog is edited:
+ *
+ * - a sorted token map, answering prefix queries ("app" -> "apple") with a range scan
+ * - a trigram map, answering infix queries ("ppl" -> "apple") for terms of 3+ chars
+ *
+ * Queries never touch the raw item strings, so a keystroke costs a few map lookups
+ * plus scoring of the candidates instead of lowercasing the whole catalog.
+ *
+ * Results are ranked by match quality (exact token > token prefix > substring,
+ * weighted by field) and fall back to catalog order for equal scores.
+ *
+ * All public methods are synchronized so searches may run on a background thread
+ * while the catalog is edited from the UI thread.
+ */
+class ItemSearchIndex {
+
+    companion object {
+        private const val GRAM_SIZE = 3
+
+        // Field slots and their ranking weights; name matches matter most.
+        private const val FIELD_NAME = 0
+        private const val FIELD_SKU = 1
+        private const val FIELD_VARIATION = 2
+        private const val FIELD_CATEGORY = 3
+        private val FIELD_WEIGHTS = intArrayOf(8, 6, 4, 2)
+
+        private const val SCORE_EXACT = 4
+        private const val SCORE_PREFIX = 2
+        private const val SCORE_SUBSTRING = 1
+
+        private val COMBINING_MARKS = Regex("\\p{Mn}+")
+        private val TOKEN_SEPARATORS = Regex("[^\\p{L}\\p{Nd}]+")
+
+        /**
+         * Lowercase and strip diacritics so that accented and plain spellings match.
+         */
+        @JvmStatic
+        fun normalize(text: String): String {
+            val decomposed = Normalizer.normalize(text, Normalizer.Form.NFD)
+            return COMBINING_MARKS.replace(decomposed, "").lowercase(Locale.ROOT).trim()
+        }
+
+        @JvmStatic
+        fun tokenize(normalized: String): List<String> {
+            if (normalized.isEmpty()) return emptyList()
+            return normalized.split(TOKEN_SEPARATORS).filter { it.isNotEmpty() }
+        }
+    }
+
+    private class Entry(
+        val item: Item,
+        val fields: Array<String>,
+        val fieldTokens: Array<List<String>>,
+        var position: Int
+    )
+
+    private val ordered: MutableList<Entry> = ArrayList()
+    private val byId: MutableMap<String, Entry> = HashMap()
+    private val tokenIndex: TreeMap<String, MutableSet<Entry>> = TreeMap()
+    private val gramIndex: MutableMap<String, MutableSet<Entry>> = HashMap()
+
+    /**
+     * Replace the index contents with [items], preserving their order.
+     */
+    @Synchronized
+    fun rebuild(items: List<Item>) {
+        ordered.clear()
+        byId.clear()
+        tokenIndex.clear()
+        gramIndex.clear()
+        for (item in items) {
+            val entry = createEntry(item, ordered.size)
+            ordered.add(entry)
+            item.id?.let { byId[it] = entry }
+            indexEntry(entry)
+        }
+    }
+
+    /**
+     * Append a newly added item at the end of the catalog order.
+     */
+    @Synchronized
+    fun add(item: Item) {
+        val id = item.id ?: return
+        if (byId.containsKey(id)) {
+            update(item)
+            return
+        }
+        val entry = createEntry(item, ordered.size)
+        ordered.add(entry)
+        byId[id] = entry
+        indexEntry(entry)
+    }
+
+    /**
+     * Re-index an edited item in place, keeping its catalog position.
+     */
+    @Synchronized
+    fun update(item: Item) {
+        val id = item.id ?: return
+        val existing = byId[id]
+        if (existing == null) {
+            add(item)
+            return
+        }
+        unindexEntry(existing)
+        val replacement = createEntry(item, existing.position)
+        ordered[existing.position] = replacement
+        byId[id] = replacement
+        indexEntry(replacement)
+    }
+
+    @Synchronized
+    fun remove(itemId: String) {
+        val entry = byId.remove(itemId) ?: return
+        unindexEntry(entry)
+        ordered.removeAt(entry.position)
+        renumberFrom(entry.position)
+    }
+
+    /**
+     * Mirror [ItemManager.reorderItems] so ties keep following the catalog order.
+     */
+    @Synchronized
+    fun move(fromPosition: Int, toPosition: Int) {
+        if (fromPosition !in ordered.indices || toPosition !in ordered.indices) return
+        val entry = ordered.removeAt(fromPosition)
+        ordered.add(toPosition, entry)
+        renumberFrom(minOf(fromPosition, toPosition))
+    }
+
+    @Synchronized
+    fun clear() {
+        rebuild(emptyList())
+    }
+
+    /**
+     * Search the index.
+     *
+     * Every whitespace-separated term of [query] must match at least one field.
+     * A blank query returns the whole catalog in order.
+     */
+    @Synchronized
+    fun search(query: String): List<Item> {
+        val terms = tokenize(normalize(query))
+        if (terms.isEmpty()) return ordered.map { it.item }
+
+        var candidates: Set<Entry>? = null
+        for (term in terms) {
+            val hits = candidatesFor(term)
+            candidates = if (candidates == null) hits else candidates.intersect(hits)
+            if (candidates.isEmpty()) return emptyList()
+        }
+
+        return candidates.orEmpty()
+            .map { entry -> entry to terms.sumOf { score(entry, it) } }
+            .sortedWith(compareByDescending<Pair<Entry, Int>> { it.second }.thenBy { it.first.position })
+            .map { it.first.item }
+    }
+
+    @Synchronized
+    fun size(): Int = ordered.size
+
+    private fun candidatesFor(term: String): Set<Entry> {
+        val result = HashSet<Entry>()
+
+        // Token prefix matches: every token in the range [term, term + U+FFFF) starts with term.
+        for (entries in tokenIndex.subMap(term, true, term + '\uFFFF', false).values) {
+            result.addAll(entries)
+        }
+
+        // Infix matches via trigram intersection, verified against the folded text.
+        if (term.length >= GRAM_SIZE) {
+            var gramHits: Set<Entry>? = null
+            for (gram in grams(term)) {
+                val entries = gramIndex[gram] ?: return result
+                gramHits = if (gramHits == null) entries else gramHits.intersect(entries)
+                if (gramHits.isEmpty()) return result
+            }
+            gramHits?.forEach { entry ->
+                if (entry.fields.any { it.contains(term) }) result.add(entry)
+            }
+        }
+        return result
+    }
+
+    private fun score(entry: Entry, term: String): Int {
+        var best = 0
+        for (field in entry.fields.indices) {
+            val tokens = entry.fieldTokens[field]
+            val quality = when {
+                tokens.any { it == term } -> SCORE_EXACT
+                tokens.any { it.startsWith(term) } -> SCORE_PREFIX
+                entry.fields[field].contains(term) -> SCORE_SUBSTRING
+                else -> 0
+            }
+            best = maxOf(best, quality * FIELD_WEIGHTS[field])
+        }
+        return best
+    }
+
+    private fun createEntry(item: Item, position: Int): Entry {
+        val fields = Array(FIELD_WEIGHTS.size) { "" }
+        fields[FIELD_NAME] = normalize(item.name.orEmpty())
+        fields[FIELD_SKU] = normalize(item.sku.orEmpty())
+        fields[FIELD_VARIATION] = normalize(item.variationName.orEmpty())
+        fields[FIELD_CATEGORY] = normalize(item.category.orEmpty())
+        val fieldTokens = Array(fields.size) { tokenize(fields[it]) }
+        return Entry(item, fields, fieldTokens, position)
+    }
+
+    private fun indexEntry(entry: Entry) {
+        for (token in entry.fieldTokens.flatMap { it }.toSet()) {
+            tokenIndex.getOrPut(token) { HashSet() }.add(entry)
+        }
+        for (gram in entry.fields.flatMap { grams(it) }.toSet()) {
+            gramIndex.getOrPut(gram) { HashSet() }.add(entry)
+        }
+    }
+
+    private fun unindexEntry(entry: Entry) {
+        for (token in entry.fieldTokens.flatMap { it }.toSet()) {
+            val entries = tokenIndex[token] ?: continue
+            entries.remove(entry)
+            if (entries.isEmpty()) tokenIndex.remove(token)
+        }
+        for (gram in entry.fields.flatMap { grams(it) }.toSet()) {
+            val entries = gramIndex[gram] ?: continue
+            entries.remove(entry)
+            if (entries.isEmpty()) gramIndex.remove(gram)
+        }
+    }
+
+    private fun renumberFrom(start: Int) {
+        for (i in start until ordered.size) {
+            ordered[i].position = i
+        }
+    }
+
+    private fun grams(text: String): List<String> {
+        if (text.length < GRAM_SIZE) return emptyList()
+        return (0..text.length - GRAM_SIZE).map { text.substring(it, it + GRAM_SIZE) }
+    }
+}
@@ -4,24 +4,61 @@ import android.content.Context
 import android.graphics.Bitmap
 import android.graphics.BitmapFactory
 import android.util.Log
+import android.util.LruCache
+import android.widget.ImageView
+import com.electricdreams.numo.core.dev.DevLogger
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import okhttp3.Cache
 import okhttp3.OkHttpClient
 import okhttp3.Request
 import java.io.File
-import java.io.FileOutputStream
 import java.security.MessageDigest
+import java.util.WeakHashMap
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Manages downloading and caching of mint icons.
+ *
+ * Icons are looked up in a decoded in-memory LRU, then on disk, then downloaded.
+ * Concurrent loads of the same mint's icon share one download and decode. Files on
+ * disk hold the bytes exactly as served, and downloads go through an HTTP cache so
+ * refreshing an unchanged icon only revalidates it. [loadInto] binds an icon to a view
+ * and drops the work when the view is rebound, e.g. after being recycled.
  */
 object MintIconCache {
     private const val TAG = "MintIconCache"
     private const val CACHE_DIR_NAME = "mint_icons"
-    
+    private const val HTTP_CACHE_DIR_NAME = "mint_icons_http"
+    private const val HTTP_CACHE_SIZE_BYTES = 5L * 1024 * 1024
+
+    // Icons are shown at most at 72dp; decode no larger than this
+    private const val MAX_ICON_SIZE_PX = 256
+
+    private const val MEMORY_CACHE_SIZE_KB = 4 * 1024
+
     private lateinit var cacheDir: File
     private var initialized = false
-    
+
+    internal lateinit var client: OkHttpClient
+
+    private val memoryCache = object : LruCache<String, Bitmap>(MEMORY_CACHE_SIZE_KB) {
+        override fun sizeOf(key: String, value: Bitmap): Int = value.byteCount / 1024
+    }
+
+    private val ioScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val uiScope = CoroutineScope(SupervisorJob() + Dispatchers.Main.immediate)
+
+    private val inFlight = ConcurrentHashMap<String, Deferred<Bitmap?>>()
+    private val viewJobs = WeakHashMap<ImageView, Job>()
+
     /**
      * Initialize the icon cache with the application context.
      */
@@ -31,11 +68,14 @@ object MintIconCache {
             if (!cacheDir.exists()) {
                 cacheDir.mkdirs()
             }
+            client = HttpClients.shared.newBuilder()
+                .cache(Cache(File(context.cacheDir, HTTP_CACHE_DIR_NAME), HTTP_CACHE_SIZE_BYTES))
+                .build()
             initialized = true
             Log.d(TAG, "Initialized mint icon cache at: ${cacheDir.absolutePath}")
         }
     }
-    
+
     /**
      * Get the cached icon file for a mint URL.
      * Returns null if the icon is not cached.
@@ -45,12 +85,86 @@ object MintIconCache {
             Log.w(TAG, "Icon cache not initialized")
             return null
         }
-        
+
         val fileName = getIconFileName(mintUrl)
         val file = File(cacheDir, fileName)
         return if (file.exists()) file else null
     }
-    
+
+    /**
+     * Get the decoded icon for a mint if it is in memory.
+     */
+    fun getCachedBitmap(mintUrl: String): Bitmap? = memoryCache.get(mintUrl)
+
+    /**
+     * Get the decoded icon for a mint from memory, disk or, if [iconUrl] is given,
+     * the network. Concurrent calls for the same mint share one load.
+     */
+    suspend fun loadIcon(mintUrl: String, iconUrl: String?): Bitmap? {
+        memoryCache.get(mintUrl)?.let { return it }
+        if (!initialized) {
+            Log.w(TAG, "Icon cache not initialized")
+            return null
+        }
+
+        val load = ioScope.async(start = CoroutineStart.LAZY) {
+            memoryCache.get(mintUrl)
+                ?: readFromDisk(mintUrl)
+                ?: iconUrl?.takeIf { it.isNotEmpty() }?.let { fetchAndStore(mintUrl, it) }
+        }
+        val existing = inFlight.putIfAbsent(mintUrl, load)
+        if (existing != null) {
+            return existing.await()
+        }
+        load.invokeOnCompletion { inFlight.remove(mintUrl, load) }
+        // Start it detached from this caller, so others still get it if we are cancelled
+        load.start()
+        return load.await()
+    }
+
+    /**
+     * Show the icon for [mintUrl] in [view], loading it as needed. Any earlier load
+     * bound to the same view is cancelled. [onResult] runs on the main thread with the
+     * bitmap that was set, or null if there is no icon; it does not run if cancelled.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun loadInto(
+        view: ImageView,
+        mintUrl: String,
+        iconUrl: String?,
+        onResult: ((Bitmap?) -> Unit)? = null
+    ) {
+        cancel(view)
+
+        val cached = memoryCache.get(mintUrl)
+        if (cached != null) {
+            view.setImageBitmap(cached)
+            onResult?.invoke(cached)
+            return
+        }
+
+        val job = uiScope.launch {
+            val bitmap = loadIcon(mintUrl, iconUrl)
+            if (bitmap != null) view.setImageBitmap(bitmap)
+            onResult?.invoke(bitmap)
+        }
+        synchronized(viewJobs) { viewJobs[view] = job }
+        job.invokeOnCompletion {
+            synchronized(viewJobs) {
+                if (viewJobs[view] === job) viewJobs.remove(view)
+            }
+        }
+    }
+
+    /**
+     * Cancel the load bound to [view], e.g. when its row is recycled.
+     */
+    @JvmStatic
+    fun cancel(view: ImageView) {
+        synchronized(viewJobs) { viewJobs.remove(view) }?.cancel()
+    }
+
     /**
      * Download and cache an icon from the given URL.
      * Returns the cached file on success, null on failure.
@@ -60,96 +174,128 @@ object MintIconCache {
             Log.w(TAG, "Icon cache not initialized")
             return@withContext null
         }
-        
+
+        if (fetchAndStore(mintUrl, iconUrl) == null) null else getCachedIconFile(mintUrl)
+    }
+
+    /**
+     * Get or download an icon for a mint.
+     * Returns the cached file if available, otherwise downloads it.
+     */
+    suspend fun getOrDownloadIcon(mintUrl: String, iconUrl: String): File? {
+        // Check cache first
+        val cachedFile = getCachedIconFile(mintUrl)
+        if (cachedFile != null) {
+            return cachedFile
+        }
+
+        // Download and cache
+        return downloadAndCacheIcon(mintUrl, iconUrl)
+    }
+
+    private fun readFromDisk(mintUrl: String): Bitmap? {
+        val file = getCachedIconFile(mintUrl) ?: return null
+        val bitmap = try {
+            decode(file.readBytes())
+        } catch (e: Exception) {
+            DevLogger.e(TAG, "Error reading cached icon for $mintUrl: ${e.message}", e)
+            null
+        }
+        if (bitmap == null) {
+            Log.w(TAG, "Failed to decode cached icon for $mintUrl")
+            return null
+        }
+        memoryCache.put(mintUrl, bitmap)
+        return bitmap
+    }
+
+    /**
+     * Download the icon, store the original bytes on disk and return it decoded.
+     */
+    private fun fetchAndStore(mintUrl: String, iconUrl: String): Bitmap? {
         try {
             Log.d(TAG, "Downloading icon for $mintUrl from $iconUrl")
-            
-            val client = OkHttpClient.Builder()
-                .connectTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                .readTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
-                .build()
-            
+
             val request = Request.Builder()
                 .url(iconUrl)
                 .get()
                 .build()
-            
+
             client.newCall(request).execute().use { response ->
                 if (!response.isSuccessful) {
                     Log.w(TAG, "Failed to download icon: HTTP ${response.code}")
-                    return@withContext null
+                    return null
                 }
-                
+
                 val bytes = response.body?.bytes()
 
                 if (bytes == null || bytes.isEmpty()) {
                     Log.w(TAG, "Empty response when downloading icon")
-                    return@withContext null
+                    return null
                 }
 
-                // Decode to bitmap to validate it's a valid image
-                val bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.size)
+                // Decode to validate it's a valid image
+                val bitmap = decode(bytes)
                 if (bitmap == null) {
                     Log.w(TAG, "Failed to decode icon as bitmap")
-                    return@withContext null
+                    return null
                 }
 
-                // Save to cache
-                val fileName = getIconFileName(mintUrl)
-                val file = File(cacheDir, fileName)
-
-                FileOutputStream(file).use { out ->
-                    // Save as PNG for consistent format
-                    bitmap.compress(Bitmap.CompressFormat.PNG, 100, out)
+                // Save the bytes as served; write then rename so readers never see a partial file
+                val file = File(cacheDir, getIconFileName(mintUrl))
+                val tmp = File(cacheDir, file.name + ".tmp")
+                tmp.writeBytes(bytes)
+                if (!tmp.renameTo(file)) {
+                    tmp.delete()
+                    Log.w(TAG, "Failed to store icon for $mintUrl")
                 }
-                
-                bitmap.recycle()
-                
+
+                memoryCache.put(mintUrl, bitmap)
                 Log.d(TAG, "Successfully cached icon for $mintUrl at ${file.absolutePath}")
-                return@withContext file
+                return bitmap
             }
-            
         } catch (e: Exception) {
-            Log.e(TAG, "Error downloading/caching icon for $mintUrl: ${e.message}", e)
-            return@withContext null
+            DevLogger.e(TAG, "Error downloading/caching icon for $mintUrl: ${e.message}", e)
+            return null
         }
     }
-    
+
     /**
-     * Get or download an icon for a mint.
-     * Returns the cached file if available, otherwise downloads it.
+     * Decode image bytes, downsampled to at most [MAX_ICON_SIZE_PX] on the longer side.
      */
-    suspend fun getOrDownloadIcon(mintUrl: String, iconUrl: String): File? {
-        // Check cache first
-        val cachedFile = getCachedIconFile(mintUrl)
-        if (cachedFile != null) {
-            return cachedFile
+    private fun decode(bytes: ByteArray): Bitmap? {
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.size, bounds)
+        var sampleSize = 1
+        while (maxOf(bounds.outWidth, bounds.outHeight) / (sampleSize * 2) >= MAX_ICON_SIZE_PX) {
+            sampleSize *= 2
         }
-        
-        // Download and cache
-        return downloadAndCacheIcon(mintUrl, iconUrl)
+        val options = BitmapFactory.Options().apply { inSampleSize = sampleSize }
+        return BitmapFactory.decodeByteArray(bytes, 0, bytes.size, options)
     }
-    
+
     /**
      * Generate a unique filename for a mint's icon based on the mint URL.
      */
     private fun getIconFileName(mintUrl: String): String {
-        // Use MD5 hash of the mint URL to create a unique filename
+        // Use MD5 hash of the mint URL to create a unique filename. The extension is
+        // kept for existing caches; the file holds the icon in its original format.
         val md = MessageDigest.getInstance("MD5")
         val hash = md.digest(mintUrl.toByteArray())
         val hexString = hash.joinToString("") { "%02x".format(it) }
         return "$hexString.png"
     }
-    
+
     /**
      * Clear all cached icons.
      */
     fun clearCache() {
+        memoryCache.evictAll()
         if (!initialized) {
             Log.w(TAG, "Icon cache not initialized")
             return
         }
-        
+
         cacheDir.listFiles()?.forEach { it.delete() }
         Log.d(TAG, "Cleared icon cache")
     }
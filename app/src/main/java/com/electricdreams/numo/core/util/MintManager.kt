@@ -4,6 +4,7 @@ import android.content.Context
 import android.content.SharedPreferences
 import android.util.Log
 import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.nostr.NostrMintBackup
 import org.json.JSONObject
 import java.net.URI
@@ -114,13 +115,13 @@ class MintManager private constructor(context: Context) {
     fun setPreferredLightningMint(mintUrl: String?): Boolean {
         var url = mintUrl?.trim()
         if (url.isNullOrEmpty()) {
-            Log.e(TAG, "Cannot set empty mint URL as preferred Lightning mint")
+            DevLogger.e(TAG, "Cannot set empty mint URL as preferred Lightning mint")
             return false
         }
 
         url = normalizeMintUrl(url)
         if (!allowedMints.contains(url)) {
-            Log.e(TAG, "Cannot set preferred Lightning mint: $url is not in the allowed list")
+            DevLogger.e(TAG, "Cannot set preferred Lightning mint: $url is not in the allowed list")
             return false
         }
 
@@ -163,7 +164,7 @@ class MintManager private constructor(context: Context) {
     fun addMint(mintUrl: String?): Boolean {
         var url = mintUrl?.trim()
         if (url.isNullOrEmpty()) {
-            Log.e(TAG, "Cannot add empty mint URL")
+            DevLogger.e(TAG, "Cannot add empty mint URL")
             return false
         }
 
@@ -194,7 +195,7 @@ class MintManager private constructor(context: Context) {
     fun removeMint(mintUrl: String?): Boolean {
         var url = mintUrl?.trim()
         if (url.isNullOrEmpty()) {
-            Log.e(TAG, "Cannot remove empty mint URL")
+            DevLogger.e(TAG, "Cannot remove empty mint URL")
             return false
         }
 
@@ -398,8 +399,8 @@ class MintManager private constructor(context: Context) {
                     Log.w(TAG, "   Failed relays: ${result.failedRelays.joinToString(", ")}")
                 }
             } else {
-                Log.e(TAG, "❌ Nostr mint backup failed: ${result.error}")
-                Log.e(TAG, "   Failed relays: ${result.failedRelays.joinToString(", ")}")
+                DevLogger.e(TAG, "❌ Nostr mint backup failed: ${result.error}")
+                DevLogger.e(TAG, "   Failed relays: ${result.failedRelays.joinToString(", ")}")
             }
         }
     }
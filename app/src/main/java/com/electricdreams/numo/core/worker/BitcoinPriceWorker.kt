@@ -1,40 +1,77 @@
 package com.electricdreams.numo.core.worker
 
+import android.app.Activity
+import android.app.Application
 import android.content.Context
 import android.content.SharedPreferences
+import android.os.Bundle
 import android.os.Handler
 import android.os.Looper
 import android.util.Log
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.model.Amount
 import com.electricdreams.numo.core.util.CurrencyManager
+import com.electricdreams.numo.core.util.HttpClients
+import com.electricdreams.numo.feature.settings.DeveloperPrefs
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import org.json.JSONException
-import org.json.JSONObject
-import java.io.BufferedReader
 import java.io.IOException
-import java.io.InputStreamReader
-import java.net.HttpURLConnection
-import java.net.URI
-import java.net.URISyntaxException
-import java.net.URL
-import java.util.concurrent.Executors
-import java.util.concurrent.ScheduledExecutorService
-import java.util.concurrent.TimeUnit
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
- * Worker class to fetch and cache Bitcoin price in various currencies from Coinbase API.
+ * Worker class to fetch and cache Bitcoin price in various currencies from Coinbase API,
+ * or from the stand-in URL set in developer settings (see [priceSourceFor]).
+ *
+ * All supported currencies are fetched in one request, so switching currency shows the
+ * cached price right away. Cached prices are always served immediately; once older
+ * than [STALE_AFTER_MS] they are reported as stale until the next successful refresh.
+ * While started, prices refresh every [FOREGROUND_REFRESH_MS] when the app is on
+ * screen and every [BACKGROUND_REFRESH_MS] otherwise. A failed refresh is retried
+ * after [RETRY_BASE_MS], doubling on each further failure up to the refresh interval.
  */
-class BitcoinPriceWorker private constructor(context: Context) {
+class BitcoinPriceWorker private constructor(context: Context, priceSource: PriceSource) {
 
     interface PriceUpdateListener {
         fun onPriceUpdated(price: Double)
     }
 
+    /**
+     * A cached price and when it was fetched.
+     * @property isStale True if the price is older than [STALE_AFTER_MS]
+     */
+    data class PriceSnapshot(
+        val currency: String,
+        val price: Double,
+        val updatedAt: Long,
+        val isStale: Boolean
+    )
+
     companion object {
         private const val TAG = "BitcoinPriceWorker"
         private const val PREFS_NAME = "BitcoinPricePrefs"
         private const val KEY_PRICE_PREFIX = "btcPrice_"
         private const val KEY_LAST_UPDATE_TIME = "lastUpdateTime"
-        private const val UPDATE_INTERVAL_MINUTES = 1L // Update every minute
+
+        const val FOREGROUND_REFRESH_MS = 60_000L // Update every minute
+        const val BACKGROUND_REFRESH_MS = 15 * 60_000L
+        // Well past one refresh interval, so a slow or missed refresh doesn't flag the price
+        const val STALE_AFTER_MS = 3 * FOREGROUND_REFRESH_MS
+        const val RETRY_BASE_MS = 5_000L
+
+        val SUPPORTED_CURRENCIES = listOf(
+            CurrencyManager.CURRENCY_USD,
+            CurrencyManager.CURRENCY_EUR,
+            CurrencyManager.CURRENCY_GBP,
+            CurrencyManager.CURRENCY_JPY,
+        )
 
         @Volatile
         private var instance: BitcoinPriceWorker? = null
@@ -43,20 +80,64 @@ class BitcoinPriceWorker private constructor(context: Context) {
         @Synchronized
         fun getInstance(context: Context): BitcoinPriceWorker {
             if (instance == null) {
-                instance = BitcoinPriceWorker(context.applicationContext)
+                instance = BitcoinPriceWorker(context.applicationContext, priceSourceFor(context))
             }
             return instance as BitcoinPriceWorker
         }
+
+        /** Coinbase, or the Coinbase-compatible stand-in URL set in developer settings. */
+        @JvmStatic
+        fun priceSourceFor(context: Context): PriceSource {
+            val url = DeveloperPrefs.getPriceSourceUrl(context) ?: CoinbasePriceSource.DEFAULT_URL
+            return CoinbasePriceSource(HttpClients.shared, url)
+        }
     }
 
     private val context: Context = context.applicationContext
     private val mainHandler = Handler(Looper.getMainLooper())
     private val currencyManager: CurrencyManager = CurrencyManager.getInstance(context)
-    private val priceByCurrency: MutableMap<String, Double> = mutableMapOf()
+    private val priceByCurrency: MutableMap<String, Double> = ConcurrentHashMap()
+
+    @Volatile
+    private var priceSource: PriceSource = priceSource
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val fetchInFlight = AtomicBoolean(false)
+
+    @Volatile
+    private var lastUpdateTime = 0L
+
+    @Volatile
+    private var failedFetches = 0
+
+    @Volatile
+    private var nextAttemptAt = 0L
+
+    @Volatile
+    private var refreshJob: Job? = null
+
+    @Volatile
+    private var startedActivities = 0
 
-    private var scheduler: ScheduledExecutorService? = null
     private var listener: PriceUpdateListener? = null
 
+    private val foregroundTracker = object : Application.ActivityLifecycleCallbacks {
+        override fun onActivityStarted(activity: Activity) {
+            if (startedActivities++ == 0) onForegroundChanged(true)
+        }
+
+        override fun onActivityStopped(activity: Activity) {
+            startedActivities = (startedActivities - 1).coerceAtLeast(0)
+            if (startedActivities == 0) onForegroundChanged(false)
+        }
+
+        override fun onActivityCreated(activity: Activity, savedInstanceState: Bundle?) {}
+        override fun onActivityResumed(activity: Activity) {}
+        override fun onActivityPaused(activity: Activity) {}
+        override fun onActivitySaveInstanceState(activity: Activity, outState: Bundle) {}
+        override fun onActivityDestroyed(activity: Activity) {}
+    }
+
     init {
         // Load cached prices on initialization
         loadCachedPrices()
@@ -64,28 +145,21 @@ class BitcoinPriceWorker private constructor(context: Context) {
         // Set up a listener for currency changes
         currencyManager.setCurrencyChangeListener(object : CurrencyManager.CurrencyChangeListener {
             override fun onCurrencyChanged(newCurrency: String) {
-                // When currency changes, update the price
-                fetchPrice()
+                // Every currency is cached, so show the new price right away
+                notifyListener()
+                refreshIfStale()
             }
         })
 
+        (this.context as? Application)?.registerActivityLifecycleCallbacks(foregroundTracker)
+
         // If we don't have a price for the current currency, fetch it now
         if (getCurrentPrice() <= 0.0) {
             fetchPrice()
         } else {
-            // Check how old the cached price is
-            val prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
-            val lastUpdateTime = prefs.getLong(KEY_LAST_UPDATE_TIME, 0L)
-            val currentTime = System.currentTimeMillis()
-            val elapsedMinutes = TimeUnit.MILLISECONDS.toMinutes(currentTime - lastUpdateTime)
-
-            if (elapsedMinutes >= UPDATE_INTERVAL_MINUTES) {
-                // Cached price is too old, fetch a new one
-                fetchPrice()
-            } else {
-                // Notify listener with cached price
-                notifyListener()
-            }
+            // Serve the cached price and refresh it if it is too old
+            notifyListener()
+            refreshIfStale()
         }
     }
 
@@ -94,16 +168,9 @@ class BitcoinPriceWorker private constructor(context: Context) {
      */
     private fun loadCachedPrices() {
         val prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+        lastUpdateTime = prefs.getLong(KEY_LAST_UPDATE_TIME, 0L)
 
-        // Load prices for all supported currencies
-        val supportedCurrencies = arrayOf(
-            CurrencyManager.CURRENCY_USD,
-            CurrencyManager.CURRENCY_EUR,
-            CurrencyManager.CURRENCY_GBP,
-            CurrencyManager.CURRENCY_JPY,
-        )
-
-        for (currency in supportedCurrencies) {
+        for (currency in SUPPORTED_CURRENCIES) {
             val key = KEY_PRICE_PREFIX + currency
             val price = prefs.getFloat(key, 0.0f)
             if (price > 0f) {
@@ -122,27 +189,37 @@ class BitcoinPriceWorker private constructor(context: Context) {
     }
 
     fun start() {
-        if (scheduler != null && !scheduler!!.isShutdown) return
-
-        scheduler = Executors.newSingleThreadScheduledExecutor().also { exec ->
-            exec.scheduleAtFixedRate(
-                { fetchPrice() },
-                UPDATE_INTERVAL_MINUTES,
-                UPDATE_INTERVAL_MINUTES,
-                TimeUnit.MINUTES,
-            )
+        if (refreshJob?.isActive == true) return
+
+        refreshJob = scope.launch {
+            while (isActive) {
+                delay(nextRefreshDelay())
+                fetchPrice()?.join()
+            }
         }
 
         Log.d(TAG, "Bitcoin price worker started")
     }
 
+    /**
+     * Replace where prices come from, e.g. with a local stand-in or fixed prices for
+     * offline testing. A fetch still running against the previous source is discarded.
+     * Takes effect from the next refresh; call [refresh] to apply now.
+     */
+    fun setPriceSource(source: PriceSource) {
+        priceSource = source
+        // Failures of the previous source say nothing about this one
+        onFetchSucceeded()
+    }
+
     fun stop() {
-        scheduler?.let { exec ->
-            if (!exec.isShutdown) {
-                exec.shutdown()
+        refreshJob?.let { job ->
+            if (job.isActive) {
+                job.cancel()
                 Log.d(TAG, "Bitcoin price worker stopped")
             }
         }
+        refreshJob = null
     }
 
     /** Get the current BTC price in the selected currency. */
@@ -151,6 +228,15 @@ class BitcoinPriceWorker private constructor(context: Context) {
         return priceByCurrency[currency] ?: 0.0
     }
 
+    /**
+     * Get the cached price in [currency] with its age, or null if none was fetched yet.
+     * Only reads the cache; refreshing is left to the refresh loop.
+     */
+    fun getPriceSnapshot(currency: String = currencyManager.getCurrentCurrency()): PriceSnapshot? {
+        val price = priceByCurrency[currency] ?: return null
+        return PriceSnapshot(currency, price, lastUpdateTime, isStale())
+    }
+
     /** Get the current BTC price in USD (for backward compatibility). */
     fun getBtcUsdPrice(): Double {
         return priceByCurrency[CurrencyManager.CURRENCY_USD] ?: 0.0
@@ -185,71 +271,105 @@ class BitcoinPriceWorker private constructor(context: Context) {
         return Amount(cents, Amount.Currency.USD).toString()
     }
 
-    /** Fetch the current Bitcoin price from Coinbase API for the current currency. */
-    private fun fetchPrice() {
-        Thread {
-            var connection: HttpURLConnection? = null
-            var reader: BufferedReader? = null
+    private fun isStale(): Boolean = System.currentTimeMillis() - lastUpdateTime >= STALE_AFTER_MS
+
+    private fun refreshInterval(): Long =
+        if (startedActivities > 0) FOREGROUND_REFRESH_MS else BACKGROUND_REFRESH_MS
+
+    /** Time until the next refresh, sooner while retrying after a failure. */
+    private fun nextRefreshDelay(): Long {
+        val interval = refreshInterval()
+        if (failedFetches == 0) return interval
+        return (nextAttemptAt - System.currentTimeMillis()).coerceIn(0L, interval)
+    }
+
+    private fun onFetchSucceeded() {
+        failedFetches = 0
+        nextAttemptAt = 0L
+    }
+
+    private fun onFetchFailed() {
+        val failures = ++failedFetches
+        val backoff = RETRY_BASE_MS shl (failures - 1).coerceAtMost(10)
+        nextAttemptAt = System.currentTimeMillis() + backoff.coerceAtMost(refreshInterval())
+    }
+
+    private fun refreshIfStale() {
+        if (isStale()) fetchPrice()
+    }
+
+    private fun onForegroundChanged(foreground: Boolean) {
+        Log.d(TAG, "App ${if (foreground) "in foreground" else "in background"}, adjusting refresh rate")
+        if (refreshJob?.isActive != true) return
+        // Restart the loop so the new interval applies right away
+        stop()
+        start()
+        if (foreground) refreshIfStale()
+    }
 
+    /**
+     * Refresh prices in the background unless a refresh is already running or a failed
+     * one is still backing off.
+     * @return the started refresh, or null if none was started
+     */
+    private fun fetchPrice(): Job? {
+        if (System.currentTimeMillis() < nextAttemptAt) return null
+        if (!fetchInFlight.compareAndSet(false, true)) return null
+
+        return scope.launch {
             try {
-                val currency = currencyManager.getCurrentCurrency()
-                val apiUrl = currencyManager.getCoinbaseApiUrl()
-                Log.d(TAG, "Fetching Bitcoin price in $currency from: $apiUrl")
-
-                val uri = URI(apiUrl)
-                val url: URL = uri.toURL()
-
-                connection = (url.openConnection() as HttpURLConnection).apply {
-                    requestMethod = "GET"
-                    connectTimeout = 5000
-                    readTimeout = 5000
-                }
-
-                val responseCode = connection.responseCode
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    reader = BufferedReader(InputStreamReader(connection.inputStream))
-                    val response = buildString {
-                        var line: String?
-                        while (reader!!.readLine().also { line = it } != null) {
-                            append(line)
-                        }
-                    }
-
-                    val jsonObject = JSONObject(response)
-                    val data = jsonObject.getJSONObject("data")
-                    val price = data.getDouble("amount")
-
-                    priceByCurrency[currency] = price
-                    cachePrice(currency, price)
-
-                    Log.d(TAG, "Bitcoin price updated: $price $currency")
-                    notifyListener()
-                } else {
-                    Log.e(TAG, "Failed to fetch Bitcoin price, response code: $responseCode")
-                }
-            } catch (e: IOException) {
-                Log.e(TAG, "Error fetching Bitcoin price: ${e.message}", e)
-            } catch (e: JSONException) {
-                Log.e(TAG, "Error parsing Bitcoin price JSON: ${e.message}", e)
-            } catch (e: URISyntaxException) {
-                Log.e(TAG, "Invalid Bitcoin price URI: ${e.message}", e)
+                refresh()
             } finally {
-                try {
-                    reader?.close()
-                } catch (e: IOException) {
-                    Log.e(TAG, "Error closing reader: ${e.message}", e)
-                }
-                connection?.disconnect()
+                fetchInFlight.set(false)
+            }
+        }
+    }
+
+    /**
+     * Fetch prices for all supported currencies from the current [PriceSource].
+     * @return true if prices were updated
+     */
+    suspend fun refresh(): Boolean = withContext(Dispatchers.IO) {
+        val source = priceSource
+        try {
+            val prices = source.fetchPrices()
+            if (source !== priceSource) {
+                Log.d(TAG, "Price source changed during fetch, dropping its prices")
+                return@withContext false
             }
-        }.start()
+            if (prices.isEmpty()) {
+                DevLogger.e(TAG, "Bitcoin price response contained no supported currencies")
+                onFetchFailed()
+                return@withContext false
+            }
+
+            priceByCurrency.putAll(prices)
+            lastUpdateTime = System.currentTimeMillis()
+            onFetchSucceeded()
+            cachePrices(prices)
+
+            Log.d(TAG, "Bitcoin prices updated: $prices")
+            notifyListener()
+            true
+        } catch (e: IOException) {
+            DevLogger.e(TAG, "Error fetching Bitcoin price: ${e.message}", e)
+            if (source === priceSource) onFetchFailed()
+            false
+        } catch (e: JSONException) {
+            DevLogger.e(TAG, "Error parsing Bitcoin price JSON: ${e.message}", e)
+            if (source === priceSource) onFetchFailed()
+            false
+        }
     }
 
-    /** Cache the Bitcoin price for a specific currency in SharedPreferences. */
-    private fun cachePrice(currency: String, price: Double) {
+    /** Cache the Bitcoin prices in SharedPreferences. */
+    private fun cachePrices(prices: Map<String, Double>) {
         val editor: SharedPreferences.Editor =
             context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
-        editor.putFloat(KEY_PRICE_PREFIX + currency, price.toFloat())
-        editor.putLong(KEY_LAST_UPDATE_TIME, System.currentTimeMillis())
+        for ((currency, price) in prices) {
+            editor.putFloat(KEY_PRICE_PREFIX + currency, price.toFloat())
+        }
+        editor.putLong(KEY_LAST_UPDATE_TIME, lastUpdateTime)
         editor.apply()
     }
 
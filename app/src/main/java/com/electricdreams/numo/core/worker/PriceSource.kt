@@ -0,0 +1,72 @@
+package com.electricdreams.numo.core.worker
+
+import com.electricdreams.numo.core.util.HttpClients
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import org.json.JSONException
+import org.json.JSONObject
+import java.io.IOException
+
+/**
+ * Where [BitcoinPriceWorker] gets its BTC prices from.
+ */
+fun interface PriceSource {
+    /**
+     * Fetch the BTC price per currency code, for as many of
+     * [BitcoinPriceWorker.SUPPORTED_CURRENCIES] as the source knows.
+     */
+    @Throws(IOException::class, JSONException::class)
+    fun fetchPrices(): Map<String, Double>
+}
+
+/**
+ * Coinbase exchange-rates API, or any server answering in its format such as a
+ * local stand-in on a test rig.
+ */
+class CoinbasePriceSource(
+    private val client: OkHttpClient = HttpClients.shared,
+    private val url: String = DEFAULT_URL
+) : PriceSource {
+
+    companion object {
+        // BTC rates in every fiat currency in one response
+        const val DEFAULT_URL = "https://api.coinbase.com/v2/exchange-rates?currency=BTC"
+
+        /**
+         * Parse a Coinbase exchange-rates response into BTC prices for the supported currencies.
+         */
+        @Throws(JSONException::class)
+        fun parseRates(json: String): Map<String, Double> {
+            val rates = JSONObject(json).getJSONObject("data").getJSONObject("rates")
+            return BitcoinPriceWorker.SUPPORTED_CURRENCIES
+                .filter { rates.has(it) }
+                .associateWith { rates.getString(it).toDoubleOrNull() ?: 0.0 }
+                .filterValues { it > 0.0 }
+        }
+    }
+
+    override fun fetchPrices(): Map<String, Double> {
+        val request = Request.Builder().url(url).get().build()
+        client.newCall(request).execute().use { response ->
+            if (!response.isSuccessful) {
+                throw IOException("Price request to $url failed with HTTP ${response.code}")
+            }
+            return parseRates(response.body?.string().orEmpty())
+        }
+    }
+}
+
+/**
+ * Fixed prices, for tests, benchmarks and rigs without network access.
+ */
+class FixedPriceSource(private val prices: Map<String, Double>) : PriceSource {
+
+    companion object {
+        /** Prices from a recorded Coinbase exchange-rates response. */
+        @Throws(JSONException::class)
+        fun fromCoinbaseJson(json: String): FixedPriceSource =
+            FixedPriceSource(CoinbasePriceSource.parseRates(json))
+    }
+
+    override fun fetchPrices(): Map<String, Double> = prices
+}
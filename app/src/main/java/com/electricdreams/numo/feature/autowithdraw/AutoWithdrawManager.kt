@@ -3,19 +3,28 @@ package com.electricdreams.numo.feature.autowithdraw
 import android.content.Context
 import android.util.Log
 import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.cashu.MintBalanceLedger
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.util.BalanceRefreshBroadcast
 import com.electricdreams.numo.core.util.MintManager
+import com.electricdreams.numo.payment.MintHealthTracker
+import com.electricdreams.numo.payment.MintSubscriptionManager
 import com.google.gson.Gson
 import com.google.gson.reflect.TypeToken
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeoutOrNull
 import org.cashudevkit.MintUrl
+import org.cashudevkit.MultiMintWallet
 import org.cashudevkit.QuoteState
 import java.util.Date
 import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Data class representing a withdrawal history entry (automatic or manual).
@@ -50,21 +59,93 @@ data class WithdrawHistoryEntry(
  */
 interface AutoWithdrawProgressListener {
     fun onWithdrawStarted(mintUrl: String, amount: Long, lightningAddress: String)
-    fun onWithdrawProgress(step: String, detail: String)
+    fun onWithdrawProgress(mintUrl: String, step: String, detail: String)
     fun onWithdrawCompleted(mintUrl: String, amount: Long, fee: Long)
     fun onWithdrawFailed(mintUrl: String, error: String)
 }
 
+/**
+ * Mint operations used by [AutoWithdrawManager]; replaced in tests.
+ */
+internal interface WithdrawMintClient {
+    data class MeltQuote(val id: String, val amountSats: Long, val feeReserveSats: Long)
+
+    fun isReady(): Boolean
+    suspend fun requestMeltQuote(mintUrl: String, lightningAddress: String, amountMsat: Long): MeltQuote
+    suspend fun melt(mintUrl: String, quoteId: String)
+    suspend fun checkMeltQuote(mintUrl: String, quoteId: String): QuoteState
+
+    /**
+     * Suspend until the mint reports that the melt quote settled or failed.
+     * Throws if the mint does not support quote subscriptions.
+     */
+    suspend fun awaitMeltQuoteSettled(mintUrl: String, quoteId: String)
+}
+
+/**
+ * [WithdrawMintClient] backed by the CDK wallet of [CashuWalletManager].
+ */
+internal object CdkWithdrawMintClient : WithdrawMintClient {
+
+    private fun wallet(): MultiMintWallet =
+        CashuWalletManager.getWallet() ?: throw IllegalStateException("Wallet not initialized")
+
+    override fun isReady(): Boolean = CashuWalletManager.getWallet() != null
+
+    override suspend fun requestMeltQuote(
+        mintUrl: String,
+        lightningAddress: String,
+        amountMsat: Long
+    ): WithdrawMintClient.MeltQuote = withContext(Dispatchers.IO) {
+        val quote = MintHealthTracker.shared.track("mint.melt_quote", mintUrl) {
+            wallet().meltLightningAddressQuote(MintUrl(mintUrl), lightningAddress, amountMsat.toULong())
+        }
+        WithdrawMintClient.MeltQuote(quote.id, quote.amount.value.toLong(), quote.feeReserve.value.toLong())
+    }
+
+    override suspend fun melt(mintUrl: String, quoteId: String) {
+        withContext(Dispatchers.IO) {
+            wallet().meltWithMint(MintUrl(mintUrl), quoteId)
+        }
+    }
+
+    override suspend fun checkMeltQuote(mintUrl: String, quoteId: String): QuoteState =
+        withContext(Dispatchers.IO) {
+            wallet().checkMeltQuote(MintUrl(mintUrl), quoteId).state
+        }
+
+    override suspend fun awaitMeltQuoteSettled(mintUrl: String, quoteId: String) {
+        MintSubscriptionManager.shared.awaitQuoteState(
+            mintUrl,
+            MintSubscriptionManager.KIND_MELT_QUOTE,
+            quoteId,
+            setOf("PAID", "UNPAID")
+        )
+    }
+}
+
 /**
  * Manages automatic withdrawals when mint balances exceed thresholds.
  * 
  * This manager:
  * - Checks if balances exceed configured thresholds after payments
- * - Executes withdrawals to configured Lightning addresses
+ * - Queues withdrawals as durable [WithdrawJob]s and executes them to configured
+ *   Lightning addresses, one at a time per mint but in parallel across mints
+ * - Retries pending Lightning payments with backoff and resumes unfinished jobs on app start
  * - Persists withdrawal history and melt quotes in payment history
- * - Provides progress callbacks for UI updates
+ * - Provides progress callbacks for UI updates, keyed by mint
  */
-class AutoWithdrawManager private constructor(private val context: Context) {
+class AutoWithdrawManager internal constructor(
+    private val context: Context,
+    /**
+     * Application-scoped coroutine scope for background withdrawal operations.
+     * Uses SupervisorJob so individual withdrawal failures don't cancel the scope.
+     * This scope survives activity lifecycle changes. Progress callbacks run on it.
+     */
+    private val withdrawalScope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.Main),
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val mintClient: WithdrawMintClient = CdkWithdrawMintClient
+) {
 
     companion object {
         private const val TAG = "AutoWithdrawManager"
@@ -72,6 +153,11 @@ class AutoWithdrawManager private constructor(private val context: Context) {
         private const val KEY_HISTORY = "history"
         private const val MAX_HISTORY_ENTRIES = 100
 
+        // Retry schedule for pending melts and transient failures: 5s, 10s, 20s, ... capped at 10 min
+        private const val RETRY_BASE_DELAY_MS = 5_000L
+        private const val RETRY_MAX_DELAY_MS = 10 * 60_000L
+        private const val MAX_ATTEMPTS = 20
+
         @Volatile
         private var instance: AutoWithdrawManager? = null
 
@@ -82,35 +168,51 @@ class AutoWithdrawManager private constructor(private val context: Context) {
                 }
             }
         }
+
+        /**
+         * Delay before retry number [attempt] (1-based), doubling each time.
+         */
+        internal fun retryDelayMs(attempt: Int): Long {
+            val shift = (attempt - 1).coerceIn(0, 20)
+            return (RETRY_BASE_DELAY_MS shl shift).coerceAtMost(RETRY_MAX_DELAY_MS)
+        }
     }
 
     private val settingsManager = AutoWithdrawSettingsManager.getInstance(context)
     private val mintManager = MintManager.getInstance(context)
     private val gson = Gson()
+    private val jobQueue = WithdrawJobQueue(context)
+    private val historyLock = Any()
     
     private var progressListener: AutoWithdrawProgressListener? = null
-    
-    @Volatile
-    private var isWithdrawInProgress = false
-    
-    /**
-     * Application-scoped coroutine scope for background withdrawal operations.
-     * Uses SupervisorJob so individual withdrawal failures don't cancel the scope.
-     * This scope survives activity lifecycle changes.
-     */
-    private val withdrawalScope = CoroutineScope(SupervisorJob() + Dispatchers.Main)
+
+    // Mints whose worker is currently running
+    private val activeMints: MutableSet<String> = ConcurrentHashMap.newKeySet()
 
     /**
-     * Set a progress listener for UI updates.
+     * Set a progress listener for UI updates. Workers of different mints report
+     * concurrently; every callback names the mint it belongs to.
      */
     fun setProgressListener(listener: AutoWithdrawProgressListener?) {
         progressListener = listener
     }
 
     /**
-     * Check if a withdrawal is currently in progress.
+     * Check if any withdrawal is currently in progress.
      */
-    fun isWithdrawing(): Boolean = isWithdrawInProgress
+    fun isWithdrawing(): Boolean = activeMints.isNotEmpty()
+
+    /**
+     * Restart workers for withdrawals left unfinished by a previous process.
+     * Safe to call multiple times.
+     */
+    fun resumePendingWithdrawals() {
+        val jobs = jobQueue.getAll()
+        if (jobs.isNotEmpty()) {
+            Log.d(TAG, "Resuming ${jobs.size} unfinished withdrawal(s)")
+        }
+        jobs.forEach { launchMintWorker(it.mintUrl) }
+    }
 
     /**
      * Called after a successful payment to check if auto-withdrawal should be triggered.
@@ -120,22 +222,10 @@ class AutoWithdrawManager private constructor(private val context: Context) {
      * activity lifecycle changes. The withdrawal will continue even if the calling
      * activity is destroyed.
      * 
-     * @param token The Cashu token received (can be empty for Lightning payments)
-     * @param lightningMintUrl The mint URL for Lightning payments (used when token is empty)
+     * @param mintUrl The mint that received the payment, as already decoded by the
+     *   payment flow (token mint for Cashu, Lightning mint for Lightning payments)
      */
-    fun onPaymentReceived(token: String, lightningMintUrl: String?) {
-        // Determine the mint URL
-        val mintUrl: String? = if (token.isNotEmpty()) {
-            try {
-                com.cashujdk.nut00.Token.decode(token).mint
-            } catch (e: Exception) {
-                Log.w(TAG, "Could not extract mint URL from token: ${e.message}")
-                null
-            }
-        } else {
-            lightningMintUrl
-        }
-        
+    fun onPaymentReceived(mintUrl: String?) {
         Log.d(TAG, "💰 Payment received, checking for auto-withdrawal. mintUrl=$mintUrl")
         
         if (mintUrl == null) {
@@ -150,111 +240,83 @@ class AutoWithdrawManager private constructor(private val context: Context) {
                 checkAndTriggerWithdrawals(mintUrl)
                 Log.d(TAG, "✅ Auto-withdrawal check completed")
             } catch (e: Exception) {
-                Log.e(TAG, "❌ Error checking auto-withdrawals", e)
+                DevLogger.e(TAG, "❌ Error checking auto-withdrawals", e)
             }
         }
     }
 
     /**
-     * Check all mints and trigger withdrawals if needed.
-     * Called after a payment is received.
-     * 
-     * @param paymentMintUrl Optional: the mint that just received payment (checked first)
+     * Queue a withdrawal for every mint whose balance exceeds its threshold.
+     *
+     * With [paymentMintUrl] only that mint is checked, using its cached balance from
+     * [MintBalanceLedger] (no wallet query unless the balance is unknown). Without it,
+     * every mint is checked against a fresh read of all balances.
+     *
+     * @param paymentMintUrl Optional: the mint whose balance just changed
      */
     suspend fun checkAndTriggerWithdrawals(paymentMintUrl: String? = null) {
         Log.d(TAG, "=== checkAndTriggerWithdrawals START ===")
         Log.d(TAG, "paymentMintUrl: $paymentMintUrl")
-        
-        if (isWithdrawInProgress) {
-            Log.d(TAG, "Withdrawal already in progress, skipping check")
-            return
-        }
 
         if (!settingsManager.isGloballyEnabled()) {
             Log.d(TAG, "Auto-withdraw is globally disabled, skipping")
             return
         }
-        
-        Log.d(TAG, "Auto-withdraw is globally enabled, checking balances...")
 
         try {
-            // Get all mint balances
-            val balances = CashuWalletManager.getAllMintBalances()
-            Log.d(TAG, "Retrieved ${balances.size} mint balances: $balances")
-            
-            if (balances.isEmpty()) {
-                Log.w(TAG, "No mint balances found!")
-                return
-            }
-            
-            // Check payment mint first if specified
             if (paymentMintUrl != null) {
-                Log.d(TAG, "Checking payment mint first: $paymentMintUrl")
-                if (balances.containsKey(paymentMintUrl)) {
-                    val balance = balances[paymentMintUrl] ?: 0L
-                    Log.d(TAG, "Payment mint balance: $balance sats")
-                    if (settingsManager.shouldTriggerWithdrawal(paymentMintUrl, balance)) {
-                        Log.d(TAG, ">>> Triggering withdrawal for payment mint!")
-                        executeWithdrawal(paymentMintUrl, balance)
-                        return // Only process one withdrawal at a time
-                    } else {
-                        Log.d(TAG, "Payment mint did not trigger withdrawal")
-                    }
-                } else {
-                    Log.w(TAG, "Payment mint URL not found in balances! Available mints: ${balances.keys}")
-                }
+                val balance = MintBalanceLedger.getBalance(paymentMintUrl)
+                Log.d(TAG, "Payment mint balance: $balance sats")
+                triggerIfOverThreshold(paymentMintUrl, balance)
+                return
             }
 
-            // Check other mints
-            Log.d(TAG, "Checking other mints...")
-            for ((mintUrl, balance) in balances) {
-                if (mintUrl == paymentMintUrl) {
-                    Log.d(TAG, "Skipping $mintUrl (already checked as payment mint)")
-                    continue
-                }
-                Log.d(TAG, "Checking mint: $mintUrl with balance: $balance")
-                if (settingsManager.shouldTriggerWithdrawal(mintUrl, balance)) {
-                    Log.d(TAG, ">>> Triggering withdrawal for mint: $mintUrl")
-                    executeWithdrawal(mintUrl, balance)
-                    return // Only process one withdrawal at a time
-                }
-            }
-            
-            Log.d(TAG, "No withdrawals triggered for any mint")
+            val balances = MintBalanceLedger.refresh()
+            Log.d(TAG, "Retrieved ${balances.size} mint balances: $balances")
+            val triggered = balances.count { (mintUrl, balance) -> triggerIfOverThreshold(mintUrl, balance) }
+            Log.d(TAG, "Queued withdrawals for $triggered mint(s)")
         } catch (e: Exception) {
-            Log.e(TAG, "Error checking balances for auto-withdraw", e)
+            DevLogger.e(TAG, "Error checking balances for auto-withdraw", e)
         }
         
         Log.d(TAG, "=== checkAndTriggerWithdrawals END ===")
     }
 
     /**
-     * Execute a withdrawal for a specific mint.
+     * Queue a withdrawal for [mintUrl] if [cachedBalance] crosses its threshold.
+     * The balance is confirmed against the wallet before the job is queued.
+     *
+     * @return true if a withdrawal was queued
      */
-    private suspend fun executeWithdrawal(mintUrl: String, currentBalance: Long) {
-        if (isWithdrawInProgress) {
-            Log.w(TAG, "executeWithdrawal called but already in progress, skipping")
-            return
+    private suspend fun triggerIfOverThreshold(mintUrl: String, cachedBalance: Long): Boolean {
+        if (jobQueue.hasJobFor(mintUrl)) {
+            Log.d(TAG, "Withdrawal already queued for $mintUrl, skipping")
+            return false
         }
-        isWithdrawInProgress = true
+        if (!settingsManager.shouldTriggerWithdrawal(mintUrl, cachedBalance)) {
+            return false
+        }
+
+        MintBalanceLedger.invalidate(mintUrl)
+        val balance = MintBalanceLedger.getBalance(mintUrl)
+        if (!settingsManager.shouldTriggerWithdrawal(mintUrl, balance)) {
+            Log.d(TAG, "Confirmed balance $balance sats for $mintUrl is below threshold")
+            return false
+        }
+
+        Log.d(TAG, ">>> Triggering withdrawal for mint: $mintUrl")
+        return enqueueWithdrawal(mintUrl, balance)
+    }
 
+    /**
+     * Record a new withdrawal job for [mintUrl] and start its worker.
+     */
+    private fun enqueueWithdrawal(mintUrl: String, currentBalance: Long): Boolean {
         val settings = settingsManager.getMintSettings(mintUrl)
         val withdrawAmount = settingsManager.calculateWithdrawAmount(mintUrl, currentBalance)
         val lightningAddress = settings.lightningAddress
 
-        Log.d(TAG, "🚀 STARTING AUTO-WITHDRAWAL:")
-        Log.d(TAG, "   Mint: $mintUrl")
-        Log.d(TAG, "   Current balance: $currentBalance sats")
-        Log.d(TAG, "   Withdraw amount: $withdrawAmount sats (${settings.withdrawPercentage}%)")
-        Log.d(TAG, "   Lightning address: $lightningAddress")
-        Log.d(TAG, "   Threshold: ${settings.thresholdSats} sats")
-
-        withContext(Dispatchers.Main) {
-            progressListener?.onWithdrawStarted(mintUrl, withdrawAmount, lightningAddress)
-            progressListener?.onWithdrawProgress("Preparing", "Getting quote...")
-        }
-
-        var historyEntry = WithdrawHistoryEntry(
+        val historyEntry = WithdrawHistoryEntry(
             mintUrl = mintUrl,
             lightningAddress = lightningAddress,
             destination = lightningAddress,
@@ -264,154 +326,228 @@ class AutoWithdrawManager private constructor(private val context: Context) {
             status = WithdrawHistoryEntry.STATUS_PENDING,
             automatic = true
         )
+        val job = WithdrawJob(
+            mintUrl = mintUrl,
+            lightningAddress = lightningAddress,
+            amountSats = withdrawAmount,
+            historyEntryId = historyEntry.id
+        )
+        if (!jobQueue.enqueue(job)) {
+            Log.d(TAG, "Withdrawal already queued for $mintUrl, skipping")
+            return false
+        }
+        addToHistory(historyEntry)
 
-        try {
-            Log.d(TAG, "📋 Step 1: Getting wallet instance...")
-            val wallet = CashuWalletManager.getWallet()
-            if (wallet == null) {
-                throw Exception("Wallet not initialized")
-            }
-            Log.d(TAG, "✅ Wallet instance obtained")
+        Log.d(TAG, "🚀 QUEUED AUTO-WITHDRAWAL:")
+        Log.d(TAG, "   Mint: $mintUrl")
+        Log.d(TAG, "   Current balance: $currentBalance sats")
+        Log.d(TAG, "   Withdraw amount: $withdrawAmount sats (${settings.withdrawPercentage}%)")
+        Log.d(TAG, "   Lightning address: $lightningAddress")
+        Log.d(TAG, "   Threshold: ${settings.thresholdSats} sats")
 
-            // Get melt quote for Lightning address
-            Log.d(TAG, "📋 Step 2: Getting melt quote...")
-            withContext(Dispatchers.Main) {
-                progressListener?.onWithdrawProgress("Quote", "Getting Lightning quote...")
-            }
+        launchMintWorker(mintUrl)
+        return true
+    }
+
+    /**
+     * Run the queued job of [mintUrl] unless a worker for that mint is already running.
+     * Workers of different mints run concurrently.
+     */
+    private fun launchMintWorker(mintUrl: String) {
+        if (!activeMints.add(mintUrl)) return
 
-            val amountMsat = withdrawAmount * 1000
-            Log.d(TAG, "   Requesting quote for $withdrawAmount sats ($amountMsat msat) to $lightningAddress")
-            
-            val meltQuote = withContext(Dispatchers.IO) {
-                Log.d(TAG, "   Making CDK call: wallet.meltLightningAddressQuote()")
-                try {
-                    val quote = wallet.meltLightningAddressQuote(MintUrl(mintUrl), lightningAddress, amountMsat.toULong())
-                    Log.d(TAG, "   ✅ Quote received: id=${quote.id}")
-                    quote
-                } catch (e: Exception) {
-                    Log.e(TAG, "   ❌ Quote failed: ${e.message}", e)
-                    throw e
+        withdrawalScope.launch {
+            var drained = false
+            try {
+                while (true) {
+                    val job = jobQueue.jobFor(mintUrl) ?: break
+                    runJob(job)
                 }
+                drained = true
+            } catch (e: Exception) {
+                DevLogger.e(TAG, "Withdrawal worker for $mintUrl stopped", e)
+            } finally {
+                activeMints.remove(mintUrl)
             }
+            // A job queued while the worker was finishing would otherwise wait for the next trigger
+            if (drained && jobQueue.hasJobFor(mintUrl)) launchMintWorker(mintUrl)
+        }
+    }
 
-            val quoteAmount = meltQuote.amount.value.toLong()
-            val feeReserve = meltQuote.feeReserve.value.toLong()
-            val totalRequired = quoteAmount + feeReserve
-
-            Log.d(TAG, "✅ Melt quote received:")
-            Log.d(TAG, "   Quote ID: ${meltQuote.id}")
-            Log.d(TAG, "   Amount: $quoteAmount sats")
-            Log.d(TAG, "   Fee reserve: $feeReserve sats")
-            Log.d(TAG, "   Total required: $totalRequired sats")
-            Log.d(TAG, "   Request (BOLT11): ${meltQuote.request}")
-
-            // Check if we have enough balance
-            if (totalRequired > currentBalance) {
-                Log.e(TAG, "❌ Insufficient balance: need $totalRequired sats, have $currentBalance sats")
-                throw Exception("Insufficient balance for withdrawal + fees (need $totalRequired, have $currentBalance)")
-            }
-            Log.d(TAG, "✅ Balance check passed: $currentBalance >= $totalRequired")
+    /**
+     * Advance [queued] by one attempt: wait until it is due, then quote, melt or re-check
+     * its quote. The job is either removed (settled or failed) or rescheduled.
+     */
+    private suspend fun runJob(queued: WithdrawJob) {
+        var job = queued
+        awaitNextAttempt(job)
 
-            // Update history entry with quote info
-            historyEntry = historyEntry.copy(
-                quoteId = meltQuote.id,
-                feeSats = feeReserve
-            )
+        val mintUrl = job.mintUrl
+        Log.d(TAG, "Running withdrawal job ${job.id} for $mintUrl (stage=${job.stage}, attempt=${job.attempts + 1})")
 
-            // Execute melt
-            Log.d(TAG, "📋 Step 4: Executing melt operation...")
-            withContext(Dispatchers.Main) {
-                progressListener?.onWithdrawProgress("Sending", "Sending payment...")
+        try {
+            if (!mintClient.isReady()) {
+                // Wallet is still being built (e.g. right after app start)
+                retryLater(job, "Wallet not initialized")
+                return
             }
 
-            val melted = withContext(Dispatchers.IO) {
-                Log.d(TAG, "   Making CDK call: wallet.meltWithMint()")
-                try {
-                    val result = wallet.meltWithMint(MintUrl(mintUrl), meltQuote.id)
-                    Log.d(TAG, "   ✅ Melt completed")
-                    result
-                } catch (e: Exception) {
-                    Log.e(TAG, "   ❌ Melt failed: ${e.message}", e)
-                    throw e
-                }
+            var freshQuote = false
+            if (job.stage == WithdrawJob.STAGE_QUEUED) {
+                job = requestQuote(job) ?: return
+                freshQuote = true
             }
 
-            // Check melt state
-            Log.d(TAG, "📋 Step 5: Checking final quote state...")
-            val finalQuote = withContext(Dispatchers.IO) {
-                Log.d(TAG, "   Making CDK call: wallet.checkMeltQuote()")
-                try {
-                    val quote = wallet.checkMeltQuote(MintUrl(mintUrl), meltQuote.id)
-                    Log.d(TAG, "   ✅ Final quote state: ${quote.state}")
-                    quote
-                } catch (e: Exception) {
-                    Log.e(TAG, "   ❌ Quote check failed: ${e.message}", e)
-                    throw e
-                }
+            // A melt may already have been sent for this quote: look before melting again
+            var state = if (freshQuote) QuoteState.UNPAID else checkQuoteState(job)
+            if (state == QuoteState.UNPAID && job.stage == WithdrawJob.STAGE_MELTING) {
+                progressListener?.onWithdrawProgress(mintUrl, "Sending", "Sending payment...")
+                melt(job)
+                state = checkQuoteState(job)
             }
 
-            when (finalQuote.state) {
-                QuoteState.PAID -> {
-                    Log.d(TAG, "🎉 AUTO-WITHDRAWAL SUCCESSFUL!")
-                    Log.d(TAG, "   Amount withdrawn: $withdrawAmount sats")
-                    Log.d(TAG, "   Fee paid: $feeReserve sats")
-                    Log.d(TAG, "   Lightning address: $lightningAddress")
-                    
-                    historyEntry = historyEntry.copy(status = WithdrawHistoryEntry.STATUS_COMPLETED)
-                    
-                    // Broadcast balance change so other activities can refresh
-                    BalanceRefreshBroadcast.send(context, BalanceRefreshBroadcast.REASON_AUTO_WITHDRAWAL)
-                    
-                    withContext(Dispatchers.Main) {
-                        progressListener?.onWithdrawCompleted(mintUrl, withdrawAmount, feeReserve)
-                    }
-                }
+            when (state) {
+                QuoteState.PAID -> completeJob(job)
                 QuoteState.PENDING -> {
                     Log.d(TAG, "⏳ Auto-withdrawal pending (waiting for Lightning payment)")
-                    historyEntry = historyEntry.copy(
-                        status = WithdrawHistoryEntry.STATUS_PENDING,
-                        errorMessage = "Payment pending - check back later"
-                    )
-                    withContext(Dispatchers.Main) {
-                        progressListener?.onWithdrawProgress("Pending", "Payment is pending...")
+                    job = job.copy(stage = WithdrawJob.STAGE_PENDING)
+                    updateHistoryEntry(job.historyEntryId) {
+                        it.copy(errorMessage = "Payment pending - check back later")
                     }
+                    progressListener?.onWithdrawProgress(mintUrl, "Pending", "Payment is pending...")
+                    retryLater(job, "Payment pending")
                 }
-                QuoteState.UNPAID -> {
-                    Log.e(TAG, "❌ Auto-withdrawal failed: Quote is UNPAID")
-                    throw Exception("Payment failed: Quote state is UNPAID")
-                }
-                else -> {
-                    Log.e(TAG, "❌ Auto-withdrawal failed: Unknown quote state ${finalQuote.state}")
-                    throw Exception("Payment failed: Unknown quote state ${finalQuote.state}")
-                }
+                QuoteState.UNPAID -> failJob(job, "Payment failed: Quote state is UNPAID")
+                else -> failJob(job, "Payment failed: Unknown quote state $state")
             }
-
         } catch (e: Exception) {
-            Log.e(TAG, "💥 AUTO-WITHDRAWAL FAILED:")
-            Log.e(TAG, "   Mint: $mintUrl")
-            Log.e(TAG, "   Amount: $withdrawAmount sats")
-            Log.e(TAG, "   Error: ${e.message}")
-            Log.e(TAG, "   Exception type: ${e.javaClass.simpleName}")
-            
-            // If it's a JobCancellationException, log that specifically
-            if (e is kotlinx.coroutines.CancellationException) {
-                Log.e(TAG, "   🚫 Withdrawal was cancelled (likely due to scope cancellation)")
+            if (e is CancellationException) throw e
+            DevLogger.e(TAG, "💥 Withdrawal attempt failed for $mintUrl: ${e.message}", e)
+            if (job.stage == WithdrawJob.STAGE_QUEUED) {
+                // Nothing was spent yet; safe to give up
+                failJob(job, e.message ?: "Unknown error")
+            } else {
+                // The melt may be in flight: keep re-checking the same quote
+                retryLater(job, e.message ?: "Unknown error")
             }
-            
-            historyEntry = historyEntry.copy(
-                status = WithdrawHistoryEntry.STATUS_FAILED,
-                errorMessage = e.message
-            )
-            withContext(Dispatchers.Main) {
-                progressListener?.onWithdrawFailed(mintUrl, e.message ?: "Unknown error")
+        }
+    }
+
+    /**
+     * Wait until [job] is due. A pending melt is re-checked early if the mint reports
+     * over its WebSocket that the payment settled or failed.
+     */
+    private suspend fun awaitNextAttempt(job: WithdrawJob) {
+        val wait = job.nextAttemptAt - clock()
+        if (wait <= 0) return
+
+        val quoteId = job.quoteId
+        if (job.stage != WithdrawJob.STAGE_PENDING || quoteId == null) {
+            delay(wait)
+            return
+        }
+        try {
+            withTimeoutOrNull(wait) {
+                mintClient.awaitMeltQuoteSettled(job.mintUrl, quoteId)
             }
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            // Mint does not support the subscription; fall back to the scheduled retry
+            Log.w(TAG, "Melt quote subscription failed: ${e.message}")
+            val remaining = job.nextAttemptAt - clock()
+            if (remaining > 0) delay(remaining)
+        }
+    }
+
+    /**
+     * Get a melt quote for [job] and persist it before anything is spent.
+     * @return the updated job, or null if the job failed
+     */
+    private suspend fun requestQuote(job: WithdrawJob): WithdrawJob? {
+        progressListener?.onWithdrawStarted(job.mintUrl, job.amountSats, job.lightningAddress)
+        progressListener?.onWithdrawProgress(job.mintUrl, "Quote", "Getting Lightning quote...")
+
+        val amountMsat = job.amountSats * 1000
+        Log.d(TAG, "   Requesting quote for ${job.amountSats} sats ($amountMsat msat) to ${job.lightningAddress}")
+        val meltQuote = mintClient.requestMeltQuote(job.mintUrl, job.lightningAddress, amountMsat)
+
+        val quoteAmount = meltQuote.amountSats
+        val feeReserve = meltQuote.feeReserveSats
+        val totalRequired = quoteAmount + feeReserve
+        Log.d(TAG, "✅ Melt quote ${meltQuote.id}: amount=$quoteAmount, feeReserve=$feeReserve")
+
+        val balance = MintBalanceLedger.getBalance(job.mintUrl)
+        if (totalRequired > balance) {
+            failJob(job, "Insufficient balance for withdrawal + fees (need $totalRequired, have $balance)")
+            return null
+        }
+
+        val quoted = job.copy(
+            stage = WithdrawJob.STAGE_MELTING,
+            quoteId = meltQuote.id,
+            feeReserveSats = feeReserve
+        )
+        jobQueue.update(quoted)
+        updateHistoryEntry(job.historyEntryId) { it.copy(quoteId = meltQuote.id, feeSats = feeReserve) }
+        return quoted
+    }
+
+    private suspend fun melt(job: WithdrawJob) {
+        try {
+            mintClient.melt(job.mintUrl, job.quoteId!!)
+            Log.d(TAG, "   ✅ Melt completed for quote ${job.quoteId}")
         } finally {
-            Log.d(TAG, "🏁 Withdrawal finished, saving to history...")
-            // Save to auto-withdraw history
-            addToHistory(historyEntry)
-            isWithdrawInProgress = false
-            Log.d(TAG, "🏁 Auto-withdrawal process completed")
+            // Spent amount depends on fees and change; re-read on next access
+            MintBalanceLedger.invalidate(job.mintUrl)
+        }
+    }
+
+    private suspend fun checkQuoteState(job: WithdrawJob): QuoteState =
+        mintClient.checkMeltQuote(job.mintUrl, job.quoteId!!)
+
+    private fun completeJob(job: WithdrawJob) {
+        Log.d(TAG, "🎉 AUTO-WITHDRAWAL SUCCESSFUL: ${job.amountSats} sats from ${job.mintUrl}")
+        jobQueue.remove(job)
+        updateHistoryEntry(job.historyEntryId) {
+            it.copy(status = WithdrawHistoryEntry.STATUS_COMPLETED, errorMessage = null)
         }
+
+        // Broadcast balance change so other activities can refresh
+        BalanceRefreshBroadcast.send(context, BalanceRefreshBroadcast.REASON_AUTO_WITHDRAWAL)
+
+        progressListener?.onWithdrawCompleted(job.mintUrl, job.amountSats, job.feeReserveSats)
+    }
+
+    private fun failJob(job: WithdrawJob, error: String) {
+        DevLogger.e(TAG, "💥 AUTO-WITHDRAWAL FAILED for ${job.mintUrl} (${job.amountSats} sats): $error")
+        jobQueue.remove(job)
+        updateHistoryEntry(job.historyEntryId) {
+            it.copy(status = WithdrawHistoryEntry.STATUS_FAILED, errorMessage = error)
+        }
+        progressListener?.onWithdrawFailed(job.mintUrl, error)
+    }
+
+    /**
+     * Reschedule [job] with exponential backoff, giving up after [MAX_ATTEMPTS].
+     */
+    private fun retryLater(job: WithdrawJob, reason: String) {
+        val attempts = job.attempts + 1
+        if (attempts >= MAX_ATTEMPTS) {
+            if (job.stage == WithdrawJob.STAGE_QUEUED) {
+                failJob(job, reason)
+            } else {
+                // Funds may still be in flight; leave the history entry pending for manual review
+                Log.w(TAG, "Giving up on withdrawal quote ${job.quoteId} after $attempts attempts: $reason")
+                jobQueue.remove(job)
+                updateHistoryEntry(job.historyEntryId) { it.copy(errorMessage = reason) }
+            }
+            return
+        }
+
+        val delayMs = retryDelayMs(attempts)
+        Log.d(TAG, "Retrying withdrawal for ${job.mintUrl} in ${delayMs}ms ($reason)")
+        jobQueue.update(job.copy(attempts = attempts, nextAttemptAt = clock() + delayMs))
     }
 
     /**
@@ -424,7 +560,7 @@ class AutoWithdrawManager private constructor(private val context: Context) {
             val type = object : TypeToken<List<WithdrawHistoryEntry>>() {}.type
             gson.fromJson(json, type) ?: emptyList()
         } catch (e: Exception) {
-            Log.e(TAG, "Error loading auto-withdraw history", e)
+            DevLogger.e(TAG, "Error loading auto-withdraw history", e)
             emptyList()
         }
     }
@@ -432,7 +568,7 @@ class AutoWithdrawManager private constructor(private val context: Context) {
     /**
      * Add entry to auto-withdraw history.
      */
-    private fun addToHistory(entry: WithdrawHistoryEntry) {
+    private fun addToHistory(entry: WithdrawHistoryEntry) = synchronized(historyLock) {
         val history = getHistory().toMutableList()
         history.add(0, entry) // Add at beginning (newest first)
         
@@ -444,6 +580,21 @@ class AutoWithdrawManager private constructor(private val context: Context) {
         saveHistory(history)
     }
 
+    /**
+     * Replace the history entry with [id] by [transform] applied to it.
+     * Jobs of different mints finish concurrently, so read-modify-write is serialized.
+     */
+    private fun updateHistoryEntry(id: String, transform: (WithdrawHistoryEntry) -> WithdrawHistoryEntry) {
+        synchronized(historyLock) {
+            val history = getHistory().toMutableList()
+            val index = history.indexOfFirst { it.id == id }
+            if (index >= 0) {
+                history[index] = transform(history[index])
+                saveHistory(history)
+            }
+        }
+    }
+
     /**
      * Save auto-withdraw history.
      */
@@ -494,16 +645,11 @@ class AutoWithdrawManager private constructor(private val context: Context) {
      * Update the status (and optional error message) of a withdrawal entry.
      */
     fun updateWithdrawalStatus(id: String, status: String, errorMessage: String? = null) {
-        val history = getHistory().toMutableList()
-        val index = history.indexOfFirst { it.id == id }
-        if (index >= 0) {
-            val existing = history[index]
-            val updated = existing.copy(
+        updateHistoryEntry(id) { existing ->
+            existing.copy(
                 status = status,
                 errorMessage = errorMessage ?: existing.errorMessage
             )
-            history[index] = updated
-            saveHistory(history)
         }
     }
 }
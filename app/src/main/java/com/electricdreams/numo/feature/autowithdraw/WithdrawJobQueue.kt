@@ -0,0 +1,113 @@
+package com.electricdreams.numo.feature.autowithdraw
+
+import android.content.Context
+import com.electricdreams.numo.core.dev.DevLogger
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import java.util.UUID
+
+/**
+ * A withdrawal that has been decided on but not yet settled.
+ *
+ * Jobs move from [STAGE_QUEUED] (no melt quote yet) to [STAGE_MELTING] (quote obtained,
+ * melt may have been sent) and, if the Lightning payment does not settle immediately,
+ * to [STAGE_PENDING]. Once a job has a [quoteId] it is only ever retried with that same
+ * quote, so an interrupted withdrawal can never be paid twice.
+ */
+data class WithdrawJob(
+    val id: String = UUID.randomUUID().toString(),
+    val mintUrl: String,
+    val lightningAddress: String,
+    val amountSats: Long,
+    // WithdrawHistoryEntry tracking this job
+    val historyEntryId: String,
+    val stage: String = STAGE_QUEUED,
+    val quoteId: String? = null,
+    val feeReserveSats: Long = 0,
+    val attempts: Int = 0,
+    val nextAttemptAt: Long = 0,
+    val createdAt: Long = System.currentTimeMillis()
+) {
+    companion object {
+        const val STAGE_QUEUED = "queued"
+        const val STAGE_MELTING = "melting"
+        const val STAGE_PENDING = "pending"
+    }
+}
+
+/**
+ * Durable store of unfinished [WithdrawJob]s, at most one per mint.
+ *
+ * Changes are written synchronously so that a job's quote is on disk before the melt
+ * that spends it is sent; after process death the job resumes from the same quote.
+ */
+class WithdrawJobQueue(context: Context) {
+
+    companion object {
+        private const val TAG = "WithdrawJobQueue"
+        private const val PREFS_NAME = "AutoWithdrawJobs"
+        private const val KEY_JOBS = "jobs"
+    }
+
+    private val prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+    private val gson = Gson()
+    private val lock = Any()
+
+    // Keyed by mint URL, in insertion order
+    private val jobs: LinkedHashMap<String, WithdrawJob> = load()
+
+    /**
+     * Add [job] unless its mint already has an unfinished job.
+     * @return true if the job was added
+     */
+    fun enqueue(job: WithdrawJob): Boolean = synchronized(lock) {
+        if (jobs.containsKey(job.mintUrl)) return false
+        jobs[job.mintUrl] = job
+        save()
+        true
+    }
+
+    fun hasJobFor(mintUrl: String): Boolean = synchronized(lock) { jobs.containsKey(mintUrl) }
+
+    fun jobFor(mintUrl: String): WithdrawJob? = synchronized(lock) { jobs[mintUrl] }
+
+    fun getAll(): List<WithdrawJob> = synchronized(lock) { jobs.values.toList() }
+
+    /**
+     * Persist a new state of an existing job. Ignored if the job was removed meanwhile.
+     */
+    fun update(job: WithdrawJob) {
+        synchronized(lock) {
+            if (jobs[job.mintUrl]?.id != job.id) return
+            jobs[job.mintUrl] = job
+            save()
+        }
+    }
+
+    fun remove(job: WithdrawJob) {
+        synchronized(lock) {
+            if (jobs[job.mintUrl]?.id != job.id) return
+            jobs.remove(job.mintUrl)
+            save()
+        }
+    }
+
+    private fun load(): LinkedHashMap<String, WithdrawJob> {
+        val json = prefs.getString(KEY_JOBS, null) ?: return LinkedHashMap()
+        return try {
+            val type = object : TypeToken<List<WithdrawJob>>() {}.type
+            val list: List<WithdrawJob> = gson.fromJson(json, type) ?: emptyList()
+            list.associateByTo(LinkedHashMap()) { it.mintUrl }
+        } catch (e: Exception) {
+            DevLogger.e(TAG, "Error loading withdrawal jobs", e)
+            LinkedHashMap()
+        }
+    }
+
+    /**
+     * Must be called while holding [lock].
+     */
+    private fun save() {
+        prefs.edit().putString(KEY_JOBS, gson.toJson(jobs.values.toList())).commit()
+    }
+}
@@ -16,7 +16,9 @@ import androidx.recyclerview.widget.RecyclerView
 import com.electricdreams.numo.feature.enableEdgeToEdgeWithPill
 import com.electricdreams.numo.PaymentRequestActivity
 import com.electricdreams.numo.R
+import com.electricdreams.numo.core.data.PendingPaymentIndex
 import com.electricdreams.numo.core.data.model.PaymentHistoryEntry
+import com.electricdreams.numo.core.dev.PaymentTrace
 import com.electricdreams.numo.ui.adapter.PaymentsHistoryAdapter
 import com.google.gson.Gson
 import com.google.gson.reflect.TypeToken
@@ -194,6 +196,7 @@ class PaymentsHistoryActivity : AppCompatActivity() {
     private fun clearAllHistory() {
         val prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
         prefs.edit().putString(KEY_HISTORY, "[]").apply()
+        PendingPaymentIndex.clear(this)
         loadHistory()
     }
 
@@ -206,6 +209,7 @@ class PaymentsHistoryActivity : AppCompatActivity() {
 
             val prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
             prefs.edit().putString(KEY_HISTORY, Gson().toJson(history)).apply()
+            PendingPaymentIndex.retainPending(this, history)
 
             loadHistory()
         }
@@ -245,6 +249,7 @@ class PaymentsHistoryActivity : AppCompatActivity() {
             tipAmountSats: Long = 0,
             tipPercentage: Int = 0,
         ): String {
+            val start = PaymentTrace.now()
             val entry = PaymentHistoryEntry.createPending(
                 amount = amount,
                 entryUnit = entryUnit,
@@ -263,7 +268,9 @@ class PaymentsHistoryActivity : AppCompatActivity() {
 
             val prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
             prefs.edit().putString(KEY_HISTORY, Gson().toJson(history)).apply()
+            PendingPaymentIndex.onHistoryEntryWritten(context, entry)
 
+            PaymentTrace.record(PaymentTrace.Stage.HISTORY_WRITE, start, entry.id)
             return entry.id
         }
 
@@ -281,6 +288,7 @@ class PaymentsHistoryActivity : AppCompatActivity() {
             lightningQuoteId: String? = null,
             lightningMintUrl: String? = null,
         ) {
+            val start = PaymentTrace.now()
             val history = getPaymentHistory(context).toMutableList()
             val index = history.indexOfFirst { it.id == paymentId }
 
@@ -312,7 +320,9 @@ class PaymentsHistoryActivity : AppCompatActivity() {
 
                 val prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
                 prefs.edit().putString(KEY_HISTORY, Gson().toJson(history)).apply()
+                PendingPaymentIndex.onHistoryEntryWritten(context, updated)
             }
+            PaymentTrace.record(PaymentTrace.Stage.HISTORY_WRITE, start, paymentId)
         }
 
         /**
@@ -361,6 +371,7 @@ class PaymentsHistoryActivity : AppCompatActivity() {
 
                 val prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
                 prefs.edit().putString(KEY_HISTORY, Gson().toJson(history)).apply()
+                PendingPaymentIndex.onHistoryEntryWritten(context, updated)
             }
         }
 
@@ -407,6 +418,7 @@ class PaymentsHistoryActivity : AppCompatActivity() {
 
                 val prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
                 prefs.edit().putString(KEY_HISTORY, Gson().toJson(history)).apply()
+                PendingPaymentIndex.onHistoryEntryWritten(context, updated)
             }
         }
 
@@ -454,6 +466,7 @@ class PaymentsHistoryActivity : AppCompatActivity() {
 
                 val prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
                 prefs.edit().putString(KEY_HISTORY, Gson().toJson(history)).apply()
+                PendingPaymentIndex.onHistoryEntryWritten(context, updated)
             }
         }
 
@@ -468,6 +481,7 @@ class PaymentsHistoryActivity : AppCompatActivity() {
 
             val prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
             prefs.edit().putString(KEY_HISTORY, Gson().toJson(history)).apply()
+            PendingPaymentIndex.remove(context, paymentId)
         }
 
         /**
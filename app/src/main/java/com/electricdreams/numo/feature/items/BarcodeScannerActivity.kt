@@ -4,7 +4,6 @@ import android.Manifest
 import android.content.Intent
 import android.content.pm.PackageManager
 import android.os.Bundle
-import android.util.Log
 import android.view.View
 import android.widget.ImageButton
 import android.widget.TextView
@@ -18,6 +17,7 @@ import androidx.camera.view.PreviewView
 import androidx.core.app.ActivityCompat
 import androidx.core.content.ContextCompat
 import com.electricdreams.numo.R
+import com.electricdreams.numo.core.dev.DevLogger
 import com.google.mlkit.vision.barcode.BarcodeScanner
 import com.google.mlkit.vision.barcode.BarcodeScannerOptions
 import com.google.mlkit.vision.barcode.BarcodeScanning
@@ -166,7 +166,7 @@ class BarcodeScannerActivity : AppCompatActivity() {
                                     }
                                 }
                                 ?.addOnFailureListener { e ->
-                                    Log.e(TAG, "Barcode scanning failed: ${e.message}")
+                                    DevLogger.e(TAG, "Barcode scanning failed: ${e.message}")
                                 }
                                 ?.addOnCompleteListener {
                                     imageProxy.close()
@@ -188,7 +188,7 @@ class BarcodeScannerActivity : AppCompatActivity() {
                     imageAnalysis
                 )
             } catch (e: Exception) {
-                Log.e(TAG, "Camera binding failed: ${e.message}")
+                DevLogger.e(TAG, "Camera binding failed: ${e.message}")
             }
 
         }, ContextCompat.getMainExecutor(this))
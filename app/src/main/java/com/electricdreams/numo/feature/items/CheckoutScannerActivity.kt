@@ -8,7 +8,6 @@ import android.content.pm.PackageManager
 import android.graphics.Bitmap
 import android.graphics.BitmapFactory
 import android.os.Bundle
-import android.util.Log
 import android.view.View
 import android.view.animation.DecelerateInterpolator
 import android.widget.Button
@@ -26,6 +25,7 @@ import androidx.camera.view.PreviewView
 import androidx.core.app.ActivityCompat
 import androidx.core.content.ContextCompat
 import com.electricdreams.numo.R
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.model.Amount
 import com.electricdreams.numo.core.model.Item
 import com.electricdreams.numo.core.util.BasketManager
@@ -276,7 +276,7 @@ class CheckoutScannerActivity : AppCompatActivity() {
                                     }
                                 }
                                 ?.addOnFailureListener { e ->
-                                    Log.e(TAG, "Barcode scanning failed: ${e.message}")
+                                    DevLogger.e(TAG, "Barcode scanning failed: ${e.message}")
                                 }
                                 ?.addOnCompleteListener {
                                     imageProxy.close()
@@ -298,7 +298,7 @@ class CheckoutScannerActivity : AppCompatActivity() {
                     imageAnalysis
                 )
             } catch (e: Exception) {
-                Log.e(TAG, "Camera binding failed: ${e.message}")
+                DevLogger.e(TAG, "Camera binding failed: ${e.message}")
             }
 
         }, ContextCompat.getMainExecutor(this))
@@ -2,95 +2,153 @@ package com.electricdreams.numo.feature.items
 
 import android.content.Context
 import android.net.Uri
-import android.util.Log
+import android.widget.ProgressBar
 import android.widget.Toast
+import androidx.appcompat.app.AlertDialog
 import com.electricdreams.numo.R
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.util.CatalogCsvImporter
 import com.electricdreams.numo.core.util.ItemManager
-import java.io.File
-import java.io.FileOutputStream
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import java.io.IOException
-import java.io.InputStream
-import java.io.OutputStream
+import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * Helper for importing items from a CSV file selected via the system picker.
  *
- * This centralizes the CSV → temporary file copy, calls into [ItemManager.importItemsFromCsv],
- * and provides consistent user feedback (toasts) for success, empty imports, and errors.
+ * The selected document is streamed straight into [CatalogCsvImporter] on a background
+ * dispatcher while a progress dialog is shown. The dialog's cancel button stops the
+ * import after the current batch; batches already committed are kept and reported.
+ * Consistent user feedback (toasts) is given for success, empty imports, and errors.
  */
 object CsvImportHelper {
 
     private const val TAG = "CsvImportHelper"
+    private const val PROGRESS_MAX = 1000
 
     /**
      * Import items from a CSV [uri] into the catalog.
      *
-     * @param context        Activity or application context used for IO and toasts.
+     * @param context        Activity context used for IO, the progress dialog and toasts.
+     * @param scope          Scope the import runs in, typically the activity's lifecycleScope.
      * @param itemManager    The [ItemManager] used to persist imported items.
      * @param uri            The URI returned by the system file picker.
-     * @param clearExisting  If true, existing items are cleared before import.
+     * @param clearExisting  If true, existing items are replaced by the imported ones.
      * @param onItemsImported Callback invoked when items were successfully imported
      *                        (i.e. imported count > 0). The imported count is passed in.
+     * @return The running import job.
      */
     fun importItemsFromCsvUri(
         context: Context,
+        scope: CoroutineScope,
         itemManager: ItemManager,
         uri: Uri,
         clearExisting: Boolean,
         onItemsImported: (importedCount: Int) -> Unit
-    ) {
-        try {
-            val tempFile = File(context.cacheDir, "import_catalog.csv")
+    ): Job {
+        val progressBar = ProgressBar(context, null, android.R.attr.progressBarStyleHorizontal).apply {
+            max = PROGRESS_MAX
+            isIndeterminate = true
+            val padding = (24 * context.resources.displayMetrics.density).toInt()
+            setPadding(padding, padding, padding, 0)
+        }
+        val dialog = AlertDialog.Builder(context)
+            .setTitle(R.string.item_list_dialog_importing_title)
+            .setMessage(context.getString(R.string.item_list_dialog_importing_progress, 0))
+            .setView(progressBar)
+            .setCancelable(false)
+            .create()
 
-            context.contentResolver.openInputStream(uri)?.use { inputStream ->
-                FileOutputStream(tempFile).use { outputStream ->
-                    copyStream(inputStream, outputStream)
+        val cancelRequested = AtomicBoolean(false)
+        val job = scope.launch {
+            try {
+                val totalBytes = withContext(Dispatchers.IO) { querySize(context, uri) }
+                val input = withContext(Dispatchers.IO) {
+                    context.contentResolver.openInputStream(uri)
+                }
+                if (input == null) {
+                    Toast.makeText(
+                        context,
+                        context.getString(R.string.item_list_toast_failed_open_csv),
+                        Toast.LENGTH_SHORT
+                    ).show()
+                    return@launch
                 }
-            } ?: run {
-                Toast.makeText(
-                    context,
-                    context.getString(R.string.item_list_toast_failed_open_csv),
-                    Toast.LENGTH_SHORT
-                ).show()
-                return
-            }
 
-            val importedCount = itemManager.importItemsFromCsv(
-                tempFile.absolutePath,
-                clearExisting
-            )
+                val result = input.use { stream ->
+                    CatalogCsvImporter(itemManager).importCsv(
+                        input = stream,
+                        totalBytes = totalBytes,
+                        clearExisting = clearExisting,
+                        isCancelled = { cancelRequested.get() }
+                    ) { progress ->
+                        val fraction = progress.fraction
+                        progressBar.post {
+                            if (fraction >= 0f) {
+                                progressBar.isIndeterminate = false
+                                progressBar.progress = (fraction * PROGRESS_MAX).toInt()
+                            }
+                            dialog.setMessage(
+                                context.getString(R.string.item_list_dialog_importing_progress, progress.importedCount)
+                            )
+                        }
+                    }
+                }
 
-            if (importedCount > 0) {
-                Toast.makeText(
-                    context,
-                    context.getString(R.string.item_list_toast_imported_items, importedCount),
-                    Toast.LENGTH_SHORT
-                ).show()
-                onItemsImported(importedCount)
-            } else {
+                when {
+                    result.cancelled && clearExisting -> Toast.makeText(
+                        context,
+                        context.getString(R.string.item_list_toast_replace_cancelled),
+                        Toast.LENGTH_SHORT
+                    ).show()
+                    result.cancelled -> Toast.makeText(
+                        context,
+                        context.getString(R.string.item_list_toast_import_cancelled, result.importedCount),
+                        Toast.LENGTH_SHORT
+                    ).show()
+                    result.importedCount > 0 -> Toast.makeText(
+                        context,
+                        context.getString(R.string.item_list_toast_imported_items, result.importedCount),
+                        Toast.LENGTH_SHORT
+                    ).show()
+                    else -> Toast.makeText(
+                        context,
+                        context.getString(R.string.item_list_toast_no_items_imported),
+                        Toast.LENGTH_SHORT
+                    ).show()
+                }
+
+                if (result.importedCount > 0) {
+                    onItemsImported(result.importedCount)
+                }
+            } catch (e: IOException) {
+                DevLogger.e(TAG, "Error importing CSV file: ${e.message}", e)
                 Toast.makeText(
                     context,
-                    context.getString(R.string.item_list_toast_no_items_imported),
+                    context.getString(R.string.item_list_toast_error_importing_csv, e.message),
                     Toast.LENGTH_SHORT
                 ).show()
+            } finally {
+                dialog.dismiss()
             }
-        } catch (e: IOException) {
-            Log.e(TAG, "Error importing CSV file: ${e.message}", e)
-            Toast.makeText(
-                context,
-                context.getString(R.string.item_list_toast_error_importing_csv, e.message),
-                Toast.LENGTH_SHORT
-            ).show()
         }
+
+        dialog.setButton(AlertDialog.BUTTON_NEGATIVE, context.getString(android.R.string.cancel)) { _, _ ->
+            cancelRequested.set(true)
+        }
+        dialog.show()
+        return job
     }
 
-    private fun copyStream(inputStream: InputStream, outputStream: OutputStream) {
-        val buffer = ByteArray(4096)
-        var bytesRead: Int
-        while (true) {
-            bytesRead = inputStream.read(buffer)
-            if (bytesRead == -1) break
-            outputStream.write(buffer, 0, bytesRead)
+    private fun querySize(context: Context, uri: Uri): Long {
+        return try {
+            context.contentResolver.openAssetFileDescriptor(uri, "r")?.use { it.length } ?: -1L
+        } catch (e: Exception) {
+            -1L
         }
     }
 }
@@ -21,6 +21,7 @@ import androidx.activity.result.contract.ActivityResultContracts
 import androidx.appcompat.app.AppCompatActivity
 import androidx.core.content.ContextCompat
 import androidx.core.view.WindowCompat
+import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.ItemTouchHelper
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
@@ -69,6 +70,7 @@ class ItemListActivity : AppCompatActivity() {
             if (uri != null) {
                 CsvImportHelper.importItemsFromCsvUri(
                     context = this,
+                    scope = lifecycleScope,
                     itemManager = itemManager,
                     uri = uri,
                     clearExisting = true
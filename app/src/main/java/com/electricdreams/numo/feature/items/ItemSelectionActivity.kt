@@ -24,6 +24,7 @@ import androidx.constraintlayout.widget.ConstraintLayout
 import androidx.core.content.ContextCompat
 import androidx.core.view.WindowCompat
 import androidx.core.widget.NestedScrollView
+import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import kotlin.math.max
@@ -143,6 +144,7 @@ class ItemSelectionActivity : AppCompatActivity() {
         if (uri != null) {
             CsvImportHelper.importItemsFromCsvUri(
                 context = this,
+                scope = lifecycleScope,
                 itemManager = itemManager,
                 uri = uri,
                 clearExisting = true
@@ -191,6 +193,9 @@ class ItemSelectionActivity : AppCompatActivity() {
 
     override fun onResume() {
         super.onResume()
+        // Header total follows basket changes while the screen is visible
+        basketManager.setBasketTotalsListener(basketUIHandler)
+        basketUIHandler.updateBasketTotal()
         // Refresh in case items were modified
         searchHandler.loadItems()
         refreshBasket()
@@ -205,6 +210,7 @@ class ItemSelectionActivity : AppCompatActivity() {
     
     override fun onPause() {
         super.onPause()
+        basketManager.setBasketTotalsListener(null)
         emptyStateAnimator?.stop()
     }
 
@@ -288,6 +294,7 @@ class ItemSelectionActivity : AppCompatActivity() {
 
         searchHandler = ItemSearchHandler(
             itemManager = itemManager,
+            scope = lifecycleScope,
             searchInput = searchInput,
             itemsRecyclerView = itemsRecyclerView,
             emptyView = emptyView,
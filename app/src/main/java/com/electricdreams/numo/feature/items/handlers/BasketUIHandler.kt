@@ -4,6 +4,7 @@ import android.widget.Button
 import android.widget.TextView
 import com.electricdreams.numo.R
 import com.electricdreams.numo.core.model.Amount
+import com.electricdreams.numo.core.model.BasketTotals
 import com.electricdreams.numo.core.util.BasketManager
 import com.electricdreams.numo.core.util.CurrencyManager
 import com.electricdreams.numo.core.util.MintManager
@@ -11,6 +12,9 @@ import com.electricdreams.numo.core.util.MintManager
 /**
  * Handles basket UI updates including total display and checkout button text.
  * Works with the unified basket card layout that animates height on expand/collapse.
+ *
+ * While registered with [BasketManager.setBasketTotalsListener], the header total
+ * follows every basket change from the published totals snapshot.
  */
 class BasketUIHandler(
     private val basketManager: BasketManager,
@@ -19,7 +23,7 @@ class BasketUIHandler(
     private val checkoutButton: Button,
     private val animationHandler: SelectionAnimationHandler,
     private val onBasketUpdated: () -> Unit
-) {
+) : BasketManager.BasketTotalsListener {
     
     // Item count view in header (set via setItemCountView)
     private var itemCountView: TextView? = null
@@ -59,19 +63,22 @@ class BasketUIHandler(
             updateCheckoutButton()
         }
 
-        updateBasketTotal()
         onBasketUpdated()
     }
 
+    override fun onBasketTotalsChanged(totals: BasketTotals) {
+        updateBasketTotal(totals)
+    }
+
     /**
      * Update the basket total display text.
      * Handles mixed fiat and sats pricing.
      * Updates header total and item count.
      */
-    fun updateBasketTotal() {
-        val itemCount = basketManager.getTotalItemCount()
-        val fiatTotal = basketManager.getTotalPrice()
-        val satsTotal = basketManager.getTotalSatsDirectPrice()
+    fun updateBasketTotal(totals: BasketTotals = basketManager.getTotals()) {
+        val itemCount = totals.itemCount
+        val fiatTotal = totals.fiatTotal
+        val satsTotal = totals.satsDirectTotal
 
         val formattedTotal = if (itemCount > 0) {
             val currencyCode = currencyManager.getCurrentCurrency()
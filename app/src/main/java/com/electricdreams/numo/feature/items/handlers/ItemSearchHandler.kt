@@ -8,13 +8,24 @@ import android.widget.LinearLayout
 import androidx.recyclerview.widget.RecyclerView
 import com.electricdreams.numo.core.model.Item
 import com.electricdreams.numo.core.util.ItemManager
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 
 /**
  * Handles item search and filtering logic for ItemSelectionActivity.
  * Supports both text search and category filtering.
+ *
+ * Text queries are debounced and evaluated against the [ItemManager] search index
+ * off the main thread; a newer query cancels any query still in flight so stale
+ * results never reach the list.
  */
 class ItemSearchHandler(
     private val itemManager: ItemManager,
+    private val scope: CoroutineScope,
     private val searchInput: EditText,
     private val itemsRecyclerView: RecyclerView,
     private val emptyView: LinearLayout,
@@ -23,9 +34,14 @@ class ItemSearchHandler(
     private val onFilterStateChanged: ((hasActiveFilters: Boolean) -> Unit)? = null
 ) {
 
+    companion object {
+        private const val SEARCH_DEBOUNCE_MS = 150L
+    }
+
     private var allItems: List<Item> = emptyList()
     private var filteredItems: List<Item> = emptyList()
     private var selectedCategory: String? = null
+    private var filterJob: Job? = null
 
     init {
         setupSearchListener()
@@ -36,7 +52,7 @@ class ItemSearchHandler(
             override fun beforeTextChanged(s: CharSequence?, start: Int, count: Int, after: Int) {}
             override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {}
             override fun afterTextChanged(s: Editable?) {
-                applyFilters()
+                applyFilters(debounce = true)
             }
         })
     }
@@ -95,26 +111,34 @@ class ItemSearchHandler(
 
     /**
      * Apply both text search and category filters.
+     * Any filter pass still pending or running is cancelled first.
      */
-    private fun applyFilters() {
+    private fun applyFilters(debounce: Boolean = false) {
         val query = searchInput.text?.toString() ?: ""
-        
-        filteredItems = allItems.filter { item ->
-            val matchesCategory = selectedCategory == null || 
-                item.category?.equals(selectedCategory, ignoreCase = true) == true
-            
-            val matchesSearch = query.isBlank() || 
-                item.name?.lowercase()?.contains(query.lowercase()) == true ||
-                item.sku?.lowercase()?.contains(query.lowercase()) == true ||
-                item.variationName?.lowercase()?.contains(query.lowercase()) == true ||
-                item.category?.lowercase()?.contains(query.lowercase()) == true
-            
-            matchesCategory && matchesSearch
+        val category = selectedCategory
+        val items = allItems
+
+        filterJob?.cancel()
+        filterJob = scope.launch {
+            if (debounce && query.isNotBlank()) {
+                delay(SEARCH_DEBOUNCE_MS)
+            }
+
+            val results = withContext(Dispatchers.Default) {
+                filterItems(items, query, category)
+            }
+
+            filteredItems = results
+            onItemsFiltered(filteredItems)
+            updateEmptyState()
+            onFilterStateChanged?.invoke(hasActiveFilters())
         }
-        
-        onItemsFiltered(filteredItems)
-        updateEmptyState()
-        onFilterStateChanged?.invoke(hasActiveFilters())
+    }
+
+    private fun filterItems(items: List<Item>, query: String, category: String?): List<Item> {
+        val matches = if (query.isBlank()) items else itemManager.searchItems(query)
+        if (category == null) return matches
+        return matches.filter { it.category?.equals(category, ignoreCase = true) == true }
     }
 
     /**
@@ -4,7 +4,6 @@ import android.Manifest
 import android.content.Intent
 import android.content.pm.PackageManager
 import android.os.Bundle
-import android.util.Log
 import android.view.View
 import android.view.WindowManager
 import android.widget.ImageButton
@@ -22,6 +21,8 @@ import androidx.core.view.WindowCompat
 import androidx.core.view.WindowInsetsCompat
 import androidx.core.view.WindowInsetsControllerCompat
 import com.electricdreams.numo.R
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.ur.UrDecoder
 import com.google.mlkit.vision.barcode.BarcodeScanner
 import com.google.mlkit.vision.barcode.BarcodeScannerOptions
 import com.google.mlkit.vision.barcode.BarcodeScanning
@@ -38,6 +39,9 @@ import java.util.concurrent.Executors
  * - Start with ActivityResultLauncher
  * - Check for RESULT_OK and get EXTRA_QR_VALUE from the result
  * - Optionally set EXTRA_TITLE and EXTRA_INSTRUCTION via intent extras
+ *
+ * Animated multi-part codes (`ur:bytes` frames) are collected until the whole payload
+ * is decoded, and the payload is returned as if it had been a single code.
  */
 class QRScannerActivity : AppCompatActivity() {
 
@@ -58,7 +62,10 @@ class QRScannerActivity : AppCompatActivity() {
 
     private lateinit var cameraExecutor: ExecutorService
     private var barcodeScanner: BarcodeScanner? = null
+    @Volatile
     private var isScanning = true
+    // Only touched on cameraExecutor
+    private var urDecoder: UrDecoder? = null
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -199,13 +206,21 @@ class QRScannerActivity : AppCompatActivity() {
                                     if (barcodes.isNotEmpty() && isScanning) {
                                         val barcode = barcodes.first()
                                         barcode.rawValue?.let { value ->
-                                            isScanning = false
-                                            onQRCodeDetected(value)
+                                            if (UrDecoder.isUr(value)) {
+                                                // Decode on the camera thread so a large or
+                                                // hostile animated code never blocks the UI
+                                                if (!cameraExecutor.isShutdown) {
+                                                    cameraExecutor.execute { onUrPartDetected(value) }
+                                                }
+                                            } else {
+                                                isScanning = false
+                                                onQRCodeDetected(value)
+                                            }
                                         }
                                     }
                                 }
                                 ?.addOnFailureListener { e ->
-                                    Log.e(TAG, "QR scanning failed: ${e.message}")
+                                    DevLogger.e(TAG, "QR scanning failed: ${e.message}")
                                 }
                                 ?.addOnCompleteListener {
                                     imageProxy.close()
@@ -227,12 +242,39 @@ class QRScannerActivity : AppCompatActivity() {
                     imageAnalysis
                 )
             } catch (e: Exception) {
-                Log.e(TAG, "Camera binding failed: ${e.message}")
+                DevLogger.e(TAG, "Camera binding failed: ${e.message}")
             }
 
         }, ContextCompat.getMainExecutor(this))
     }
 
+    /**
+     * Feed one frame of an animated code to the decoder, finishing once it is complete.
+     * Runs on [cameraExecutor].
+     */
+    private fun onUrPartDetected(part: String) {
+        val decoder = urDecoder ?: UrDecoder().also { urDecoder = it }
+        if (!decoder.receivePart(part)) return
+
+        val result = decoder.result
+        when {
+            result != null -> {
+                isScanning = false
+                onQRCodeDetected(String(result, Charsets.UTF_8))
+            }
+            decoder.error != null -> {
+                DevLogger.e(TAG, "Animated QR could not be decoded: ${decoder.error?.message}")
+                urDecoder = null
+            }
+            else -> {
+                val percent = (decoder.progress * 100).toInt()
+                runOnUiThread {
+                    instructionText.text = getString(R.string.qr_scanner_animated_progress, percent)
+                }
+            }
+        }
+    }
+
     private fun onQRCodeDetected(value: String) {
         runOnUiThread {
             // Haptic feedback
@@ -10,6 +10,9 @@ import android.content.SharedPreferences
 object DeveloperPrefs {
     private const val PREFS_NAME = "developer_prefs"
     private const val KEY_DEVELOPER_MODE_ENABLED = "developer_mode_enabled"
+    private const val KEY_ANIMATED_QR_ENABLED = "animated_qr_enabled"
+    private const val KEY_MINT_HEALTH_PROBES_ENABLED = "mint_health_probes_enabled"
+    private const val KEY_PRICE_SOURCE_URL = "price_source_url"
 
     private fun getPrefs(context: Context): SharedPreferences {
         return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
@@ -22,4 +25,38 @@ object DeveloperPrefs {
     fun setDeveloperModeEnabled(context: Context, enabled: Boolean) {
         getPrefs(context).edit().putBoolean(KEY_DEVELOPER_MODE_ENABLED, enabled).apply()
     }
+
+    /**
+     * Whether oversized payment requests are shown as an animated multi-part QR code.
+     */
+    fun isAnimatedQrEnabled(context: Context): Boolean {
+        return getPrefs(context).getBoolean(KEY_ANIMATED_QR_ENABLED, false)
+    }
+
+    fun setAnimatedQrEnabled(context: Context, enabled: Boolean) {
+        getPrefs(context).edit().putBoolean(KEY_ANIMATED_QR_ENABLED, enabled).apply()
+    }
+
+    /**
+     * Whether allowed mints are probed in the background while the POS screen is open.
+     */
+    fun isMintHealthProbesEnabled(context: Context): Boolean {
+        return getPrefs(context).getBoolean(KEY_MINT_HEALTH_PROBES_ENABLED, false)
+    }
+
+    fun setMintHealthProbesEnabled(context: Context, enabled: Boolean) {
+        getPrefs(context).edit().putBoolean(KEY_MINT_HEALTH_PROBES_ENABLED, enabled).apply()
+    }
+
+    /**
+     * URL of a Coinbase-compatible exchange-rates stand-in to fetch BTC prices from,
+     * or null to use Coinbase.
+     */
+    fun getPriceSourceUrl(context: Context): String? {
+        return getPrefs(context).getString(KEY_PRICE_SOURCE_URL, null)?.takeIf { it.isNotBlank() }
+    }
+
+    fun setPriceSourceUrl(context: Context, url: String?) {
+        getPrefs(context).edit().putString(KEY_PRICE_SOURCE_URL, url?.trim()?.ifEmpty { null }).apply()
+    }
 }
@@ -2,10 +2,14 @@ package com.electricdreams.numo.feature.settings
 
 import android.content.Intent
 import android.os.Bundle
+import android.text.InputType
 import android.view.View
+import android.widget.TextView
 import android.widget.Toast
 import androidx.appcompat.app.AppCompatActivity
+import androidx.appcompat.widget.SwitchCompat
 import com.electricdreams.numo.R
+import com.electricdreams.numo.core.worker.BitcoinPriceWorker
 import com.electricdreams.numo.ui.util.DialogHelper
 import com.electricdreams.numo.feature.onboarding.OnboardingActivity
 
@@ -24,8 +28,74 @@ class DeveloperSettingsActivity : AppCompatActivity() {
         findViewById<View>(R.id.error_logs_item).setOnClickListener {
             startActivity(Intent(this, ErrorLogsActivity::class.java))
         }
+
+        findViewById<View>(R.id.payment_trace_item).setOnClickListener {
+            startActivity(Intent(this, PaymentTraceActivity::class.java))
+        }
+
+        val animatedQrSwitch = findViewById<SwitchCompat>(R.id.animated_qr_switch)
+        animatedQrSwitch.isChecked = DeveloperPrefs.isAnimatedQrEnabled(this)
+        animatedQrSwitch.setOnCheckedChangeListener { _, isChecked ->
+            DeveloperPrefs.setAnimatedQrEnabled(this, isChecked)
+        }
+        findViewById<View>(R.id.animated_qr_item).setOnClickListener {
+            animatedQrSwitch.toggle()
+        }
+
+        val mintProbesSwitch = findViewById<SwitchCompat>(R.id.mint_probes_switch)
+        mintProbesSwitch.isChecked = DeveloperPrefs.isMintHealthProbesEnabled(this)
+        mintProbesSwitch.setOnCheckedChangeListener { _, isChecked ->
+            DeveloperPrefs.setMintHealthProbesEnabled(this, isChecked)
+        }
+        findViewById<View>(R.id.mint_probes_item).setOnClickListener {
+            mintProbesSwitch.toggle()
+        }
+
+        updatePriceSourceSubtitle()
+        findViewById<View>(R.id.price_source_item).setOnClickListener {
+            showPriceSourceDialog()
+        }
     }
 
+    private fun updatePriceSourceSubtitle() {
+        findViewById<TextView>(R.id.price_source_subtitle).text =
+            DeveloperPrefs.getPriceSourceUrl(this)
+                ?: getString(R.string.developer_settings_price_source_default)
+    }
+
+    private fun showPriceSourceDialog() {
+        DialogHelper.showInput(
+            context = this,
+            config = DialogHelper.InputConfig(
+                title = getString(R.string.developer_settings_price_source_title),
+                description = getString(R.string.developer_settings_price_source_dialog_description),
+                hint = "https://",
+                initialValue = DeveloperPrefs.getPriceSourceUrl(this) ?: "",
+                inputType = InputType.TYPE_CLASS_TEXT or InputType.TYPE_TEXT_VARIATION_URI,
+                saveText = getString(R.string.common_save),
+                onSave = { value ->
+                    val url = value.trim()
+                    if (url.isNotEmpty() && !isHttpUrl(url)) {
+                        Toast.makeText(this, R.string.developer_settings_price_source_invalid, Toast.LENGTH_SHORT).show()
+                        return@InputConfig
+                    }
+
+                    DeveloperPrefs.setPriceSourceUrl(this, url)
+                    BitcoinPriceWorker.getInstance(this)
+                        .setPriceSource(BitcoinPriceWorker.priceSourceFor(this))
+                    updatePriceSourceSubtitle()
+                },
+                validator = { value ->
+                    val url = value.trim()
+                    url.isEmpty() || isHttpUrl(url)
+                }
+            )
+        )
+    }
+
+    private fun isHttpUrl(url: String): Boolean =
+        url.startsWith("http://") || url.startsWith("https://")
+
     private fun showRestartOnboardingDialog() {
         DialogHelper.showConfirmation(
             context = this,
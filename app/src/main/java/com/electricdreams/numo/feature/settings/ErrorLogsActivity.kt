@@ -108,6 +108,11 @@ class ErrorLogsActivity : AppCompatActivity() {
         val fullText = buildString {
             append("Time: ").append(lineDateFormat.format(entry.timestamp)).append('\n')
             append("Tag: ").append(entry.tag).append('\n')
+            if (entry.count > 1) {
+                append("Occurrences: ").append(entry.count).append('\n')
+            }
+            entry.threadName?.let { append("Thread: ").append(it).append('\n') }
+            entry.paymentId?.let { append("Payment: ").append(it).append('\n') }
             append("Message: ").append(entry.message)
             if (!entry.stackTrace.isNullOrBlank()) {
                 append("\n\nStack trace:\n").append(entry.stackTrace)
@@ -154,6 +159,9 @@ class ErrorLogsActivity : AppCompatActivity() {
                 append(entry.tag)
                 append(" • ")
                 append(entry.message)
+                if (entry.count > 1) {
+                    append(" (×").append(entry.count).append(")")
+                }
                 if (!entry.stackTrace.isNullOrBlank()) {
                     append("\n").append(entry.stackTrace)
                 }
@@ -44,7 +44,7 @@ class ErrorLogsAdapter(
         fun bind(entry: ErrorLogEntry) {
             timeView.text = timeFormat.format(entry.timestamp)
             tagView.text = entry.tag
-            messageView.text = entry.message
+            messageView.text = if (entry.count > 1) "${entry.message} (×${entry.count})" else entry.message
         }
     }
 
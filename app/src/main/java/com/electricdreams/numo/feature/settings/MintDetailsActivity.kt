@@ -5,7 +5,6 @@ import android.content.ClipData
 import android.content.ClipboardManager
 import android.content.Context
 import android.content.Intent
-import android.graphics.BitmapFactory
 import android.os.Bundle
 import android.util.Log
 import android.view.View
@@ -23,6 +22,7 @@ import androidx.core.view.isVisible
 import androidx.lifecycle.lifecycleScope
 import com.electricdreams.numo.R
 import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.model.Amount
 import com.electricdreams.numo.core.util.BalanceRefreshBroadcast
 import com.electricdreams.numo.core.util.MintIconCache
@@ -256,22 +256,12 @@ class MintDetailsActivity : AppCompatActivity() {
     }
 
     private fun loadMintIcon() {
-        val cachedFile = MintIconCache.getCachedIconFile(mintUrl)
-        if (cachedFile != null) {
-            try {
-                val bitmap = BitmapFactory.decodeFile(cachedFile.absolutePath)
-                if (bitmap != null) {
-                    mintIcon.setImageBitmap(bitmap)
-                    mintIcon.clearColorFilter()
-                    return
-                }
-            } catch (e: Exception) {
-                // Fall through to default
-            }
-        }
-        
         mintIcon.setImageResource(R.drawable.ic_bitcoin)
         mintIcon.setColorFilter(getColor(R.color.color_primary))
+
+        MintIconCache.loadInto(mintIcon, mintUrl, mintManager.getMintIconUrl(mintUrl)) { bitmap ->
+            if (bitmap != null) mintIcon.clearColorFilter()
+        }
     }
 
     private fun loadBalance() {
@@ -426,7 +416,7 @@ class MintDetailsActivity : AppCompatActivity() {
                     showError()
                 }
             } catch (e: Exception) {
-                Log.e(TAG, "Failed to fetch mint info: ${e.message}")
+                DevLogger.e(TAG, "Failed to fetch mint info: ${e.message}")
                 showError()
             }
         }
@@ -2,7 +2,6 @@ package com.electricdreams.numo.feature.settings
 
 import android.content.BroadcastReceiver
 import android.content.Intent
-import android.graphics.BitmapFactory
 import android.os.Bundle
 import android.view.View
 import android.view.animation.DecelerateInterpolator
@@ -388,22 +387,12 @@ class MintsSettingsActivity : AppCompatActivity() {
     }
 
     private fun loadLightningMintIcon(url: String) {
-        val cachedFile = MintIconCache.getCachedIconFile(url)
-        if (cachedFile != null) {
-            try {
-                val bitmap = BitmapFactory.decodeFile(cachedFile.absolutePath)
-                if (bitmap != null) {
-                    lightningMintIcon.setImageBitmap(bitmap)
-                    lightningMintIcon.clearColorFilter()
-                    return
-                }
-            } catch (e: Exception) {
-                // Fall through to default
-            }
-        }
-        
         lightningMintIcon.setImageResource(R.drawable.ic_bitcoin)
         lightningMintIcon.setColorFilter(getColor(R.color.color_primary))
+
+        MintIconCache.loadInto(lightningMintIcon, url, mintManager.getMintIconUrl(url)) { bitmap ->
+            if (bitmap != null) lightningMintIcon.clearColorFilter()
+        }
     }
 
     private fun openMintDetails(mintUrl: String) {
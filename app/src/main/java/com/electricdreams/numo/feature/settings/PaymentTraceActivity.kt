@@ -0,0 +1,127 @@
+package com.electricdreams.numo.feature.settings
+
+import android.content.Intent
+import android.os.Bundle
+import android.view.LayoutInflater
+import android.view.View
+import android.widget.LinearLayout
+import android.widget.TextView
+import android.widget.Toast
+import androidx.appcompat.app.AppCompatActivity
+import androidx.core.content.FileProvider
+import androidx.lifecycle.lifecycleScope
+import com.electricdreams.numo.R
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.dev.PaymentTrace
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+
+/**
+ * Developer-facing screen that shows p50/p95 latencies per payment stage and
+ * exports the recorded spans as a Chrome trace file.
+ */
+class PaymentTraceActivity : AppCompatActivity() {
+
+    companion object {
+        private const val TAG = "PaymentTraceActivity"
+        private const val TRACE_DIR = "traces"
+    }
+
+    private lateinit var stagesContainer: LinearLayout
+    private lateinit var emptyView: TextView
+
+    private val fileDateFormat = SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US)
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+        setContentView(R.layout.activity_payment_trace)
+
+        findViewById<View?>(R.id.back_button)?.setOnClickListener { finish() }
+
+        stagesContainer = findViewById(R.id.stages_container)
+        emptyView = findViewById(R.id.empty_view)
+
+        findViewById<View>(R.id.clear_button).setOnClickListener {
+            PaymentTrace.clear()
+            showStats()
+        }
+
+        findViewById<View>(R.id.export_button).setOnClickListener {
+            exportTrace()
+        }
+    }
+
+    override fun onResume() {
+        super.onResume()
+        showStats()
+    }
+
+    private fun showStats() {
+        val stats = PaymentTrace.stageStats()
+        stagesContainer.removeAllViews()
+
+        val inflater = LayoutInflater.from(this)
+        for (stage in stats) {
+            val row = inflater.inflate(R.layout.row_payment_trace_stage, stagesContainer, false)
+            row.findViewById<TextView>(R.id.stage_name).text = stage.stage.label
+            row.findViewById<TextView>(R.id.stage_count).text =
+                getString(R.string.developer_payment_trace_count, stage.count)
+            row.findViewById<TextView>(R.id.stage_timings).text = getString(
+                R.string.developer_payment_trace_timings,
+                millis(stage.p50Nanos),
+                millis(stage.p95Nanos),
+                millis(stage.maxNanos),
+            )
+            stagesContainer.addView(row)
+        }
+
+        emptyView.visibility = if (stats.isEmpty()) View.VISIBLE else View.GONE
+    }
+
+    private fun exportTrace() {
+        val spans = PaymentTrace.snapshot()
+        if (spans.isEmpty()) return
+
+        lifecycleScope.launch {
+            val file = withContext(Dispatchers.IO) {
+                try {
+                    val dir = File(cacheDir, TRACE_DIR)
+                    dir.mkdirs()
+                    // Keep only the latest export around
+                    dir.listFiles()?.forEach { it.delete() }
+                    File(dir, "payment-trace-${fileDateFormat.format(Date())}.json").apply {
+                        writeText(PaymentTrace.toChromeTrace(spans))
+                    }
+                } catch (e: Exception) {
+                    DevLogger.e(TAG, "Failed to write trace file: ${e.message}", e)
+                    null
+                }
+            }
+
+            if (file == null) {
+                Toast.makeText(
+                    this@PaymentTraceActivity,
+                    R.string.developer_payment_trace_export_failed,
+                    Toast.LENGTH_SHORT
+                ).show()
+                return@launch
+            }
+
+            val uri = FileProvider.getUriForFile(this@PaymentTraceActivity, "$packageName.fileprovider", file)
+            val intent = Intent(Intent.ACTION_SEND).apply {
+                type = "application/json"
+                putExtra(Intent.EXTRA_STREAM, uri)
+                putExtra(Intent.EXTRA_SUBJECT, getString(R.string.developer_payment_trace_share_title))
+                addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION)
+            }
+            startActivity(Intent.createChooser(intent, getString(R.string.developer_payment_trace_share_title)))
+        }
+    }
+
+    private fun millis(nanos: Long): Double = nanos / 1_000_000.0
+}
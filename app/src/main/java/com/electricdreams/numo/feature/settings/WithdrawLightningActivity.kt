@@ -15,10 +15,12 @@ import androidx.appcompat.app.AppCompatActivity
 import androidx.lifecycle.lifecycleScope
 import com.electricdreams.numo.R
 import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.model.Amount
 import com.electricdreams.numo.core.util.BalanceRefreshBroadcast
 import com.electricdreams.numo.core.util.LightningAddressManager
 import com.electricdreams.numo.core.util.MintManager
+import com.electricdreams.numo.payment.MintHealthTracker
 import com.electricdreams.numo.ui.components.WithdrawAddressCard
 import com.electricdreams.numo.ui.components.WithdrawInvoiceCard
 import com.google.android.material.card.MaterialCardView
@@ -200,7 +202,9 @@ class WithdrawLightningActivity : AppCompatActivity() {
 
                 // Get melt quote
                 val meltQuote = withContext(Dispatchers.IO) {
-                    wallet.meltQuote(MintUrl(mintUrl), invoice, null)
+                    MintHealthTracker.shared.track("mint.melt_quote", mintUrl) {
+                        wallet.meltQuote(MintUrl(mintUrl), invoice, null)
+                    }
                 }
 
                 withContext(Dispatchers.Main) {
@@ -222,7 +226,7 @@ class WithdrawLightningActivity : AppCompatActivity() {
                     launchMeltQuoteActivity(meltQuote, invoice, null)
                 }
             } catch (e: Exception) {
-                Log.e(TAG, "Error getting melt quote for invoice", e)
+                DevLogger.e(TAG, "Error getting melt quote for invoice", e)
                 withContext(Dispatchers.Main) {
                     setLoading(false)
                     Toast.makeText(
@@ -274,7 +278,9 @@ class WithdrawLightningActivity : AppCompatActivity() {
                 // Get melt quote for Lightning address
                 val amountMsat = amountSats * 1000
                 val meltQuote = withContext(Dispatchers.IO) {
-                    wallet.meltLightningAddressQuote(MintUrl(mintUrl), address, amountMsat.toULong())
+                    MintHealthTracker.shared.track("mint.melt_quote", mintUrl) {
+                        wallet.meltLightningAddressQuote(MintUrl(mintUrl), address, amountMsat.toULong())
+                    }
                 }
 
                 withContext(Dispatchers.Main) {
@@ -300,7 +306,7 @@ class WithdrawLightningActivity : AppCompatActivity() {
                     launchMeltQuoteActivity(meltQuote, null, address)
                 }
             } catch (e: Exception) {
-                Log.e(TAG, "Error getting melt quote for Lightning address", e)
+                DevLogger.e(TAG, "Error getting melt quote for Lightning address", e)
                 withContext(Dispatchers.Main) {
                     setLoading(false)
                     Toast.makeText(
@@ -389,7 +395,7 @@ class WithdrawLightningActivity : AppCompatActivity() {
                     }
                 }
             } catch (e: Exception) {
-                Log.e(TAG, "Error refreshing balance", e)
+                DevLogger.e(TAG, "Error refreshing balance", e)
             }
         }
     }
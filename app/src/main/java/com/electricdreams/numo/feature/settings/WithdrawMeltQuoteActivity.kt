@@ -12,6 +12,8 @@ import androidx.appcompat.app.AppCompatActivity
 import androidx.lifecycle.lifecycleScope
 import com.electricdreams.numo.R
 import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.cashu.MintBalanceLedger
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.model.Amount
 import com.electricdreams.numo.core.util.MintManager
 import com.electricdreams.numo.feature.autowithdraw.AutoWithdrawManager
@@ -180,7 +182,12 @@ class WithdrawMeltQuoteActivity : AppCompatActivity() {
                 }
 
                 val melted = withContext(Dispatchers.IO) {
-                    wallet.meltWithMint(org.cashudevkit.MintUrl(mintUrl), quoteId)
+                    try {
+                        wallet.meltWithMint(org.cashudevkit.MintUrl(mintUrl), quoteId)
+                    } finally {
+                        // Spent amount depends on fees and change; re-read on next access
+                        MintBalanceLedger.invalidate(mintUrl)
+                    }
                 }
 
                 val state = melted.state
@@ -241,7 +248,7 @@ class WithdrawMeltQuoteActivity : AppCompatActivity() {
                     }
                 }
             } catch (e: Exception) {
-                Log.e(TAG, "Error executing melt", e)
+                DevLogger.e(TAG, "Error executing melt", e)
                 withContext(Dispatchers.Main) {
                     setLoading(false)
 
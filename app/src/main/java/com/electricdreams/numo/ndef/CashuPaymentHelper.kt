@@ -10,6 +10,10 @@ import com.cashujdk.nut18.PaymentRequest
 import com.cashujdk.nut18.Transport
 import com.cashujdk.nut18.TransportTag
 import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.cashu.MintBalanceLedger
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.dev.Metrics
+import com.electricdreams.numo.core.dev.PaymentTrace
 import com.electricdreams.numo.core.util.MintManager
 import com.electricdreams.numo.payment.SwapToLightningMintManager
 import com.google.gson.*
@@ -94,7 +98,7 @@ object CashuPaymentHelper {
             Log.d(TAG, "Created payment request: $encoded")
             encoded
         } catch (e: Exception) {
-            Log.e(TAG, "Error creating payment request: ${e.message}", e)
+            DevLogger.e(TAG, "Error creating payment request: ${e.message}", e)
             null
         }
     }
@@ -147,7 +151,7 @@ object CashuPaymentHelper {
             Log.d(TAG, "Created Nostr payment request: $encoded")
             encoded
         } catch (e: Exception) {
-            Log.e(TAG, "Error creating Nostr payment request: ${e.message}", e)
+            DevLogger.e(TAG, "Error creating Nostr payment request: ${e.message}", e)
             null
         }
     }
@@ -155,86 +159,13 @@ object CashuPaymentHelper {
     // === Token helpers =====================================================
 
     @JvmStatic
-    fun isCashuToken(text: String?): Boolean {
-        if (text == null) {
-            return false
-        }
-
-        return text.startsWith("cashuA") ||
-            text.startsWith("cashuB") ||
-            // Binary-encoded Cashu tokens produced by CDK encode() after
-            // Token.from_raw_bytes(...) use the crawB prefix. Treat them as
-            // first-class Cashu tokens for validation and redemption.
-            text.startsWith("crawB")
-    }
+    fun isCashuToken(text: String?): Boolean = CashuTokenText.isCashuToken(text)
 
     @JvmStatic
-    fun extractCashuToken(text: String?): String? {
-        if (text == null) {
-            Log.i(TAG, "extractCashuToken: Input text is null")
-            return null
-        }
-
-        if (isCashuToken(text)) {
-            Log.i(TAG, "extractCashuToken: Input is already a Cashu token")
-            return text
-        }
-
-        Log.i(TAG, "extractCashuToken: Analyzing text: $text")
-
-        if (text.contains("#token=cashu")) {
-            Log.i(TAG, "extractCashuToken: Found #token=cashu pattern")
-            val tokenStart = text.indexOf("#token=cashu")
-            val cashuStart = tokenStart + 7
-            val cashuEnd = text.length
-
-            val token = text.substring(cashuStart, cashuEnd)
-            Log.i(TAG, "extractCashuToken: Extracted token from URL fragment: $token")
-            return token
-        }
-
-        if (text.contains("token=cashu")) {
-            Log.i(TAG, "extractCashuToken: Found token=cashu pattern")
-            val tokenStart = text.indexOf("token=cashu")
-            val cashuStart = tokenStart + 6
-            var cashuEnd = text.length
-            val ampIndex = text.indexOf('&', cashuStart)
-            val hashIndex = text.indexOf('#', cashuStart)
-
-            if (ampIndex > cashuStart && ampIndex < cashuEnd) cashuEnd = ampIndex
-            if (hashIndex > cashuStart && hashIndex < cashuEnd) cashuEnd = hashIndex
-
-            val token = text.substring(cashuStart, cashuEnd)
-            Log.i(TAG, "extractCashuToken: Extracted token from URL parameter: $token")
-            return token
-        }
-
-        val prefixes = arrayOf("cashuA", "cashuB", "crawB")
-        for (prefix in prefixes) {
-            val tokenIndex = text.indexOf(prefix)
-            if (tokenIndex >= 0) {
-                Log.i(TAG, "extractCashuToken: Found $prefix at position $tokenIndex")
-                var endIndex = text.length
-                for (i in tokenIndex + prefix.length until text.length) {
-                    val c = text[i]
-                    if (c.isWhitespace() || c == '"' || c == '\'' || c == '<' || c == '>' || c == '&' || c == '#') {
-                        endIndex = i
-                        break
-                    }
-                }
-                val token = text.substring(tokenIndex, endIndex)
-                Log.i(TAG, "extractCashuToken: Extracted token from text: $token")
-                return token
-            }
-        }
-
-        Log.i(TAG, "extractCashuToken: No Cashu token found in text")
-        return null
-    }
+    fun extractCashuToken(text: String?): String? = CashuTokenText.extractCashuToken(text)
 
     @JvmStatic
-    fun isCashuPaymentRequest(text: String?): Boolean =
-        text != null && text.startsWith("creqA")
+    fun isCashuPaymentRequest(text: String?): Boolean = CashuTokenText.isCashuPaymentRequest(text)
 
     // === Validation using CDK Token ========================================
 
@@ -269,7 +200,7 @@ object CashuPaymentHelper {
         allowedMints: List<String>?,
     ): TokenValidationResult {
         if (!isCashuToken(tokenString)) {
-            Log.e(TAG, "Invalid token format (not a Cashu token)")
+            DevLogger.e(TAG, "Invalid token format (not a Cashu token)")
             return TokenValidationResult.InvalidFormat
         }
 
@@ -279,7 +210,7 @@ object CashuPaymentHelper {
             )
 
             if (token.unit() != CurrencyUnit.Sat) {
-                Log.e(TAG, "Unsupported token unit: ${token.unit()}")
+                DevLogger.e(TAG, "Unsupported token unit: ${token.unit()}")
                 return TokenValidationResult.InvalidFormat
             }
 
@@ -291,7 +222,7 @@ object CashuPaymentHelper {
                     // We still validate amount so swap flow can decide whether to proceed
                     val tokenAmount = token.value().value.toLong()
                     if (tokenAmount < expectedAmount) {
-                        Log.e(
+                        DevLogger.e(
                             TAG,
                             "Unknown-mint token has insufficient amount: required=$expectedAmount, actual=$tokenAmount",
                         )
@@ -306,7 +237,7 @@ object CashuPaymentHelper {
             val tokenAmount = token.value().value.toLong()
 
             if (tokenAmount < expectedAmount) {
-                Log.e(
+                DevLogger.e(
                     TAG,
                     "Amount was insufficient: $expectedAmount sats required but $tokenAmount sats provided",
                 )
@@ -316,7 +247,7 @@ object CashuPaymentHelper {
             Log.d(TAG, "Token format validation passed using CDK Token; amount=$tokenAmount sats")
             return TokenValidationResult.ValidKnownMint(token)
         } catch (e: Exception) {
-            Log.e(TAG, "Token validation failed: ${e.message}", e)
+            DevLogger.e(TAG, "Token validation failed: ${e.message}", e)
             return TokenValidationResult.InvalidFormat
         }
     }
@@ -328,7 +259,7 @@ object CashuPaymentHelper {
     fun redeemToken(tokenString: String?): String {
         if (!isCashuToken(tokenString)) {
             val errorMsg = "Cannot redeem: Invalid token format"
-            Log.e(TAG, errorMsg)
+            DevLogger.e(TAG, errorMsg)
             throw RedemptionException(errorMsg)
         }
 
@@ -362,9 +293,12 @@ object CashuPaymentHelper {
             )
 
             // Receive into wallet
-            runBlocking {
-                wallet.receive(cdkToken, mmReceive)
+            val received = PaymentTrace.trace(PaymentTrace.Stage.WALLET_RECEIVE) {
+                runBlocking {
+                    Metrics.timed("mint.receive", mintUrl.url) { wallet.receive(cdkToken, mmReceive) }
+                }
             }
+            MintBalanceLedger.credit(mintUrl.url, received.value.toLong())
 
             Log.d(TAG, "Token received via CDK successfully (mintUrl=${mintUrl.url})")
             // Return the original token instead of sending a new one
@@ -373,7 +307,7 @@ object CashuPaymentHelper {
             throw e
         } catch (e: Exception) {
             val errorMsg = "Token redemption via CDK failed: ${e.message}"
-            Log.e(TAG, errorMsg, e)
+            DevLogger.e(TAG, errorMsg, e)
             throw RedemptionException(errorMsg, e)
         }
     }
@@ -408,7 +342,9 @@ object CashuPaymentHelper {
         allowedMints: List<String>?,
         paymentContext: SwapToLightningMintManager.PaymentContext
     ): String {
-        val result = validateTokenDetailed(tokenString, expectedAmount, allowedMints)
+        val result = PaymentTrace.trace(PaymentTrace.Stage.TOKEN_VALIDATION, paymentContext.paymentId) {
+            validateTokenDetailed(tokenString, expectedAmount, allowedMints)
+        }
 
         return when (result) {
             is TokenValidationResult.InvalidFormat -> {
@@ -438,13 +374,15 @@ object CashuPaymentHelper {
 
                 Log.i(TAG, "Token from unknown mint detected - starting SwapToLightningMint flow")
 
-                val swapResult = SwapToLightningMintManager.swapFromUnknownMint(
-                    appContext = appContext,
-                    cashuToken = tokenString ?: error("tokenString is null"),
-                    expectedAmount = expectedAmount,
-                    unknownMintUrl = result.mintUrl,
-                    paymentContext = paymentContext,
-                )
+                val swapResult = PaymentTrace.trace(PaymentTrace.Stage.SWAP, paymentContext.paymentId) {
+                    SwapToLightningMintManager.swapFromUnknownMint(
+                        appContext = appContext,
+                        cashuToken = tokenString ?: error("tokenString is null"),
+                        expectedAmount = expectedAmount,
+                        unknownMintUrl = result.mintUrl,
+                        paymentContext = paymentContext,
+                    )
+                }
 
                 return when (swapResult) {
                     is SwapToLightningMintManager.SwapResult.Success -> {
@@ -514,13 +452,13 @@ object CashuPaymentHelper {
             throw RedemptionException("Invalid JSON for PaymentRequestPayload: ${'$'}{e.message}", e)
         } catch (e: JsonIOException) {
             val errorMsg = "PaymentRequestPayload redemption failed: ${'$'}{e.message}"
-            Log.e(TAG, errorMsg, e)
+            DevLogger.e(TAG, errorMsg, e)
             throw RedemptionException(errorMsg, e)
         } catch (e: RedemptionException) {
             throw e
         } catch (e: Exception) {
             val errorMsg = "PaymentRequestPayload redemption failed: ${'$'}{e.message}"
-            Log.e(TAG, errorMsg, e)
+            DevLogger.e(TAG, errorMsg, e)
             throw RedemptionException(errorMsg, e)
         }
     }
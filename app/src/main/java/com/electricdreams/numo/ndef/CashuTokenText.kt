@@ -0,0 +1,97 @@
+package com.electricdreams.numo.ndef
+
+import android.util.Log
+
+/**
+ * Recognizes Cashu tokens and payment requests in scanned or received text.
+ *
+ * This is plain string handling with no wallet dependencies, so it can also be
+ * exercised outside the app, e.g. by the benchmark module. Use it through
+ * [CashuPaymentHelper].
+ */
+internal object CashuTokenText {
+
+    private const val TAG = "CashuPaymentHelper"
+
+    @JvmStatic
+    fun isCashuToken(text: String?): Boolean {
+        if (text == null) {
+            return false
+        }
+
+        return text.startsWith("cashuA") ||
+            text.startsWith("cashuB") ||
+            // Binary-encoded Cashu tokens produced by CDK encode() after
+            // Token.from_raw_bytes(...) use the crawB prefix. Treat them as
+            // first-class Cashu tokens for validation and redemption.
+            text.startsWith("crawB")
+    }
+
+    @JvmStatic
+    fun extractCashuToken(text: String?): String? {
+        if (text == null) {
+            Log.i(TAG, "extractCashuToken: Input text is null")
+            return null
+        }
+
+        if (isCashuToken(text)) {
+            Log.i(TAG, "extractCashuToken: Input is already a Cashu token")
+            return text
+        }
+
+        Log.i(TAG, "extractCashuToken: Analyzing text: $text")
+
+        if (text.contains("#token=cashu")) {
+            Log.i(TAG, "extractCashuToken: Found #token=cashu pattern")
+            val tokenStart = text.indexOf("#token=cashu")
+            val cashuStart = tokenStart + 7
+            val cashuEnd = text.length
+
+            val token = text.substring(cashuStart, cashuEnd)
+            Log.i(TAG, "extractCashuToken: Extracted token from URL fragment: $token")
+            return token
+        }
+
+        if (text.contains("token=cashu")) {
+            Log.i(TAG, "extractCashuToken: Found token=cashu pattern")
+            val tokenStart = text.indexOf("token=cashu")
+            val cashuStart = tokenStart + 6
+            var cashuEnd = text.length
+            val ampIndex = text.indexOf('&', cashuStart)
+            val hashIndex = text.indexOf('#', cashuStart)
+
+            if (ampIndex > cashuStart && ampIndex < cashuEnd) cashuEnd = ampIndex
+            if (hashIndex > cashuStart && hashIndex < cashuEnd) cashuEnd = hashIndex
+
+            val token = text.substring(cashuStart, cashuEnd)
+            Log.i(TAG, "extractCashuToken: Extracted token from URL parameter: $token")
+            return token
+        }
+
+        val prefixes = arrayOf("cashuA", "cashuB", "crawB")
+        for (prefix in prefixes) {
+            val tokenIndex = text.indexOf(prefix)
+            if (tokenIndex >= 0) {
+                Log.i(TAG, "extractCashuToken: Found $prefix at position $tokenIndex")
+                var endIndex = text.length
+                for (i in tokenIndex + prefix.length until text.length) {
+                    val c = text[i]
+                    if (c.isWhitespace() || c == '"' || c == '\'' || c == '<' || c == '>' || c == '&' || c == '#') {
+                        endIndex = i
+                        break
+                    }
+                }
+                val token = text.substring(tokenIndex, endIndex)
+                Log.i(TAG, "extractCashuToken: Extracted token from text: $token")
+                return token
+            }
+        }
+
+        Log.i(TAG, "extractCashuToken: No Cashu token found in text")
+        return null
+    }
+
+    @JvmStatic
+    fun isCashuPaymentRequest(text: String?): Boolean =
+        text != null && text.startsWith("creqA")
+}
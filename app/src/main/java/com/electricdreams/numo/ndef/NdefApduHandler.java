@@ -1,6 +1,7 @@
 package com.electricdreams.numo.ndef;
 
 import android.util.Log;
+import com.electricdreams.numo.core.dev.DevLogger;
 import java.util.Arrays;
 
 /**
@@ -44,7 +45,7 @@ public class NdefApduHandler {
                 return NdefConstants.NDEF_RESPONSE_ERROR;
             }
         } else {
-            Log.e(TAG, "Unknown file selected");
+            DevLogger.e(TAG, "Unknown file selected");
             return NdefConstants.NDEF_RESPONSE_ERROR;
         }
     }
@@ -11,6 +11,10 @@ import android.util.Log;
 
 import com.electricdreams.numo.R;
 
+import com.electricdreams.numo.core.dev.DevLogger;
+import com.electricdreams.numo.core.dev.LatencyHistogram;
+import com.electricdreams.numo.core.dev.Metrics;
+import com.electricdreams.numo.core.dev.PaymentTrace;
 import java.util.List;
 
 /**
@@ -22,6 +26,10 @@ public class NdefHostCardEmulationService extends HostApduService {
     // Status words for NFC communication
     private static final byte[] STATUS_SUCCESS = {(byte) 0x90, (byte) 0x00};
     private static final byte[] STATUS_FAILED = {(byte) 0x6F, (byte) 0x00};
+
+    // Looked up once: these are updated for every APDU on the binder thread
+    private static final Metrics.Counter APDU_COUNT = Metrics.counter("nfc.apdus");
+    private static final LatencyHistogram APDU_SERVICE_TIME = Metrics.histogram("nfc.apdu_service");
     
     // AID for our service
     private static final byte[] AID_SELECT_APDU = {
@@ -76,6 +84,7 @@ public class NdefHostCardEmulationService extends HostApduService {
             @Override
             public void run() {
                 Log.i(TAG, "NFC reading timeout - no APDU received for " + NFC_TIMEOUT_MS + "ms");
+                PaymentTrace.tapAbandoned();
                 stopNfcReading();
             }
         };
@@ -107,13 +116,13 @@ public class NdefHostCardEmulationService extends HostApduService {
                                 Log.i(TAG, "Forwarding raw Cashu token to payment callback");
                                 paymentCallback.onCashuTokenReceived(cashuToken);
                             } else {
-                                Log.e(TAG, "Payment callback is null, can't deliver raw Cashu token");
+                                DevLogger.e(TAG, "Payment callback is null, can't deliver raw Cashu token");
                             }
                         } else {
                             Log.i(TAG, "No Cashu token found in received message");
                         }
                     } catch (Exception e) {
-                        Log.e(TAG, "Error in onNdefMessageReceived: " + e.getMessage(), e);
+                        DevLogger.e(TAG, "Error in onNdefMessageReceived: " + e.getMessage(), e);
                     }
                 }
                 
@@ -127,7 +136,7 @@ public class NdefHostCardEmulationService extends HostApduService {
             instance = this;
             Log.i(TAG, "NdefHostCardEmulationService initialization complete");
         } catch (Exception e) {
-            Log.e(TAG, "Error creating HCE service: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error creating HCE service: " + e.getMessage(), e);
         }
     }
     
@@ -151,6 +160,29 @@ public class NdefHostCardEmulationService extends HostApduService {
 
     @Override
     public byte[] processCommandApdu(byte[] commandApdu, Bundle extras) {
+        long start = System.nanoTime();
+        byte[] response = handleCommandApdu(commandApdu);
+        APDU_SERVICE_TIME.recordNanos(System.nanoTime() - start);
+        APDU_COUNT.increment();
+        recordStatus(response);
+        return response;
+    }
+
+    /**
+     * Count responses other than 9000 in nfc.apdu_errors, labelled with the status word.
+     */
+    private static void recordStatus(byte[] response) {
+        int length = response != null ? response.length : 0;
+        if (length >= 2 && response[length - 2] == (byte) 0x90 && response[length - 1] == 0x00) {
+            return;
+        }
+        String status = length >= 2
+                ? String.format("%02X%02X", response[length - 2], response[length - 1])
+                : "none";
+        Metrics.counter("nfc.apdu_errors", status).increment();
+    }
+
+    private byte[] handleCommandApdu(byte[] commandApdu) {
         try {
             // Log all incoming APDUs at INFO level for visibility
             Log.i(TAG, "=== Received APDU command ===");
@@ -195,7 +227,7 @@ public class NdefHostCardEmulationService extends HostApduService {
             Log.w(TAG, "Unknown command not handled by NDEF processor: " + bytesToHex(commandApdu));
             return STATUS_FAILED;
         } catch (Exception e) {
-            Log.e(TAG, "Error processing APDU command: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error processing APDU command: " + e.getMessage(), e);
             return STATUS_FAILED;
         }
     }
@@ -220,7 +252,7 @@ public class NdefHostCardEmulationService extends HostApduService {
             ndefProcessor.setProcessIncomingMessages(true);
             Log.i(TAG, "NDEF processor ready to send and receive messages");
         } else {
-            Log.e(TAG, "NDEF processor is null, can't set payment request");
+            DevLogger.e(TAG, "NDEF processor is null, can't set payment request");
         }
     }
     
@@ -250,7 +282,7 @@ public class NdefHostCardEmulationService extends HostApduService {
             ndefProcessor.setProcessIncomingMessages(false);
             Log.i(TAG, "NDEF processor no longer processing incoming messages");
         } else {
-            Log.e(TAG, "NDEF processor is null, can't clear payment request");
+            DevLogger.e(TAG, "NDEF processor is null, can't clear payment request");
         }
     }
     
@@ -317,7 +349,7 @@ public class NdefHostCardEmulationService extends HostApduService {
             Log.i(TAG, "HCE is available on this device");
             return true;
         } catch (Exception e) {
-            Log.e(TAG, "Error checking HCE availability: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error checking HCE availability: " + e.getMessage(), e);
             return false;
         }
     }
@@ -368,6 +400,7 @@ public class NdefHostCardEmulationService extends HostApduService {
         if (!isNfcReading) {
             Log.i(TAG, "NFC reading started");
             isNfcReading = true;
+            PaymentTrace.tapStarted();
             if (paymentCallback != null) {
                 paymentCallback.onNfcReadingStarted();
             }
@@ -1,6 +1,7 @@
 package com.electricdreams.numo.ndef;
 
 import android.util.Log;
+import com.electricdreams.numo.core.dev.DevLogger;
 import org.cashudevkit.Token;
 import java.util.Arrays;
 
@@ -42,27 +43,27 @@ public class NdefMessageParser {
             
             // Validate message length - don't process empty or very short messages
             if (totalLength <= 0) {
-                Log.e(TAG, "Invalid NDEF data - zero or negative length in header, ignoring message");
+                DevLogger.e(TAG, "Invalid NDEF data - zero or negative length in header, ignoring message");
                 return;
             }
             
             // Ensure we have enough data
             if (totalLength + 2 > ndefData.length) {
-                Log.e(TAG, "Incomplete NDEF data - header specifies " + totalLength + 
+                DevLogger.e(TAG, "Incomplete NDEF data - header specifies " + totalLength + 
                       " bytes but we only have " + (ndefData.length - 2) + " bytes of payload");
                 return;
             }
             
             offset = 2;
         } else {
-            Log.e(TAG, "Invalid NDEF data - length less than 2 bytes");
+            DevLogger.e(TAG, "Invalid NDEF data - length less than 2 bytes");
             return;
         }
         
         try {
             parseNdefRecord(ndefData, offset);
         } catch (Exception e) {
-            Log.e(TAG, "Error extracting data from NDEF message: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error extracting data from NDEF message: " + e.getMessage(), e);
         }
     }
     
@@ -72,7 +73,7 @@ public class NdefMessageParser {
      */
     private void parseNdefRecord(byte[] ndefData, int offset) {
         if (offset >= ndefData.length) {
-            Log.e(TAG, "Invalid offset beyond data length");
+            DevLogger.e(TAG, "Invalid offset beyond data length");
             return;
         }
         
@@ -81,7 +82,7 @@ public class NdefMessageParser {
         Log.i(TAG, "NDEF header byte: 0x" + String.format("%02X", header));
         
         if (offset + 1 >= ndefData.length) {
-            Log.e(TAG, "Invalid data - can't read type length");
+            DevLogger.e(TAG, "Invalid data - can't read type length");
             return;
         }
         
@@ -90,7 +91,7 @@ public class NdefMessageParser {
         
         // Additional validation for type length
         if (typeLength <= 0) {
-            Log.e(TAG, "Invalid type length: " + typeLength);
+            DevLogger.e(TAG, "Invalid type length: " + typeLength);
             return;
         }
         
@@ -104,7 +105,7 @@ public class NdefMessageParser {
         
         if (isShortRecord) { // Short record: 1 byte payload length
             if (offset + 2 >= ndefData.length) {
-                Log.e(TAG, "Invalid data - can't read short record payload length");
+                DevLogger.e(TAG, "Invalid data - can't read short record payload length");
                 return;
             }
             
@@ -113,7 +114,7 @@ public class NdefMessageParser {
             Log.i(TAG, "Short record payload length: " + payloadLength);
         } else { // Normal record: payload length is 4 bytes
             if (offset + 5 >= ndefData.length) {
-                Log.e(TAG, "Invalid data - can't read normal record payload length");
+                DevLogger.e(TAG, "Invalid data - can't read normal record payload length");
                 return;
             }
             
@@ -127,13 +128,13 @@ public class NdefMessageParser {
         
         // Validate payload length
         if (payloadLength <= 0) {
-            Log.e(TAG, "Invalid payload length: " + payloadLength);
+            DevLogger.e(TAG, "Invalid payload length: " + payloadLength);
             return;
         }
         
         // Safety check for typeFieldStart
         if (typeFieldStart >= ndefData.length) {
-            Log.e(TAG, "Invalid typeFieldStart beyond data length");
+            DevLogger.e(TAG, "Invalid typeFieldStart beyond data length");
             return;
         }
         
@@ -143,7 +144,7 @@ public class NdefMessageParser {
         
         // Check if we have a valid type field
         if (typeFieldStart + typeLength > ndefData.length) {
-            Log.e(TAG, "Type field extends beyond data bounds");
+            DevLogger.e(TAG, "Type field extends beyond data bounds");
             return;
         }
         
@@ -184,12 +185,12 @@ public class NdefMessageParser {
         Log.i(TAG, "Payload start position: " + payloadStart);
         
         if (payloadStart >= ndefData.length) {
-            Log.e(TAG, "Payload start index out of bounds, returning");
+            DevLogger.e(TAG, "Payload start index out of bounds, returning");
             return;
         }
         
         if (payloadStart + payloadLength > ndefData.length) {
-            Log.e(TAG, "Payload exceeds data bounds: " +
+            DevLogger.e(TAG, "Payload exceeds data bounds: " +
                   payloadStart + " + " + payloadLength + " > " + ndefData.length);
             return;
         }
@@ -237,10 +238,10 @@ public class NdefMessageParser {
                 Log.i(TAG, "Calling onNdefMessageReceived with Cashu token from binary payload");
                 callback.onNdefMessageReceived(encodedToken);
             } else {
-                Log.e(TAG, "Callback is null, can't deliver binary Cashu token");
+                DevLogger.e(TAG, "Callback is null, can't deliver binary Cashu token");
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error parsing Cashu binary MIME record: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error parsing Cashu binary MIME record: " + e.getMessage(), e);
         }
     }
     
@@ -260,7 +261,7 @@ public class NdefMessageParser {
             Log.i(TAG, "Text start position: " + textStart + ", length: " + textLength);
             
             if (textStart + textLength > ndefData.length) {
-                Log.e(TAG, "Text extraction bounds exceed data size: " + 
+                DevLogger.e(TAG, "Text extraction bounds exceed data size: " + 
                       textStart + " + " + textLength + " > " + ndefData.length);
                 return;
             }
@@ -275,10 +276,10 @@ public class NdefMessageParser {
                 Log.i(TAG, "Calling onNdefMessageReceived with text: " + text);
                 callback.onNdefMessageReceived(text);
             } else {
-                Log.e(TAG, "Callback is null, can't deliver message");
+                DevLogger.e(TAG, "Callback is null, can't deliver message");
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error parsing text record: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error parsing text record: " + e.getMessage(), e);
         }
     }
     
@@ -296,7 +297,7 @@ public class NdefMessageParser {
             Log.i(TAG, "URI start position: " + uriStart + ", length: " + uriLength);
             
             if (uriStart + uriLength > ndefData.length) {
-                Log.e(TAG, "URI extraction bounds exceed data size");
+                DevLogger.e(TAG, "URI extraction bounds exceed data size");
                 return;
             }
             
@@ -313,10 +314,10 @@ public class NdefMessageParser {
                 Log.i(TAG, "Calling onNdefMessageReceived with URI: " + fullUri);
                 callback.onNdefMessageReceived(fullUri);
             } else {
-                Log.e(TAG, "Callback is null, can't deliver message");
+                DevLogger.e(TAG, "Callback is null, can't deliver message");
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error parsing URI record: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error parsing URI record: " + e.getMessage(), e);
         }
     }
 }
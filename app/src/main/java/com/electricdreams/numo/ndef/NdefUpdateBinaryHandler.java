@@ -1,6 +1,8 @@
 package com.electricdreams.numo.ndef;
 
 import android.util.Log;
+import com.electricdreams.numo.core.dev.DevLogger;
+import com.electricdreams.numo.core.dev.PaymentTrace;
 import java.util.Arrays;
 
 /**
@@ -23,7 +25,7 @@ public class NdefUpdateBinaryHandler {
     public byte[] handleUpdateBinary(byte[] apdu) {
         byte[] selectedFile = stateManager.getSelectedFile();
         if (selectedFile == null || apdu.length < 5) {
-            Log.e(TAG, "UPDATE BINARY selectedFile is null or apdu.length < 5");
+            DevLogger.e(TAG, "UPDATE BINARY selectedFile is null or apdu.length < 5");
             return NdefConstants.NDEF_RESPONSE_ERROR;
         }
         
@@ -33,13 +35,13 @@ public class NdefUpdateBinaryHandler {
         Log.d(TAG, "UPDATE BINARY with offset=" + offset + ", length=" + dataLength);
         
         if (apdu.length < 5 + dataLength) {
-            Log.e(TAG, "UPDATE BINARY apdu.length < 5 + dataLength: " + apdu.length + " < " + (5 + dataLength));
+            DevLogger.e(TAG, "UPDATE BINARY apdu.length < 5 + dataLength: " + apdu.length + " < " + (5 + dataLength));
             return NdefConstants.NDEF_RESPONSE_ERROR;
         }
         
         // Cannot write to CC file
         if (Arrays.equals(selectedFile, NdefConstants.CC_FILE)) {
-            Log.e(TAG, "Attempt to write to CC file is forbidden");
+            DevLogger.e(TAG, "Attempt to write to CC file is forbidden");
             return NdefConstants.NDEF_RESPONSE_ERROR;
         }
         
@@ -48,7 +50,7 @@ public class NdefUpdateBinaryHandler {
         // Prevent overflow
         byte[] ndefData = stateManager.getNdefData();
         if (offset + dataLength > ndefData.length) {
-            Log.e(TAG, "UPDATE BINARY command would overflow NDEF data buffer");
+            DevLogger.e(TAG, "UPDATE BINARY command would overflow NDEF data buffer");
             return NdefConstants.NDEF_RESPONSE_ERROR;
         }
         
@@ -188,6 +190,7 @@ public class NdefUpdateBinaryHandler {
      * Process the received message and reset state
      */
     private byte[] processMessageAndReset(byte[] ndefData) {
+        PaymentTrace.tapTransferred();
         try {
             // Make a defensive copy of just the relevant portion of the buffer
             int expectedNdefLength = stateManager.getExpectedNdefLength();
@@ -207,11 +210,14 @@ public class NdefUpdateBinaryHandler {
             Thread worker = new Thread(new Runnable() {
                 @Override
                 public void run() {
+                    long parseStart = PaymentTrace.now();
                     try {
                         messageParser.processReceivedNdefMessage(ndefCopy, shouldProcess);
                     } catch (Exception e) {
-                        Log.e(TAG, "Error processing received NDEF message asynchronously: " + e.getMessage(), e);
+                        DevLogger.e(TAG, "Error processing received NDEF message asynchronously: " + e.getMessage(), e);
                     } finally {
+                        // Includes handing the token to the payment screen's callback
+                        PaymentTrace.record(PaymentTrace.Stage.NDEF_PARSE, parseStart);
                         // Once processing is done (success or failure), reset for the next message
                         stateManager.resetForNextMessage();
                         Log.d(TAG, "Async NDEF processing complete, state reset for next message");
@@ -221,7 +227,7 @@ public class NdefUpdateBinaryHandler {
 
             worker.start();
         } catch (Exception e) {
-            Log.e(TAG, "Error scheduling async processing for received NDEF message: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error scheduling async processing for received NDEF message: " + e.getMessage(), e);
         }
 
         // Always acknowledge the UPDATE BINARY APDU immediately at the transport layer.
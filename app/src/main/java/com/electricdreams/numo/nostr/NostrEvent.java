@@ -1,8 +1,8 @@
 package com.electricdreams.numo.nostr;
-import com.electricdreams.numo.R;
 
 import android.util.Log;
 
+import com.electricdreams.numo.core.dev.DevLogger;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonPrimitive;
@@ -114,7 +114,7 @@ public final class NostrEvent {
             }
             return ok;
         } catch (Exception e) {
-            Log.e(TAG, "Exception during verify for kind=" + kind + ": " + e.getMessage(), e);
+            DevLogger.e(TAG, "Exception during verify for kind=" + kind + ": " + e.getMessage(), e);
             return false;
         }
     }
@@ -2,6 +2,7 @@ package com.electricdreams.numo.nostr
 import com.electricdreams.numo.R
 
 import android.util.Log
+import com.electricdreams.numo.core.dev.DevLogger
 import com.google.gson.Gson
 import com.google.gson.JsonArray
 import com.google.gson.JsonObject
@@ -190,7 +191,7 @@ object NostrMintBackup {
                         },
                         onFailure = { error ->
                             failedRelays.add(relayUrl)
-                            Log.e(TAG, "❌ Failed to publish backup to $relayUrl: $error")
+                            DevLogger.e(TAG, "❌ Failed to publish backup to $relayUrl: $error")
                             latch.countDown()
                         }
                     )
@@ -217,7 +218,7 @@ object NostrMintBackup {
                 callback?.invoke(result)
                 
             } catch (e: Exception) {
-                Log.e(TAG, "Mint backup failed", e)
+                DevLogger.e(TAG, "Mint backup failed", e)
                 callback?.invoke(BackupResult(
                     success = false,
                     eventId = null,
@@ -283,7 +284,7 @@ object NostrMintBackup {
                             latch.countDown()
                         },
                         onError = { error ->
-                            Log.e(TAG, "Error fetching from $relayUrl: $error")
+                            DevLogger.e(TAG, "Error fetching from $relayUrl: $error")
                             completedRelays.add(relayUrl)
                             latch.countDown()
                         }
@@ -347,7 +348,7 @@ object NostrMintBackup {
                         error = null
                     ))
                 } catch (e: Exception) {
-                    Log.e(TAG, "Failed to decrypt backup content", e)
+                    DevLogger.e(TAG, "Failed to decrypt backup content", e)
                     callback(FetchResult(
                         success = false,
                         mints = emptyList(),
@@ -358,7 +359,7 @@ object NostrMintBackup {
                 }
                 
             } catch (e: Exception) {
-                Log.e(TAG, "Mint backup fetch failed", e)
+                DevLogger.e(TAG, "Mint backup fetch failed", e)
                 callback(FetchResult(
                     success = false,
                     mints = emptyList(),
@@ -453,7 +454,7 @@ object NostrMintBackup {
                             }
                         }
                     } catch (e: Exception) {
-                        Log.e(TAG, "Error parsing message from $relayUrl", e)
+                        DevLogger.e(TAG, "Error parsing message from $relayUrl", e)
                     }
                 }
                 
@@ -557,7 +558,7 @@ object NostrMintBackup {
                             }
                         }
                     } catch (e: Exception) {
-                        Log.e(TAG, "Error parsing response from $relayUrl", e)
+                        DevLogger.e(TAG, "Error parsing response from $relayUrl", e)
                     }
                 }
                 
@@ -3,9 +3,11 @@ package com.electricdreams.numo.nostr;
 import android.util.Log;
 
 import com.electricdreams.numo.AppGlobals;
+import com.electricdreams.numo.core.dev.DevLogger;
 import com.electricdreams.numo.ndef.CashuPaymentHelper;
 import com.electricdreams.numo.payment.SwapToLightningMintManager;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -20,6 +22,11 @@ import java.util.concurrent.ConcurrentHashMap;
  *    kind 14 rumor and treat its content as a PaymentRequestPayload JSON.
  *  - Attempt redemption via CashuPaymentHelper.redeemFromPRPayload.
  *  - On first successful redemption, stop listening and invoke success callback.
+ *
+ * A listener can also be created before the amount is known and started right
+ * away, so its relay subscriptions are open by the time the payment request is
+ * shown; {@link #bind} then supplies the amount and callbacks. Events that
+ * arrive before that are held and handled once bound.
  */
 public final class NostrPaymentListener {
 
@@ -27,11 +34,15 @@ public final class NostrPaymentListener {
 
     private final byte[] secretKey32;
     private final String pubkeyHex;
-    private final long expectedAmount;
     private final List<String> allowedMints;
     private final List<String> relays;
-    private final SuccessHandler successHandler;
-    private final ErrorHandler errorHandler;
+    private volatile long expectedAmount;
+    private volatile SuccessHandler successHandler;
+    private volatile ErrorHandler errorHandler;
+
+    // Events received before bind(), guarded by this
+    private boolean bound;
+    private final List<PendingEvent> pendingEvents = new ArrayList<>();
 
     private NostrWebSocketClient client;
     private volatile boolean stopped = false;
@@ -48,6 +59,16 @@ public final class NostrPaymentListener {
         void onError(String message, Throwable t);
     }
 
+    private static final class PendingEvent {
+        final String relayUrl;
+        final NostrEvent event;
+
+        PendingEvent(String relayUrl, NostrEvent event) {
+            this.relayUrl = relayUrl;
+            this.event = event;
+        }
+    }
+
     public NostrPaymentListener(byte[] secretKey32,
                                 String pubkeyHex,
                                 long expectedAmount,
@@ -55,31 +76,68 @@ public final class NostrPaymentListener {
                                 List<String> relays,
                                 SuccessHandler successHandler,
                                 ErrorHandler errorHandler) {
+        this(secretKey32, pubkeyHex, allowedMints, relays);
+        bind(expectedAmount, successHandler, errorHandler);
+    }
+
+    /**
+     * Create a listener whose amount and callbacks are supplied later via {@link #bind}.
+     */
+    public NostrPaymentListener(byte[] secretKey32,
+                                String pubkeyHex,
+                                List<String> allowedMints,
+                                List<String> relays) {
         if (secretKey32 == null || secretKey32.length != 32) {
             throw new IllegalArgumentException("secretKey32 must be 32 bytes");
         }
         this.secretKey32 = secretKey32;
         this.pubkeyHex = pubkeyHex;
-        this.expectedAmount = expectedAmount;
         this.allowedMints = allowedMints;
         this.relays = relays;
-        this.successHandler = successHandler;
-        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Set the amount to expect and the callbacks, then handle any events that
+     * arrived while unbound. May only be called once.
+     */
+    public void bind(long expectedAmount, SuccessHandler successHandler, ErrorHandler errorHandler) {
+        List<PendingEvent> held;
+        synchronized (this) {
+            if (bound) {
+                throw new IllegalStateException("Listener is already bound");
+            }
+            this.expectedAmount = expectedAmount;
+            this.successHandler = successHandler;
+            this.errorHandler = errorHandler;
+            bound = true;
+            held = new ArrayList<>(pendingEvents);
+            pendingEvents.clear();
+        }
+        for (PendingEvent pending : held) {
+            handleEvent(pending.relayUrl, pending.event);
+        }
     }
 
     public synchronized void start() {
         if (client != null || stopped) return;
         Log.d(TAG, "Starting NostrPaymentListener for pubkey=" + pubkeyHex
-                + " amount=" + expectedAmount + " relays=" + relays);
+                + " amount=" + (bound ? String.valueOf(expectedAmount) : "unbound") + " relays=" + relays);
 
         client = new NostrWebSocketClient(relays, pubkeyHex, new NostrWebSocketClient.EventHandler() {
             @Override
             public void onEvent(String relayUrl, NostrEvent event) {
+                synchronized (NostrPaymentListener.this) {
+                    if (!bound) {
+                        pendingEvents.add(new PendingEvent(relayUrl, event));
+                        return;
+                    }
+                }
                 handleEvent(relayUrl, event);
             }
 
             @Override
             public void onError(String relayUrl, String message, Throwable t) {
+                ErrorHandler errorHandler = NostrPaymentListener.this.errorHandler;
                 if (errorHandler != null) {
                     errorHandler.onError(message, t);
                 }
@@ -176,23 +234,23 @@ public final class NostrPaymentListener {
             Throwable cause = re.getCause();
             if (cause instanceof CashuPaymentHelper.RedemptionException) {
                 CashuPaymentHelper.RedemptionException e = (CashuPaymentHelper.RedemptionException) cause;
-                Log.e(TAG, "Redemption error for event from " + relayUrl + ": " + e.getMessage(), e);
+                DevLogger.e(TAG, "Redemption error for event from " + relayUrl + ": " + e.getMessage(), e);
                 if (errorHandler != null) {
                     errorHandler.onError("PaymentRequestPayload redemption failed", e);
                 }
             } else {
-                Log.e(TAG, "Unexpected runtime error during Nostr redemption from " + relayUrl + ": " + re.getMessage(), re);
+                DevLogger.e(TAG, "Unexpected runtime error during Nostr redemption from " + relayUrl + ": " + re.getMessage(), re);
                 if (errorHandler != null) {
                     errorHandler.onError("Unexpected error during Nostr redemption", re);
                 }
             }
         } catch (CashuPaymentHelper.RedemptionException e) {
-            Log.e(TAG, "Redemption error for event from " + relayUrl + ": " + e.getMessage(), e);
+            DevLogger.e(TAG, "Redemption error for event from " + relayUrl + ": " + e.getMessage(), e);
             if (errorHandler != null) {
                 errorHandler.onError("PaymentRequestPayload redemption failed", e);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error handling nostr event from " + relayUrl + ": " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error handling nostr event from " + relayUrl + ": " + e.getMessage(), e);
             if (errorHandler != null) {
                 errorHandler.onError("nostr event handling failed", e);
             }
@@ -2,6 +2,8 @@ package com.electricdreams.numo.nostr;
 
 import android.util.Log;
 
+import com.electricdreams.numo.core.dev.DevLogger;
+import com.electricdreams.numo.core.dev.Metrics;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -30,6 +32,7 @@ import okio.ByteString;
  *  - On connect, send a REQ for kind 1059 with #p=[our pubkey].
  *  - Parse EVENT messages and hand NostrEvent objects to a handler.
  *  - Attempt simple reconnect with backoff on failures.
+ *  - Record connect latency, failures and reconnects per relay in {@link Metrics}.
  */
 public final class NostrWebSocketClient {
 
@@ -54,9 +57,13 @@ public final class NostrWebSocketClient {
     private static final long INITIAL_BACKOFF_MS = 1_000L;
     private static final long MAX_BACKOFF_MS = 60_000L;
 
+    private static final Metrics.Gauge CONNECTED_RELAYS = Metrics.gauge("relay.connected");
+
     private static final class WebSocketState {
         volatile WebSocket webSocket;
         volatile long backoffMs = INITIAL_BACKOFF_MS;
+        volatile long connectStartedNanos;
+        volatile boolean open;
     }
 
     public NostrWebSocketClient(List<String> relayUrls, String pubkeyHex, EventHandler handler) {
@@ -111,11 +118,15 @@ public final class NostrWebSocketClient {
         Request request = new Request.Builder().url(relayUrl).build();
 
         WebSocketState state = sockets.computeIfAbsent(relayUrl, k -> new WebSocketState());
+        state.connectStartedNanos = System.nanoTime();
 
         WebSocket ws = okHttpClient.newWebSocket(request, new WebSocketListener() {
             @Override
             public void onOpen(WebSocket webSocket, Response response) {
                 Log.d(TAG, "WebSocket open: " + relayUrl);
+                Metrics.histogram("relay.connect", relayUrl)
+                        .recordNanos(System.nanoTime() - state.connectStartedNanos);
+                markOpen(state, true);
                 state.webSocket = webSocket;
                 state.backoffMs = INITIAL_BACKOFF_MS; // reset backoff on success
                 sendReq(webSocket);
@@ -140,13 +151,16 @@ public final class NostrWebSocketClient {
             @Override
             public void onClosed(WebSocket webSocket, int code, String reason) {
                 Log.d(TAG, "WebSocket closed: " + relayUrl + " code=" + code + " reason=" + reason);
+                markOpen(state, false);
                 state.webSocket = null;
                 scheduleReconnect(relayUrl, state);
             }
 
             @Override
             public void onFailure(WebSocket webSocket, Throwable t, Response response) {
-                Log.e(TAG, "WebSocket failure: " + relayUrl + " error=" + t.getMessage(), t);
+                DevLogger.e(TAG, "WebSocket failure: " + relayUrl + " error=" + t.getMessage(), t);
+                Metrics.counter("relay.failures", relayUrl).increment();
+                markOpen(state, false);
                 state.webSocket = null;
                 if (handler != null) {
                     handler.onError(relayUrl, "websocket failure", t);
@@ -160,7 +174,7 @@ public final class NostrWebSocketClient {
 
     private void sendReq(WebSocket webSocket) {
         if (pubkeyHex == null || pubkeyHex.length() != 64) {
-            Log.e(TAG, "Cannot send REQ: invalid pubkey=" + pubkeyHex);
+            DevLogger.e(TAG, "Cannot send REQ: invalid pubkey=" + pubkeyHex);
             return;
         }
         JsonArray root = new JsonArray();
@@ -198,6 +212,7 @@ public final class NostrWebSocketClient {
                 }
                 JsonElement evElem = arr.get(2);
                 NostrEvent event = gson.fromJson(evElem, NostrEvent.class);
+                Metrics.counter("relay.events", relayUrl).increment();
                 if (event != null && handler != null) {
                     handler.onEvent(relayUrl, event);
                 }
@@ -212,15 +227,26 @@ public final class NostrWebSocketClient {
                 Log.d(TAG, "EOSE from " + relayUrl);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error parsing message from " + relayUrl + ": " + e.getMessage(), e);
+            DevLogger.e(TAG, "Error parsing message from " + relayUrl + ": " + e.getMessage(), e);
             if (handler != null) {
                 handler.onError(relayUrl, "parse error", e);
             }
         }
     }
 
+    private static void markOpen(WebSocketState state, boolean open) {
+        if (state.open == open) return;
+        state.open = open;
+        if (open) {
+            CONNECTED_RELAYS.increment();
+        } else {
+            CONNECTED_RELAYS.decrement();
+        }
+    }
+
     private void scheduleReconnect(String relayUrl, WebSocketState state) {
         if (!running) return;
+        Metrics.counter("relay.reconnects", relayUrl).increment();
         long delay = state.backoffMs;
         state.backoffMs = Math.min(state.backoffMs * 2, MAX_BACKOFF_MS);
         Log.d(TAG, "Scheduling reconnect to " + relayUrl + " in " + delay + "ms");
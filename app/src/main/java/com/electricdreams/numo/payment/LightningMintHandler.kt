@@ -2,29 +2,24 @@ package com.electricdreams.numo.payment
 
 import android.util.Log
 import com.electricdreams.numo.core.cashu.CashuWalletManager
-import com.google.gson.Gson
-import com.google.gson.JsonObject
+import com.electricdreams.numo.core.cashu.MintBalanceLedger
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.dev.Metrics
 import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.delay
+import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.suspendCancellableCoroutine
-import okhttp3.OkHttpClient
-import okhttp3.Request
-import okhttp3.Response
-import okhttp3.WebSocket
-import okhttp3.WebSocketListener
+import kotlinx.coroutines.withTimeoutOrNull
 import org.cashudevkit.Amount as CdkAmount
 import org.cashudevkit.MintQuote
 import org.cashudevkit.MintUrl
-import java.util.UUID
-import java.util.concurrent.TimeUnit
+import org.cashudevkit.MultiMintWallet
 import java.util.concurrent.atomic.AtomicBoolean
-import kotlin.coroutines.resume
-import kotlin.coroutines.resumeWithException
 
 /**
  * Handles Lightning payment flow via mint quote and WebSocket subscription (NUT-17).
@@ -34,24 +29,35 @@ import kotlin.coroutines.resumeWithException
  * - Subscribing to quote state updates via WebSocket
  * - Minting proofs once the invoice is paid
  *
+ * The quote is requested from the preferred mint unless [MintHealthTracker] finds it slow
+ * or down. If the chosen mint has not answered within [MintHealthTracker.LATENCY_BUDGET_MS],
+ * the next-best allowed mint is asked as well and the first quote to arrive is used.
+ *
  * @param preferredMint Optional preferred mint URL for Lightning payments. If null or invalid,
  *                      falls back to the first allowed mint.
- * @param allowedMints List of allowed mint URLs (used as fallback if preferredMint is invalid)
+ * @param allowedMints List of allowed mint URLs (used as fallback if preferredMint is invalid
+ *                     or unhealthy)
  * @param uiScope Coroutine scope for UI callbacks
+ * @param quotePool Optional pool of pre-fetched quotes to draw from before requesting a new one
+ * @param subscriptions Shared per-mint WebSocket used for quote state updates
+ * @param health Latency and error tracking used to rank mints and fail over
  */
 class LightningMintHandler(
     private val preferredMint: String?,
     private val allowedMints: List<String>,
     private val uiScope: CoroutineScope,
     // Allows injecting a mock dispatcher for testing
-    private val ioDispatcher: CoroutineDispatcher = Dispatchers.IO
+    private val ioDispatcher: CoroutineDispatcher = Dispatchers.IO,
+    private val quotePool: MintQuotePool? = null,
+    private val subscriptions: MintSubscriptionManager = MintSubscriptionManager.shared,
+    private val health: MintHealthTracker = MintHealthTracker.shared
 ) {
     // Secondary constructor to maintain compatibility
     constructor(
         preferredMint: String?,
         allowedMints: List<String>,
         uiScope: CoroutineScope
-    ) : this(preferredMint, allowedMints, uiScope, Dispatchers.IO)
+    ) : this(preferredMint, allowedMints, uiScope, Dispatchers.IO, MintQuotePool.shared, MintSubscriptionManager.shared)
     /**
      * Callback interface for Lightning mint events.
      */
@@ -72,13 +78,6 @@ class LightningMintHandler(
     
     /** Atomic flag to ensure mint is only called once (WebSocket vs polling race) */
     private val mintCalled = AtomicBoolean(false)
-
-    // Shared OkHttp client for mint WebSocket connections
-    private val wsClient: OkHttpClient by lazy {
-        OkHttpClient.Builder()
-            .readTimeout(0, TimeUnit.MILLISECONDS) // no timeout, rely on WS pings
-            .build()
-    }
     
     /** The current mint quote, if any */
     val currentQuote: MintQuote? get() = mintQuote
@@ -112,28 +111,24 @@ class LightningMintHandler(
             return
         }
 
-        // Use preferred mint if set and valid, otherwise fall back to first allowed mint
-        val mintUrlStr = if (preferredMint != null && (allowedMints.isEmpty() || allowedMints.contains(preferredMint))) {
-            preferredMint
-        } else {
-            allowedMints.firstOrNull() ?: run {
-                Log.e(TAG, "No valid mint available for Lightning")
-                callback.onError("No mints configured")
-                return
-            }
+        val candidates = health.rankForLightning(preferredMint, allowedMints).take(MAX_QUOTE_MINTS)
+        val firstMintUrl = candidates.firstOrNull() ?: run {
+            DevLogger.e(TAG, "No valid mint available for Lightning")
+            callback.onError("No mints configured")
+            return
         }
         
-        Log.d(TAG, "Using mint for Lightning: $mintUrlStr (preferred: $preferredMint)")
+        Log.d(TAG, "Using mint for Lightning: $firstMintUrl (preferred: $preferredMint)")
         
-        val mintUrl = try {
-            MintUrl(mintUrlStr)
+        try {
+            MintUrl(firstMintUrl)
         } catch (t: Throwable) {
-            Log.e(TAG, "Invalid mint URL for Lightning mint: $mintUrlStr", t)
+            DevLogger.e(TAG, "Invalid mint URL for Lightning mint: $firstMintUrl", t)
             callback.onError("Invalid mint URL")
             return
         }
 
-        currentMintUrl = mintUrlStr
+        currentMintUrl = firstMintUrl
 
         // Reset the mint-called flag for this new payment
         mintCalled.set(false)
@@ -141,12 +136,13 @@ class LightningMintHandler(
         mintJob?.cancel()
         mintJob = uiScope.launch(ioDispatcher) {
             try {
-                // CDK Amount is in minor units of wallet's CurrencyUnit (we constructed wallet in sats)
-                val quoteAmount = CdkAmount(paymentAmount.toULong())
-
-                Log.d(TAG, "Requesting Lightning mint quote from ${mintUrl.url} for $paymentAmount sats")
-                val quote = wallet.mintQuote(mintUrl, quoteAmount, "Numo POS payment of $paymentAmount sats")
+                val (mintUrlStr, quote) = quotePool?.take(firstMintUrl, paymentAmount)?.let { firstMintUrl to it }
+                    ?: requestQuote(wallet, candidates, paymentAmount)
+                val mintUrl = MintUrl(mintUrlStr)
+                currentMintUrl = mintUrlStr
                 mintQuote = quote
+                // Keep a quote ready for the next payment of this amount
+                quotePool?.recordUse(mintUrlStr, paymentAmount)
 
                 val bolt11 = quote.request
                 Log.d(TAG, "Received Lightning mint quote id=${quote.id} bolt11=$bolt11")
@@ -156,37 +152,10 @@ class LightningMintHandler(
                     callback.onInvoiceReady(bolt11, quote.id, mintUrlStr)
                 }
 
-                // Start both WebSocket subscription and polling in parallel
-                // Whichever detects payment first will call tryMintOnce (atomic, only one wins)
-                val wsJob = launch {
-                    try {
-                        Log.d(TAG, "Starting WebSocket subscription for quote ${quote.id}")
-                        awaitMintQuotePaid(mintUrl, quote.id)
-                        // WebSocket detected quote is paid, attempt to mint (only first caller wins)
-                        tryMintOnce(mintUrl, quote.id, callback, "WebSocket")
-                    } catch (ce: CancellationException) {
-                        Log.d(TAG, "WebSocket subscription cancelled for quote ${quote.id}")
-                    } catch (e: Exception) {
-                        Log.e(TAG, "WebSocket error for quote ${quote.id}: ${e.message}", e)
-                    }
-                }
-
-                val pollJob = launch {
-                    try {
-                        pollForQuotePaid(mintUrl, quote.id, callback)
-                    } catch (ce: CancellationException) {
-                        Log.d(TAG, "Polling cancelled for quote ${quote.id}")
-                    } catch (e: Exception) {
-                        Log.e(TAG, "Polling error for quote ${quote.id}: ${e.message}", e)
-                    }
-                }
-
-                // Wait for both to complete (one will finish first and mint, the other will detect mintCalled)
-                wsJob.join()
-                pollJob.join()
+                watchQuote(mintUrl, quote.id, callback)
 
             } catch (e: Exception) {
-                Log.e(TAG, "Error in Lightning mint flow: ${e.message}", e)
+                DevLogger.e(TAG, "Error in Lightning mint flow: ${e.message}", e)
                 launch(Dispatchers.Main) {
                     callback.onError(e.message ?: "Unknown error")
                 }
@@ -194,6 +163,83 @@ class LightningMintHandler(
         }
     }
 
+    /**
+     * Fetch a quote for [paymentAmount] in the background so that a later [start]
+     * for the same amount can show the invoice immediately.
+     */
+    fun prefetch(paymentAmount: Long) {
+        val mintUrlStr = resolveMintUrl() ?: return
+        quotePool?.prefetch(mintUrlStr, paymentAmount)
+    }
+
+    /**
+     * Use preferred mint if set, valid and healthy, otherwise the best allowed mint.
+     */
+    private fun resolveMintUrl(): String? = health.rankForLightning(preferredMint, allowedMints).firstOrNull()
+
+    /**
+     * Request a quote from [candidates] in order and use whichever answers first. The
+     * next mint is asked whenever all mints asked so far have failed or none has answered
+     * within [MintHealthTracker.LATENCY_BUDGET_MS]; the others are then cancelled.
+     *
+     * @return The mint that issued the quote, and the quote
+     */
+    private suspend fun requestQuote(
+        wallet: MultiMintWallet,
+        candidates: List<String>,
+        paymentAmount: Long
+    ): Pair<String, MintQuote> = coroutineScope {
+        // CDK Amount is in minor units of wallet's CurrencyUnit (we constructed wallet in sats)
+        val quoteAmount = CdkAmount(paymentAmount.toULong())
+        val results = Channel<Pair<String, Result<MintQuote>>>(Channel.UNLIMITED)
+        val attempts = ArrayList<Job>()
+
+        fun askNextMint() {
+            val mintUrlStr = candidates[attempts.size]
+            Log.d(TAG, "Requesting Lightning mint quote from $mintUrlStr for $paymentAmount sats")
+            attempts.add(launch {
+                val result = try {
+                    Result.success(health.track("mint.quote", mintUrlStr) {
+                        wallet.mintQuote(MintUrl(mintUrlStr), quoteAmount, MintQuotePool.quoteDescription(paymentAmount))
+                    })
+                } catch (ce: CancellationException) {
+                    throw ce
+                } catch (e: Exception) {
+                    Result.failure(e)
+                }
+                results.send(mintUrlStr to result)
+            })
+        }
+
+        askNextMint()
+        var answered = 0
+        var lastError: Throwable? = null
+        while (answered < attempts.size) {
+            val next = if (attempts.size < candidates.size) {
+                withTimeoutOrNull(MintHealthTracker.LATENCY_BUDGET_MS) { results.receive() }
+            } else {
+                results.receive()
+            }
+            if (next == null) {
+                Log.w(TAG, "No Lightning quote within ${MintHealthTracker.LATENCY_BUDGET_MS} ms, trying another mint")
+                askNextMint()
+                continue
+            }
+
+            answered++
+            val (mintUrlStr, result) = next
+            val quote = result.getOrNull()
+            if (quote != null) {
+                attempts.forEach { it.cancel() }
+                return@coroutineScope mintUrlStr to quote
+            }
+            lastError = result.exceptionOrNull()
+            Log.w(TAG, "Lightning mint quote from $mintUrlStr failed: ${lastError?.message}")
+            if (answered == attempts.size && attempts.size < candidates.size) askNextMint()
+        }
+        throw lastError ?: IllegalStateException("No mint returned a Lightning quote")
+    }
+
     /**
      * Resume monitoring an existing Lightning mint quote.
      * Used when reopening a pending payment from history.
@@ -214,7 +260,7 @@ class LightningMintHandler(
         val mintUrl = try {
             MintUrl(mintUrlStr)
         } catch (t: Throwable) {
-            Log.e(TAG, "Invalid mint URL for resume: $mintUrlStr", t)
+            DevLogger.e(TAG, "Invalid mint URL for resume: $mintUrlStr", t)
             callback.onError("Invalid mint URL")
             return
         }
@@ -234,37 +280,10 @@ class LightningMintHandler(
                     callback.onInvoiceReady(invoice, quoteId, mintUrlStr)
                 }
 
-                // Start both WebSocket subscription and polling in parallel
-                // Whichever detects payment first will call tryMintOnce (atomic, only one wins)
-                val wsJob = launch {
-                    try {
-                        Log.d(TAG, "Starting WebSocket subscription for resumed quote $quoteId")
-                        awaitMintQuotePaid(mintUrl, quoteId)
-                        // WebSocket detected quote is paid, attempt to mint (only first caller wins)
-                        tryMintOnce(mintUrl, quoteId, callback, "WebSocket (resume)")
-                    } catch (ce: CancellationException) {
-                        Log.d(TAG, "WebSocket subscription cancelled for resumed quote $quoteId")
-                    } catch (e: Exception) {
-                        Log.e(TAG, "WebSocket error for resumed quote $quoteId: ${e.message}", e)
-                    }
-                }
-
-                val pollJob = launch {
-                    try {
-                        pollForQuotePaid(mintUrl, quoteId, callback)
-                    } catch (ce: CancellationException) {
-                        Log.d(TAG, "Polling cancelled for resumed quote $quoteId")
-                    } catch (e: Exception) {
-                        Log.e(TAG, "Polling error for resumed quote $quoteId: ${e.message}", e)
-                    }
-                }
-
-                // Wait for both to complete (one will finish first and mint, the other will detect mintCalled)
-                wsJob.join()
-                pollJob.join()
+                watchQuote(mintUrl, quoteId, callback, " (resume)")
 
             } catch (e: Exception) {
-                Log.e(TAG, "Error in resumed Lightning mint flow: ${e.message}", e)
+                DevLogger.e(TAG, "Error in resumed Lightning mint flow: ${e.message}", e)
                 launch(Dispatchers.Main) {
                     callback.onError(e.message ?: "Unknown error")
                 }
@@ -282,168 +301,66 @@ class LightningMintHandler(
     }
 
     /**
-     * Build the mint's WebSocket URL as `<scheme>/v1/ws` based on the MintUrl.
+     * Watch [quoteId] until it is paid and mint it.
      *
-     * If the mint URL is `https://mint.com` this returns `wss://mint.com/v1/ws`.
-     * If it includes a path (e.g. `https://mint.com/Bitcoin`) we append `/v1/ws`
-     * after that path: `wss://mint.com/Bitcoin/v1/ws`.
+     * State updates come from the mint's shared WebSocket (NUT-17); HTTP polling runs
+     * alongside but only queries the mint while this quote's subscription is live, i.e.
+     * the socket is up and the mint has not rejected the subscription. Whichever detects
+     * payment first calls [tryMintOnce] (atomic, only one wins).
      */
-    private fun buildMintWsUrl(mintUrl: MintUrl): String {
-        val base = mintUrl.url.removeSuffix("/")
-        val wsBase = when {
-            base.startsWith("https://", ignoreCase = true) ->
-                "wss://" + base.removePrefix("https://")
-            base.startsWith("http://", ignoreCase = true) ->
-                "ws://" + base.removePrefix("http://")
-            base.startsWith("wss://", ignoreCase = true) ||
-                base.startsWith("ws://", ignoreCase = true) -> base
-            else -> "wss://$base"
-        }
-        return "$wsBase/v1/ws"
-    }
-
-    /**
-     * Suspend until the given Lightning mint quote is reported as paid via the
-     * mint's WebSocket (NUT-17) subscription.
-     *
-     * We subscribe with kind = "bolt11_mint_quote" and a single filter: the quote id.
-     * On `state == "PAID"` (or `"ISSUED"` if we attached late), we resume.
-     *
-     * Cancellation of the coroutine will unsubscribe and close the WebSocket,
-     * which is how we shut this down when another payment path wins or the user
-     * cancels the checkout.
-     */
-    private suspend fun awaitMintQuotePaid(
-        mintUrl: MintUrl,
-        quoteId: String
-    ) = suspendCancellableCoroutine<Unit> { cont ->
-        val wsUrl = buildMintWsUrl(mintUrl)
-        Log.d(TAG, "Connecting to mint WebSocket at $wsUrl for quoteId=$quoteId")
-
-        val request = Request.Builder().url(wsUrl).build()
-        val gson = Gson()
-        val subId = UUID.randomUUID().toString()
-        var nextRequestId = 0
-        var webSocket: WebSocket? = null
-
-        fun sendUnsubscribe(ws: WebSocket) {
-            val params = mapOf("subId" to subId)
-            val msg = mapOf(
-                "jsonrpc" to "2.0",
-                "id" to ++nextRequestId,
-                "method" to "unsubscribe",
-                "params" to params
-            )
-            val json = gson.toJson(msg)
-            Log.d(TAG, "Sending unsubscribe for subId=$subId: $json")
-            ws.send(json)
-        }
+    private suspend fun watchQuote(mintUrl: MintUrl, quoteId: String, callback: Callback, label: String = "") =
+        coroutineScope {
+            // Cleared when the subscription fails, e.g. the mint does not support NUT-17 for this quote
+            val subscribed = AtomicBoolean(true)
 
-        val listener = object : WebSocketListener() {
-            override fun onOpen(ws: WebSocket, response: Response) {
-                Log.d(TAG, "Mint WebSocket open: $wsUrl")
-                webSocket = ws
-                val params = mapOf(
-                    "kind" to "bolt11_mint_quote",
-                    "subId" to subId,
-                    "filters" to listOf(quoteId),
-                )
-                val msg = mapOf(
-                    "jsonrpc" to "2.0",
-                    "id" to nextRequestId,
-                    "method" to "subscribe",
-                    "params" to params,
-                )
-                val json = gson.toJson(msg)
-                Log.d(TAG, "Sending subscribe for subId=$subId, quoteId=$quoteId: $json")
-                ws.send(json)
-            }
-
-            override fun onMessage(ws: WebSocket, text: String) {
-                Log.v(TAG, "Mint WS message: $text")
+            val wsJob = launch {
                 try {
-                    val root = gson.fromJson(text, JsonObject::class.java) ?: return
-
-                    if (root.has("error")) {
-                        val errorObj = root.getAsJsonObject("error")
-                        val code = errorObj["code"]?.asInt
-                        val message = errorObj["message"]?.asString
-                        val ex = Exception("Mint WS error code=$code message=$message")
-                        if (!cont.isCompleted) {
-                            cont.resumeWithException(ex)
-                        }
-                        ws.close(1000, "error")
-                        return
-                    }
-
-                    if (root.has("result")) {
-                        // subscribe/unsubscribe ACK; nothing to do here for now
-                        return
-                    }
-
-                    val method = root.get("method")?.asString ?: return
-                    if (method != "subscribe") return
-
-                    val params = root.getAsJsonObject("params") ?: return
-                    val payload = params.getAsJsonObject("payload") ?: return
-                    val state = payload.get("state")?.asString ?: return
-
-                    Log.d(TAG, "Mint quote update for quoteId=$quoteId state=$state")
-
-                    if (state.equals("PAID", ignoreCase = true) ||
-                        state.equals("ISSUED", ignoreCase = true)
-                    ) {
-                        if (!cont.isCompleted) {
-                            cont.resume(Unit)
-                        }
-                        try {
-                            sendUnsubscribe(ws)
-                        } catch (_: Throwable) {
-                        }
-                        ws.close(1000, "quote paid")
-                    }
-                } catch (t: Throwable) {
-                    Log.e(TAG, "Error parsing mint WS message: ${t.message}", t)
-                    if (!cont.isCompleted) {
-                        cont.resumeWithException(t)
-                    }
-                    ws.close(1000, "parse error")
+                    Log.d(TAG, "Starting WebSocket subscription for quote $quoteId$label")
+                    awaitMintQuotePaid(mintUrl, quoteId)
+                    tryMintOnce(mintUrl, quoteId, callback, "WebSocket$label")
+                } catch (ce: CancellationException) {
+                    Log.d(TAG, "WebSocket subscription cancelled for quote $quoteId$label")
+                } catch (e: Exception) {
+                    subscribed.set(false)
+                    DevLogger.e(TAG, "WebSocket error for quote $quoteId$label, polling instead: ${e.message}", e)
                 }
             }
 
-            override fun onFailure(ws: WebSocket, t: Throwable, response: Response?) {
-                Log.e(TAG, "Mint WS failure: ${t.message}", t)
-                if (!cont.isCompleted) {
-                    cont.resumeWithException(t)
+            val pollJob = launch {
+                try {
+                    pollForQuotePaid(mintUrl, quoteId, callback) {
+                        subscribed.get() && subscriptions.isConnected(mintUrl.url)
+                    }
+                } catch (ce: CancellationException) {
+                    Log.d(TAG, "Polling cancelled for quote $quoteId$label")
+                } catch (e: Exception) {
+                    DevLogger.e(TAG, "Polling error for quote $quoteId$label: ${e.message}", e)
                 }
             }
 
-            override fun onClosed(ws: WebSocket, code: Int, reason: String) {
-                Log.d(TAG, "Mint WS closed: code=$code reason=$reason")
-                if (!cont.isCompleted && !cont.isCancelled) {
-                    cont.resumeWithException(
-                        CancellationException("Mint WS closed before quote paid: $code $reason")
-                    )
-                }
-            }
+            // The poller runs until the quote is minted by either path; then drop the subscription
+            pollJob.join()
+            if (mintCalled.get()) wsJob.cancel()
+            wsJob.join()
         }
 
-        val ws = wsClient.newWebSocket(request, listener)
-        webSocket = ws
-
-        cont.invokeOnCancellation {
-            Log.d(TAG, "Coroutine cancelled while waiting for mint quote; closing WS")
-            try {
-                webSocket?.let { socket ->
-                    try {
-                        sendUnsubscribe(socket)
-                    } catch (_: Throwable) {
-                    }
-                    socket.close(1000, "cancelled")
-                }
-            } catch (_: Throwable) {
-            }
-        }
+    /**
+     * Suspend until the given Lightning mint quote is reported as paid via the
+     * mint's shared WebSocket (NUT-17) subscription.
+     *
+     * We subscribe with kind = "bolt11_mint_quote" and a single filter: the quote id.
+     * On `state == "PAID"` (or `"ISSUED"` if we attached late), we resume.
+     * Cancellation of the coroutine unsubscribes; the socket itself stays open for
+     * other quotes on the same mint.
+     */
+    private suspend fun awaitMintQuotePaid(mintUrl: MintUrl, quoteId: String) {
+        val state = subscriptions.awaitQuoteState(
+            mintUrl.url,
+            MintSubscriptionManager.KIND_MINT_QUOTE,
+            quoteId,
+            setOf("PAID", "ISSUED")
+        )
+        Log.d(TAG, "Mint quote update for quoteId=$quoteId state=$state")
     }
 
     /**
@@ -470,7 +387,7 @@ class LightningMintHandler(
 
         val wallet = CashuWalletManager.getWallet()
         if (wallet == null) {
-            Log.e(TAG, "Wallet not available for minting")
+            DevLogger.e(TAG, "Wallet not available for minting")
             uiScope.launch(Dispatchers.Main) {
                 callback.onError("Wallet not ready")
             }
@@ -478,8 +395,9 @@ class LightningMintHandler(
         }
 
         Log.d(TAG, "Mint quote $quoteId is paid (detected by $source), calling wallet.mint")
-        val proofs = wallet.mint(mintUrl, quoteId, null)
+        val proofs = health.track("mint.mint", mintUrl.url) { wallet.mint(mintUrl, quoteId, null) }
         Log.d(TAG, "Lightning mint completed with ${proofs.size} proofs ($source)")
+        MintBalanceLedger.credit(mintUrl.url, proofs.sumOf { it.amount.value.toLong() })
 
         uiScope.launch(Dispatchers.Main) {
             callback.onPaymentSuccess()
@@ -489,33 +407,49 @@ class LightningMintHandler(
 
     /**
      * Poll for mint quote state until paid or cancelled.
-     * Uses checkMintQuote API to query the mint directly.
+     * Uses checkMintQuote API to query the mint directly, but only while the quote's
+     * WebSocket subscription is not live; the interval grows from [POLL_INTERVAL_MS] up
+     * to [MAX_POLL_INTERVAL_MS] and resets whenever the subscription comes back.
      *
      * @param mintUrl The mint URL
      * @param quoteId The quote ID to check
      * @param callback Callback for success/error
+     * @param subscriptionLive Whether state updates for the quote currently arrive over the WebSocket
      */
     private suspend fun pollForQuotePaid(
         mintUrl: MintUrl,
         quoteId: String,
-        callback: Callback
+        callback: Callback,
+        subscriptionLive: () -> Boolean
     ) {
         val wallet = CashuWalletManager.getWallet() ?: return
         
-        Log.d(TAG, "Starting polling for mint quote $quoteId (interval: ${POLL_INTERVAL_MS}ms)")
+        Log.d(TAG, "Starting fallback polling for mint quote $quoteId")
+        var interval = POLL_INTERVAL_MS
         
         while (!mintCalled.get()) {
             try {
-                delay(POLL_INTERVAL_MS)
+                if (subscriptionLive()) {
+                    // Updates arrive over the socket; only watch for it dropping
+                    interval = POLL_INTERVAL_MS
+                    delay(SOCKET_CHECK_INTERVAL_MS)
+                    continue
+                }
+
+                delay(interval)
                 
                 // Check if mint was already called by WebSocket while we were waiting
                 if (mintCalled.get()) {
                     Log.d(TAG, "Mint already called during poll delay, stopping poller")
                     break
                 }
+                if (subscriptionLive()) continue
                 
                 Log.v(TAG, "Polling mint quote state for $quoteId")
-                val quote = wallet.checkMintQuote(mintUrl, quoteId)
+                Metrics.counter("mint.quote_polls", mintUrl.url).increment()
+                val quote = health.track("mint.check_quote", mintUrl.url) {
+                    wallet.checkMintQuote(mintUrl, quoteId)
+                }
                 val stateStr = quote.state.toString()
                 
                 Log.d(TAG, "Poll result for $quoteId: state=$stateStr")
@@ -526,6 +460,7 @@ class LightningMintHandler(
                     tryMintOnce(mintUrl, quoteId, callback, "polling")
                     break
                 }
+                interval = (interval * 3 / 2).coerceAtMost(MAX_POLL_INTERVAL_MS)
             } catch (ce: CancellationException) {
                 Log.d(TAG, "Polling cancelled for quote $quoteId")
                 throw ce
@@ -538,8 +473,17 @@ class LightningMintHandler(
 
     companion object {
         private const val TAG = "LightningMintHandler"
+
+        /** Most mints asked for a quote for one payment, counting the first */
+        const val MAX_QUOTE_MINTS = 3
         
-        /** Polling interval for checking mint quote state (in milliseconds) */
+        /** Initial polling interval for checking mint quote state while the WebSocket is down (in milliseconds) */
         const val POLL_INTERVAL_MS = 5000L
+
+        /** Longest polling interval while the WebSocket stays down (in milliseconds) */
+        const val MAX_POLL_INTERVAL_MS = 15_000L
+
+        /** How often the poller checks whether the quote's subscription is still live (in milliseconds) */
+        private const val SOCKET_CHECK_INTERVAL_MS = 1000L
     }
 }
@@ -0,0 +1,232 @@
+package com.electricdreams.numo.payment
+
+import android.util.Log
+import com.electricdreams.numo.core.dev.Metrics
+import com.electricdreams.numo.core.util.HttpClients
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import okhttp3.Request
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+/**
+ * Tracks how quickly and reliably each mint answers, and ranks mints for new
+ * Lightning invoices.
+ *
+ * Samples come from real quote, mint and melt calls made through [track], and from
+ * optional background probes of the mint's info endpoint ([startProbing]). Latency
+ * and error rate are exponentially weighted moving averages, so a mint that recovers
+ * is trusted again after a few good calls. A mint counts as down after
+ * [FAILURES_TO_MARK_DOWN] consecutive failures or while its error rate is above
+ * [MAX_ERROR_RATE], until [DOWN_COOLDOWN_MS] has passed since its last failure.
+ * Mints without samples are assumed healthy.
+ *
+ * @param probe Checks one mint, throwing if it does not answer correctly
+ */
+class MintHealthTracker(
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO),
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val probe: suspend (mintUrl: String) -> Unit = { probeMintInfo(it) }
+) {
+
+    companion object {
+        private const val TAG = "MintHealthTracker"
+
+        /** A mint slower than this for quotes is passed over, and another mint is tried alongside it. */
+        const val LATENCY_BUDGET_MS = 3_000L
+
+        // Weight of the newest sample in the moving averages
+        private const val SMOOTHING = 0.3
+
+        const val MAX_ERROR_RATE = 0.5
+        const val FAILURES_TO_MARK_DOWN = 3
+        const val DOWN_COOLDOWN_MS = 60_000L
+
+        const val PROBE_INTERVAL_MS = 60_000L
+
+        /** Tracker shared by all payment and wallet flows. */
+        @JvmStatic
+        val shared: MintHealthTracker by lazy { MintHealthTracker() }
+
+        private fun probeMintInfo(mintUrl: String) {
+            val request = Request.Builder().url(mintUrl.trimEnd('/') + "/v1/info").build()
+            val client = HttpClients.shared.newBuilder()
+                .callTimeout(LATENCY_BUDGET_MS * 2, TimeUnit.MILLISECONDS)
+                .build()
+            client.newCall(request).execute().use { response ->
+                if (!response.isSuccessful) throw IOException("HTTP ${response.code}")
+            }
+        }
+    }
+
+    /**
+     * Current view of one mint. [latencyMs] is null until a call has completed.
+     */
+    data class Health(
+        val mintUrl: String,
+        val latencyMs: Long?,
+        val errorRate: Double,
+        val consecutiveFailures: Int,
+        val healthy: Boolean,
+    )
+
+    private class State {
+        var latencyMs = -1.0
+        var errorRate = 0.0
+        var consecutiveFailures = 0
+        var lastFailureAt = 0L
+    }
+
+    private val lock = Any()
+    private val states = HashMap<String, State>()
+    private var probeJob: Job? = null
+
+    /**
+     * Run a call to [mintUrl] and record its latency and outcome, both here and as
+     * [operation] in [Metrics]. A call cancelled before it finished, e.g. because
+     * another mint answered first, only counts towards latency.
+     */
+    inline fun <T> track(operation: String, mintUrl: String, block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            val result = Metrics.timed(operation, mintUrl, block)
+            record(mintUrl, elapsedMs(start), failed = false)
+            return result
+        } catch (e: CancellationException) {
+            record(mintUrl, elapsedMs(start), failed = null)
+            throw e
+        } catch (e: Exception) {
+            record(mintUrl, elapsedMs(start), failed = true)
+            throw e
+        }
+    }
+
+    @PublishedApi
+    internal fun elapsedMs(startNanos: Long): Long = (System.nanoTime() - startNanos) / 1_000_000
+
+    /**
+     * Record one call to [mintUrl]. [failed] is null for a call abandoned before it
+     * finished, which says how slow the mint was but not whether it works.
+     */
+    fun record(mintUrl: String, latencyMs: Long, failed: Boolean?) {
+        synchronized(lock) {
+            val state = states.getOrPut(mintUrl) { State() }
+            // An abandoned call only tells us the mint took at least this long
+            if (failed != null || latencyMs > state.latencyMs) {
+                state.latencyMs = if (state.latencyMs < 0) {
+                    latencyMs.toDouble()
+                } else {
+                    state.latencyMs + SMOOTHING * (latencyMs - state.latencyMs)
+                }
+            }
+            when (failed) {
+                true -> {
+                    state.errorRate += SMOOTHING * (1.0 - state.errorRate)
+                    state.consecutiveFailures++
+                    state.lastFailureAt = clock()
+                }
+                false -> {
+                    state.errorRate -= SMOOTHING * state.errorRate
+                    state.consecutiveFailures = 0
+                }
+                null -> Unit
+            }
+        }
+    }
+
+    fun health(mintUrl: String): Health {
+        synchronized(lock) {
+            val state = states[mintUrl] ?: return Health(mintUrl, null, 0.0, 0, true)
+            return Health(
+                mintUrl = mintUrl,
+                latencyMs = if (state.latencyMs < 0) null else state.latencyMs.toLong(),
+                errorRate = state.errorRate,
+                consecutiveFailures = state.consecutiveFailures,
+                healthy = isHealthy(state),
+            )
+        }
+    }
+
+    /**
+     * Order mints for a new Lightning invoice.
+     *
+     * The preferred mint comes first while it is healthy and within [LATENCY_BUDGET_MS].
+     * Otherwise healthy mints come first, fastest first, with mints that have no samples
+     * yet ranked as if they took the whole budget; mints that are down come last.
+     *
+     * @param preferred The merchant's preferred Lightning mint, if any
+     * @param allowed All mints the merchant accepts; if empty, only [preferred] is returned
+     */
+    fun rankForLightning(preferred: String?, allowed: List<String>): List<String> {
+        val candidates = LinkedHashSet<String>()
+        if (preferred != null && (allowed.isEmpty() || allowed.contains(preferred))) candidates.add(preferred)
+        candidates.addAll(allowed)
+        if (candidates.size <= 1) return candidates.toList()
+
+        val health = candidates.associateWith { health(it) }
+        // Stable sort, so the preferred mint and then the configured order win ties
+        val ranked = candidates.sortedWith(
+            compareBy<String>({ !health.getValue(it).healthy }, { health.getValue(it).latencyMs ?: LATENCY_BUDGET_MS })
+        )
+
+        val preferredHealth = preferred?.let { health[it] } ?: return ranked
+        if (preferredHealth.healthy && (preferredHealth.latencyMs ?: 0L) <= LATENCY_BUDGET_MS) {
+            return listOf(preferredHealth.mintUrl) + ranked.filter { it != preferredHealth.mintUrl }
+        }
+        if (ranked.first() != preferred) {
+            Log.d(TAG, "Preferred Lightning mint $preferred is slow or down, ranking ${ranked.first()} first")
+        }
+        return ranked
+    }
+
+    /**
+     * Probe the mints from [mints] every [PROBE_INTERVAL_MS] until [stopProbing], so
+     * health is known before the next payment. Restarts probing if already running.
+     */
+    fun startProbing(mints: () -> List<String>) {
+        synchronized(lock) {
+            probeJob?.cancel()
+            probeJob = scope.launch {
+                while (isActive) {
+                    for (mintUrl in mints()) {
+                        launch {
+                            try {
+                                track("mint.probe", mintUrl) { probe(mintUrl) }
+                            } catch (e: CancellationException) {
+                                throw e
+                            } catch (e: Exception) {
+                                Log.d(TAG, "Probe of $mintUrl failed: ${e.message}")
+                            }
+                        }
+                    }
+                    delay(PROBE_INTERVAL_MS)
+                }
+            }
+        }
+    }
+
+    fun stopProbing() {
+        synchronized(lock) {
+            probeJob?.cancel()
+            probeJob = null
+        }
+    }
+
+    /**
+     * Forget all samples.
+     */
+    fun clear() {
+        synchronized(lock) { states.clear() }
+    }
+
+    private fun isHealthy(state: State): Boolean {
+        val failing = state.consecutiveFailures >= FAILURES_TO_MARK_DOWN || state.errorRate > MAX_ERROR_RATE
+        return !failing || clock() - state.lastFailureAt >= DOWN_COOLDOWN_MS
+    }
+}
@@ -0,0 +1,208 @@
+package com.electricdreams.numo.payment
+
+import android.util.Log
+import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.dev.DevLogger
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import org.cashudevkit.Amount as CdkAmount
+import org.cashudevkit.MintQuote
+import org.cashudevkit.MintUrl
+
+/**
+ * Pool of pre-fetched Lightning mint quotes, so the Lightning invoice can be shown
+ * without waiting for a mint round-trip.
+ *
+ * Quotes are keyed by mint and amount. The pool keeps at most one quote per key for
+ * the amount of the payment being prepared ([prefetch]) and for recently charged
+ * amounts ([recordUse]), which on a typical counter repeat often. Each quote is handed
+ * out at most once ([take]) and only until [EXPIRY_MARGIN_MS] before the expiry the mint
+ * gave it. Between [startRenewing] and [stopRenewing] (while the POS is in front), stale
+ * quotes are replaced in the background for as long as their amount stays recent.
+ *
+ * @param walletProvider Current wallet; quotes created by a wallet that has since been
+ *                       replaced (mint list change, restore) are discarded
+ * @param quoteSource Requests a new quote from the mint
+ * @param expiryOf Expiry of a quote in epoch millis, or 0 if the mint gave none
+ */
+class MintQuotePool(
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO),
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val walletProvider: () -> Any? = { CashuWalletManager.getWallet() },
+    private val quoteSource: suspend (mintUrl: String, amountSats: Long) -> MintQuote = ::requestQuote,
+    private val expiryOf: (MintQuote) -> Long = { it.expiry.toLong() * 1000 }
+) {
+
+    companion object {
+        private const val TAG = "MintQuotePool"
+
+        // A quote is no longer handed out this long before it expires, so the customer
+        // has time to pay the invoice
+        const val EXPIRY_MARGIN_MS = 2 * 60_000L
+
+        // Lifetime assumed for quotes whose mint reports no expiry
+        const val DEFAULT_QUOTE_TTL_MS = 10 * 60_000L
+
+        // Amounts not charged for this long are no longer kept warm
+        const val RECENT_WINDOW_MS = 2 * 60 * 60_000L
+
+        const val MAX_RECENT_AMOUNTS = 4
+
+        /** Pool shared by all payment screens. */
+        @JvmStatic
+        val shared: MintQuotePool by lazy { MintQuotePool() }
+
+        /** Description attached to every Lightning mint quote created for a payment. */
+        fun quoteDescription(amountSats: Long): String = "Numo POS payment of $amountSats sats"
+
+        private suspend fun requestQuote(mintUrl: String, amountSats: Long): MintQuote {
+            val wallet = CashuWalletManager.getWallet() ?: throw IllegalStateException("Wallet not ready")
+            return MintHealthTracker.shared.track("mint.quote", mintUrl) {
+                wallet.mintQuote(MintUrl(mintUrl), CdkAmount(amountSats.toULong()), quoteDescription(amountSats))
+            }
+        }
+    }
+
+    private data class Key(val mintUrl: String, val amountSats: Long)
+
+    private class Entry(val quote: MintQuote, val wallet: Any?, val usableUntil: Long)
+
+    private val lock = Any()
+    private val entries = HashMap<Key, Entry>()
+    private val inFlight = HashSet<Key>()
+
+    // Last use time per key, oldest first
+    private val recent = LinkedHashMap<Key, Long>()
+
+    // Whether stale quotes of recent amounts are replaced
+    private var renewing = false
+
+    /**
+     * Remove and return a fresh quote for [amountSats] on [mintUrl], or null if none is ready.
+     */
+    fun take(mintUrl: String, amountSats: Long): MintQuote? {
+        val key = Key(mintUrl, amountSats)
+        val entry = synchronized(lock) { entries.remove(key) } ?: return null
+        if (!isUsable(entry)) {
+            Log.d(TAG, "Discarding stale quote ${entry.quote.id} for $amountSats sats")
+            return null
+        }
+        Log.d(TAG, "Using pre-fetched quote ${entry.quote.id} for $amountSats sats")
+        return entry.quote
+    }
+
+    /**
+     * Fetch a quote for [amountSats] on [mintUrl] in the background unless one is
+     * already pooled or being fetched.
+     */
+    fun prefetch(mintUrl: String, amountSats: Long) {
+        if (amountSats <= 0) return
+        val key = Key(mintUrl, amountSats)
+        synchronized(lock) {
+            val existing = entries[key]
+            if (existing != null && isUsable(existing)) return
+            if (!inFlight.add(key)) return
+            entries.remove(key)
+        }
+
+        scope.launch {
+            try {
+                val wallet = walletProvider()
+                val quote = quoteSource(mintUrl, amountSats)
+                val fetchedAt = clock()
+                val expiry = expiryOf(quote)
+                val usableUntil = if (expiry > 0) expiry - EXPIRY_MARGIN_MS else fetchedAt + DEFAULT_QUOTE_TTL_MS
+                if (usableUntil <= fetchedAt) {
+                    Log.w(TAG, "Quote ${quote.id} expires too soon to be pooled")
+                    return@launch
+                }
+                val entry = Entry(quote, wallet, usableUntil)
+                synchronized(lock) { entries[key] = entry }
+                Log.d(TAG, "Pre-fetched quote ${quote.id} for $amountSats sats on $mintUrl")
+                scheduleRenewal(key, entry)
+            } catch (e: Exception) {
+                DevLogger.e(TAG, "Failed to pre-fetch quote for $amountSats sats on $mintUrl: ${e.message}", e)
+            } finally {
+                synchronized(lock) { inFlight.remove(key) }
+            }
+        }
+    }
+
+    /**
+     * Note that [amountSats] was just charged on [mintUrl] and keep a quote ready for
+     * the next payment of the same amount.
+     */
+    fun recordUse(mintUrl: String, amountSats: Long) {
+        if (amountSats <= 0) return
+        val key = Key(mintUrl, amountSats)
+        synchronized(lock) {
+            recent.remove(key)
+            recent[key] = clock()
+            while (recent.size > MAX_RECENT_AMOUNTS) {
+                val eldest = recent.keys.first()
+                recent.remove(eldest)
+                entries.remove(eldest)
+            }
+        }
+        prefetch(mintUrl, amountSats)
+    }
+
+    /**
+     * Keep quotes of recent amounts fresh until [stopRenewing], refilling the ones that
+     * went stale meanwhile.
+     */
+    fun startRenewing() {
+        val stale = synchronized(lock) {
+            renewing = true
+            recentKeys().filter { key -> entries[key]?.let { isUsable(it) } != true }
+        }
+        stale.forEach { prefetch(it.mintUrl, it.amountSats) }
+    }
+
+    /**
+     * Stop replacing stale quotes; pooled quotes stay available until they go stale.
+     */
+    fun stopRenewing() {
+        synchronized(lock) { renewing = false }
+    }
+
+    /**
+     * Drop every pooled quote.
+     */
+    fun clear() {
+        synchronized(lock) {
+            entries.clear()
+            recent.clear()
+        }
+    }
+
+    private fun isUsable(entry: Entry): Boolean =
+        clock() < entry.usableUntil && entry.wallet === walletProvider()
+
+    /**
+     * Keys used within [RECENT_WINDOW_MS]. Must be called while holding [lock].
+     */
+    private fun recentKeys(): List<Key> {
+        val now = clock()
+        return recent.filterValues { now - it < RECENT_WINDOW_MS }.keys.toList()
+    }
+
+    /**
+     * Replace [entry] once it goes stale, if it was not used, its amount is still recent
+     * and renewing is on.
+     */
+    private fun scheduleRenewal(key: Key, entry: Entry) {
+        scope.launch {
+            delay(entry.usableUntil - clock())
+            val renew = synchronized(lock) {
+                if (entries[key] !== entry) return@synchronized false
+                entries.remove(key)
+                renewing && key in recentKeys()
+            }
+            if (renew) prefetch(key.mintUrl, key.amountSats)
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.electricdreams.numo.payment
+
+import android.util.Log
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.util.HttpClients
+import com.google.gson.Gson
+import com.google.gson.JsonObject
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.suspendCancellableCoroutine
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.WebSocket
+import okhttp3.WebSocketListener
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+
+/**
+ * Shares one NUT-17 WebSocket per mint across all quote subscriptions.
+ *
+ * Every subscription gets its own `subId` on the mint's single connection and
+ * notifications are routed back by that id, so any number of pending payments, resumed
+ * payments and withdrawals cost one socket per mint. The connection is opened on the
+ * first subscription, reconnected with backoff (re-sending every live subscription)
+ * while subscriptions remain, and closed after [IDLE_CLOSE_MS] without any.
+ *
+ * Callers that also poll over HTTP should do so while [isConnected] is false, and after
+ * [awaitQuoteState] has failed for their quote (the mint rejected the subscription).
+ */
+class MintSubscriptionManager(
+    private val client: OkHttpClient = defaultClient,
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+) {
+
+    companion object {
+        private const val TAG = "MintSubscriptionManager"
+
+        const val KIND_MINT_QUOTE = "bolt11_mint_quote"
+        const val KIND_MELT_QUOTE = "bolt11_melt_quote"
+
+        private const val RECONNECT_BASE_DELAY_MS = 1_000L
+        private const val RECONNECT_MAX_DELAY_MS = 30_000L
+        const val IDLE_CLOSE_MS = 60_000L
+
+        private val defaultClient: OkHttpClient by lazy {
+            HttpClients.shared.newBuilder()
+                .readTimeout(0, TimeUnit.MILLISECONDS) // no timeout, rely on WS pings
+                .pingInterval(30, TimeUnit.SECONDS)
+                .build()
+        }
+
+        /** Connection shared by all payment flows. */
+        @JvmStatic
+        val shared: MintSubscriptionManager by lazy { MintSubscriptionManager() }
+
+        /**
+         * Build the mint's WebSocket URL as `<scheme>/v1/ws` based on the mint URL.
+         *
+         * If the mint URL is `https://mint.com` this returns `wss://mint.com/v1/ws`.
+         * If it includes a path (e.g. `https://mint.com/Bitcoin`) we append `/v1/ws`
+         * after that path: `wss://mint.com/Bitcoin/v1/ws`.
+         */
+        fun buildWsUrl(mintUrl: String): String {
+            val base = mintUrl.removeSuffix("/")
+            val wsBase = when {
+                base.startsWith("https://", ignoreCase = true) ->
+                    "wss://" + base.removePrefix("https://")
+                base.startsWith("http://", ignoreCase = true) ->
+                    "ws://" + base.removePrefix("http://")
+                base.startsWith("wss://", ignoreCase = true) ||
+                    base.startsWith("ws://", ignoreCase = true) -> base
+                else -> "wss://$base"
+            }
+            return "$wsBase/v1/ws"
+        }
+    }
+
+    /**
+     * Receives updates for one subscription. Called on an OkHttp thread.
+     */
+    interface SubscriptionListener {
+        /** A state update for the subscribed quote, e.g. "PAID". */
+        fun onState(state: String)
+
+        /** The mint rejected the subscription; no further updates will arrive. */
+        fun onError(error: Exception)
+    }
+
+    private class Subscription(
+        val subId: String,
+        val kind: String,
+        val quoteId: String,
+        val listener: SubscriptionListener
+    )
+
+    private val gson = Gson()
+    private val lock = Any()
+    private val connections = HashMap<String, MintConnection>()
+
+    /**
+     * Subscribe to state updates of [quoteId] on [mintUrl].
+     * @return the subscription id, to be passed to [unsubscribe]
+     */
+    fun subscribe(mintUrl: String, kind: String, quoteId: String, listener: SubscriptionListener): String {
+        val subscription = Subscription(UUID.randomUUID().toString(), kind, quoteId, listener)
+        synchronized(lock) {
+            connections.getOrPut(mintUrl) { MintConnection(mintUrl) }.add(subscription)
+        }
+        return subscription.subId
+    }
+
+    fun unsubscribe(mintUrl: String, subId: String) {
+        synchronized(lock) {
+            connections[mintUrl]?.remove(subId)
+        }
+    }
+
+    /**
+     * True while the shared socket to [mintUrl] is open, i.e. state updates are live.
+     */
+    fun isConnected(mintUrl: String): Boolean = synchronized(lock) { connections[mintUrl]?.isOpen == true }
+
+    /**
+     * Suspend until [quoteId] reaches one of [states] and return that state.
+     * Throws if the mint rejects the subscription; no further updates arrive for the
+     * quote over the socket then. Cancelling the caller removes the subscription.
+     */
+    suspend fun awaitQuoteState(mintUrl: String, kind: String, quoteId: String, states: Set<String>): String {
+        var subId: String? = null
+        try {
+            return suspendCancellableCoroutine { cont ->
+                subId = subscribe(mintUrl, kind, quoteId, object : SubscriptionListener {
+                    override fun onState(state: String) {
+                        if (states.any { it.equals(state, ignoreCase = true) } && cont.isActive) {
+                            cont.resume(state)
+                        }
+                    }
+
+                    override fun onError(error: Exception) {
+                        if (cont.isActive) cont.resumeWithException(error)
+                    }
+                })
+            }
+        } finally {
+            subId?.let { unsubscribe(mintUrl, it) }
+        }
+    }
+
+    /**
+     * The single connection to one mint. All state is guarded by the manager's [lock].
+     */
+    private inner class MintConnection(private val mintUrl: String) : WebSocketListener() {
+
+        private val wsUrl = buildWsUrl(mintUrl)
+        private val subscriptions = LinkedHashMap<String, Subscription>()
+
+        // JSON-RPC request id -> subId, to route subscribe errors
+        private val pendingRequests = HashMap<Int, String>()
+        private var nextRequestId = 0
+
+        private var socket: WebSocket? = null
+        var isOpen = false
+            private set
+        private var reconnectAttempts = 0
+        private var reconnectJob: Job? = null
+        private var idleJob: Job? = null
+
+        fun add(subscription: Subscription) {
+            idleJob?.cancel()
+            idleJob = null
+            subscriptions[subscription.subId] = subscription
+            if (isOpen) {
+                sendSubscribe(subscription)
+            } else if (socket == null && reconnectJob == null) {
+                connect()
+            }
+        }
+
+        fun remove(subId: String) {
+            val subscription = subscriptions.remove(subId) ?: return
+            if (isOpen) sendUnsubscribe(subscription.subId)
+            if (subscriptions.isEmpty()) scheduleIdleClose()
+        }
+
+        private fun connect() {
+            Log.d(TAG, "Connecting to mint WebSocket at $wsUrl")
+            val request = try {
+                Request.Builder().url(wsUrl).build()
+            } catch (e: IllegalArgumentException) {
+                DevLogger.e(TAG, "Invalid mint WebSocket URL: $wsUrl", e)
+                return
+            }
+            socket = client.newWebSocket(request, this)
+        }
+
+        private fun scheduleIdleClose() {
+            idleJob?.cancel()
+            idleJob = scope.launch {
+                delay(IDLE_CLOSE_MS)
+                synchronized(lock) {
+                    if (subscriptions.isNotEmpty()) return@synchronized
+                    Log.d(TAG, "Closing idle mint WebSocket $wsUrl")
+                    reconnectJob?.cancel()
+                    reconnectJob = null
+                    socket?.close(1000, "idle")
+                    socket = null
+                    isOpen = false
+                    connections.remove(mintUrl)
+                }
+            }
+        }
+
+        private fun scheduleReconnect() {
+            if (subscriptions.isEmpty() || reconnectJob != null) return
+            reconnectAttempts++
+            val shift = (reconnectAttempts - 1).coerceIn(0, 10)
+            val delayMs = (RECONNECT_BASE_DELAY_MS shl shift).coerceAtMost(RECONNECT_MAX_DELAY_MS)
+            Log.d(TAG, "Reconnecting to $wsUrl in ${delayMs}ms")
+            reconnectJob = scope.launch {
+                delay(delayMs)
+                synchronized(lock) {
+                    reconnectJob = null
+                    if (subscriptions.isNotEmpty() && socket == null) connect()
+                }
+            }
+        }
+
+        private fun sendSubscribe(subscription: Subscription) {
+            val id = nextRequestId++
+            pendingRequests[id] = subscription.subId
+            send(
+                id, "subscribe", mapOf(
+                    "kind" to subscription.kind,
+                    "subId" to subscription.subId,
+                    "filters" to listOf(subscription.quoteId),
+                )
+            )
+        }
+
+        private fun sendUnsubscribe(subId: String) {
+            send(nextRequestId++, "unsubscribe", mapOf("subId" to subId))
+        }
+
+        private fun send(id: Int, method: String, params: Map<String, Any>) {
+            val msg = mapOf(
+                "jsonrpc" to "2.0",
+                "id" to id,
+                "method" to method,
+                "params" to params,
+            )
+            socket?.send(gson.toJson(msg))
+        }
+
+        override fun onOpen(webSocket: WebSocket, response: Response) {
+            synchronized(lock) {
+                if (webSocket !== socket) return
+                Log.d(TAG, "Mint WebSocket open: $wsUrl (${subscriptions.size} subscriptions)")
+                isOpen = true
+                reconnectAttempts = 0
+                subscriptions.values.forEach { sendSubscribe(it) }
+            }
+        }
+
+        override fun onMessage(webSocket: WebSocket, text: String) {
+            Log.v(TAG, "Mint WS message: $text")
+            val root = try {
+                gson.fromJson(text, JsonObject::class.java) ?: return
+            } catch (t: Throwable) {
+                DevLogger.e(TAG, "Error parsing mint WS message: ${t.message}", t)
+                return
+            }
+
+            if (root.has("error")) {
+                val errorObj = root.getAsJsonObject("error")
+                val code = errorObj["code"]?.asInt
+                val message = errorObj["message"]?.asString
+                val id = root["id"]?.takeIf { it.isJsonPrimitive }?.asInt
+                val subscription = synchronized(lock) {
+                    id?.let { pendingRequests.remove(it) }?.let { subId ->
+                        subscriptions.remove(subId).also {
+                            if (subscriptions.isEmpty()) scheduleIdleClose()
+                        }
+                    }
+                }
+                DevLogger.e(TAG, "Mint WS error code=$code message=$message (subId=${subscription?.subId})")
+                subscription?.listener?.onError(Exception("Mint WS error code=$code message=$message"))
+                return
+            }
+
+            if (root.has("result")) {
+                // subscribe/unsubscribe ACK
+                root["id"]?.takeIf { it.isJsonPrimitive }?.asInt?.let { id ->
+                    synchronized(lock) { pendingRequests.remove(id) }
+                }
+                return
+            }
+
+            if (root.get("method")?.asString != "subscribe") return
+            val params = root.getAsJsonObject("params") ?: return
+            val subId = params.get("subId")?.asString ?: return
+            val state = params.getAsJsonObject("payload")?.get("state")?.asString ?: return
+
+            val subscription = synchronized(lock) { subscriptions[subId] } ?: return
+            Log.d(TAG, "Quote update for quoteId=${subscription.quoteId} state=$state")
+            subscription.listener.onState(state)
+        }
+
+        override fun onClosing(webSocket: WebSocket, code: Int, reason: String) {
+            webSocket.close(1000, null)
+        }
+
+        override fun onFailure(webSocket: WebSocket, t: Throwable, response: Response?) {
+            Log.w(TAG, "Mint WS failure for $wsUrl: ${t.message}")
+            onDisconnected(webSocket)
+        }
+
+        override fun onClosed(webSocket: WebSocket, code: Int, reason: String) {
+            Log.d(TAG, "Mint WS closed: code=$code reason=$reason")
+            onDisconnected(webSocket)
+        }
+
+        private fun onDisconnected(webSocket: WebSocket) {
+            synchronized(lock) {
+                if (webSocket !== socket) return
+                socket = null
+                isOpen = false
+                pendingRequests.clear()
+                scheduleReconnect()
+            }
+        }
+    }
+}
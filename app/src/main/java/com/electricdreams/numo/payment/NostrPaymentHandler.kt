@@ -2,6 +2,7 @@ package com.electricdreams.numo.payment
 
 import android.content.Context
 import android.util.Log
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
 import com.electricdreams.numo.core.util.MintManager
 import com.electricdreams.numo.ndef.CashuPaymentHelper
@@ -17,6 +18,9 @@ import com.electricdreams.numo.nostr.NostrPaymentListener
  * - Creating payment requests with Nostr transport
  * - Starting/stopping the NIP-17 payment listener
  * - Persisting nostr keys for resume capability
+ *
+ * New flows use the session prepared by [PaymentPreparer] while the amount was
+ * being entered when there is one, so the relays are already subscribed.
  */
 class NostrPaymentHandler(
     private val context: Context,
@@ -63,11 +67,13 @@ class NostrPaymentHandler(
         pendingPaymentId: String?,
         callback: Callback
     ) {
-        // Generate new ephemeral keys
-        val eph = NostrKeyPair.generate()
+        val prepared = PaymentPreparer.shared.takeNostr(allowedMints, NOSTR_RELAYS.toList())
+
+        // Use the prepared ephemeral keys, or generate new ones
+        val eph = prepared?.keyPair ?: NostrKeyPair.generate()
         keyPair = eph
         
-        val profile = Nip19.encodeNprofile(eph.publicKeyBytes, NOSTR_RELAYS.toList())
+        val profile = prepared?.nprofile ?: Nip19.encodeNprofile(eph.publicKeyBytes, NOSTR_RELAYS.toList())
         nprofile = profile
         secretHex = eph.hexSec
 
@@ -84,7 +90,7 @@ class NostrPaymentHandler(
         }
 
         // Create and start listener
-        startListener(paymentAmount, eph, profile, callback)
+        startListener(paymentAmount, eph, profile, callback, prepared?.listener)
     }
 
     /**
@@ -112,11 +118,15 @@ class NostrPaymentHandler(
         startListener(paymentAmount, eph, storedNprofile, callback)
     }
 
+    /**
+     * @param preparedListener Listener already subscribed for [eph] and not yet bound
+     */
     private fun startListener(
         paymentAmount: Long,
         eph: NostrKeyPair,
         profile: String,
-        callback: Callback
+        callback: Callback,
+        preparedListener: NostrPaymentListener? = null
     ) {
         val nostrPubHex = eph.hexPub
         val nostrSecret = eph.secretKeyBytes
@@ -142,7 +152,8 @@ class NostrPaymentHandler(
         )
 
         if (request == null) {
-            Log.e(TAG, "Failed to create payment request with Nostr transport")
+            DevLogger.e(TAG, "Failed to create payment request with Nostr transport")
+            preparedListener?.stop()
             callback.onError("Failed to create payment request")
             return
         }
@@ -154,16 +165,20 @@ class NostrPaymentHandler(
         // Stop any existing listener
         listener?.stop()
 
-        // Start new listener
-        listener = NostrPaymentListener(
-            nostrSecret,
-            nostrPubHex,
-            paymentAmount,
-            allowedMints,
-            relayList,
-            { token -> callback.onTokenReceived(token) },
-            { msg, t -> Log.e(TAG, "NostrPaymentListener error: $msg", t) }
-        ).also { it.start() }
+        val onSuccess = NostrPaymentListener.SuccessHandler { token -> callback.onTokenReceived(token) }
+        val onError = NostrPaymentListener.ErrorHandler { msg, t -> DevLogger.e(TAG, "NostrPaymentListener error: $msg", t) }
+
+        // Bind the prepared listener, or start a new one
+        listener = preparedListener?.also { it.bind(paymentAmount, onSuccess, onError) }
+            ?: NostrPaymentListener(
+                nostrSecret,
+                nostrPubHex,
+                paymentAmount,
+                allowedMints,
+                relayList,
+                onSuccess,
+                onError
+            ).also { it.start() }
 
         Log.d(TAG, "Nostr payment listener started")
     }
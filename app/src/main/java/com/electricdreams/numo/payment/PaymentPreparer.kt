@@ -0,0 +1,186 @@
+package com.electricdreams.numo.payment
+
+import android.content.Context
+import android.content.Intent
+import android.util.Log
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.util.MintManager
+import com.electricdreams.numo.ndef.NdefHostCardEmulationService
+import com.electricdreams.numo.nostr.Nip19
+import com.electricdreams.numo.nostr.NostrKeyPair
+import com.electricdreams.numo.nostr.NostrPaymentListener
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+
+/**
+ * Prepares the amount-independent parts of the next payment request while the
+ * merchant is still entering the amount.
+ *
+ * [prepare] generates the ephemeral Nostr key pair, opens the relay subscriptions
+ * for it with an unbound [NostrPaymentListener], and starts the HCE service. When
+ * the charge button is pressed, [NostrPaymentHandler] takes the prepared session
+ * with [takeNostr] and only binds the amount; the HCE and Lightning parts are still
+ * built from the amount as before. Each session is handed out at most once, and is
+ * dropped after [MAX_AGE_MS] so idle relay connections are not kept open.
+ *
+ * @param mintsProvider Mints the merchant currently accepts
+ * @param listenerFactory Creates an unbound listener for a key pair, allowed mints and relays
+ * @param hceWarmUp Starts the HCE service so it is running before the request is set
+ */
+class PaymentPreparer(
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO),
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val mintsProvider: (Context) -> List<String> = { MintManager.getInstance(it).getAllowedMints() },
+    private val listenerFactory: (NostrKeyPair, List<String>, List<String>) -> NostrPaymentListener = { keys, mints, relays ->
+        NostrPaymentListener(keys.secretKeyBytes, keys.hexPub, mints, relays)
+    },
+    private val hceWarmUp: (Context) -> Unit = ::startHceService
+) {
+
+    companion object {
+        private const val TAG = "PaymentPreparer"
+
+        /** A prepared session older than this is discarded instead of used. */
+        const val MAX_AGE_MS = 5 * 60_000L
+
+        /** Preparer shared by the POS keypad and the payment screen. */
+        @JvmStatic
+        val shared: PaymentPreparer by lazy { PaymentPreparer() }
+
+        private fun startHceService(context: Context) {
+            if (NdefHostCardEmulationService.getInstance() != null) return
+            if (!NdefHostCardEmulationService.isHceAvailable(context)) return
+            context.startService(Intent(context, NdefHostCardEmulationService::class.java))
+        }
+    }
+
+    /**
+     * Ephemeral Nostr identity with its listener already subscribed on [relays].
+     * The listener must be bound with [NostrPaymentListener.bind] before use.
+     */
+    class PreparedNostr internal constructor(
+        val keyPair: NostrKeyPair,
+        val nprofile: String,
+        val allowedMints: List<String>,
+        val relays: List<String>,
+        val listener: NostrPaymentListener,
+        internal val preparedAt: Long,
+    )
+
+    private val lock = Any()
+    private var prepared: PreparedNostr? = null
+    private var preparing: Job? = null
+    private var expiry: Job? = null
+
+    /**
+     * Start preparing the next payment unless a fresh session is already prepared
+     * or being prepared. Cheap enough to call on every key press.
+     */
+    fun prepare(context: Context) {
+        val appContext = context.applicationContext
+        synchronized(lock) {
+            if (preparing?.isActive == true) return
+            val current = prepared
+            if (current != null && isFresh(current)) return
+            discardLocked()
+
+            try {
+                hceWarmUp(appContext)
+            } catch (e: Exception) {
+                DevLogger.e(TAG, "Failed to warm up HCE service: ${e.message}", e)
+            }
+
+            preparing = scope.launch {
+                try {
+                    val session = createSession(mintsProvider(appContext))
+                    val keep = synchronized(lock) {
+                        // cancel() may have run while the session was being created
+                        if (preparing == coroutineContext[Job]) {
+                            prepared = session
+                            true
+                        } else {
+                            false
+                        }
+                    }
+                    if (!keep) {
+                        session.listener.stop()
+                        return@launch
+                    }
+                    Log.d(TAG, "Prepared Nostr session for pubkey=${session.keyPair.hexPub}")
+                    scheduleExpiry(session)
+                } catch (e: Exception) {
+                    DevLogger.e(TAG, "Failed to prepare payment session: ${e.message}", e)
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove and return the prepared session if it is fresh and was prepared for
+     * [allowedMints] and [relays]; otherwise discard it and return null.
+     */
+    fun takeNostr(allowedMints: List<String>, relays: List<String>): PreparedNostr? {
+        val session = synchronized(lock) {
+            val current = prepared
+            prepared = null
+            expiry?.cancel()
+            expiry = null
+            current
+        } ?: return null
+
+        if (!isFresh(session) || session.allowedMints != allowedMints || session.relays != relays) {
+            Log.d(TAG, "Discarding prepared Nostr session that no longer matches")
+            session.listener.stop()
+            return null
+        }
+        Log.d(TAG, "Using prepared Nostr session for pubkey=${session.keyPair.hexPub}")
+        return session
+    }
+
+    /**
+     * Drop any prepared session and close its relay connections.
+     */
+    fun cancel() {
+        synchronized(lock) { discardLocked() }
+    }
+
+    private fun createSession(allowedMints: List<String>): PreparedNostr {
+        val relays = NostrPaymentHandler.NOSTR_RELAYS.toList()
+        val keyPair = NostrKeyPair.generate()
+        val nprofile = Nip19.encodeNprofile(keyPair.publicKeyBytes, relays)
+        val listener = listenerFactory(keyPair, allowedMints, relays)
+        listener.start()
+        return PreparedNostr(keyPair, nprofile, allowedMints, relays, listener, clock())
+    }
+
+    private fun scheduleExpiry(session: PreparedNostr) {
+        val job = scope.launch {
+            delay(MAX_AGE_MS)
+            synchronized(lock) {
+                if (prepared !== session) return@launch
+                prepared = null
+                expiry = null
+            }
+            Log.d(TAG, "Prepared Nostr session expired")
+            session.listener.stop()
+        }
+        synchronized(lock) {
+            if (prepared === session) expiry = job else job.cancel()
+        }
+    }
+
+    private fun discardLocked() {
+        preparing?.cancel()
+        preparing = null
+        expiry?.cancel()
+        expiry = null
+        prepared?.listener?.stop()
+        prepared = null
+    }
+
+    private fun isFresh(session: PreparedNostr): Boolean = clock() - session.preparedAt < MAX_AGE_MS
+}
@@ -55,7 +55,7 @@ class PaymentResultHandler(
         )
         
         // Check for auto-withdrawal after successful payment (runs in background)
-        AutoWithdrawManager.getInstance(activity).onPaymentReceived(token, mintUrl)
+        AutoWithdrawManager.getInstance(activity).onPaymentReceived(mintUrl)
         
         // Delegate to callback for unified success handling (feedback + screen)
         mainHandler.post {
@@ -0,0 +1,278 @@
+package com.electricdreams.numo.payment
+
+import android.content.Context
+import android.util.Log
+import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.cashu.MintBalanceLedger
+import com.electricdreams.numo.core.data.PendingPaymentIndex
+import com.electricdreams.numo.core.data.model.PaymentHistoryEntry
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.util.BalanceRefreshBroadcast
+import com.electricdreams.numo.core.util.MintManager
+import com.electricdreams.numo.feature.autowithdraw.AutoWithdrawManager
+import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
+import com.electricdreams.numo.nostr.NostrKeyPair
+import com.electricdreams.numo.nostr.NostrPaymentListener
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeoutOrNull
+import org.cashudevkit.MintUrl
+import org.cashudevkit.QuoteState
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Settles payments that completed while the app was not running.
+ *
+ * Started once per process from the POS screen. For every recent entry in
+ * [PendingPaymentIndex] it checks the payment's Lightning quotes, all in parallel,
+ * and mints the ones that were paid; and it re-attaches a Nostr listener for the
+ * payment's ephemeral key, so a token delivered to the relays in the meantime is
+ * redeemed. Settled payments are completed in the history as if the payment screen
+ * had been open. Only payments created before [start] are recovered, and a payment
+ * the payment screen creates or resumes is handed over with [release], so the two
+ * never watch the same payment. A quote that is already being minted when its
+ * payment is released is still completed here, so minted proofs are never left
+ * without their history entry.
+ *
+ * @param quoteSettler Checks a Lightning quote and mints it if paid; returns whether
+ *                     the quote has been paid
+ * @param listenerFactory Creates a listener for a stored Nostr key, expected amount and
+ *                        allowed mints
+ */
+class PendingPaymentRecovery(
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO),
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val walletReady: () -> Boolean = { CashuWalletManager.getWallet() != null },
+    private val quoteSettler: suspend (mintUrl: String, quoteId: String) -> Boolean = ::settleQuote,
+    private val listenerFactory: (
+        keyPair: NostrKeyPair,
+        amountSats: Long,
+        allowedMints: List<String>,
+        onToken: (String) -> Unit
+    ) -> NostrPaymentListener = ::createListener
+) {
+
+    companion object {
+        private const val TAG = "PendingPaymentRecovery"
+
+        /** Pending payments older than this are left for the merchant to resume by hand. */
+        const val RECOVERY_WINDOW_MS = 24 * 60 * 60_000L
+
+        /** How long a re-attached Nostr listener waits for a token delivered while the app was dead. */
+        const val NOSTR_LISTEN_MS = 2 * 60_000L
+
+        const val WALLET_WAIT_MS = 30_000L
+        private const val WALLET_POLL_MS = 200L
+
+        /** Recovery shared by the POS and payment screens. */
+        @JvmStatic
+        val shared: PendingPaymentRecovery by lazy { PendingPaymentRecovery() }
+
+        private suspend fun settleQuote(mintUrl: String, quoteId: String): Boolean {
+            val wallet = CashuWalletManager.getWallet() ?: throw IllegalStateException("Wallet not ready")
+            val mint = MintUrl(mintUrl)
+            val quote = MintHealthTracker.shared.track("mint.check_quote", mintUrl) {
+                wallet.checkMintQuote(mint, quoteId)
+            }
+            return when (quote.state) {
+                QuoteState.PAID -> {
+                    val proofs = MintHealthTracker.shared.track("mint.mint", mintUrl) { wallet.mint(mint, quoteId, null) }
+                    MintBalanceLedger.credit(mintUrl, proofs.sumOf { it.amount.value.toLong() })
+                    true
+                }
+                // Minted before the app stopped; the proofs are already in the wallet
+                QuoteState.ISSUED -> true
+                else -> false
+            }
+        }
+
+        private fun createListener(
+            keyPair: NostrKeyPair,
+            amountSats: Long,
+            allowedMints: List<String>,
+            onToken: (String) -> Unit
+        ): NostrPaymentListener = NostrPaymentListener(
+            keyPair.secretKeyBytes,
+            keyPair.hexPub,
+            amountSats,
+            allowedMints,
+            NostrPaymentHandler.NOSTR_RELAYS.toList(),
+            { token -> onToken(token) },
+            { msg, t -> DevLogger.e(TAG, "Recovered NostrPaymentListener error: $msg", t) }
+        )
+    }
+
+    private class Recovery(val job: Job, var listener: NostrPaymentListener? = null)
+
+    private val started = AtomicBoolean(false)
+    private val lock = Any()
+    private val recoveries = HashMap<String, Recovery>()
+
+    // Payments taken over before recovery got to them
+    private val released = HashSet<String>()
+
+    /**
+     * Start recovering payments that were pending before this call. Only the first call
+     * in a process has an effect.
+     */
+    fun start(context: Context) {
+        if (!started.compareAndSet(false, true)) return
+        val appContext = context.applicationContext
+        // Payments created from here on belong to a payment screen of this process
+        val startedAt = clock()
+
+        scope.launch {
+            // The wallet is built in the background when the POS screen starts
+            val ready = withTimeoutOrNull(WALLET_WAIT_MS) {
+                while (!walletReady()) delay(WALLET_POLL_MS)
+                true
+            }
+            if (ready == null) {
+                Log.w(TAG, "Wallet not ready after $WALLET_WAIT_MS ms, skipping pending payment recovery")
+                return@launch
+            }
+
+            val cutoff = startedAt - RECOVERY_WINDOW_MS
+            val pending = PendingPaymentIndex.getAll(appContext).filter { it.createdAt in cutoff..startedAt }
+            if (pending.isEmpty()) return@launch
+            Log.d(TAG, "Recovering ${pending.size} pending payments")
+
+            val allowedMints = MintManager.getInstance(appContext).getAllowedMints()
+            synchronized(lock) {
+                for (entry in pending) {
+                    if (entry.id in released) continue
+                    recoveries[entry.id] = Recovery(launch { recover(appContext, entry, allowedMints) })
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop recovering [paymentId], because the payment screen has taken it over. A quote
+     * of the payment that is being minted at this point is still completed here.
+     */
+    fun release(paymentId: String) {
+        val recovery = synchronized(lock) {
+            released.add(paymentId)
+            recoveries.remove(paymentId)
+        } ?: return
+        Log.d(TAG, "Handing pending payment $paymentId over to the payment screen")
+        recovery.job.cancel()
+        recovery.listener?.stop()
+    }
+
+    private suspend fun recover(context: Context, entry: PendingPaymentIndex.Entry, allowedMints: List<String>) {
+        val quotes = listOfNotNull(
+            quoteOf(entry.lightningMintUrl, entry.lightningQuoteId),
+            quoteOf(entry.swapLightningMintUrl, entry.swapLightningQuoteId),
+        ).distinct()
+
+        for ((mintUrl, quoteId) in quotes) {
+            // Released while the previous quote was checked
+            currentCoroutineContext().ensureActive()
+            // A mint cannot be undone, so a release must not drop the proofs between
+            // minting and recording the payment
+            val paid = withContext(NonCancellable) {
+                val paid = try {
+                    quoteSettler(mintUrl, quoteId)
+                } catch (e: Exception) {
+                    Log.w(TAG, "Could not check quote $quoteId for pending payment ${entry.id}: ${e.message}")
+                    false
+                }
+                if (paid) {
+                    Log.i(TAG, "Pending payment ${entry.id} was paid over Lightning while the app was closed")
+                    complete(
+                        context, entry.id, "", PaymentHistoryEntry.TYPE_LIGHTNING, mintUrl,
+                        entry.lightningInvoice, quoteId, minted = true
+                    )
+                }
+                paid
+            }
+            if (paid) return
+        }
+
+        val secretHex = entry.nostrSecretHex ?: run {
+            finish(entry.id)
+            return
+        }
+        val keyPair = try {
+            NostrKeyPair.fromSecretHex(secretHex)
+        } catch (e: IllegalArgumentException) {
+            DevLogger.e(TAG, "Invalid stored Nostr key for pending payment ${entry.id}", e)
+            finish(entry.id)
+            return
+        }
+
+        val listener = listenerFactory(keyPair, entry.amount, allowedMints) { token ->
+            Log.i(TAG, "Pending payment ${entry.id} was paid over Nostr while the app was closed")
+            val mintUrl = if (token.isEmpty()) null else {
+                try {
+                    com.cashujdk.nut00.Token.decode(token).mint
+                } catch (e: Exception) {
+                    null
+                }
+            }
+            val type = if (token.isEmpty()) PaymentHistoryEntry.TYPE_LIGHTNING else PaymentHistoryEntry.TYPE_CASHU
+            complete(context, entry.id, token, type, mintUrl, null, null)
+        }
+        val attached = synchronized(lock) {
+            recoveries[entry.id]?.also { it.listener = listener } != null
+        }
+        if (!attached) return
+
+        try {
+            listener.start()
+            delay(NOSTR_LISTEN_MS)
+        } finally {
+            listener.stop()
+            finish(entry.id)
+        }
+    }
+
+    private fun complete(
+        context: Context,
+        paymentId: String,
+        token: String,
+        paymentType: String,
+        mintUrl: String?,
+        lightningInvoice: String?,
+        lightningQuoteId: String?,
+        minted: Boolean = false
+    ) {
+        // Skip if the payment screen took the payment over in the meantime, unless the
+        // proofs are already in the wallet
+        val recovery = synchronized(lock) { recoveries.remove(paymentId) }
+        if (recovery == null && !minted) return
+        recovery?.listener?.stop()
+        recovery?.job?.cancel()
+
+        val isLightning = paymentType == PaymentHistoryEntry.TYPE_LIGHTNING
+        PaymentsHistoryActivity.completePendingPayment(
+            context = context,
+            paymentId = paymentId,
+            token = token,
+            paymentType = paymentType,
+            mintUrl = mintUrl,
+            lightningInvoice = lightningInvoice,
+            lightningQuoteId = lightningQuoteId,
+            lightningMintUrl = if (isLightning) mintUrl else null,
+        )
+        BalanceRefreshBroadcast.send(context, BalanceRefreshBroadcast.REASON_PAYMENT_RECEIVED)
+        AutoWithdrawManager.getInstance(context).onPaymentReceived(mintUrl)
+    }
+
+    private fun finish(paymentId: String) {
+        synchronized(lock) { recoveries.remove(paymentId) }
+    }
+
+    private fun quoteOf(mintUrl: String?, quoteId: String?): Pair<String, String>? =
+        if (mintUrl != null && quoteId != null) mintUrl to quoteId else null
+}
@@ -0,0 +1,56 @@
+package com.electricdreams.numo.payment
+
+import kotlin.math.ceil
+
+/**
+ * Recent Lightning fee reserves quoted by unknown mints, per (unknown mint, Lightning mint) pair.
+ *
+ * A swap needs the fee reserve before it can size the Lightning invoice. Without an
+ * estimate it has to probe with a throwaway mint quote and melt quote first; with one it
+ * can request the final invoice straight away. Estimates are scaled linearly from the
+ * amount they were recorded for and are only reused for amounts within a factor of
+ * [MAX_AMOUNT_FACTOR] of it, and for [ESTIMATE_TTL_MS].
+ */
+class SwapFeeEstimates(
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    companion object {
+        const val ESTIMATE_TTL_MS = 30 * 60_000L
+        const val MAX_AMOUNT_FACTOR = 2.0
+    }
+
+    private data class Key(val unknownMintUrl: String, val lightningMintUrl: String)
+
+    private class Estimate(val amountSats: Long, val feeReserveSats: Long, val recordedAt: Long)
+
+    private val estimates = HashMap<Key, Estimate>()
+
+    /**
+     * Expected fee reserve for swapping [amountSats] from [unknownMintUrl] to
+     * [lightningMintUrl], or null if there is no recent estimate for a similar amount.
+     */
+    @Synchronized
+    fun estimate(unknownMintUrl: String, lightningMintUrl: String, amountSats: Long): Long? {
+        val key = Key(unknownMintUrl, lightningMintUrl)
+        val estimate = estimates[key] ?: return null
+        if (clock() - estimate.recordedAt >= ESTIMATE_TTL_MS) {
+            estimates.remove(key)
+            return null
+        }
+        val factor = amountSats.toDouble() / estimate.amountSats
+        if (factor > MAX_AMOUNT_FACTOR || factor < 1 / MAX_AMOUNT_FACTOR) return null
+        return ceil(estimate.feeReserveSats * factor).toLong()
+    }
+
+    @Synchronized
+    fun record(unknownMintUrl: String, lightningMintUrl: String, amountSats: Long, feeReserveSats: Long) {
+        if (amountSats <= 0 || feeReserveSats < 0) return
+        estimates[Key(unknownMintUrl, lightningMintUrl)] = Estimate(amountSats, feeReserveSats, clock())
+    }
+
+    @Synchronized
+    fun invalidate(unknownMintUrl: String, lightningMintUrl: String) {
+        estimates.remove(Key(unknownMintUrl, lightningMintUrl))
+    }
+}
@@ -2,10 +2,14 @@ package com.electricdreams.numo.payment
 
 import android.util.Log
 import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.cashu.MintBalanceLedger
+import com.electricdreams.numo.core.cashu.TemporaryWalletPool
 import com.electricdreams.numo.core.data.model.PaymentHistoryEntry
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.util.MintManager
 import com.electricdreams.numo.nostr.Bech32
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
 import kotlinx.coroutines.withContext
 import org.cashudevkit.Amount as CdkAmount
 import org.cashudevkit.MeltQuote
@@ -31,6 +35,10 @@ import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
  *    to the payment hash encoded in the BOLT11 invoice.
  * 8. Rely on the existing LightningMintHandler flow to mint proofs on the
  *    Lightning mint once the invoice is paid.
+ *
+ * Requests to the two mints are overlapped where they do not depend on each
+ * other, and the fee reserve quoted for a mint pair is remembered in
+ * [SwapFeeEstimates] so the next swap can skip the probing quotes.
  */
 object SwapToLightningMintManager {
 
@@ -40,6 +48,9 @@ object SwapToLightningMintManager {
     private const val MAX_FEE_RESERVE_RATIO = 0.05
     private const val MIN_FEE_OVERHEAD = 0.005
 
+    /** Recent fee reserves per mint pair, used to skip the probing quotes. */
+    internal val feeEstimates = SwapFeeEstimates()
+
     /**
      * Result of attempting to swap a payment from an unknown mint.
      */
@@ -95,39 +106,30 @@ object SwapToLightningMintManager {
                 "cashuTokenLength=${cashuToken.length}"
         )
 
-        // 1) Create a temporary single-mint Wallet and receive the payer's
-        //    token so that it holds the proofs we want to melt. This wallet
-        //    is entirely ephemeral and uses its own random seed.
-
-        val tempWallet = try {
-            CashuWalletManager.getTemporaryWalletForMint(unknownMintUrl)
-        } catch (t: Throwable) {
-            val msg = "Failed to create temporary wallet for unknown mint: ${'$'}{t.message}"
-            Log.e(TAG, msg, t)
-            return@withContext SwapResult.Failure(msg)
-        }
-        val keysetsInfos = tempWallet.refreshKeysets()
-
-        Log.d(TAG, "swapFromUnknownMint: temporary wallet created for mint=$unknownMintUrl")
-
         val wallet = CashuWalletManager.getWallet()
             ?: run {
-                Log.e(TAG, "swapFromUnknownMint: main wallet not initialized for Lightning mint")
+                DevLogger.e(TAG, "swapFromUnknownMint: main wallet not initialized for Lightning mint")
                 return@withContext SwapResult.Failure("Wallet not initialized for Lightning mint")
             }
 
         Log.d(TAG, "swapFromUnknownMint: main wallet for Lightning mint is available")
 
-        val cdkToken = org.cashudevkit.Token.decode(cashuToken)
-
-        val proofs = cdkToken.proofs(keysetsInfos)
-        Log.d(TAG, "swapFromUnknownMint: decoded Cashu token with ${proofs.size} proofs")
+        val mintManager = MintManager.getInstance(appContext)
+        val lightningMintUrl = mintManager.getPreferredLightningMint()
+            ?: run {
+                DevLogger.e(TAG, "No preferred Lightning mint configured")
+                return@withContext SwapResult.Failure("No Lightning mint configured")
+            }
+        Log.d(TAG, "swapFromUnknownMint: preferred Lightning mint is $lightningMintUrl")
 
-        // We request a mint quote, just to have the bolt11 request to feed to the melt quote request
-        // Then, we take the fee estimate from the melt quote response and
-        // ask for a new mint quote with the adjusted amount
+        // We need a bolt11 request to get a melt quote, and the melt quote's fee
+        // reserve to size the bolt11 request. Without a recent fee estimate for this
+        // pair of mints we first probe with a mint quote at the 5% fee buffer, take the
+        // fee estimate from its melt quote and ask for a new mint quote with the
+        // adjusted amount. With an estimate we request the final mint quote directly.
 
         val feeBuffer = kotlin.math.ceil(paymentContext.amountSats * MAX_FEE_RESERVE_RATIO).toLong()
+        val minOverhead = kotlin.math.ceil(paymentContext.amountSats * MIN_FEE_OVERHEAD).toLong()
         var lightningAmount = paymentContext.amountSats - feeBuffer
 
         Log.d(
@@ -138,92 +140,137 @@ object SwapToLightningMintManager {
 
         if (lightningAmount <= 0L) {
             val msg = "Received amount $lightningAmount is too small after 5% fee buffer"
-            Log.e(TAG, msg)
-            try { tempWallet.close() } catch (_: Throwable) {}
+            DevLogger.e(TAG, msg)
             return@withContext SwapResult.Failure(msg)
         }
 
-        val mintManager = MintManager.getInstance(appContext)
-        val lightningMintUrl = mintManager.getPreferredLightningMint()
-            ?: run {
-                Log.e(TAG, "No preferred Lightning mint configured")
-                try { tempWallet.close() } catch (_: Throwable) {}
-                return@withContext SwapResult.Failure("No Lightning mint configured")
+        val cachedFeeReserve = feeEstimates
+            .estimate(unknownMintUrl, lightningMintUrl, paymentContext.amountSats)
+            ?.takeIf { it <= feeBuffer }
+        if (cachedFeeReserve != null) {
+            lightningAmount = paymentContext.amountSats - minOverhead - cachedFeeReserve
+            Log.d(TAG, "swapFromUnknownMint: using cached fee reserve estimate=$cachedFeeReserve, skipping probe quote")
+        }
+
+        // 1) Create a temporary single-mint Wallet that will hold the payer's
+        //    proofs, and request the first Lightning mint quote. The two talk to
+        //    different mints, so both round-trips run at the same time. The
+        //    temporary wallet is entirely ephemeral and uses its own random seed.
+        //    Wallets for recently seen mints come prepared from the pool.
+        val tempWalletSetup = async {
+            runCatching { TemporaryWalletPool.shared.acquire(unknownMintUrl) }
+        }
+        val firstMintQuoteAmount = lightningAmount
+        val firstMintQuote = async {
+            Log.d(
+                TAG,
+                "swapFromUnknownMint: requesting Lightning mint quote: " +
+                    "lightningMintUrl=$lightningMintUrl, amount=$firstMintQuoteAmount, probe=${cachedFeeReserve == null}"
+            )
+            runCatching {
+                MintHealthTracker.shared.track("mint.quote", lightningMintUrl) {
+                    wallet.mintQuote(MintUrl(lightningMintUrl), CdkAmount(firstMintQuoteAmount.toULong()), null)
+                }
             }
-        Log.d(TAG, "swapFromUnknownMint: preferred Lightning mint is $lightningMintUrl")
+        }
 
-        Log.d(
-            TAG,
-            "swapFromUnknownMint: requesting initial Lightning mint quote for fee estimation: " +
-                "lightningMintUrl=$lightningMintUrl, amount=$lightningAmount"
-        )
+        val (tempWallet, keysetsInfos) = tempWalletSetup.await().getOrElse { t ->
+            firstMintQuote.cancel()
+            val msg = "Failed to create temporary wallet for unknown mint: ${t.message}"
+            DevLogger.e(TAG, msg, t)
+            return@withContext SwapResult.Failure(msg)
+        }
+
+        Log.d(TAG, "swapFromUnknownMint: temporary wallet created for mint=$unknownMintUrl")
 
-        val mintQuote = wallet.mintQuote(MintUrl(lightningMintUrl), CdkAmount(lightningAmount.toULong()), null)
+        var finalMintQuote = firstMintQuote.await().getOrElse { t ->
+            val msg = "Failed to request Lightning mint quote: ${t.message}"
+            DevLogger.e(TAG, msg, t)
+            try { tempWallet.close() } catch (_: Throwable) {}
+            return@withContext SwapResult.Failure(msg)
+        }
 
         Log.d(
             TAG,
-            "swapFromUnknownMint: received initial Lightning mint quote: " +
-                "quoteId=${mintQuote.id}, requestLength=${mintQuote.request.length}"
+            "swapFromUnknownMint: received Lightning mint quote: " +
+                "quoteId=${finalMintQuote.id}, requestLength=${finalMintQuote.request.length}"
         )
 
+        val cdkToken = org.cashudevkit.Token.decode(cashuToken)
+
+        val proofs = cdkToken.proofs(keysetsInfos)
+        Log.d(TAG, "swapFromUnknownMint: decoded Cashu token with ${proofs.size} proofs")
+
         var meltQuote: MeltQuote = try {
-            Log.d(TAG, "swapFromUnknownMint: requesting initial melt quote from unknown mint for preliminary Lightning invoice")
-            tempWallet.meltQuote(mintQuote.request, null)
+            Log.d(TAG, "swapFromUnknownMint: requesting melt quote from unknown mint for Lightning invoice")
+            tempWallet.meltQuote(finalMintQuote.request, null)
         } catch (t: Throwable) {
-            val msg = "Failed to request melt quote from unknown mint: ${'$'}{t.message}"
-            Log.e(TAG, msg, t)
+            val msg = "Failed to request melt quote from unknown mint: ${t.message}"
+            DevLogger.e(TAG, msg, t)
             tempWallet.close()
             return@withContext SwapResult.Failure(msg)
         }
 
-        val feeReserveEstimate = meltQuote.feeReserve.value.toLong()
-        Log.d(
-            TAG,
-            "swapFromUnknownMint: initial melt quote from unknown mint: " +
-                "meltQuoteId=${meltQuote.id}, amount=${meltQuote.amount.value.toLong()}, feeReserveEstimate=$feeReserveEstimate"
-        )
-        if (feeReserveEstimate > feeBuffer) {
-            val msg = "Lightning fee reserve estimate is too big ($feeReserveEstimate)"
-            Log.e(TAG, msg)
-            try { tempWallet.close() } catch (_: Throwable) {}
-            return@withContext SwapResult.Failure(msg)
-        }
+        val cachedEstimateTooLow = cachedFeeReserve != null &&
+            meltQuote.amount.value.toLong() + meltQuote.feeReserve.value.toLong() > paymentContext.amountSats
+        if (cachedFeeReserve == null || cachedEstimateTooLow) {
+            // The quotes above were only a probe: size the final invoice from the
+            // fee reserve the unknown mint just quoted.
+            if (cachedEstimateTooLow) {
+                Log.d(TAG, "swapFromUnknownMint: cached fee reserve estimate=$cachedFeeReserve too low, re-quoting")
+                feeEstimates.invalidate(unknownMintUrl, lightningMintUrl)
+            }
 
-        val minOverhead = kotlin.math.ceil(paymentContext.amountSats * MIN_FEE_OVERHEAD).toLong()
-        lightningAmount = paymentContext.amountSats - minOverhead - feeReserveEstimate
+            val feeReserveEstimate = meltQuote.feeReserve.value.toLong()
+            Log.d(
+                TAG,
+                "swapFromUnknownMint: probe melt quote from unknown mint: " +
+                    "meltQuoteId=${meltQuote.id}, amount=${meltQuote.amount.value.toLong()}, feeReserveEstimate=$feeReserveEstimate"
+            )
+            if (feeReserveEstimate > feeBuffer) {
+                val msg = "Lightning fee reserve estimate is too big ($feeReserveEstimate)"
+                DevLogger.e(TAG, msg)
+                try { tempWallet.close() } catch (_: Throwable) {}
+                return@withContext SwapResult.Failure(msg)
+            }
 
-        Log.d(
-            TAG,
-            "swapFromUnknownMint: adjusted Lightning amount=$lightningAmount after applying " +
-                "minFeeOverheadCeil=$minOverhead and feeReserveEstimate=$feeReserveEstimate"
-        )
+            lightningAmount = paymentContext.amountSats - minOverhead - feeReserveEstimate
 
-        Log.d(
-            TAG,
-            "swapFromUnknownMint: requesting Lightning mint quote: " +
-                "lightningMintUrl=$lightningMintUrl, mintQuoteAmount=$lightningAmount"
-        )
+            Log.d(
+                TAG,
+                "swapFromUnknownMint: adjusted Lightning amount=$lightningAmount after applying " +
+                    "minFeeOverheadCeil=$minOverhead and feeReserveEstimate=$feeReserveEstimate"
+            )
+
+            finalMintQuote = try {
+                MintHealthTracker.shared.track("mint.quote", lightningMintUrl) {
+                    wallet.mintQuote(MintUrl(lightningMintUrl), CdkAmount(lightningAmount.toULong()), null)
+                }
+            } catch (t: Throwable) {
+                val msg = "Failed to request Lightning mint quote: ${t.message}"
+                DevLogger.e(TAG, msg, t)
+                try { tempWallet.close() } catch (_: Throwable) {}
+                return@withContext SwapResult.Failure(msg)
+            }
 
-        val finalMintQuote = wallet.mintQuote(MintUrl(lightningMintUrl), CdkAmount(lightningAmount.toULong()), null)
+            // 4) Request a melt quote from the unknown mint for this bolt11.
+            meltQuote = try {
+                Log.d(TAG, "swapFromUnknownMint: requesting final melt quote from unknown mint using Lightning bolt11 invoice")
+                tempWallet.meltQuote(finalMintQuote.request, null)
+            } catch (t: Throwable) {
+                val msg = "Failed to request melt quote from unknown mint: ${t.message}"
+                DevLogger.e(TAG, msg, t)
+                tempWallet.close()
+                return@withContext SwapResult.Failure(msg)
+            }
+        }
 
-        val bolt11 = finalMintQuote.request
         Log.d(
             TAG,
             "swapFromUnknownMint: using Lightning invoice for swap: " +
-                "quoteId=${finalMintQuote.id}, bolt11Length=${bolt11.length}"
+                "quoteId=${finalMintQuote.id}, bolt11Length=${finalMintQuote.request.length}"
         )
 
-        // 4) Request a melt quote from the unknown mint for this bolt11.
-        meltQuote = try {
-            Log.d(TAG, "swapFromUnknownMint: requesting final melt quote from unknown mint using Lightning bolt11 invoice")
-            tempWallet.meltQuote(bolt11, null)
-        } catch (t: Throwable) {
-            val msg = "Failed to request melt quote from unknown mint: ${'$'}{t.message}"
-            Log.e(TAG, msg, t)
-            tempWallet.close()
-            return@withContext SwapResult.Failure(msg)
-        }
-
         val quoteAmount = meltQuote.amount.value.toLong()
         val feeReserve = meltQuote.feeReserve.value.toLong()
 
@@ -240,10 +287,13 @@ object SwapToLightningMintManager {
 
         if (quoteAmount <= 0) {
             val msg = "Invalid melt quote amount (zero or negative)"
-            Log.e(TAG, msg)
+            DevLogger.e(TAG, msg)
+            try { tempWallet.close() } catch (_: Throwable) {}
             return@withContext SwapResult.Failure(msg)
         }
 
+        feeEstimates.record(unknownMintUrl, lightningMintUrl, paymentContext.amountSats, feeReserve)
+
         val totalMeltRequired = quoteAmount + feeReserve
         if (totalMeltRequired > paymentContext.amountSats) {
             val msg = "Unknown-mint melt requires $totalMeltRequired sats but temp wallet balance is ${paymentContext.amountSats}"
@@ -290,7 +340,7 @@ object SwapToLightningMintManager {
             tempWallet.meltProofs(meltQuote.id, proofs)
         } catch (t: Throwable) {
             val msg = "Melt execution failed on unknown mint: ${t.message}"
-            Log.e(TAG, msg, t)
+            DevLogger.e(TAG, msg, t)
             return@withContext SwapResult.Failure(msg)
         } finally {
             try {
@@ -330,20 +380,23 @@ object SwapToLightningMintManager {
                 org.cashudevkit.QuoteState.PAID -> {
                     Log.d(TAG, "Lightning quote is PAID; attempting wallet.mint for quoteId=${finalMintQuote.id}")
                     val mintedProofs = try {
-                        wallet.mint(lightningMint, finalMintQuote.id, null)
+                        MintHealthTracker.shared.track("mint.mint", lightningMintUrl) {
+                            wallet.mint(lightningMint, finalMintQuote.id, null)
+                        }
                     } catch (mintError: Throwable) {
                         val msg = "Failed to mint proofs on Lightning mint for quoteId=${finalMintQuote.id}: ${mintError.message}"
-                        Log.e(TAG, msg, mintError)
+                        DevLogger.e(TAG, msg, mintError)
                         return@withContext SwapResult.Failure(msg)
                     }
 
                     if (mintedProofs.isEmpty()) {
                         val msg = "Lightning mint returned no proofs for paid quoteId=${finalMintQuote.id}"
-                        Log.e(TAG, msg)
+                        DevLogger.e(TAG, msg)
                         return@withContext SwapResult.Failure(msg)
                     }
 
                     Log.d(TAG, "Minted ${mintedProofs.size} proofs on Lightning mint as part of swap flow")
+                    MintBalanceLedger.credit(lightningMintUrl, mintedProofs.sumOf { it.amount.value.toLong() })
                 }
                 org.cashudevkit.QuoteState.ISSUED -> {
                     // Quote already issued/minted by another component (e.g. LightningMintHandler).
@@ -6,6 +6,8 @@ import android.nfc.Tag;
 import android.nfc.tech.IsoDep;
 import android.util.Log;
 
+import com.electricdreams.numo.core.dev.DevLogger;
+import com.electricdreams.numo.core.dev.Metrics;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -249,7 +251,7 @@ public class SatocashNfcClient {
                 ECPublicKey bcPubKey = (org.bouncycastle.jce.interfaces.ECPublicKey) clientPublicKey;
                 return bcPubKey.getQ().getEncoded(false); // false for uncompressed
             } else {
-                Log.e(TAG, "Client public key is not a Bouncy Castle ECPublicKey. Cannot get uncompressed bytes.");
+                DevLogger.e(TAG, "Client public key is not a Bouncy Castle ECPublicKey. Cannot get uncompressed bytes.");
                 throw new NoSuchAlgorithmException("Bouncy Castle EC public key not found for uncompressed export.");
             }
         }
@@ -424,12 +426,12 @@ public class SatocashNfcClient {
 
             int paddingLength = paddedData[paddedData.length - 1] & 0xFF;
             if (paddingLength == 0 || paddingLength > paddedData.length) {
-                Log.e(TAG, "Invalid PKCS#7 padding length: " + paddingLength);
+                DevLogger.e(TAG, "Invalid PKCS#7 padding length: " + paddingLength);
                 throw new SatocashException("Invalid PKCS#7 padding", SW_UNKNOWN_ERROR);
             }
             for (int i = 0; i < paddingLength; i++) {
                 if ((paddedData[paddedData.length - 1 - i] & 0xFF) != paddingLength) {
-                    Log.e(TAG, "PKCS#7 padding byte mismatch.");
+                    DevLogger.e(TAG, "PKCS#7 padding byte mismatch.");
                     throw new SatocashException("PKCS#7 padding byte mismatch", SW_UNKNOWN_ERROR);
                 }
             }
@@ -492,24 +494,37 @@ public class SatocashNfcClient {
         byte[] apdu = apduStream.toByteArray();
         Log.d(TAG, "Sending APDU: " + bytesToHex(apdu));
 
+        long start = System.nanoTime();
         try {
             byte[] response = mIsoDep.transceive(apdu);
+            Metrics.histogram("satocash.apdu").recordNanos(System.nanoTime() - start);
             int sw = ((response[response.length - 2] & 0xFF) << 8) | (response[response.length - 1] & 0xFF);
             byte[] responseData = Arrays.copyOfRange(response, 0, response.length - 2);
 
             Log.d(TAG, "Response: " + bytesToHex(responseData) + " SW: " + String.format("0x%04X", sw));
 
             if (sw != SW_SUCCESS) {
+                if (sw >= SW_SECURE_CHANNEL_REQUIRED && sw <= SW_SECURE_CHANNEL_WRONG_MAC) {
+                    recordSecureChannelFailure(String.format("%04X", sw));
+                }
                 throw new SatocashException("APDU command failed", sw);
             }
             return responseData;
 
         } catch (IOException e) {
-            Log.e(TAG, "APDU transmission error: " + e.getMessage(), e);
+            DevLogger.e(TAG, "APDU transmission error: " + e.getMessage(), e);
+            Metrics.counter("satocash.transmission_errors").increment();
             throw new SatocashException("APDU transmission error: " + e.getMessage(), SW_UNKNOWN_ERROR);
         }
     }
 
+    /**
+     * Count a secure channel failure, labelled with its cause or the card's status word.
+     */
+    private static void recordSecureChannelFailure(String cause) {
+        Metrics.counter("satocash.secure_channel_failures", cause).increment();
+    }
+
     public byte[] sendSecureApdu(byte cla, byte ins, byte p1, byte p2, byte[] data) throws SatocashException {
         if (!secureChannelActive) {
             throw new SatocashException("Secure channel not initialized", SW_SECURE_CHANNEL_UNINITIALIZED);
@@ -542,7 +557,12 @@ public class SatocashNfcClient {
             );
 
             if (response != null && response.length > 0) {
-                return secureChannel.decryptResponse(response);
+                try {
+                    return secureChannel.decryptResponse(response);
+                } catch (SatocashException e) {
+                    recordSecureChannelFailure("decrypt");
+                    throw e;
+                }
             } else {
                 return null;
             }
@@ -550,7 +570,8 @@ public class SatocashNfcClient {
         } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException |
                  InvalidAlgorithmParameterException | IOException | IllegalBlockSizeException |
                  BadPaddingException e) {
-            Log.e(TAG, "Secure APDU encryption/decryption error: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Secure APDU encryption/decryption error: " + e.getMessage(), e);
+            recordSecureChannelFailure("crypto");
             throw new SatocashException("Secure APDU processing error: " + e.getMessage(), SW_INTERNAL_ERROR);
         }
     }
@@ -1103,9 +1124,13 @@ public class SatocashNfcClient {
             secureChannelActive = true;
             Log.d(TAG, "Secure channel initialized successfully!");
             return true;
+        } catch (SatocashException e) {
+            recordSecureChannelFailure("handshake");
+            throw e;
         } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException | InvalidKeyException |
                  InvalidKeySpecException e) {
-            Log.e(TAG, "Secure channel initialization failed: " + e.getMessage(), e);
+            DevLogger.e(TAG, "Secure channel initialization failed: " + e.getMessage(), e);
+            recordSecureChannelFailure("handshake");
             throw new SatocashException("Secure channel initialization failed: " + e.getMessage(), SW_INTERNAL_ERROR);
         } catch (NoSuchProviderException e) {
             throw new RuntimeException(e);
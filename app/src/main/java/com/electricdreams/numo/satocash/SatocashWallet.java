@@ -11,6 +11,7 @@ import com.cashujdk.nut01.*;
 import com.cashujdk.nut02.*;
 import com.cashujdk.nut03.*;
 import com.cashujdk.utils.*;
+import com.electricdreams.numo.core.dev.DevLogger;
 import org.bouncycastle.math.ec.ECPoint;
 import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
@@ -280,7 +281,7 @@ public class SatocashWallet {
                         notifySuccess();
                         return new Token(receiveProofs, "sat", mintUrl).encode();
                     } catch (RuntimeException e) {
-                        Log.e(TAG, "Something went wrong. Re-importing extracted proofs to card.");
+                        DevLogger.e(TAG, "Something went wrong. Re-importing extracted proofs to card.");
                         List<Proof> proofInfos = exportedProofInfos.stream().map((pf) -> {
                             return new Proof(
                                     1L << pf.amountExponent,
@@ -456,7 +457,7 @@ public class SatocashWallet {
             ECPoint C = computeC(hexToPoint(signature.c_), blindingFactor, key);
 
             if (!verifyProof(messageToCurve(secret.getSecret()), blindingFactor, C, signature.dleq.e, signature.dleq.s, key)) {
-                Log.e(TAG, String.format("Couldn't verify signature: %s", signature.c_));
+                DevLogger.e(TAG, String.format("Couldn't verify signature: %s", signature.c_));
             }
             result.add(new Proof(signature.amount, signature.keysetId, secret, pointToHex(C, true), Optional.empty(), Optional.empty()));
         }
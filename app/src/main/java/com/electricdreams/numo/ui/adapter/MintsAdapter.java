@@ -1,8 +1,6 @@
 package com.electricdreams.numo.ui.adapter;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -21,14 +19,10 @@ import com.electricdreams.numo.core.util.MintIconCache;
 import com.electricdreams.numo.core.util.MintManager;
 import com.google.android.material.imageview.ShapeableImageView;
 
-import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import kotlinx.coroutines.BuildersKt;
-import kotlin.coroutines.EmptyCoroutineContext;
-
 /**
  * Adapter for the list of allowed mints in settings
  */
@@ -144,6 +138,12 @@ public class MintsAdapter extends RecyclerView.Adapter<MintsAdapter.MintViewHold
         holder.bind(mint);
     }
     
+    @Override
+    public void onViewRecycled(@NonNull MintViewHolder holder) {
+        super.onViewRecycled(holder);
+        MintIconCache.cancel(holder.mintIcon);
+    }
+    
     @Override
     public int getItemCount() {
         return mints.size();
@@ -267,6 +267,7 @@ public class MintsAdapter extends RecyclerView.Adapter<MintsAdapter.MintViewHold
          */
         private void loadMintIcon(String mintUrl) {
             // Reset to default icon first
+            MintIconCache.cancel(mintIcon);
             mintIcon.setImageResource(R.drawable.ic_bitcoin);
             
             // Get icon URL from mint info
@@ -279,46 +280,9 @@ public class MintsAdapter extends RecyclerView.Adapter<MintsAdapter.MintViewHold
                 return;
             }
             
-            // Check if icon is already cached
-            File cachedIcon = MintIconCache.INSTANCE.getCachedIconFile(mintUrl);
-            if (cachedIcon != null && cachedIcon.exists()) {
-                // Load from cache immediately
-                Log.d(TAG, "Loading icon from cache: " + cachedIcon.getAbsolutePath());
-                Bitmap bitmap = BitmapFactory.decodeFile(cachedIcon.getAbsolutePath());
-                if (bitmap != null) {
-                    mintIcon.setImageBitmap(bitmap);
-                    Log.d(TAG, "Loaded icon from cache for " + mintUrl);
-                    return;
-                } else {
-                    Log.w(TAG, "Failed to decode cached icon for " + mintUrl);
-                }
-            }
-            
-            // Download icon asynchronously using Thread
-            Log.d(TAG, "Downloading icon for " + mintUrl + " from " + iconUrl);
-            new Thread(() -> {
-                try {
-                    File iconFile = kotlinx.coroutines.BuildersKt.runBlocking(
-                        EmptyCoroutineContext.INSTANCE,
-                        (scope, continuation) -> MintIconCache.INSTANCE.downloadAndCacheIcon(mintUrl, iconUrl, continuation)
-                    );
-                    
-                    if (iconFile != null && iconFile.exists()) {
-                        Bitmap bitmap = BitmapFactory.decodeFile(iconFile.getAbsolutePath());
-                        if (bitmap != null) {
-                            Log.d(TAG, "Downloaded and loaded icon for " + mintUrl);
-                            // Update UI on main thread
-                            itemView.post(() -> mintIcon.setImageBitmap(bitmap));
-                        } else {
-                            Log.w(TAG, "Failed to decode downloaded icon for " + mintUrl);
-                        }
-                    } else {
-                        Log.w(TAG, "Download returned null/non-existent file for " + mintUrl);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error downloading icon for " + mintUrl + ": " + e.getMessage());
-                }
-            }).start();
+            // Shared loader: memory, then disk, then one download per mint. Rebinding
+            // this holder cancels the previous load.
+            MintIconCache.loadInto(mintIcon, mintUrl, iconUrl);
         }
     }
 }
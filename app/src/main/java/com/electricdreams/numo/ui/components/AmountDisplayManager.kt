@@ -1,6 +1,7 @@
 package com.electricdreams.numo.ui.components
 
 import android.content.Context
+import android.text.format.DateUtils
 import android.view.View
 import com.electricdreams.numo.R
 import android.widget.Button
@@ -108,6 +109,8 @@ class AmountDisplayManager(
         
         // Check if we have Bitcoin price data
         val hasBitcoinPrice = (bitcoinPriceWorker?.getCurrentPrice() ?: 0.0) > 0
+        // Converted amounts say how old the price is once it is stale
+        val priceSnapshot = bitcoinPriceWorker?.getPriceSnapshot(CurrencyManager.getInstance(context).getCurrentCurrency())
 
         if (isUsdInputMode) {
             // Input mode: fiat, display fiat as primary, sats as secondary
@@ -129,7 +132,7 @@ class AmountDisplayManager(
             // Convert fiat to satoshis for secondary display and requestedAmount
             val fiatAmount = fiatCents / 100.0
             satsValue = fiatToSatoshis(fiatAmount)
-            secondaryDisplayText = Amount(satsValue, Amount.Currency.BTC).toString()
+            secondaryDisplayText = withPriceAge(Amount(satsValue, Amount.Currency.BTC).toString(), priceSnapshot)
         } else {
             // Input mode: satoshi, display sats as primary, fiat as secondary
             satsValue = if (currentInputStr.isEmpty()) 0L else currentInputStr.toLong()
@@ -138,8 +141,11 @@ class AmountDisplayManager(
             if (hasBitcoinPrice) {
                 // Show fiat conversion with swap icon
                 val fiatValue = bitcoinPriceWorker?.satoshisToFiat(satsValue) ?: 0.0
-                secondaryDisplayText = bitcoinPriceWorker?.formatFiatAmount(fiatValue)
-                    ?: CurrencyManager.getInstance(context).formatCurrencyAmount(0.0)
+                secondaryDisplayText = withPriceAge(
+                    bitcoinPriceWorker?.formatFiatAmount(fiatValue)
+                        ?: CurrencyManager.getInstance(context).formatCurrencyAmount(0.0),
+                    priceSnapshot
+                )
                 switchCurrencyButton.visibility = View.VISIBLE
             } else {
                 // No price data - just show "BTC" without swap icon
@@ -210,6 +216,17 @@ class AmountDisplayManager(
         return (btcAmount * 100_000_000).toLong()
     }
 
+    /** Append the age of a stale price to an amount converted with it */
+    private fun withPriceAge(converted: String, snapshot: BitcoinPriceWorker.PriceSnapshot?): String {
+        if (snapshot == null || !snapshot.isStale || snapshot.updatedAt <= 0) return converted
+        val age = DateUtils.getRelativeTimeSpanString(
+            snapshot.updatedAt,
+            System.currentTimeMillis(),
+            DateUtils.MINUTE_IN_MILLIS
+        )
+        return context.getString(R.string.pos_secondary_amount_stale_price, converted, age)
+    }
+
     /** Format amount using Amount class */
     private fun formatAmount(amount: String): String = try {
         val value = if (amount.isEmpty()) 0L else amount.toLong()
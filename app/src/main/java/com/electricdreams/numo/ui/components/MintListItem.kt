@@ -1,7 +1,6 @@
 package com.electricdreams.numo.ui.components
 
 import android.content.Context
-import android.graphics.BitmapFactory
 import android.util.AttributeSet
 import android.view.LayoutInflater
 import android.view.View
@@ -113,23 +112,16 @@ class MintListItem @JvmOverloads constructor(
     }
 
     private fun loadIcon(url: String) {
-        val cachedFile = MintIconCache.getCachedIconFile(url)
-        if (cachedFile != null) {
-            try {
-                val bitmap = BitmapFactory.decodeFile(cachedFile.absolutePath)
-                if (bitmap != null) {
-                    mintIcon.setImageBitmap(bitmap)
-                    mintIcon.clipToOutline = true
-                    mintIcon.clearColorFilter()
-                    return
-                }
-            } catch (e: Exception) {
-                // Fall through to default
-            }
-        }
-        
         mintIcon.setImageResource(R.drawable.ic_bitcoin)
         mintIcon.setColorFilter(context.getColor(R.color.color_primary))
+
+        val iconUrl = MintManager.getInstance(context).getMintIconUrl(url)
+        MintIconCache.loadInto(mintIcon, url, iconUrl) { bitmap ->
+            if (bitmap != null) {
+                mintIcon.clipToOutline = true
+                mintIcon.clearColorFilter()
+            }
+        }
     }
 
     private fun animateTap() {
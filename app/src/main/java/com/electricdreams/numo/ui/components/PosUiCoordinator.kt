@@ -13,12 +13,14 @@ import android.widget.TextView
 import androidx.appcompat.app.AppCompatActivity
 import androidx.constraintlayout.widget.ConstraintLayout
 import com.electricdreams.numo.R
+import com.electricdreams.numo.core.dev.DevLogger
 import com.electricdreams.numo.core.util.MintManager
 import com.electricdreams.numo.core.worker.BitcoinPriceWorker
 import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
 import com.electricdreams.numo.feature.items.ItemSelectionActivity
 import com.electricdreams.numo.feature.settings.SettingsActivity
 import com.electricdreams.numo.payment.PaymentMethodHandler
+import com.electricdreams.numo.payment.PaymentPreparer
 import com.electricdreams.numo.payment.PaymentResultHandler
 import com.electricdreams.numo.payment.NfcPaymentProcessor
 import com.electricdreams.numo.ui.theme.ThemeManager
@@ -66,6 +68,7 @@ class PosUiCoordinator(
         resetToInputMode()
 
         if (paymentAmount > 0) {
+            PaymentPreparer.shared.prepare(activity)
             satoshiInput.clear()
             satoshiInput.append(paymentAmount.toString())
             fiatInput.clear()
@@ -139,7 +142,7 @@ class PosUiCoordinator(
             mediaPlayer?.setOnCompletionListener { it.release() }
             mediaPlayer?.start()
         } catch (e: Exception) {
-            android.util.Log.e("PosUiCoordinator", "Error playing success sound: ${e.message}")
+            DevLogger.e("PosUiCoordinator", "Error playing success sound: ${e.message}")
         }
         
         // Vibrate
@@ -147,7 +150,7 @@ class PosUiCoordinator(
             val vibrator = activity.getSystemService(android.content.Context.VIBRATOR_SERVICE) as android.os.Vibrator?
             vibrator?.vibrate(PATTERN_SUCCESS, -1)
         } catch (e: Exception) {
-            android.util.Log.e("PosUiCoordinator", "Error vibrating: ${e.message}")
+            DevLogger.e("PosUiCoordinator", "Error vibrating: ${e.message}")
         }
 
         // Show success screen
@@ -203,6 +206,10 @@ class PosUiCoordinator(
         keypadManager = KeypadManager(activity, keypad) { label ->
             keypadManager.handleKeypadInput(label, satoshiInput, fiatInput, amountDisplayManager.isUsdInputMode)
             amountDisplayManager.updateDisplay(satoshiInput, fiatInput, AmountDisplayManager.AnimationType.DIGIT_ENTRY)
+            // Get the amount-independent parts of the payment request ready while the amount is typed
+            if (satoshiInput.isNotEmpty() || fiatInput.isNotEmpty()) {
+                PaymentPreparer.shared.prepare(activity)
+            }
         }
 
         // Initialize payment handlers
@@ -0,0 +1,82 @@
+package com.electricdreams.numo.ui.util
+
+import android.graphics.Bitmap
+import android.widget.ImageView
+import com.electricdreams.numo.core.dev.DevLogger
+import com.electricdreams.numo.core.ur.UrEncoder
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Shows a payload too dense for one QR code as a loop of smaller fountain-coded
+ * `ur:bytes` frames that a scanner assembles as it catches them.
+ *
+ * Frames are drawn with square modules, which older cameras read more reliably, into
+ * two bitmaps used in turn so an animation does not allocate per frame.
+ */
+class AnimatedQrPlayer(
+    private val imageView: ImageView,
+    private val scope: CoroutineScope,
+    private val size: Int = DEFAULT_SIZE_PX
+) {
+
+    companion object {
+        private const val TAG = "AnimatedQrPlayer"
+
+        private const val DEFAULT_SIZE_PX = 512
+
+        /** Payloads longer than this are animated when animation is enabled. */
+        const val ANIMATE_ABOVE_CHARS = 600
+
+        const val FRAME_INTERVAL_MS = 200L
+
+        // Keeps each frame around QR version 12 in alphanumeric mode
+        private const val MAX_FRAGMENT_BYTES = 200
+    }
+
+    private var job: Job? = null
+
+    /**
+     * Start looping [payload] in the view, replacing anything shown before.
+     * [onError] runs on the main thread if a frame cannot be generated.
+     */
+    fun play(payload: String, onError: ((Exception) -> Unit)? = null) {
+        stop()
+        job = scope.launch(Dispatchers.Main) {
+            val encoder = UrEncoder(payload.toByteArray(Charsets.UTF_8), MAX_FRAGMENT_BYTES)
+            var shown: Bitmap? = null
+            var spare: Bitmap? = null
+            try {
+                while (isActive) {
+                    // Uppercase keeps the code in QR alphanumeric mode
+                    val part = encoder.nextPart().uppercase()
+                    val reuse = spare
+                    val frame = withContext(Dispatchers.Default) {
+                        QrCodeGenerator.generateInto(part, size, QrStyle.SQUARES, reuse)
+                    }
+                    imageView.setImageBitmap(frame)
+                    spare = shown?.takeIf { it !== frame }
+                    shown = frame
+                    if (encoder.isSinglePart) break
+                    delay(FRAME_INTERVAL_MS)
+                }
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                DevLogger.e(TAG, "Error generating animated QR frame: ${e.message}", e)
+                onError?.invoke(e)
+            }
+        }
+    }
+
+    fun stop() {
+        job?.cancel()
+        job = null
+    }
+}
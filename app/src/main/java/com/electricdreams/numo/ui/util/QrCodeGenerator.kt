@@ -1,31 +1,83 @@
 package com.electricdreams.numo.ui.util
 
 import android.graphics.Bitmap
-import android.graphics.Canvas
-import android.graphics.Paint
+import android.util.Log
+import android.util.LruCache
 import com.google.zxing.BarcodeFormat
 import com.google.zxing.EncodeHintType
 import com.google.zxing.common.BitMatrix
 import com.google.zxing.qrcode.QRCodeWriter
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
 
 /**
  * Utility class for generating QR code bitmaps.
  * 
  * Generates visually appealing QR codes with rounded dots instead of squares.
+ *
+ * Modules are stamped straight into the pixel buffer by [QrModuleRasterizer]. The last
+ * [CACHE_SIZE] codes are cached by (text, size, style), so showing the same request
+ * again costs nothing. A bitmap handed out by [generate] or [render] is never recycled
+ * or drawn into again; evicted entries are simply left to the garbage collector.
+ * Use [render] from UI code so encoding never runs on the main thread.
  */
 object QrCodeGenerator {
 
+    private const val TAG = "QrCodeGenerator"
+
+    private const val CACHE_SIZE = 6
+
+    private data class Key(val text: String, val size: Int, val style: QrStyle)
+
+    private val cache = LruCache<Key, Bitmap>(CACHE_SIZE)
+
     /**
      * Generate a QR code bitmap for the given text.
      *
      * @param text The content to encode in the QR code
      * @param size The desired size of the output bitmap in pixels
+     * @param style How dark modules are drawn
      * @return A bitmap containing the QR code with rounded dots
      * @throws Exception if encoding fails
      */
     @Throws(Exception::class)
-    fun generate(text: String, size: Int): Bitmap {
+    fun generate(text: String, size: Int, style: QrStyle = QrStyle.DOTS): Bitmap {
+        val key = Key(text, size, style)
+        cache.get(key)?.let { return it }
+
+        val outputBitmap = encode(text, size, style) { width, height ->
+            Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
+        }
+        cache.put(key, outputBitmap)
+        return outputBitmap
+    }
+
+    /**
+     * Generate a code that is shown only once, such as a frame of an animated QR code,
+     * drawing into [reuse] when it has the right dimensions. Bypasses the cache.
+     */
+    @Throws(Exception::class)
+    fun generateInto(text: String, size: Int, style: QrStyle, reuse: Bitmap?): Bitmap =
+        encode(text, size, style) { width, height ->
+            reuse?.takeIf { it.isMutable && !it.isRecycled && it.width == width && it.height == height }
+                ?: Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
+        }
+
+    /**
+     * Same as [generate], on a background thread.
+     */
+    @Throws(Exception::class)
+    suspend fun render(text: String, size: Int, style: QrStyle = QrStyle.DOTS): Bitmap =
+        cache.get(Key(text, size, style)) ?: withContext(Dispatchers.Default) { generate(text, size, style) }
+
+    private inline fun encode(
+        text: String,
+        size: Int,
+        style: QrStyle,
+        target: (width: Int, height: Int) -> Bitmap
+    ): Bitmap {
+        val start = System.nanoTime()
         val hints: MutableMap<EncodeHintType, Any> = mutableMapOf()
         hints[EncodeHintType.ERROR_CORRECTION] = ErrorCorrectionLevel.L
         hints[EncodeHintType.MARGIN] = 1 // Small margin so dots aren't cut off
@@ -33,35 +85,19 @@ object QrCodeGenerator {
         val qrWriter = QRCodeWriter()
         val rawMatrix: BitMatrix = qrWriter.encode(text, BarcodeFormat.QR_CODE, 0, 0, hints)
 
-        val matrixWidth = rawMatrix.width
-        val matrixHeight = rawMatrix.height
-
-        val scale = size / matrixWidth
-        val outputWidth = matrixWidth * scale
-        val outputHeight = matrixHeight * scale
+        val scale = (size / rawMatrix.width).coerceAtLeast(1)
+        val outputWidth = rawMatrix.width * scale
+        val outputHeight = rawMatrix.height * scale
 
-        val outputBitmap = Bitmap.createBitmap(outputWidth, outputHeight, Bitmap.Config.ARGB_8888)
-        val canvas = Canvas(outputBitmap)
-        canvas.drawColor(0xFFFFFFFF.toInt())
-
-        val paint = Paint().apply {
-            color = 0xFF000000.toInt()
-            isAntiAlias = true
-        }
-
-        val radius = scale.toFloat() / 2f
-
-        for (x in 0 until matrixWidth) {
-            for (y in 0 until matrixHeight) {
-                if (rawMatrix[x, y]) {
-                    val cx = x * scale + radius
-                    val cy = y * scale + radius
-                    canvas.drawCircle(cx, cy, radius, paint)
-                }
-            }
-        }
+        val pixels = QrModuleRasterizer.rasterize(rawMatrix, scale, style)
+        val outputBitmap = target(outputWidth, outputHeight)
+        outputBitmap.setPixels(pixels, 0, outputWidth, 0, 0, outputWidth, outputHeight)
 
+        Log.d(
+            TAG,
+            "Rendered ${text.length}-char QR (${rawMatrix.width} modules, ${outputWidth}px) " +
+                "in ${(System.nanoTime() - start) / 1_000_000} ms"
+        )
         return outputBitmap
     }
 }
-
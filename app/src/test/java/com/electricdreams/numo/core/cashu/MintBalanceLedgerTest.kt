@@ -0,0 +1,106 @@
+package com.electricdreams.numo.core.cashu
+
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Unit tests for [MintBalanceLedger].
+ */
+class MintBalanceLedgerTest {
+
+    private companion object {
+        const val MINT_A = "https://mint-a.test"
+        const val MINT_B = "https://mint-b.test"
+    }
+
+    private var walletBalances = mapOf<String, Long>()
+    private var walletReads = 0
+    private lateinit var originalSource: suspend () -> Map<String, Long>
+
+    @Before
+    fun setUp() {
+        MintBalanceLedger.reset()
+        originalSource = MintBalanceLedger.balanceSource
+        MintBalanceLedger.balanceSource = {
+            walletReads++
+            walletBalances
+        }
+    }
+
+    @After
+    fun tearDown() {
+        MintBalanceLedger.balanceSource = originalSource
+        MintBalanceLedger.reset()
+    }
+
+    @Test
+    fun `unknown balance is read from the wallet once`() = runTest {
+        walletBalances = mapOf(MINT_A to 1_000L, MINT_B to 50L)
+
+        assertEquals(1_000L, MintBalanceLedger.getBalance(MINT_A))
+        assertEquals(50L, MintBalanceLedger.getBalance(MINT_B))
+        assertEquals(1_000L, MintBalanceLedger.getBalance(MINT_A))
+
+        assertEquals(1, walletReads)
+    }
+
+    @Test
+    fun `credits and debits update the cached balance without a wallet read`() = runTest {
+        MintBalanceLedger.setBalance(MINT_A, 1_000L)
+
+        MintBalanceLedger.credit(MINT_A, 250L)
+        MintBalanceLedger.debit(MINT_A, 100L)
+
+        assertEquals(1_150L, MintBalanceLedger.getBalance(MINT_A))
+        assertEquals(0, walletReads)
+    }
+
+    @Test
+    fun `credit on an unknown balance leaves it unknown`() {
+        MintBalanceLedger.credit(MINT_A, 250L)
+
+        assertNull(MintBalanceLedger.peek(MINT_A))
+    }
+
+    @Test
+    fun `invalidated balance is re-read`() = runTest {
+        MintBalanceLedger.setBalance(MINT_A, 1_000L)
+        MintBalanceLedger.invalidate(MINT_A)
+        walletBalances = mapOf(MINT_A to 400L)
+
+        assertEquals(400L, MintBalanceLedger.getBalance(MINT_A))
+        assertEquals(1, walletReads)
+    }
+
+    @Test
+    fun `refresh does not overwrite changes made while it was reading`() = runTest {
+        MintBalanceLedger.setBalance(MINT_A, 100L)
+        MintBalanceLedger.balanceSource = {
+            // A payment lands while the wallet read is in flight
+            MintBalanceLedger.credit(MINT_A, 50L)
+            mapOf(MINT_A to 100L, MINT_B to 20L)
+        }
+
+        val snapshot = MintBalanceLedger.refresh()
+
+        assertEquals(150L, snapshot[MINT_A])
+        assertEquals(20L, snapshot[MINT_B])
+    }
+
+    @Test
+    fun `listeners receive each change`() {
+        val events = mutableListOf<Pair<String, Long?>>()
+        MintBalanceLedger.addListener { mintUrl, balance -> events.add(mintUrl to balance) }
+
+        MintBalanceLedger.setBalance(MINT_A, 100L)
+        MintBalanceLedger.credit(MINT_A, 25L)
+        MintBalanceLedger.setBalance(MINT_A, 125L)
+        MintBalanceLedger.invalidateAll()
+
+        assertEquals(listOf(MINT_A to 100L, MINT_A to 125L, MINT_A to null), events)
+    }
+}
@@ -0,0 +1,123 @@
+package com.electricdreams.numo.core.cashu
+
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.yield
+import org.cashudevkit.Wallet
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
+import org.robolectric.RobolectricTestRunner
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@RunWith(RobolectricTestRunner::class)
+class TemporaryWalletPoolTest {
+
+    private companion object {
+        const val MINT = "https://unknown.test"
+    }
+
+    private lateinit var scope: TestScope
+    private lateinit var pool: TemporaryWalletPool
+    private val loaded = mutableListOf<TemporaryWallet>()
+
+    @Before
+    fun setUp() {
+        scope = TestScope()
+        pool = TemporaryWalletPool(
+            scope = scope,
+            clock = { scope.testScheduler.currentTime },
+            loader = { TemporaryWallet(mock<Wallet>(), emptyList()).also { loaded.add(it) } }
+        )
+    }
+
+    private fun acquire(mintUrl: String = MINT): TemporaryWallet = runBlocking { pool.acquire(mintUrl) }
+
+    @Test
+    fun `a wallet is prepared for the next payment from the same mint`() {
+        val first = acquire()
+        scope.runCurrent()
+        assertEquals(2, loaded.size)
+
+        val second = acquire()
+
+        assertNotSame(first, second)
+        assertSame(loaded[1], second)
+    }
+
+    @Test
+    fun `handed out wallets are never pooled again`() {
+        val first = acquire()
+        scope.runCurrent()
+        acquire()
+        scope.runCurrent()
+
+        val third = acquire()
+
+        assertNotSame(first, third)
+        assertEquals(3, loaded.size)
+    }
+
+    @Test
+    fun `unused prepared wallets are closed after the idle timeout`() {
+        acquire()
+        scope.runCurrent()
+        val prepared = loaded[1]
+
+        scope.advanceTimeBy(TemporaryWalletPool.IDLE_TTL_MS + 1)
+        scope.runCurrent()
+
+        verify(prepared.wallet).close()
+        assertNotSame(prepared, acquire())
+    }
+
+    @Test
+    fun `the oldest prepared wallet is closed beyond the limit`() {
+        for (i in 0..TemporaryWalletPool.MAX_WALLETS) {
+            acquire("https://mint-$i.test")
+            scope.runCurrent()
+        }
+
+        // Every other wallet is a prepared one
+        val prepared = loaded.filterIndexed { index, _ -> index % 2 == 1 }
+        verify(prepared.first().wallet).close()
+        prepared.drop(1).forEach { verify(it.wallet, never()).close() }
+    }
+
+    @Test
+    fun `a wallet prepared for a cancelled waiter is closed`() {
+        acquire()
+        runBlocking {
+            // Waits for the wallet still being prepared, then gives up
+            val waiter = launch { pool.acquire(MINT) }
+            yield()
+            waiter.cancelAndJoin()
+        }
+
+        scope.runCurrent()
+
+        assertEquals(2, loaded.size)
+        verify(loaded[1].wallet).close()
+    }
+
+    @Test
+    fun `clear closes prepared wallets`() {
+        acquire()
+        scope.runCurrent()
+
+        pool.clear()
+
+        verify(loaded[1].wallet).close()
+    }
+}
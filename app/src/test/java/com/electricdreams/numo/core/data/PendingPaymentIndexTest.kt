@@ -0,0 +1,143 @@
+package com.electricdreams.numo.core.data
+
+import android.content.Context
+import com.electricdreams.numo.core.data.model.PaymentHistoryEntry
+import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
+import com.google.gson.Gson
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class PendingPaymentIndexTest {
+
+    private lateinit var context: Context
+
+    @Before
+    fun setUp() {
+        context = RuntimeEnvironment.getApplication()
+        context.getSharedPreferences("PaymentHistory", Context.MODE_PRIVATE).edit().clear().apply()
+        PendingPaymentIndex.clear(context)
+    }
+
+    private fun addPending(amount: Long = 1_000L): String =
+        PaymentsHistoryActivity.addPendingPayment(
+            context = context,
+            amount = amount,
+            entryUnit = "sat",
+            enteredAmount = amount,
+            bitcoinPrice = null,
+            paymentRequest = null,
+            formattedAmount = "₿$amount",
+        )
+
+    @Test
+    fun `pending payment is indexed`() {
+        val paymentId = addPending(amount = 2_100L)
+
+        val entry = PendingPaymentIndex.get(context, paymentId)
+
+        assertNotNull(entry)
+        assertEquals(2_100L, entry!!.amount)
+        assertEquals("₿2100", entry.formattedAmount)
+    }
+
+    @Test
+    fun `resume info follows history updates`() {
+        val paymentId = addPending()
+
+        PaymentsHistoryActivity.updatePendingWithLightningInfo(
+            context = context,
+            paymentId = paymentId,
+            lightningInvoice = "lnbc1...",
+            lightningQuoteId = "quote-1",
+            lightningMintUrl = "https://mint.test",
+        )
+        PaymentsHistoryActivity.updatePendingWithNostrInfo(
+            context = context,
+            paymentId = paymentId,
+            nostrSecretHex = "ab".repeat(32),
+            nostrNprofile = "nprofile1...",
+        )
+
+        val entry = PendingPaymentIndex.get(context, paymentId)!!
+        assertEquals("lnbc1...", entry.lightningInvoice)
+        assertEquals("quote-1", entry.lightningQuoteId)
+        assertEquals("https://mint.test", entry.lightningMintUrl)
+        assertEquals("ab".repeat(32), entry.nostrSecretHex)
+        assertEquals("nprofile1...", entry.nostrNprofile)
+    }
+
+    @Test
+    fun `completed payment is removed`() {
+        val paymentId = addPending()
+
+        PaymentsHistoryActivity.completePendingPayment(
+            context = context,
+            paymentId = paymentId,
+            token = "cashuB...",
+            paymentType = PaymentHistoryEntry.TYPE_CASHU,
+            mintUrl = "https://mint.test",
+        )
+
+        assertNull(PendingPaymentIndex.get(context, paymentId))
+    }
+
+    @Test
+    fun `cancelled payment is removed`() {
+        val paymentId = addPending()
+
+        PaymentsHistoryActivity.cancelPendingPayment(context, paymentId)
+
+        assertNull(PendingPaymentIndex.get(context, paymentId))
+    }
+
+    @Test
+    fun `latest returns the newest pending payment`() {
+        addPending(amount = 100L)
+        Thread.sleep(5)
+        val newest = addPending(amount = 200L)
+
+        assertEquals(newest, PendingPaymentIndex.latest(context)?.id)
+        assertEquals(2, PendingPaymentIndex.getAll(context).size)
+    }
+
+    @Test
+    fun `swap quote is read from the swap frame`() {
+        val paymentId = addPending()
+        val frame = PaymentHistoryEntry.Companion.SwapToLightningMintFrame(
+            unknownMintUrl = "https://unknown.test",
+            meltQuoteId = "melt-1",
+            lightningMintUrl = "https://mint.test",
+            lightningQuoteId = "quote-2",
+        )
+
+        PaymentsHistoryActivity.updatePendingWithLightningInfo(
+            context = context,
+            paymentId = paymentId,
+            swapToLightningMintJson = Gson().toJson(frame),
+        )
+
+        val entry = PendingPaymentIndex.get(context, paymentId)!!
+        assertEquals("https://mint.test", entry.swapLightningMintUrl)
+        assertEquals("quote-2", entry.swapLightningQuoteId)
+    }
+
+    @Test
+    fun `clear empties the index`() {
+        addPending()
+
+        PendingPaymentIndex.clear(context)
+
+        assertTrue(PendingPaymentIndex.getAll(context).isEmpty())
+        assertNull(PendingPaymentIndex.latest(context))
+    }
+}
@@ -0,0 +1,77 @@
+package com.electricdreams.numo.core.dev
+
+import com.electricdreams.numo.core.data.model.ErrorLogEntry
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Unit tests for [ErrorCapture] folding and context tagging.
+ */
+class ErrorCaptureTest {
+
+    private companion object {
+        const val PAYMENT_ID = "payment-1"
+    }
+
+    private val captured = mutableListOf<ErrorLogEntry>()
+    private lateinit var originalSink: (ErrorLogEntry) -> Unit
+
+    @Before
+    fun setUp() {
+        originalSink = ErrorCapture.sink
+        ErrorCapture.sink = { captured.add(it) }
+        ErrorCapture.drain()
+        captured.clear()
+    }
+
+    @After
+    fun tearDown() {
+        ErrorCapture.clearPaymentContext(PAYMENT_ID)
+        ErrorCapture.sink = originalSink
+    }
+
+    @Test
+    fun `identical errors are folded with a count`() {
+        val error = IllegalStateException("boom")
+        repeat(50) { ErrorCapture.capture("Wallet", "Mint failed", error) }
+        ErrorCapture.capture("Wallet", "Other failure")
+
+        ErrorCapture.drain()
+
+        assertEquals(2, captured.size)
+        assertEquals("Mint failed", captured[0].message)
+        assertEquals(50, captured[0].count)
+        assertTrue(captured[0].stackTrace!!.contains("IllegalStateException: boom"))
+        assertEquals(1, captured[1].count)
+        assertNull(captured[1].stackTrace)
+    }
+
+    @Test
+    fun `events carry thread and payment context`() {
+        ErrorCapture.setPaymentContext(PAYMENT_ID)
+        ErrorCapture.capture("Payment", "During payment")
+        ErrorCapture.clearPaymentContext(PAYMENT_ID)
+        ErrorCapture.capture("Payment", "After payment")
+
+        ErrorCapture.drain()
+
+        assertEquals(PAYMENT_ID, captured[0].paymentId)
+        assertEquals(Thread.currentThread().name, captured[0].threadName)
+        assertNull(captured[1].paymentId)
+    }
+
+    @Test
+    fun `clearing another payment's context keeps the current one`() {
+        ErrorCapture.setPaymentContext(PAYMENT_ID)
+        ErrorCapture.clearPaymentContext("other")
+        ErrorCapture.capture("Payment", "Still tagged")
+
+        ErrorCapture.drain()
+
+        assertEquals(PAYMENT_ID, captured.single().paymentId)
+    }
+}
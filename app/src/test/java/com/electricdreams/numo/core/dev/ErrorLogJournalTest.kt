@@ -0,0 +1,86 @@
+package com.electricdreams.numo.core.dev
+
+import com.electricdreams.numo.core.data.model.ErrorLogEntry
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.Date
+
+/**
+ * Unit tests for [ErrorLogJournal].
+ */
+class ErrorLogJournalTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private fun entry(index: Int, stackTrace: String? = null) = ErrorLogEntry(
+        id = "id-$index",
+        timestamp = Date(1_000L + index),
+        tag = "Tag",
+        message = "Message $index",
+        stackTrace = stackTrace,
+    )
+
+    @Test
+    fun `appended batches are read back in order`() {
+        val file = File(tempFolder.root, "journal.bin")
+        val journal = ErrorLogJournal(file, capacity = 10)
+        journal.append(listOf(entry(0), entry(1, stackTrace = "at Foo.bar(Foo.kt:1)\nat Baz")))
+        journal.append(listOf(entry(2)))
+
+        val reopened = ErrorLogJournal(file, capacity = 10)
+        val entries = reopened.readAll()
+
+        assertEquals(listOf("id-0", "id-1", "id-2"), entries.map { it.id })
+        assertNull(entries[0].stackTrace)
+        assertEquals("at Foo.bar(Foo.kt:1)\nat Baz", entries[1].stackTrace)
+        assertEquals(Date(1_002L), entries[2].timestamp)
+        assertEquals(3, reopened.recordCount)
+    }
+
+    @Test
+    fun `readAll keeps only the newest capacity entries`() {
+        val file = File(tempFolder.root, "journal.bin")
+        val journal = ErrorLogJournal(file, capacity = 3)
+        journal.append((0 until 5).map { entry(it) })
+
+        val entries = ErrorLogJournal(file, capacity = 3).readAll()
+
+        assertEquals(listOf("id-2", "id-3", "id-4"), entries.map { it.id })
+    }
+
+    @Test
+    fun `torn tail is dropped and later appends stay readable`() {
+        val file = File(tempFolder.root, "journal.bin")
+        ErrorLogJournal(file, capacity = 10).append(listOf(entry(0), entry(1)))
+        // Simulate a crash part-way through writing the last record
+        file.writeBytes(file.readBytes().copyOf(file.length().toInt() - 3))
+
+        val recovered = ErrorLogJournal(file, capacity = 10)
+        assertEquals(listOf("id-0"), recovered.readAll().map { it.id })
+        recovered.append(listOf(entry(2)))
+
+        assertEquals(listOf("id-0", "id-2"), ErrorLogJournal(file, capacity = 10).readAll().map { it.id })
+    }
+
+    @Test
+    fun `compaction is due after twice the capacity and rewrite resets the file`() {
+        val file = File(tempFolder.root, "journal.bin")
+        val journal = ErrorLogJournal(file, capacity = 2)
+        journal.append((0 until 4).map { entry(it) })
+
+        assertFalse(journal.needsCompaction(0))
+        assertTrue(journal.needsCompaction(1))
+
+        journal.rewrite(listOf(entry(3), entry(4)))
+
+        assertEquals(2, journal.recordCount)
+        assertEquals(listOf("id-3", "id-4"), ErrorLogJournal(file, capacity = 2).readAll().map { it.id })
+    }
+}
@@ -74,4 +74,15 @@ class ErrorLogStoreTest {
         val all = ErrorLogStore.getAllErrors()
         assertTrue(all.isEmpty())
     }
+
+    @Test
+    fun `oldest entries are evicted beyond capacity`() {
+        repeat(505) { ErrorLogStore.appendError(tag = "Tag", message = "Entry $it") }
+
+        val all = ErrorLogStore.getAllErrors()
+
+        assertEquals(500, all.size)
+        assertEquals("Entry 5", all.first().message)
+        assertEquals("Entry 504", all.last().message)
+    }
 }
@@ -0,0 +1,90 @@
+package com.electricdreams.numo.core.dev
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Unit tests for [LatencyHistogram] bucketing and percentiles.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    fun `buckets are contiguous and cover every value`() {
+        var previousUpper = -1L
+        for (bucket in 0 until LatencyHistogram.BUCKET_COUNT) {
+            val upper = LatencyHistogram.upperBoundOf(bucket)
+            assertEquals(bucket, LatencyHistogram.bucketOf(previousUpper + 1))
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper))
+            previousUpper = upper
+        }
+        assertEquals(LatencyHistogram.MAX_MICROS, previousUpper)
+    }
+
+    @Test
+    fun `bucket width stays within the relative error`() {
+        for (bucket in LatencyHistogram.SUB_BUCKETS until LatencyHistogram.BUCKET_COUNT) {
+            val lower = LatencyHistogram.upperBoundOf(bucket - 1) + 1
+            val upper = LatencyHistogram.upperBoundOf(bucket)
+            assertTrue((upper - lower + 1).toDouble() / lower <= 1.0 / LatencyHistogram.SUB_BUCKETS)
+        }
+    }
+
+    @Test
+    fun `percentiles are close to the exact values`() {
+        val histogram = LatencyHistogram()
+        // 1 ms .. 1000 ms
+        for (ms in 1..1000L) histogram.recordMicros(ms * 1_000)
+
+        val summary = histogram.summary()
+
+        assertEquals(1000L, summary.count)
+        assertClose(500_000, summary.p50Micros)
+        assertClose(900_000, summary.p90Micros)
+        assertClose(990_000, summary.p99Micros)
+        assertEquals(1_000_000L, summary.maxMicros)
+        assertEquals(500_500L, summary.meanMicros)
+    }
+
+    @Test
+    fun `out of range values are clamped`() {
+        val histogram = LatencyHistogram()
+        histogram.recordNanos(-5)
+        histogram.recordMicros(Long.MAX_VALUE)
+
+        val summary = histogram.summary()
+
+        assertEquals(2L, summary.count)
+        assertEquals(0L, summary.p50Micros)
+        assertEquals(LatencyHistogram.MAX_MICROS, summary.maxMicros)
+    }
+
+    @Test
+    fun `empty and reset histograms report zeros`() {
+        val histogram = LatencyHistogram()
+        assertEquals(0L, histogram.summary().count)
+
+        histogram.recordMicros(1_234)
+        histogram.reset()
+
+        val summary = histogram.summary()
+        assertEquals(0L, summary.count)
+        assertEquals(0L, summary.maxMicros)
+    }
+
+    @Test
+    fun `concurrent recording loses no values`() {
+        val histogram = LatencyHistogram()
+        val threads = List(4) {
+            Thread { repeat(10_000) { histogram.recordMicros(it.toLong()) } }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        assertEquals(40_000L, histogram.summary().count)
+    }
+
+    private fun assertClose(expected: Long, actual: Long) {
+        assertTrue("expected ~$expected, got $actual", Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS)
+    }
+}
@@ -0,0 +1,103 @@
+package com.electricdreams.numo.core.dev
+
+import com.google.gson.JsonParser
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import kotlin.coroutines.cancellation.CancellationException
+
+/**
+ * Unit tests for the [Metrics] registry, snapshots and export.
+ */
+class MetricsTest {
+
+    private companion object {
+        const val MINT_A = "https://mint-a.example"
+        const val MINT_B = "https://mint-b.example"
+    }
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Before
+    fun setUp() {
+        Metrics.reset()
+    }
+
+    @Test
+    fun `metrics are shared per name and label`() {
+        assertSame(Metrics.counter("test.polls", MINT_A), Metrics.counter("test.polls", MINT_A))
+        assertSame(Metrics.counter("test.polls"), Metrics.counter("test.polls", ""))
+
+        Metrics.counter("test.polls", MINT_A).increment()
+        Metrics.counter("test.polls", MINT_A).add(2)
+        Metrics.counter("test.polls", MINT_B).increment()
+
+        assertEquals(3L, Metrics.counter("test.polls", MINT_A).get())
+        assertEquals(1L, Metrics.counter("test.polls", MINT_B).get())
+    }
+
+    @Test
+    fun `timed records latency and counts failures`() {
+        assertEquals(42, Metrics.timed("test.call", MINT_A) { 42 })
+        assertThrows(IllegalStateException::class.java) {
+            Metrics.timed("test.call", MINT_A) { throw IllegalStateException("mint down") }
+        }
+        assertThrows(CancellationException::class.java) {
+            Metrics.timed("test.call", MINT_A) { throw CancellationException("left the screen") }
+        }
+
+        assertEquals(3L, Metrics.histogram("test.call", MINT_A).summary().count)
+        assertEquals(1L, Metrics.counter("test.call.errors", MINT_A).get())
+    }
+
+    @Test
+    fun `snapshot is sorted and serializes to one json line`() {
+        Metrics.counter("sorted.b").increment()
+        Metrics.counter("sorted.a", MINT_B).increment()
+        Metrics.counter("sorted.a", MINT_A).increment()
+        Metrics.gauge("test.connected").set(3)
+        Metrics.histogram("test.latency", MINT_A).recordMicros(2_500)
+
+        val snapshot = Metrics.snapshot()
+        val counters = snapshot.counters.filter { it.name.startsWith("sorted.") }
+        assertEquals(
+            listOf("sorted.a" to MINT_A, "sorted.a" to MINT_B, "sorted.b" to ""),
+            counters.map { it.name to it.label }
+        )
+
+        val line = Metrics.toJson(snapshot)
+        assertFalse(line.contains('\n'))
+        val json = JsonParser.parseString(line).asJsonObject
+        val gauge = json.getAsJsonArray("gauges").map { it.asJsonObject }.single { it.get("name").asString == "test.connected" }
+        assertEquals(3L, gauge.get("value").asLong)
+        val histogram = json.getAsJsonArray("histograms").map { it.asJsonObject }
+            .single { it.get("name").asString == "test.latency" }
+        assertEquals(MINT_A, histogram.get("label").asString)
+        assertEquals(1L, histogram.get("count").asLong)
+        assertTrue(histogram.get("p50Ms").asDouble in 2.4..2.6)
+    }
+
+    @Test
+    fun `export appends lines and rotates large files`() {
+        val file = File(folder.root, "metrics/metrics.jsonl")
+        Metrics.counter("test.exports").increment()
+
+        Metrics.exportTo(file)
+        Metrics.exportTo(file)
+        assertEquals(2, file.readLines().size)
+
+        file.appendText("x".repeat(Metrics.MAX_EXPORT_BYTES.toInt()))
+        Metrics.exportTo(file)
+
+        assertEquals(1, file.readLines().size)
+        assertTrue(File(file.path + ".1").exists())
+    }
+}
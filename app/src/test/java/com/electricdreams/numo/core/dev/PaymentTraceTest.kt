@@ -0,0 +1,149 @@
+package com.electricdreams.numo.core.dev
+
+import com.google.gson.JsonParser
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Unit tests for [PaymentTrace] recording, percentiles and export.
+ */
+class PaymentTraceTest {
+
+    private companion object {
+        const val PAYMENT_ID = "payment-1"
+        const val MS = 1_000_000L
+    }
+
+    @Before
+    fun setUp() {
+        PaymentTrace.clear()
+    }
+
+    @After
+    fun tearDown() {
+        PaymentTrace.clearPaymentContext(PAYMENT_ID)
+        PaymentTrace.clear()
+    }
+
+    @Test
+    fun `spans are tagged with the current payment`() {
+        PaymentTrace.record(PaymentTrace.Stage.NDEF_PARSE, PaymentTrace.now())
+        PaymentTrace.setPaymentContext(PAYMENT_ID)
+        PaymentTrace.record(PaymentTrace.Stage.WALLET_RECEIVE, PaymentTrace.now())
+        PaymentTrace.record(PaymentTrace.Stage.HISTORY_WRITE, PaymentTrace.now(), "payment-2")
+
+        val spans = PaymentTrace.snapshot()
+
+        assertEquals(3, spans.size)
+        assertNull(spans[0].paymentId)
+        assertEquals(PAYMENT_ID, spans[1].paymentId)
+        assertEquals("payment-2", spans[2].paymentId)
+        assertTrue(spans[0].spanId < spans[1].spanId)
+    }
+
+    @Test
+    fun `clearing another payment keeps the context`() {
+        PaymentTrace.setPaymentContext(PAYMENT_ID)
+        PaymentTrace.clearPaymentContext("payment-2")
+        PaymentTrace.record(PaymentTrace.Stage.SWAP, PaymentTrace.now())
+
+        assertEquals(PAYMENT_ID, PaymentTrace.snapshot().single().paymentId)
+    }
+
+    @Test
+    fun `trace records the block even when it throws`() {
+        try {
+            PaymentTrace.trace(PaymentTrace.Stage.TOKEN_VALIDATION, PAYMENT_ID) { error("invalid") }
+        } catch (_: IllegalStateException) {
+        }
+
+        val span = PaymentTrace.snapshot().single()
+        assertEquals(PaymentTrace.Stage.TOKEN_VALIDATION, span.stage)
+        assertEquals(PAYMENT_ID, span.paymentId)
+    }
+
+    @Test
+    fun `ring keeps the most recent spans`() {
+        val total = PaymentTrace.CAPACITY + 100
+        val ids = (0 until total).map { PaymentTrace.record(PaymentTrace.Stage.NDEF_PARSE, PaymentTrace.now()) }
+
+        val spans = PaymentTrace.snapshot()
+
+        assertEquals(PaymentTrace.CAPACITY, spans.size)
+        assertEquals(ids.takeLast(PaymentTrace.CAPACITY), spans.map { it.spanId })
+    }
+
+    @Test
+    fun `stage stats report percentiles per stage`() {
+        val now = PaymentTrace.now()
+        // Durations of 1..100 ms, recorded by backdating the start
+        for (ms in 1..100L) {
+            PaymentTrace.record(PaymentTrace.Stage.WALLET_RECEIVE, now - ms * MS)
+        }
+        PaymentTrace.record(PaymentTrace.Stage.APDU_TRANSFER, now - 5 * MS)
+
+        val stats = PaymentTrace.stageStats()
+
+        assertEquals(
+            listOf(PaymentTrace.Stage.APDU_TRANSFER, PaymentTrace.Stage.WALLET_RECEIVE),
+            stats.map { it.stage }
+        )
+        val receive = stats[1]
+        assertEquals(100, receive.count)
+        assertEquals(50L, receive.p50Nanos / MS)
+        assertEquals(95L, receive.p95Nanos / MS)
+        assertEquals(100L, receive.maxNanos / MS)
+    }
+
+    @Test
+    fun `a paid tap records transfer and tap to paid`() {
+        PaymentTrace.tapStarted()
+        PaymentTrace.setPaymentContext(PAYMENT_ID)
+        PaymentTrace.tapTransferred()
+        PaymentTrace.paymentCompleted(PAYMENT_ID)
+        // Only the tap that delivered the token counts
+        PaymentTrace.paymentCompleted(PAYMENT_ID)
+
+        val spans = PaymentTrace.snapshot()
+
+        assertEquals(
+            listOf(PaymentTrace.Stage.APDU_TRANSFER, PaymentTrace.Stage.TAP_TO_PAID),
+            spans.map { it.stage }
+        )
+        assertTrue(spans.all { it.paymentId == PAYMENT_ID })
+        assertTrue(spans[1].durationNanos >= spans[0].durationNanos)
+    }
+
+    @Test
+    fun `an abandoned tap records nothing`() {
+        PaymentTrace.tapStarted()
+        PaymentTrace.tapAbandoned()
+        PaymentTrace.tapTransferred()
+        PaymentTrace.paymentCompleted(PAYMENT_ID)
+
+        assertTrue(PaymentTrace.snapshot().isEmpty())
+    }
+
+    @Test
+    fun `chrome trace has one track per payment`() {
+        PaymentTrace.record(PaymentTrace.Stage.NDEF_PARSE, PaymentTrace.now(), PAYMENT_ID)
+        PaymentTrace.record(PaymentTrace.Stage.SWAP, PaymentTrace.now(), PAYMENT_ID)
+        PaymentTrace.record(PaymentTrace.Stage.SWAP, PaymentTrace.now(), "payment-2")
+
+        val trace = JsonParser.parseString(PaymentTrace.toChromeTrace()).asJsonObject
+        val events = trace.getAsJsonArray("traceEvents").map { it.asJsonObject }
+
+        val spans = events.filter { it.get("ph").asString == "X" }
+        assertEquals(3, spans.size)
+        assertEquals(2, spans.map { it.get("tid").asInt }.distinct().size)
+        assertEquals(PaymentTrace.Stage.SWAP.label, spans[1].get("name").asString)
+
+        val trackNames = events.filter { it.get("ph").asString == "M" }
+            .map { it.getAsJsonObject("args").get("name").asString }
+        assertEquals(listOf(PAYMENT_ID, "payment-2"), trackNames)
+    }
+}
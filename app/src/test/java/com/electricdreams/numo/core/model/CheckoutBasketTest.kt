@@ -181,6 +181,19 @@ class CheckoutBasketTest {
         assertEquals(1, deserialized?.items?.size)
     }
 
+    @Test
+    fun `totals are not serialized and are recomputed after deserialization`() {
+        val basket = createBasket(listOf(createItem("1", netPriceCents = 100, quantity = 2, vatEnabled = true, vatRate = 20)))
+        assertEquals(240L, basket.getFiatGrossTotalCents())
+
+        val json = basket.toJson()
+        assertFalse(json.contains("cachedTotals"))
+
+        val deserialized = CheckoutBasket.fromJson(json)!!
+        assertEquals(240L, deserialized.getFiatGrossTotalCents())
+        assertEquals(mapOf(20 to 40L), deserialized.getVatBreakdown())
+    }
+
     @Test
     fun `fromJson returns null for empty string`() {
         assertNull(CheckoutBasket.fromJson(""))
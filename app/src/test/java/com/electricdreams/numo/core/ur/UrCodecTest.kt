@@ -0,0 +1,117 @@
+package com.electricdreams.numo.core.ur
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+class UrCodecTest {
+
+    // Vectors below are from the Blockchain Commons reference implementation
+
+    @Test
+    fun `bytewords match the reference encoding`() {
+        val data = byteArrayOf(0, 1, 2, 128.toByte(), 255.toByte())
+
+        assertEquals("aeadaolazmjendeoti", Bytewords.encodeMinimal(data))
+        assertArrayEquals(data, Bytewords.decodeMinimal("AEADAOLAZMJENDEOTI"))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun `bytewords with a bad checksum are rejected`() {
+        Bytewords.decodeMinimal("aeadaolazmjendeotl")
+    }
+
+    @Test
+    fun `xoshiro and shuffle match the reference sequence`() {
+        val rng = Xoshiro256("Wolf".toByteArray())
+        val numbers = List(10) { (rng.next().toULong() % 100u).toInt() }
+        assertEquals(listOf(42, 81, 85, 8, 82, 84, 76, 73, 70, 88), numbers)
+
+        val shuffled = FountainCode.shuffle((1..10).toList(), Xoshiro256("Wolf".toByteArray()))
+        assertEquals(listOf(6, 4, 9, 3, 10, 5, 7, 8, 1, 2), shuffled)
+    }
+
+    @Test
+    fun `fountain encoder splits a message like the reference`() {
+        val rng = Xoshiro256("Wolf".toByteArray())
+        val message = ByteArray(256) { rng.nextInt(0, 255).toByte() }
+
+        val encoder = FountainEncoder(message, 30)
+        val first = encoder.nextPart()
+
+        assertEquals(9, encoder.seqLen)
+        assertEquals(23570951L, encoder.checksum)
+        assertEquals(1L, first.seqNum)
+        assertEquals("916ec65cf77cadf55cd7f9cda1a1030026ddd42e905b77adc36e4f2d3c", first.data.toHex())
+    }
+
+    @Test
+    fun `small payloads are a single part`() {
+        val payload = "creqA1234".toByteArray()
+        val encoder = UrEncoder(payload)
+        val decoder = UrDecoder()
+
+        assertTrue(encoder.isSinglePart)
+        assertTrue(decoder.receivePart(encoder.nextPart().uppercase()))
+        assertArrayEquals(payload, decoder.result)
+    }
+
+    @Test
+    fun `large payloads are recovered despite missed frames`() {
+        val payload = Random(7).nextBytes(3000)
+        val encoder = UrEncoder(payload)
+        val decoder = UrDecoder()
+
+        var shown = 0
+        while (!decoder.isComplete && shown < 10 * encoder.seqLen) {
+            val part = encoder.nextPart()
+            shown++
+            // Lose every third frame, including some of the single-fragment ones
+            if (shown % 3 == 0) continue
+            decoder.receivePart(part)
+        }
+
+        assertNull(decoder.error)
+        assertArrayEquals(payload, decoder.result)
+        assertEquals(1.0, decoder.progress, 0.0)
+    }
+
+    @Test
+    fun `parts of another message and garbage are ignored`() {
+        val first = UrEncoder(Random(1).nextBytes(1000))
+        val second = UrEncoder(Random(2).nextBytes(1000))
+        val decoder = UrDecoder()
+
+        assertTrue(decoder.receivePart(first.nextPart()))
+        assertFalse(decoder.receivePart(second.nextPart()))
+        assertFalse(decoder.receivePart("ur:bytes/2-5/notbytewords"))
+        assertFalse(decoder.receivePart("cashuBabc"))
+        assertFalse(decoder.isComplete)
+    }
+
+    @Test
+    fun `parts with an oversized or inconsistent header are rejected`() {
+        fun frame(seqNum: Long, seqLen: Int, messageLen: Int, fragmentLen: Int): String {
+            val part = FountainPart(seqNum, seqLen, messageLen, 0L, ByteArray(fragmentLen))
+            return "ur:bytes/$seqNum-$seqLen/${Bytewords.encodeMinimal(part.toCbor())}"
+        }
+        val decoder = UrDecoder()
+
+        // A huge fragment count for a tiny message would allocate per fragment
+        assertFalse(decoder.receivePart(frame(2_000_000_001L, 2_000_000_000, 10, 10)))
+        assertFalse(decoder.receivePart(frame(5, FountainPart.MAX_SEQ_LEN + 1, 1_000_000, 1_000)))
+        assertFalse(decoder.receivePart(frame(1, 1, FountainPart.MAX_MESSAGE_LEN + 1, FountainPart.MAX_MESSAGE_LEN + 1)))
+        // Fragment count does not match the message and fragment lengths
+        assertFalse(decoder.receivePart(frame(1, 500, 10, 10)))
+        assertFalse(decoder.receivePart(frame(1, 2, 30, 10)))
+
+        assertEquals(0, decoder.expectedPartCount)
+        assertFalse(decoder.isComplete)
+    }
+
+    private fun ByteArray.toHex(): String = joinToString("") { "%02x".format(it) }
+}
@@ -1,5 +1,6 @@
 package com.electricdreams.numo.core.util
 
+import com.electricdreams.numo.core.model.BasketTotals
 import com.electricdreams.numo.core.model.Item
 import com.electricdreams.numo.core.model.PriceType
 import org.junit.Assert.*
@@ -15,6 +16,8 @@ class BasketManagerTest {
         basketManager = BasketManager.getInstance()
         basketManager.clearBasket()
         basketManager.clearHistory()
+        basketManager.maxHistorySize = BasketManager.DEFAULT_MAX_HISTORY_SIZE
+        basketManager.setBasketTotalsListener(null)
     }
 
     private fun createFiatItem(id: String, price: Double): Item =
@@ -158,4 +161,171 @@ class BasketManagerTest {
         assertEquals(0L, basketManager.getTotalSatsDirectPrice())
         assertFalse(basketManager.hasMixedPriceTypes())
     }
+
+    @Test
+    fun `undo and redo walk back and forth through quantity changes`() {
+        val item1 = createFiatItem("1", 1.0)
+        val item2 = createFiatItem("2", 2.0)
+        basketManager.addItem(item1, quantity = 1)
+        basketManager.addItem(item2, quantity = 1)
+        basketManager.updateItemQuantity(item1.id!!, 5)
+        basketManager.removeItem(item2.id!!)
+
+        assertTrue(basketManager.undo())
+        assertEquals(listOf("1" to 5, "2" to 1), basketContents())
+        assertTrue(basketManager.undo())
+        assertEquals(listOf("1" to 1, "2" to 1), basketContents())
+
+        assertTrue(basketManager.redo())
+        assertEquals(listOf("1" to 5, "2" to 1), basketContents())
+        assertTrue(basketManager.redo())
+        assertEquals(listOf("1" to 5), basketContents())
+        assertFalse(basketManager.redo())
+    }
+
+    @Test
+    fun `undoing clearBasket restores every line in order`() {
+        basketManager.addItem(createFiatItem("1", 1.0), quantity = 1)
+        basketManager.addItem(createSatsItem("2", 1_000), quantity = 2)
+        basketManager.addItem(createFiatItem("3", 3.0), quantity = 3)
+
+        basketManager.clearBasket()
+        assertTrue(basketManager.undo())
+
+        assertEquals(listOf("1" to 1, "2" to 2, "3" to 3), basketContents())
+        assertTrue(basketManager.redo())
+        assertTrue(basketManager.getBasketItems().isEmpty())
+    }
+
+    @Test
+    fun `removed line comes back at its original position`() {
+        basketManager.addItem(createFiatItem("1", 1.0), quantity = 1)
+        basketManager.addItem(createFiatItem("2", 2.0), quantity = 1)
+        basketManager.addItem(createFiatItem("3", 3.0), quantity = 1)
+
+        basketManager.removeItem("2")
+        basketManager.undo()
+
+        assertEquals(listOf("1", "2", "3"), basketManager.getBasketItems().map { it.item.id })
+    }
+
+    @Test
+    fun `new action clears redo history`() {
+        basketManager.addItem(createFiatItem("1", 1.0), quantity = 1)
+        basketManager.undo()
+        assertTrue(basketManager.canRedo())
+
+        basketManager.addItem(createFiatItem("2", 2.0), quantity = 1)
+
+        assertFalse(basketManager.canRedo())
+    }
+
+    @Test
+    fun `history is capped at maxHistorySize`() {
+        basketManager.maxHistorySize = 3
+        val item = createFiatItem("1", 1.0)
+        basketManager.addItem(item, quantity = 1)
+        for (quantity in 2..10) {
+            basketManager.updateItemQuantity(item.id!!, quantity)
+        }
+
+        var undone = 0
+        while (basketManager.undo()) undone++
+
+        assertEquals(3, undone)
+        assertEquals(listOf("1" to 7), basketContents())
+    }
+
+    @Test
+    fun `totals track VAT per rate across add, update and remove`() {
+        val vat20 = createFiatItem("1", 10.0).copy(vatEnabled = true, vatRate = 20)
+        val vat10 = createFiatItem("2", 5.0).copy(vatEnabled = true, vatRate = 10)
+        basketManager.addItem(vat20, quantity = 2)
+        basketManager.addItem(vat10, quantity = 1)
+        basketManager.addItem(createSatsItem("3", 1_000), quantity = 1)
+
+        var totals = basketManager.getTotals()
+        assertEquals(4, totals.itemCount)
+        assertEquals(24.0 + 5.5, totals.fiatTotal, 0.0001)
+        assertEquals(1_000L, totals.satsDirectTotal)
+        assertEquals(4.0, totals.vatByRate.getValue(20), 0.0001)
+        assertEquals(0.5, totals.vatByRate.getValue(10), 0.0001)
+        assertTrue(totals.hasMixedPriceTypes())
+
+        basketManager.updateItemQuantity(vat20.id!!, 1)
+        basketManager.removeItem(vat10.id!!)
+
+        totals = basketManager.getTotals()
+        assertEquals(12.0, totals.fiatTotal, 0.0001)
+        assertEquals(setOf(20), totals.vatByRate.keys)
+        assertEquals(2.0, totals.vatTotal, 0.0001)
+    }
+
+    @Test
+    fun `undo and redo keep totals in step`() {
+        basketManager.addItem(createFiatItem("1", 0.1), quantity = 3)
+        basketManager.addItem(createSatsItem("2", 500), quantity = 2)
+        basketManager.clearBasket()
+
+        assertEquals(BasketTotals.EMPTY, basketManager.getTotals())
+
+        basketManager.undo()
+        assertEquals(5, basketManager.getTotalItemCount())
+        assertEquals(0.3, basketManager.getTotalPrice(), 0.0001)
+        assertEquals(1_000L, basketManager.getTotalSatsDirectPrice())
+
+        basketManager.undo()
+        basketManager.undo()
+        assertEquals(0.0, basketManager.getTotalPrice(), 0.0)
+        assertTrue(basketManager.getTotals().isEmpty())
+    }
+
+    @Test
+    fun `totals do not drift over many add and remove cycles`() {
+        val vat = createFiatItem("1", 0.1).copy(vatEnabled = true, vatRate = 19)
+        basketManager.addItem(createFiatItem("2", 0.7), quantity = 1)
+
+        repeat(1_000) {
+            basketManager.addItem(vat, quantity = 3)
+            basketManager.updateItemQuantity(vat.id!!, 1)
+            basketManager.removeItem(vat.id!!)
+        }
+
+        val totals = basketManager.getTotals()
+        assertEquals(70L, totals.fiatTotalCents)
+        assertEquals(0.7, totals.fiatTotal, 0.0)
+        assertTrue(totals.vatByRateCents.isEmpty())
+    }
+
+    @Test
+    fun `totals are kept in cents`() {
+        // 19% of 0.10 is 0.019, shown and summed as 0.02 per unit
+        val vat = createFiatItem("1", 0.1).copy(vatEnabled = true, vatRate = 19)
+        basketManager.addItem(vat, quantity = 3)
+
+        val totals = basketManager.getTotals()
+        assertEquals(36L, totals.fiatTotalCents)
+        assertEquals(mapOf(19 to 6L), totals.vatByRateCents)
+        assertEquals(0.06, totals.vatTotal, 0.0)
+    }
+
+    @Test
+    fun `listener receives a snapshot per change`() {
+        val received = mutableListOf<BasketTotals>()
+        basketManager.setBasketTotalsListener(object : BasketManager.BasketTotalsListener {
+            override fun onBasketTotalsChanged(totals: BasketTotals) {
+                received.add(totals)
+            }
+        })
+
+        basketManager.addItem(createFiatItem("1", 2.0), quantity = 1)
+        basketManager.addItem(createFiatItem("1", 2.0), quantity = 1)
+        basketManager.removeItem("missing")
+
+        assertEquals(listOf(1, 2), received.map { it.itemCount })
+        assertEquals(4.0, received.last().fiatTotal, 0.0001)
+    }
+
+    private fun basketContents(): List<Pair<String?, Int>> =
+        basketManager.getBasketItems().map { it.item.id to it.quantity }
 }
@@ -2,6 +2,7 @@ package com.electricdreams.numo.core.util
 
 import android.content.Context
 import androidx.test.core.app.ApplicationProvider
+import com.electricdreams.numo.core.data.ItemStore
 import com.electricdreams.numo.core.model.Item
 import com.electricdreams.numo.core.model.PriceType
 import org.junit.Assert.assertEquals
@@ -9,11 +10,14 @@ import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertNull
 import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
 import java.io.File
+import java.io.FilterInputStream
+import java.io.IOException
 import java.lang.reflect.Field
 
 @RunWith(RobolectricTestRunner::class)
@@ -31,6 +35,7 @@ class ItemManagerTest {
         // Ensure clean state
         val prefs = context.getSharedPreferences("ItemManagerPrefs", Context.MODE_PRIVATE)
         prefs.edit().clear().apply()
+        context.deleteDatabase(ItemStore.DB_NAME)
         
         itemManager = ItemManager.getInstance(context)
     }
@@ -151,6 +156,45 @@ class ItemManagerTest {
         assertEquals(20, loaded.vatRate)
     }
     
+    @Test
+    fun testReorderPersistsAcrossRestart() {
+        itemManager.addItem(Item(name = "A"))
+        itemManager.addItem(Item(name = "B"))
+        itemManager.addItem(Item(name = "C"))
+        itemManager.removeItem(itemManager.getAllItems()[1].id!!)
+        itemManager.addItem(Item(name = "D"))
+
+        itemManager.reorderItems(2, 0)
+
+        resetSingleton()
+        val reloaded = ItemManager.getInstance(context).getAllItems().map { it.name }
+        assertEquals(listOf("D", "A", "C"), reloaded)
+    }
+
+    @Test
+    fun testMigratesLegacyPreferencesCatalog() {
+        val legacyJson = """
+            [{"id":"legacy-1","uuid":"u-1","name":"Legacy Coffee","price":2.5,"sku":"LEG-1",
+              "quantity":3,"alertEnabled":false,"alertThreshold":0,"priceSats":0,
+              "priceType":"FIAT","trackInventory":true,"vatEnabled":false,"vatRate":0}]
+        """.trimIndent()
+        val prefs = context.getSharedPreferences("ItemManagerPrefs", Context.MODE_PRIVATE)
+        prefs.edit().putString("items_list", legacyJson).commit()
+
+        resetSingleton()
+        val items = ItemManager.getInstance(context).getAllItems()
+
+        assertEquals(1, items.size)
+        assertEquals("Legacy Coffee", items[0].name)
+        assertEquals("LEG-1", items[0].sku)
+        assertTrue(items[0].trackInventory)
+        assertNull(prefs.getString("items_list", null))
+
+        // Migrated rows are served from the store on the next start
+        resetSingleton()
+        assertEquals(1, ItemManager.getInstance(context).getAllItems().size)
+    }
+
     @Test
     fun testCsvImport() {
         // Create a temporary CSV file
@@ -178,4 +222,189 @@ class ItemManagerTest {
         assertTrue(items[0].alertEnabled)
         assertEquals(5, items[0].alertThreshold)
     }
+
+    @Test
+    fun testStreamingImportBatchesAndSkipsDuplicates() {
+        itemManager.addItem(Item(name = "Existing", sku = "SKU-1"))
+
+        val csvContent = buildString {
+            repeat(5) { appendLine("HEADER") }
+            appendLine(",Duplicate Of Existing,,sku-1,,,,,,,,,1.00,")
+            for (i in 2..6) {
+                appendLine(",Item $i,,SKU-$i,,,,GTIN-$i,,,,,$i.00,")
+            }
+            appendLine(",Repeated Gtin,,SKU-7,,,,GTIN-2,,,,,7.00,")
+        }
+
+        val progressUpdates = mutableListOf<CatalogCsvImporter.Progress>()
+        val result = CatalogCsvImporter(itemManager, batchSize = 2).importCsvBlocking(
+            input = csvContent.byteInputStream(),
+            totalBytes = csvContent.length.toLong(),
+            clearExisting = false,
+            onProgress = { progressUpdates.add(it) }
+        )
+
+        assertEquals(5, result.importedCount)
+        assertEquals(2, result.duplicateCount)
+        assertFalse(result.cancelled)
+        assertEquals(listOf(2, 4, 5), progressUpdates.map { it.importedCount })
+        assertEquals(6, itemManager.getAllItems().size)
+        assertEquals("Item 3", itemManager.findItemByGtin("gtin-3")?.name)
+    }
+
+    @Test
+    fun testStreamingImportStopsAfterCurrentBatchWhenCancelled() {
+        val csvContent = buildString {
+            repeat(5) { appendLine("HEADER") }
+            for (i in 1..10) {
+                appendLine(",Item $i,,SKU-$i,,,,,,,,,1.00,")
+            }
+        }
+
+        val result = CatalogCsvImporter(itemManager, batchSize = 3).importCsvBlocking(
+            input = csvContent.byteInputStream(),
+            totalBytes = -1L,
+            clearExisting = false,
+            isCancelled = { true }
+        )
+
+        assertTrue(result.cancelled)
+        assertEquals(3, result.importedCount)
+        assertEquals(3, itemManager.getAllItems().size)
+    }
+
+    @Test
+    fun testCancelledReplacingImportKeepsExistingCatalog() {
+        itemManager.addItem(Item(name = "Existing", sku = "SKU-OLD"))
+
+        val csvContent = buildString {
+            repeat(5) { appendLine("HEADER") }
+            for (i in 1..10) {
+                appendLine(",Item $i,,SKU-$i,,,,,,,,,1.00,")
+            }
+        }
+
+        val result = CatalogCsvImporter(itemManager, batchSize = 3).importCsvBlocking(
+            input = csvContent.byteInputStream(),
+            totalBytes = -1L,
+            clearExisting = true,
+            isCancelled = { true }
+        )
+
+        assertTrue(result.cancelled)
+        assertEquals(0, result.importedCount)
+        assertEquals(listOf("Existing"), itemManager.getAllItems().map { it.name })
+
+        resetSingleton()
+        assertEquals(listOf("Existing"), ItemManager.getInstance(context).getAllItems().map { it.name })
+    }
+
+    @Test
+    fun testFailedReplacingImportKeepsExistingCatalog() {
+        itemManager.addItem(Item(name = "Existing", sku = "SKU-OLD"))
+
+        val csvContent = buildString {
+            repeat(5) { appendLine("HEADER") }
+            for (i in 1..10) {
+                appendLine(",Item $i,,SKU-$i,,,,,,,,,1.00,")
+            }
+        }
+        // Fails once most of the file has been read
+        val failingInput = object : FilterInputStream(csvContent.byteInputStream()) {
+            private var remaining = csvContent.length - 20
+
+            override fun read(b: ByteArray, off: Int, len: Int): Int {
+                if (remaining <= 0) throw IOException("Connection lost")
+                val n = super.read(b, off, minOf(len, remaining))
+                if (n > 0) remaining -= n
+                return n
+            }
+        }
+
+        try {
+            CatalogCsvImporter(itemManager, batchSize = 3).importCsvBlocking(
+                input = failingInput,
+                totalBytes = -1L,
+                clearExisting = true
+            )
+            fail("Expected the import to fail")
+        } catch (e: IOException) {
+            // expected
+        }
+
+        assertEquals(listOf("Existing"), itemManager.getAllItems().map { it.name })
+        resetSingleton()
+        assertEquals(listOf("Existing"), ItemManager.getInstance(context).getAllItems().map { it.name })
+    }
+
+    @Test
+    fun testReplacingImportReplacesCatalogWhenComplete() {
+        itemManager.addItem(Item(name = "Existing", sku = "SKU-OLD"))
+
+        val csvContent = buildString {
+            repeat(5) { appendLine("HEADER") }
+            for (i in 1..5) {
+                appendLine(",Item $i,,SKU-$i,,,,GTIN-$i,,,,,1.00,")
+            }
+        }
+
+        val result = CatalogCsvImporter(itemManager, batchSize = 2).importCsvBlocking(
+            input = csvContent.byteInputStream(),
+            totalBytes = -1L,
+            clearExisting = true
+        )
+
+        assertEquals(5, result.importedCount)
+        assertEquals((1..5).map { "Item $it" }, itemManager.getAllItems().map { it.name })
+        assertEquals("Item 4", itemManager.findItemByGtin("gtin-4")?.name)
+        assertFalse(itemManager.isSkuDuplicate("sku-old"))
+
+        resetSingleton()
+        assertEquals((1..5).map { "Item $it" }, ItemManager.getInstance(context).getAllItems().map { it.name })
+    }
+
+    @Test
+    fun testDuplicateChecksIgnoreSurroundingWhitespace() {
+        itemManager.addItem(Item(name = "Padded", gtin = " 123456 ", sku = "SKU-1  "))
+
+        assertTrue(itemManager.isGtinDuplicate("123456"))
+        assertTrue(itemManager.isSkuDuplicate(" sku-1"))
+        assertEquals("Padded", itemManager.findItemByGtin("123456")?.name)
+
+        val csvContent = buildString {
+            repeat(5) { appendLine("HEADER") }
+            appendLine(",Same Gtin,,SKU-2,,,,123456 ,,,,,1.00,")
+        }
+        val result = CatalogCsvImporter(itemManager).importCsvBlocking(
+            input = csvContent.byteInputStream(),
+            totalBytes = -1L,
+            clearExisting = false
+        )
+
+        assertEquals(1, result.duplicateCount)
+        assertEquals(1, itemManager.getAllItems().size)
+    }
+
+    @Test
+    fun testReplacingImportWithoutValidRowsClearsCatalog() {
+        itemManager.addItem(Item(name = "Existing", sku = "SKU-1"))
+
+        val csvContent = buildString {
+            repeat(5) { appendLine("HEADER") }
+            appendLine("not,an,item,row")
+        }
+        val result = CatalogCsvImporter(itemManager).importCsvBlocking(
+            input = csvContent.byteInputStream(),
+            totalBytes = -1L,
+            clearExisting = true
+        )
+
+        assertEquals(0, result.importedCount)
+        assertEquals(1, result.invalidCount)
+        assertTrue(itemManager.getAllItems().isEmpty())
+
+        // The cleared catalog is persisted, not only dropped from memory
+        resetSingleton()
+        assertTrue(ItemManager.getInstance(context).getAllItems().isEmpty())
+    }
 }
@@ -0,0 +1,77 @@
+package com.electricdreams.numo.core.util
+
+import com.electricdreams.numo.core.model.Item
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class ItemSearchIndexTest {
+
+    private lateinit var index: ItemSearchIndex
+
+    @Before
+    fun setUp() {
+        index = ItemSearchIndex()
+    }
+
+    @Test
+    fun `blank query returns catalog order`() {
+        index.rebuild(listOf(Item(id = "1", name = "B"), Item(id = "2", name = "A")))
+
+        assertEquals(listOf("1", "2"), index.search("  ").map { it.id })
+    }
+
+    @Test
+    fun `matches prefix, infix and accent-folded terms`() {
+        index.add(Item(id = "1", name = "Crème Brûlée", category = "Dessert"))
+        index.add(Item(id = "2", name = "Snapple", category = "Drinks"))
+
+        assertEquals(listOf("1"), index.search("creme").map { it.id })
+        assertEquals(listOf("1"), index.search("BRUL").map { it.id })
+        assertEquals(listOf("2"), index.search("appl").map { it.id })
+        assertTrue(index.search("steak").isEmpty())
+    }
+
+    @Test
+    fun `all terms must match`() {
+        index.add(Item(id = "1", name = "Red Apple"))
+        index.add(Item(id = "2", name = "Green Apple"))
+
+        assertEquals(listOf("2"), index.search("apple green").map { it.id })
+    }
+
+    @Test
+    fun `ranks exact name match first and breaks ties by catalog order`() {
+        index.add(Item(id = "1", name = "Pineapple", category = "Fruit"))
+        index.add(Item(id = "2", name = "Cake", category = "Apple"))
+        index.add(Item(id = "3", name = "Apple", category = "Fruit"))
+
+        assertEquals(listOf("3", "1", "2"), index.search("apple").map { it.id })
+    }
+
+    @Test
+    fun `incremental updates keep index consistent`() {
+        val item = Item(id = "1", name = "Coffee")
+        index.add(item)
+        index.add(Item(id = "2", name = "Tea"))
+
+        index.update(item.copy(name = "Espresso"))
+        assertTrue(index.search("coffee").isEmpty())
+        assertEquals(listOf("1"), index.search("espr").map { it.id })
+
+        index.remove("1")
+        assertTrue(index.search("espresso").isEmpty())
+        assertEquals(listOf("2"), index.search("").map { it.id })
+    }
+
+    @Test
+    fun `move keeps ties in catalog order`() {
+        index.add(Item(id = "1", name = "Tea Green"))
+        index.add(Item(id = "2", name = "Tea Black"))
+
+        index.move(1, 0)
+
+        assertEquals(listOf("2", "1"), index.search("tea").map { it.id })
+    }
+}
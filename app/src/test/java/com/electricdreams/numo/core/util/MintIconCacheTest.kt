@@ -0,0 +1,91 @@
+package com.electricdreams.numo.core.util
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.runBlocking
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.Base64
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+class MintIconCacheTest {
+
+    private companion object {
+        const val MINT = "https://mint.test"
+
+        // 1x1 PNG
+        val ICON_BYTES: ByteArray = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk+M9QDwADhgGAWjR9awAAAABJRU5ErkJggg=="
+        )
+    }
+
+    private lateinit var server: MockWebServer
+    private lateinit var iconUrl: String
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        server.start()
+        iconUrl = server.url("/icon.png").toString()
+
+        MintIconCache.initialize(ApplicationProvider.getApplicationContext<Context>())
+        MintIconCache.client = OkHttpClient()
+        MintIconCache.clearCache()
+    }
+
+    @After
+    fun tearDown() {
+        MintIconCache.clearCache()
+        server.shutdown()
+    }
+
+    private fun iconResponse() = MockResponse().setBody(Buffer().write(ICON_BYTES))
+
+    @Test
+    fun `concurrent loads of one mint share a single download`() = runBlocking {
+        server.enqueue(iconResponse().setBodyDelay(200, TimeUnit.MILLISECONDS))
+
+        val first = async(Dispatchers.IO) { MintIconCache.loadIcon(MINT, iconUrl) }
+        val second = async(Dispatchers.IO) { MintIconCache.loadIcon(MINT, iconUrl) }
+
+        assertSame(first.await(), second.await())
+        assertNotNull(first.await())
+        assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun `icons are stored as served and then served from memory`() = runBlocking {
+        server.enqueue(iconResponse())
+
+        val loaded = MintIconCache.loadIcon(MINT, iconUrl)
+
+        assertArrayEquals(ICON_BYTES, MintIconCache.getCachedIconFile(MINT)!!.readBytes())
+        assertSame(loaded, MintIconCache.getCachedBitmap(MINT))
+        assertSame(loaded, MintIconCache.loadIcon(MINT, iconUrl))
+        assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun `failed downloads are not cached`() = runBlocking {
+        server.enqueue(MockResponse().setResponseCode(404))
+
+        assertNull(MintIconCache.loadIcon(MINT, iconUrl))
+        assertNull(MintIconCache.getCachedIconFile(MINT))
+        assertNull(MintIconCache.loadIcon(MINT, null))
+    }
+}
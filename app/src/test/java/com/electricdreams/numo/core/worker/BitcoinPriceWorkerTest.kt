@@ -3,13 +3,23 @@ package com.electricdreams.numo.core.worker
 import android.content.Context
 import com.electricdreams.numo.core.model.Amount
 import com.electricdreams.numo.core.util.CurrencyManager
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
 import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
 import org.robolectric.RobolectricTestRunner
 import org.junit.runner.RunWith
 import org.robolectric.RuntimeEnvironment
+import java.io.IOException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 @RunWith(RobolectricTestRunner::class)
 class BitcoinPriceWorkerTest {
@@ -29,10 +39,14 @@ class BitcoinPriceWorkerTest {
         currencyManager = CurrencyManager.getInstance(context)
         currencyManager.setPreferredCurrency(CurrencyManager.CURRENCY_USD)
 
-        // Instantiate the worker via reflection (constructor is private)
-        val ctor = BitcoinPriceWorker::class.java.getDeclaredConstructor(Context::class.java)
+        // Instantiate the worker via reflection (constructor is private), with a
+        // source that never reaches the network
+        val ctor = BitcoinPriceWorker::class.java.getDeclaredConstructor(
+            Context::class.java,
+            PriceSource::class.java
+        )
         ctor.isAccessible = true
-        worker = ctor.newInstance(context)
+        worker = ctor.newInstance(context, FixedPriceSource(emptyMap()))
 
         // Seed internal price map
         val field = BitcoinPriceWorker::class.java.getDeclaredField("priceByCurrency")
@@ -86,4 +100,102 @@ class BitcoinPriceWorkerTest {
         // 1.23 -> 123 cents
         assertTrue(formatted.contains("1.23"))
     }
+
+    @Test
+    fun `refresh takes prices for every currency from the price source`() = runBlocking {
+        worker.setPriceSource(
+            FixedPriceSource(
+                mapOf(
+                    CurrencyManager.CURRENCY_USD to 60_000.0,
+                    CurrencyManager.CURRENCY_GBP to 48_000.0,
+                )
+            )
+        )
+
+        assertTrue(worker.refresh())
+
+        assertEquals(60_000.0, worker.getCurrentPrice(), 0.0001)
+        val snapshot = worker.getPriceSnapshot(CurrencyManager.CURRENCY_GBP)!!
+        assertEquals(48_000.0, snapshot.price, 0.0001)
+        assertFalse(snapshot.isStale)
+    }
+
+    @Test
+    fun `getPriceSnapshot serves old prices marked as stale`() {
+        val snapshot = worker.getPriceSnapshot(CurrencyManager.CURRENCY_EUR)
+
+        assertEquals(45_000.0, snapshot!!.price, 0.0001)
+        assertTrue(snapshot.isStale)
+        assertNull(worker.getPriceSnapshot(CurrencyManager.CURRENCY_GBP))
+    }
+
+    @Test
+    fun `getPriceSnapshot only reads the cache`() = runBlocking {
+        awaitNoFetchInFlight()
+        val fetches = AtomicInteger()
+        worker.setPriceSource {
+            fetches.incrementAndGet()
+            mapOf(CurrencyManager.CURRENCY_USD to 60_000.0)
+        }
+        assertTrue(worker.refresh())
+        setLastUpdateTime(0L)
+
+        repeat(20) { assertTrue(worker.getPriceSnapshot()!!.isStale) }
+        Thread.sleep(200)
+
+        assertEquals(1, fetches.get())
+    }
+
+    @Test
+    fun `a failed refresh backs off before fetching again`() = runBlocking {
+        awaitNoFetchInFlight()
+        val fetches = AtomicInteger()
+        worker.setPriceSource {
+            fetches.incrementAndGet()
+            throw IOException("offline")
+        }
+        assertFalse(worker.refresh())
+
+        // A currency change refreshes stale prices, but not while backing off
+        currencyManager.setPreferredCurrency(CurrencyManager.CURRENCY_EUR)
+        Thread.sleep(200)
+
+        assertEquals(1, fetches.get())
+    }
+
+    @Test
+    fun `prices from a replaced source are dropped`() = runBlocking {
+        awaitNoFetchInFlight()
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        worker.setPriceSource {
+            started.countDown()
+            release.await(5, TimeUnit.SECONDS)
+            mapOf(CurrencyManager.CURRENCY_USD to 1.0)
+        }
+
+        val pending = async(Dispatchers.IO) { worker.refresh() }
+        assertTrue(started.await(5, TimeUnit.SECONDS))
+        worker.setPriceSource(FixedPriceSource(mapOf(CurrencyManager.CURRENCY_USD to 60_000.0)))
+        release.countDown()
+
+        assertFalse(pending.await())
+        assertEquals(50_000.0, worker.getCurrentPrice(), 0.0001)
+        assertTrue(worker.refresh())
+        assertEquals(60_000.0, worker.getCurrentPrice(), 0.0001)
+    }
+
+    private fun awaitNoFetchInFlight() {
+        val field = BitcoinPriceWorker::class.java.getDeclaredField("fetchInFlight")
+        field.isAccessible = true
+        val inFlight = field.get(worker) as AtomicBoolean
+        val deadline = System.currentTimeMillis() + 5_000
+        while (inFlight.get() && System.currentTimeMillis() < deadline) Thread.sleep(10)
+    }
+
+    private fun setLastUpdateTime(time: Long) {
+        val field = BitcoinPriceWorker::class.java.getDeclaredField("lastUpdateTime")
+        field.isAccessible = true
+        field.setLong(worker, time)
+    }
 }
@@ -0,0 +1,78 @@
+package com.electricdreams.numo.core.worker
+
+import com.electricdreams.numo.core.util.CurrencyManager
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.IOException
+
+@RunWith(RobolectricTestRunner::class)
+class PriceSourceTest {
+
+    private lateinit var server: MockWebServer
+
+    private val fixture: String by lazy {
+        javaClass.classLoader!!.getResource("price/coinbase_exchange_rates.json")!!.readText()
+    }
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    private fun localSource() = CoinbasePriceSource(OkHttpClient(), server.url("/v2/exchange-rates").toString())
+
+    @Test
+    fun `local stand-in serves every supported currency in one request`() {
+        server.enqueue(MockResponse().setBody(fixture))
+
+        val prices = localSource().fetchPrices()
+
+        assertEquals(BitcoinPriceWorker.SUPPORTED_CURRENCIES.toSet(), prices.keys)
+        assertEquals(104_250.75, prices.getValue(CurrencyManager.CURRENCY_USD), 0.0001)
+        assertEquals(15_625_000.0, prices.getValue(CurrencyManager.CURRENCY_JPY), 0.0001)
+        assertEquals(1, server.requestCount)
+    }
+
+    @Test(expected = IOException::class)
+    fun `http errors are reported as IOException`() {
+        server.enqueue(MockResponse().setResponseCode(503))
+
+        localSource().fetchPrices()
+    }
+
+    @Test
+    fun `parseRates keeps supported currencies with a valid price`() {
+        val json = """
+            {"data":{"currency":"BTC","rates":{
+                "USD":"50000.5","EUR":"45000","GBP":"n/a","JPY":"0","CHF":"44000"
+            }}}
+        """.trimIndent()
+
+        val prices = CoinbasePriceSource.parseRates(json)
+
+        assertEquals(setOf(CurrencyManager.CURRENCY_USD, CurrencyManager.CURRENCY_EUR), prices.keys)
+        assertEquals(50_000.5, prices.getValue(CurrencyManager.CURRENCY_USD), 0.0001)
+        assertEquals(45_000.0, prices.getValue(CurrencyManager.CURRENCY_EUR), 0.0001)
+    }
+
+    @Test
+    fun `fixed source replays a recorded response`() {
+        val prices = FixedPriceSource.fromCoinbaseJson(fixture).fetchPrices()
+
+        assertEquals(91_500.25, prices.getValue(CurrencyManager.CURRENCY_EUR), 0.0001)
+        assertEquals(78_900.5, prices.getValue(CurrencyManager.CURRENCY_GBP), 0.0001)
+    }
+}
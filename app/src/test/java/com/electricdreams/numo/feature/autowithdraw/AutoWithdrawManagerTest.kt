@@ -3,13 +3,22 @@ package com.electricdreams.numo.feature.autowithdraw
 import android.content.Context
 import androidx.test.core.app.ApplicationProvider
 import com.electricdreams.numo.core.cashu.CashuWalletManager
+import com.electricdreams.numo.core.cashu.MintBalanceLedger
 import com.electricdreams.numo.core.util.MintManager
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
 import kotlinx.coroutines.test.runTest
 import org.cashudevkit.Amount
 import org.cashudevkit.CurrencyUnit
 import org.cashudevkit.MultiMintWallet
+import org.cashudevkit.QuoteState
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
 import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
@@ -20,13 +29,22 @@ import org.mockito.kotlin.any
 import org.mockito.kotlin.doReturn
 import org.mockito.kotlin.eq
 import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
 import org.mockito.kotlin.whenever
 import org.robolectric.RobolectricTestRunner
+import java.io.IOException
 import java.lang.reflect.Field
 
+@OptIn(ExperimentalCoroutinesApi::class)
 @RunWith(RobolectricTestRunner::class)
 class AutoWithdrawManagerTest {
 
+    private companion object {
+        const val MINT_A = "https://mint-a.test"
+        const val MINT_B = "https://mint-b.test"
+    }
+
     private lateinit var context: Context
     private lateinit var autoWithdrawManager: AutoWithdrawManager
     
@@ -47,6 +65,8 @@ class AutoWithdrawManagerTest {
         resetSingleton(AutoWithdrawSettingsManager.Companion, "instance")
         resetSingleton(MintManager.Companion, "instance")
         resetCashuWalletManager()
+        MintBalanceLedger.reset()
+        context.getSharedPreferences("AutoWithdrawJobs", Context.MODE_PRIVATE).edit().clear().commit()
 
         // Create mocks
         mockSettingsManager = mock()
@@ -205,4 +225,319 @@ class AutoWithdrawManagerTest {
         
         // Should not trigger withdrawal
     }
+
+    @Test
+    fun testCheckAndTriggerWithdrawals_PaymentMintUsesCachedBalance() = runTest {
+        val mintUrl = "https://mint.test"
+        whenever(mockSettingsManager.isGloballyEnabled()).thenReturn(true)
+        whenever(mockSettingsManager.shouldTriggerWithdrawal(eq(mintUrl), any())).thenReturn(false)
+        MintBalanceLedger.setBalance(mintUrl, 500)
+
+        autoWithdrawManager.checkAndTriggerWithdrawals(mintUrl)
+
+        // The threshold check reads the cached balance; no wallet-wide balance query
+        verify(mockSettingsManager).shouldTriggerWithdrawal(mintUrl, 500)
+        verify(mockWallet, never()).getBalances()
+    }
+
+    @Test
+    fun testRetryDelayDoublesUpToCap() {
+        assertEquals(5_000L, AutoWithdrawManager.retryDelayMs(1))
+        assertEquals(10_000L, AutoWithdrawManager.retryDelayMs(2))
+        assertEquals(40_000L, AutoWithdrawManager.retryDelayMs(4))
+        assertEquals(600_000L, AutoWithdrawManager.retryDelayMs(15))
+    }
+
+    /**
+     * Scripted mint: quotes cover the requested amount plus a fee reserve of 2 sats,
+     * and a melted quote reports [meltResult] unless [quoteStates] says otherwise.
+     */
+    private class FakeMintClient : WithdrawMintClient {
+        var ready = true
+        var quoteDelayMs = 0L
+        var quoteError: Exception? = null
+        var meltError: Exception? = null
+        var meltResult = QuoteState.PAID
+        val quoteStates = mutableMapOf<String, QuoteState>()
+        val melted = mutableListOf<String>()
+        var settled: CompletableDeferred<Unit>? = null
+
+        override fun isReady(): Boolean = ready
+
+        override suspend fun requestMeltQuote(
+            mintUrl: String,
+            lightningAddress: String,
+            amountMsat: Long
+        ): WithdrawMintClient.MeltQuote {
+            delay(quoteDelayMs)
+            quoteError?.let { throw it }
+            return WithdrawMintClient.MeltQuote("quote-$mintUrl", amountMsat / 1000, 2)
+        }
+
+        override suspend fun melt(mintUrl: String, quoteId: String) {
+            melted.add(quoteId)
+            meltError?.let { throw it }
+        }
+
+        override suspend fun checkMeltQuote(mintUrl: String, quoteId: String): QuoteState =
+            quoteStates[quoteId] ?: if (quoteId in melted) meltResult else QuoteState.UNPAID
+
+        override suspend fun awaitMeltQuoteSettled(mintUrl: String, quoteId: String) {
+            val signal = settled ?: throw UnsupportedOperationException("no subscriptions")
+            signal.await()
+        }
+    }
+
+    private class RecordingListener : AutoWithdrawProgressListener {
+        val events = mutableListOf<String>()
+
+        override fun onWithdrawStarted(mintUrl: String, amount: Long, lightningAddress: String) {
+            events.add("$mintUrl started")
+        }
+
+        override fun onWithdrawProgress(mintUrl: String, step: String, detail: String) {
+            events.add("$mintUrl $step")
+        }
+
+        override fun onWithdrawCompleted(mintUrl: String, amount: Long, fee: Long) {
+            events.add("$mintUrl completed")
+        }
+
+        override fun onWithdrawFailed(mintUrl: String, error: String) {
+            events.add("$mintUrl failed")
+        }
+    }
+
+    private val scope = TestScope()
+    private val mintClient = FakeMintClient()
+    private val listener = RecordingListener()
+
+    /**
+     * Queue a job as a previous process would have left it, then build a manager
+     * that picks it up. Returns the history entry id of the job.
+     */
+    private fun queueJob(
+        mintUrl: String,
+        stage: String = WithdrawJob.STAGE_QUEUED,
+        quoteId: String? = null
+    ): String {
+        val entry = autoWithdrawManager.addManualWithdrawalEntry(
+            mintUrl = mintUrl,
+            amountSats = 1_000,
+            feeSats = 0,
+            destination = "user@example.com",
+            destinationType = "auto_address",
+            status = WithdrawHistoryEntry.STATUS_PENDING
+        )
+        WithdrawJobQueue(context).enqueue(
+            WithdrawJob(
+                mintUrl = mintUrl,
+                lightningAddress = "user@example.com",
+                amountSats = 1_000,
+                historyEntryId = entry.id,
+                stage = stage,
+                quoteId = quoteId
+            )
+        )
+        MintBalanceLedger.setBalance(mintUrl, 5_000)
+        return entry.id
+    }
+
+    private fun startWorkers(): AutoWithdrawManager =
+        AutoWithdrawManager(
+            context = context,
+            withdrawalScope = scope,
+            clock = { scope.currentTime },
+            mintClient = mintClient
+        ).also {
+            it.setProgressListener(listener)
+            it.resumePendingWithdrawals()
+        }
+
+    private fun historyEntry(manager: AutoWithdrawManager, id: String): WithdrawHistoryEntry =
+        manager.getHistory().single { it.id == id }
+
+    @Test
+    fun `queued job is quoted, melted and completed`() {
+        val entryId = queueJob(MINT_A)
+
+        val manager = startWorkers()
+        scope.runCurrent()
+
+        assertEquals(listOf("quote-$MINT_A"), mintClient.melted)
+        val entry = historyEntry(manager, entryId)
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, entry.status)
+        assertEquals("quote-$MINT_A", entry.quoteId)
+        assertEquals(2L, entry.feeSats)
+        assertTrue(WithdrawJobQueue(context).getAll().isEmpty())
+        assertFalse(manager.isWithdrawing())
+        assertEquals(
+            listOf("$MINT_A started", "$MINT_A Quote", "$MINT_A Sending", "$MINT_A completed"),
+            listener.events
+        )
+    }
+
+    @Test
+    fun `resumed job whose melt went through is completed without melting again`() {
+        val entryId = queueJob(MINT_A, WithdrawJob.STAGE_MELTING, quoteId = "quote-1")
+        mintClient.quoteStates["quote-1"] = QuoteState.PAID
+
+        val manager = startWorkers()
+        scope.runCurrent()
+
+        assertTrue(mintClient.melted.isEmpty())
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, historyEntry(manager, entryId).status)
+    }
+
+    @Test
+    fun `resumed job with an unpaid quote melts that same quote`() {
+        val entryId = queueJob(MINT_A, WithdrawJob.STAGE_MELTING, quoteId = "quote-1")
+
+        val manager = startWorkers()
+        scope.runCurrent()
+
+        assertEquals(listOf("quote-1"), mintClient.melted)
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, historyEntry(manager, entryId).status)
+    }
+
+    @Test
+    fun `pending melt is rechecked after the backoff until it is paid`() {
+        val entryId = queueJob(MINT_A)
+        mintClient.meltResult = QuoteState.PENDING
+
+        val manager = startWorkers()
+        scope.runCurrent()
+
+        val pending = WithdrawJobQueue(context).jobFor(MINT_A)!!
+        assertEquals(WithdrawJob.STAGE_PENDING, pending.stage)
+        assertEquals(1, pending.attempts)
+        assertEquals(AutoWithdrawManager.retryDelayMs(1), pending.nextAttemptAt)
+        assertEquals(WithdrawHistoryEntry.STATUS_PENDING, historyEntry(manager, entryId).status)
+        assertTrue(manager.isWithdrawing())
+        assertEquals("$MINT_A Pending", listener.events.last())
+
+        mintClient.quoteStates["quote-$MINT_A"] = QuoteState.PAID
+        scope.advanceTimeBy(AutoWithdrawManager.retryDelayMs(1))
+        scope.runCurrent()
+
+        assertEquals(listOf("quote-$MINT_A"), mintClient.melted)
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, historyEntry(manager, entryId).status)
+        assertFalse(manager.isWithdrawing())
+    }
+
+    @Test
+    fun `pending melt is rechecked as soon as the mint reports it settled`() {
+        val entryId = queueJob(MINT_A, WithdrawJob.STAGE_MELTING, quoteId = "quote-1")
+        mintClient.quoteStates["quote-1"] = QuoteState.PENDING
+        mintClient.settled = CompletableDeferred()
+
+        val manager = startWorkers()
+        scope.runCurrent()
+        assertEquals(WithdrawJob.STAGE_PENDING, WithdrawJobQueue(context).jobFor(MINT_A)?.stage)
+
+        scope.advanceTimeBy(1_000)
+        mintClient.quoteStates["quote-1"] = QuoteState.PAID
+        mintClient.settled!!.complete(Unit)
+        scope.runCurrent()
+
+        assertTrue(scope.currentTime < AutoWithdrawManager.retryDelayMs(1))
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, historyEntry(manager, entryId).status)
+    }
+
+    @Test
+    fun `quote failure fails the job without melting`() {
+        val entryId = queueJob(MINT_A)
+        mintClient.quoteError = IOException("mint offline")
+
+        val manager = startWorkers()
+        scope.runCurrent()
+
+        val entry = historyEntry(manager, entryId)
+        assertEquals(WithdrawHistoryEntry.STATUS_FAILED, entry.status)
+        assertEquals("mint offline", entry.errorMessage)
+        assertTrue(mintClient.melted.isEmpty())
+        assertTrue(WithdrawJobQueue(context).getAll().isEmpty())
+        assertEquals("$MINT_A failed", listener.events.last())
+    }
+
+    @Test
+    fun `insufficient balance fails the job before melting`() {
+        val entryId = queueJob(MINT_A)
+        MintBalanceLedger.setBalance(MINT_A, 500)
+
+        val manager = startWorkers()
+        scope.runCurrent()
+
+        assertEquals(WithdrawHistoryEntry.STATUS_FAILED, historyEntry(manager, entryId).status)
+        assertTrue(mintClient.melted.isEmpty())
+    }
+
+    @Test
+    fun `melt error keeps the quote and retries it`() {
+        val entryId = queueJob(MINT_A)
+        mintClient.meltError = IOException("connection reset")
+
+        val manager = startWorkers()
+        scope.runCurrent()
+
+        val retrying = WithdrawJobQueue(context).jobFor(MINT_A)!!
+        assertEquals(WithdrawJob.STAGE_MELTING, retrying.stage)
+        assertEquals("quote-$MINT_A", retrying.quoteId)
+        assertEquals(WithdrawHistoryEntry.STATUS_PENDING, historyEntry(manager, entryId).status)
+
+        // The melt did reach the mint after all
+        mintClient.meltError = null
+        mintClient.quoteStates["quote-$MINT_A"] = QuoteState.PAID
+        scope.advanceTimeBy(AutoWithdrawManager.retryDelayMs(1))
+        scope.runCurrent()
+
+        assertEquals(listOf("quote-$MINT_A"), mintClient.melted)
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, historyEntry(manager, entryId).status)
+    }
+
+    @Test
+    fun `job waits for the wallet`() {
+        val entryId = queueJob(MINT_A)
+        mintClient.ready = false
+
+        val manager = startWorkers()
+        scope.runCurrent()
+        assertEquals(1, WithdrawJobQueue(context).jobFor(MINT_A)?.attempts)
+        assertNull(historyEntry(manager, entryId).quoteId)
+
+        mintClient.ready = true
+        scope.advanceTimeBy(AutoWithdrawManager.retryDelayMs(1))
+        scope.runCurrent()
+
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, historyEntry(manager, entryId).status)
+    }
+
+    @Test
+    fun `jobs of different mints run in parallel and report progress per mint`() {
+        val entryA = queueJob(MINT_A)
+        val entryB = queueJob(MINT_B)
+        mintClient.quoteDelayMs = 1_000
+
+        val manager = startWorkers()
+        scope.runCurrent()
+
+        // Both quotes were requested before either finished
+        assertEquals(
+            listOf("$MINT_A started", "$MINT_A Quote", "$MINT_B started", "$MINT_B Quote"),
+            listener.events
+        )
+
+        scope.advanceTimeBy(1_000)
+        scope.runCurrent()
+
+        assertEquals(1_000L, scope.currentTime)
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, historyEntry(manager, entryA).status)
+        assertEquals(WithdrawHistoryEntry.STATUS_COMPLETED, historyEntry(manager, entryB).status)
+        for (mint in listOf(MINT_A, MINT_B)) {
+            assertEquals(
+                listOf("$mint started", "$mint Quote", "$mint Sending", "$mint completed"),
+                listener.events.filter { it.startsWith("$mint ") }
+            )
+        }
+    }
 }
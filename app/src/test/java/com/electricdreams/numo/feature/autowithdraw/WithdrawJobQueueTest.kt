@@ -0,0 +1,73 @@
+package com.electricdreams.numo.feature.autowithdraw
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class WithdrawJobQueueTest {
+
+    private lateinit var context: Context
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        context.getSharedPreferences("AutoWithdrawJobs", Context.MODE_PRIVATE).edit().clear().commit()
+    }
+
+    private fun job(mintUrl: String) = WithdrawJob(
+        mintUrl = mintUrl,
+        lightningAddress = "user@example.com",
+        amountSats = 1_000,
+        historyEntryId = "history-$mintUrl"
+    )
+
+    @Test
+    fun `only one job per mint is queued`() {
+        val queue = WithdrawJobQueue(context)
+
+        assertTrue(queue.enqueue(job("https://mint-a.test")))
+        assertFalse(queue.enqueue(job("https://mint-a.test")))
+        assertTrue(queue.enqueue(job("https://mint-b.test")))
+
+        assertEquals(2, queue.getAll().size)
+    }
+
+    @Test
+    fun `jobs and their quotes survive a restart`() {
+        val queue = WithdrawJobQueue(context)
+        val queued = job("https://mint-a.test")
+        queue.enqueue(queued)
+        queue.update(queued.copy(stage = WithdrawJob.STAGE_MELTING, quoteId = "quote-1", feeReserveSats = 3))
+
+        val restored = WithdrawJobQueue(context).jobFor("https://mint-a.test")!!
+
+        assertEquals(queued.id, restored.id)
+        assertEquals(WithdrawJob.STAGE_MELTING, restored.stage)
+        assertEquals("quote-1", restored.quoteId)
+        assertEquals(3L, restored.feeReserveSats)
+    }
+
+    @Test
+    fun `stale job copies do not touch a newer job for the same mint`() {
+        val queue = WithdrawJobQueue(context)
+        val first = job("https://mint-a.test")
+        queue.enqueue(first)
+        queue.remove(first)
+        val second = job("https://mint-a.test")
+        queue.enqueue(second)
+
+        queue.update(first.copy(quoteId = "stale"))
+        queue.remove(first)
+
+        assertEquals(second.id, queue.jobFor("https://mint-a.test")?.id)
+        assertNull(queue.jobFor("https://mint-a.test")?.quoteId)
+    }
+}
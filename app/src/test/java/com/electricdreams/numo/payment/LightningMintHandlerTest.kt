@@ -5,7 +5,9 @@ import com.electricdreams.numo.core.cashu.CashuWalletManager
 import org.cashudevkit.MultiMintWallet
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.awaitCancellation
 import kotlinx.coroutines.cancel
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.StandardTestDispatcher
@@ -20,6 +22,10 @@ import okhttp3.WebSocketListener
 import okhttp3.mockwebserver.MockResponse
 import okhttp3.mockwebserver.MockWebServer
 import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.argThat
+import org.mockito.kotlin.doSuspendableAnswer
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.wheneverBlocking
 import org.cashudevkit.Amount
 import org.cashudevkit.MintQuote
 import org.cashudevkit.MintUrl
@@ -210,4 +216,150 @@ class LightningMintHandlerTest {
             verify(mockCallback).onPaymentSuccess()
         }
     }
+
+    private fun quote(id: String): MintQuote = mock(MintQuote::class.java).also {
+        `when`(it.id).thenReturn(id)
+        `when`(it.request).thenReturn("lnbc-$id")
+    }
+
+    /**
+     * Shared WebSocket that is connected; [awaitState] decides what this quote's
+     * subscription does.
+     */
+    private fun connectedSubscriptions(awaitState: suspend () -> String): MintSubscriptionManager {
+        val subscriptions = mock(MintSubscriptionManager::class.java)
+        `when`(subscriptions.isConnected(any())).thenReturn(true)
+        wheneverBlocking { subscriptions.awaitQuoteState(any(), any(), any(), any()) } doSuspendableAnswer { awaitState() }
+        return subscriptions
+    }
+
+    private fun stubQuote(mintUrl: String, answer: suspend () -> MintQuote) {
+        wheneverBlocking {
+            mockWallet.mintQuote(argThat { url == mintUrl }, any(), any())
+        } doSuspendableAnswer { answer() }
+    }
+
+    private fun failoverHandler(dispatcher: StandardTestDispatcher) = LightningMintHandler(
+        "https://mint-a.test",
+        listOf("https://mint-a.test", "https://mint-b.test", "https://mint-c.test"),
+        TestScope(dispatcher),
+        dispatcher,
+        quotePool = null,
+        subscriptions = connectedSubscriptions { awaitCancellation() },
+        health = MintHealthTracker()
+    )
+
+    @Test
+    fun slowPrimaryMintFailsOverToTheNextMint() {
+        val dispatcher = StandardTestDispatcher()
+        val handler = failoverHandler(dispatcher)
+        val quoteA = quote("quote-a")
+        val quoteB = quote("quote-b")
+        stubQuote("https://mint-a.test") { delay(10_000); quoteA }
+        stubQuote("https://mint-b.test") { quoteB }
+
+        handler.start(paymentAmount, mockCallback)
+        dispatcher.scheduler.runCurrent()
+        verify(mockCallback, never()).onInvoiceReady(any(), any(), any())
+
+        dispatcher.scheduler.advanceTimeBy(MintHealthTracker.LATENCY_BUDGET_MS)
+        dispatcher.scheduler.runCurrent()
+
+        verify(mockCallback).onInvoiceReady("lnbc-quote-b", "quote-b", "https://mint-b.test")
+        assertEquals("https://mint-b.test", handler.mintUrlString)
+        handler.cancel()
+    }
+
+    @Test
+    fun latePrimaryQuoteIsDiscarded() {
+        val dispatcher = StandardTestDispatcher()
+        val handler = failoverHandler(dispatcher)
+        val primaryFinished = AtomicBoolean(false)
+        val quoteA = quote("quote-a")
+        val quoteB = quote("quote-b")
+        stubQuote("https://mint-a.test") {
+            delay(MintHealthTracker.LATENCY_BUDGET_MS + 1_000)
+            primaryFinished.set(true)
+            quoteA
+        }
+        stubQuote("https://mint-b.test") { delay(500); quoteB }
+
+        handler.start(paymentAmount, mockCallback)
+        dispatcher.scheduler.advanceTimeBy(MintHealthTracker.LATENCY_BUDGET_MS + 500)
+        dispatcher.scheduler.runCurrent()
+        dispatcher.scheduler.advanceTimeBy(10_000)
+        dispatcher.scheduler.runCurrent()
+
+        // The primary's request was cancelled once the second mint answered
+        assertFalse(primaryFinished.get())
+        verify(mockCallback, times(1)).onInvoiceReady(any(), any(), any())
+        verify(mockCallback).onInvoiceReady("lnbc-quote-b", "quote-b", "https://mint-b.test")
+        assertEquals("quote-b", handler.currentQuoteId)
+        handler.cancel()
+    }
+
+    @Test
+    fun errorIsReportedWhenAllMintsFail() {
+        val dispatcher = StandardTestDispatcher()
+        val handler = failoverHandler(dispatcher)
+        stubQuote("https://mint-a.test") { throw RuntimeException("mint a down") }
+        stubQuote("https://mint-b.test") { throw RuntimeException("mint b down") }
+        stubQuote("https://mint-c.test") { throw RuntimeException("mint c down") }
+
+        handler.start(paymentAmount, mockCallback)
+        // Failures move on to the next mint without waiting for the latency budget
+        dispatcher.scheduler.runCurrent()
+
+        runBlocking {
+            verify(mockWallet).mintQuote(argThat { url == "https://mint-c.test" }, any(), any())
+        }
+        verify(mockCallback).onError("mint c down")
+        verify(mockCallback, never()).onInvoiceReady(any(), any(), any())
+    }
+
+    @Test
+    fun noPollingWhileTheQuoteSubscriptionIsLive() {
+        val dispatcher = StandardTestDispatcher()
+        val handler = LightningMintHandler(
+            mintUrlStr, listOf(mintUrlStr), TestScope(dispatcher), dispatcher,
+            quotePool = null,
+            subscriptions = connectedSubscriptions { awaitCancellation() },
+            health = MintHealthTracker()
+        )
+        stubQuote(mintUrlStr) { mockMintQuote }
+
+        handler.start(paymentAmount, mockCallback)
+        dispatcher.scheduler.advanceTimeBy(LightningMintHandler.MAX_POLL_INTERVAL_MS * 4)
+        dispatcher.scheduler.runCurrent()
+
+        runBlocking {
+            verify(mockWallet, never()).checkMintQuote(any(), any())
+        }
+        handler.cancel()
+    }
+
+    @Test
+    fun rejectedSubscriptionSwitchesTheQuoteToPolling() {
+        val dispatcher = StandardTestDispatcher()
+        // The shared socket stays up for other quotes, but the mint rejects this one
+        val handler = LightningMintHandler(
+            mintUrlStr, listOf(mintUrlStr), TestScope(dispatcher), dispatcher,
+            quotePool = null,
+            subscriptions = connectedSubscriptions { throw Exception("Mint WS error code=-32601") },
+            health = MintHealthTracker()
+        )
+        stubQuote(mintUrlStr) { mockMintQuote }
+        val paidQuote = mock(MintQuote::class.java)
+        `when`(paidQuote.state).thenReturn(QuoteState.PAID)
+        runBlocking {
+            doReturn(paidQuote).`when`(mockWallet).checkMintQuote(any(), eq(quoteId))
+            doReturn(listOf<Proof>()).`when`(mockWallet).mint(any(), eq(quoteId), anyOrNull())
+        }
+
+        handler.start(paymentAmount, mockCallback)
+        dispatcher.scheduler.advanceTimeBy(LightningMintHandler.POLL_INTERVAL_MS)
+        dispatcher.scheduler.runCurrent()
+
+        verify(mockCallback).onPaymentSuccess()
+    }
 }
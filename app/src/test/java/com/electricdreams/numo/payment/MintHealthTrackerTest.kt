@@ -0,0 +1,157 @@
+package com.electricdreams.numo.payment
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.IOException
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@RunWith(RobolectricTestRunner::class)
+class MintHealthTrackerTest {
+
+    private companion object {
+        const val PREFERRED = "https://preferred.test"
+        const val FAST = "https://fast.test"
+        const val SLOW = "https://slow.test"
+    }
+
+    private lateinit var scope: TestScope
+    private lateinit var tracker: MintHealthTracker
+    private val probed = mutableListOf<String>()
+    private val failingMints = mutableSetOf<String>()
+
+    @Before
+    fun setUp() {
+        scope = TestScope()
+        tracker = MintHealthTracker(
+            scope = scope,
+            clock = { scope.testScheduler.currentTime },
+            probe = { mintUrl ->
+                probed.add(mintUrl)
+                if (mintUrl in failingMints) throw IOException("unreachable")
+            }
+        )
+    }
+
+    @Test
+    fun `healthy preferred mint is ranked first`() {
+        tracker.record(PREFERRED, 800, failed = false)
+        tracker.record(FAST, 100, failed = false)
+        tracker.record(SLOW, 2_000, failed = false)
+
+        val ranked = tracker.rankForLightning(PREFERRED, listOf(SLOW, FAST, PREFERRED))
+
+        assertEquals(listOf(PREFERRED, FAST, SLOW), ranked)
+    }
+
+    @Test
+    fun `slow preferred mint is ranked after faster mints`() {
+        tracker.record(PREFERRED, MintHealthTracker.LATENCY_BUDGET_MS * 2, failed = false)
+        tracker.record(FAST, 100, failed = false)
+
+        val ranked = tracker.rankForLightning(PREFERRED, listOf(PREFERRED, FAST))
+
+        assertEquals(listOf(FAST, PREFERRED), ranked)
+    }
+
+    @Test
+    fun `mint is down after repeated failures and recovers after the cooldown`() {
+        repeat(MintHealthTracker.FAILURES_TO_MARK_DOWN) {
+            tracker.record(PREFERRED, 100, failed = true)
+        }
+
+        assertFalse(tracker.health(PREFERRED).healthy)
+        assertEquals(listOf(FAST, PREFERRED), tracker.rankForLightning(PREFERRED, listOf(PREFERRED, FAST)))
+
+        scope.advanceTimeBy(MintHealthTracker.DOWN_COOLDOWN_MS)
+
+        assertTrue(tracker.health(PREFERRED).healthy)
+        assertEquals(listOf(PREFERRED, FAST), tracker.rankForLightning(PREFERRED, listOf(PREFERRED, FAST)))
+    }
+
+    @Test
+    fun `success resets consecutive failures`() {
+        tracker.record(PREFERRED, 100, failed = true)
+        tracker.record(PREFERRED, 100, failed = true)
+        tracker.record(PREFERRED, 100, failed = false)
+
+        val health = tracker.health(PREFERRED)
+        assertEquals(0, health.consecutiveFailures)
+        assertTrue(health.healthy)
+    }
+
+    @Test
+    fun `cancelled call only counts towards latency`() {
+        tracker.record(PREFERRED, 100, failed = false)
+
+        assertThrows(CancellationException::class.java) {
+            tracker.track("mint.quote", PREFERRED) {
+                Thread.sleep(20)
+                throw CancellationException("another mint answered first")
+            }
+        }
+
+        val health = tracker.health(PREFERRED)
+        assertEquals(0.0, health.errorRate, 0.0)
+        assertEquals(0, health.consecutiveFailures)
+        // Abandoned after 20 ms, shorter than the average, so the average is unchanged
+        assertEquals(100L, health.latencyMs)
+    }
+
+    @Test
+    fun `failed call is recorded and rethrown`() {
+        assertThrows(IOException::class.java) {
+            tracker.track("mint.quote", PREFERRED) { throw IOException("502") }
+        }
+
+        val health = tracker.health(PREFERRED)
+        assertEquals(1, health.consecutiveFailures)
+        assertTrue(health.errorRate > 0.0)
+    }
+
+    @Test
+    fun `unknown mint is healthy without latency`() {
+        val health = tracker.health(PREFERRED)
+
+        assertTrue(health.healthy)
+        assertNull(health.latencyMs)
+    }
+
+    @Test
+    fun `preferred mint outside allowed mints is ignored`() {
+        val ranked = tracker.rankForLightning(PREFERRED, listOf(FAST, SLOW))
+
+        assertEquals(listOf(FAST, SLOW), ranked)
+    }
+
+    @Test
+    fun `probes mark unreachable mints down until stopped`() {
+        failingMints.add(SLOW)
+        tracker.startProbing { listOf(FAST, SLOW) }
+
+        scope.runCurrent()
+        repeat(MintHealthTracker.FAILURES_TO_MARK_DOWN - 1) {
+            scope.advanceTimeBy(MintHealthTracker.PROBE_INTERVAL_MS)
+            scope.runCurrent()
+        }
+
+        assertTrue(tracker.health(FAST).healthy)
+        assertFalse(tracker.health(SLOW).healthy)
+
+        tracker.stopProbing()
+        val probes = probed.size
+        scope.advanceTimeBy(MintHealthTracker.PROBE_INTERVAL_MS * 2)
+        assertEquals(probes, probed.size)
+    }
+}
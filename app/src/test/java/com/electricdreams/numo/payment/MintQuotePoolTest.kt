@@ -0,0 +1,178 @@
+package com.electricdreams.numo.payment
+
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import org.cashudevkit.MintQuote
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.whenever
+import org.robolectric.RobolectricTestRunner
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@RunWith(RobolectricTestRunner::class)
+class MintQuotePoolTest {
+
+    private companion object {
+        const val MINT = "https://mint.test"
+    }
+
+    private lateinit var scope: TestScope
+    private lateinit var pool: MintQuotePool
+    private var wallet: Any = Any()
+    private val requests = mutableListOf<Long>()
+    // Expiry the mint gives new quotes, 0 for none
+    private var quoteExpiry = 0L
+
+    @Before
+    fun setUp() {
+        scope = TestScope()
+        pool = MintQuotePool(
+            scope = scope,
+            clock = { scope.testScheduler.currentTime },
+            walletProvider = { wallet },
+            quoteSource = { _, amount ->
+                requests.add(amount)
+                quote("quote-${requests.size}")
+            },
+            expiryOf = { quoteExpiry }
+        )
+    }
+
+    private fun quote(id: String): MintQuote = mock<MintQuote>().also {
+        whenever(it.id).thenReturn(id)
+    }
+
+    @Test
+    fun `prefetched quote is handed out once`() {
+        pool.prefetch(MINT, 1_000)
+        scope.runCurrent()
+
+        assertEquals("quote-1", pool.take(MINT, 1_000)?.id)
+        assertNull(pool.take(MINT, 1_000))
+        assertNull(pool.take(MINT, 2_000))
+    }
+
+    @Test
+    fun `prefetch is skipped while a fresh quote is pooled`() {
+        pool.prefetch(MINT, 1_000)
+        pool.prefetch(MINT, 1_000)
+        scope.runCurrent()
+        pool.prefetch(MINT, 1_000)
+        scope.runCurrent()
+
+        assertEquals(listOf(1_000L), requests)
+    }
+
+    @Test
+    fun `stale quotes are not handed out`() {
+        pool.prefetch(MINT, 1_000)
+        scope.runCurrent()
+
+        // Not recently used, so it is not renewed either
+        scope.advanceTimeBy(MintQuotePool.DEFAULT_QUOTE_TTL_MS + 1)
+        scope.runCurrent()
+
+        assertNull(pool.take(MINT, 1_000))
+        assertEquals(1, requests.size)
+    }
+
+    @Test
+    fun `quotes are handed out until the margin before their expiry`() {
+        quoteExpiry = 5 * 60_000L
+        pool.prefetch(MINT, 1_000)
+        pool.prefetch(MINT, 2_000)
+        scope.runCurrent()
+
+        scope.advanceTimeBy(quoteExpiry - MintQuotePool.EXPIRY_MARGIN_MS - 1)
+        assertEquals("quote-1", pool.take(MINT, 1_000)?.id)
+        scope.advanceTimeBy(1)
+        assertNull(pool.take(MINT, 2_000))
+    }
+
+    @Test
+    fun `quotes expiring within the margin are not pooled`() {
+        quoteExpiry = MintQuotePool.EXPIRY_MARGIN_MS
+        pool.prefetch(MINT, 1_000)
+        scope.runCurrent()
+
+        assertNull(pool.take(MINT, 1_000))
+    }
+
+    @Test
+    fun `quotes from a replaced wallet are discarded`() {
+        pool.prefetch(MINT, 1_000)
+        scope.runCurrent()
+        wallet = Any()
+
+        assertNull(pool.take(MINT, 1_000))
+    }
+
+    @Test
+    fun `recently used amounts are refilled and renewed`() {
+        pool.startRenewing()
+        pool.recordUse(MINT, 1_000)
+        scope.runCurrent()
+        val first = pool.take(MINT, 1_000)
+        pool.recordUse(MINT, 1_000)
+        scope.runCurrent()
+
+        assertEquals("quote-1", first?.id)
+        assertEquals(2, requests.size)
+
+        // The unused refill goes stale and is replaced
+        scope.advanceTimeBy(MintQuotePool.DEFAULT_QUOTE_TTL_MS + 1)
+        scope.runCurrent()
+
+        assertEquals(3, requests.size)
+        assertEquals("quote-3", pool.take(MINT, 1_000)?.id)
+    }
+
+    @Test
+    fun `stale quotes are not renewed after renewing stops`() {
+        pool.startRenewing()
+        pool.recordUse(MINT, 1_000)
+        scope.runCurrent()
+        pool.stopRenewing()
+
+        scope.advanceTimeBy(MintQuotePool.DEFAULT_QUOTE_TTL_MS + 1)
+        scope.runCurrent()
+
+        assertEquals(1, requests.size)
+        assertNull(pool.take(MINT, 1_000))
+    }
+
+    @Test
+    fun `recent amounts that went stale are refilled when renewing starts`() {
+        pool.recordUse(MINT, 1_000)
+        scope.runCurrent()
+        scope.advanceTimeBy(MintQuotePool.DEFAULT_QUOTE_TTL_MS + 1)
+        scope.runCurrent()
+        assertEquals(1, requests.size)
+
+        pool.startRenewing()
+        scope.runCurrent()
+
+        assertEquals(2, requests.size)
+        assertEquals("quote-2", pool.take(MINT, 1_000)?.id)
+    }
+
+    @Test
+    fun `oldest recent amount is dropped beyond the limit`() {
+        for (amount in 1L..MintQuotePool.MAX_RECENT_AMOUNTS + 1) {
+            pool.recordUse(MINT, amount)
+            scope.runCurrent()
+        }
+
+        assertNull(pool.take(MINT, 1L))
+        assertEquals(
+            MintQuotePool.MAX_RECENT_AMOUNTS,
+            (2L..MintQuotePool.MAX_RECENT_AMOUNTS + 1).count { pool.take(MINT, it) != null }
+        )
+    }
+}
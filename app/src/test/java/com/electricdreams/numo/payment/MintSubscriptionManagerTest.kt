@@ -0,0 +1,166 @@
+package com.electricdreams.numo.payment
+
+import com.google.gson.Gson
+import com.google.gson.JsonObject
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import okhttp3.OkHttpClient
+import okhttp3.Response
+import okhttp3.WebSocket
+import okhttp3.WebSocketListener
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+class MintSubscriptionManagerTest {
+
+    /**
+     * Server side of one mint WebSocket connection.
+     */
+    private class FakeMintSocket : WebSocketListener() {
+        val received = LinkedBlockingQueue<JsonObject>()
+        @Volatile
+        var socket: WebSocket? = null
+
+        override fun onOpen(webSocket: WebSocket, response: Response) {
+            socket = webSocket
+        }
+
+        override fun onMessage(webSocket: WebSocket, text: String) {
+            received.add(Gson().fromJson(text, JsonObject::class.java))
+        }
+
+        fun nextRequest(): JsonObject = received.poll(5, TimeUnit.SECONDS)
+            ?: throw AssertionError("No request received")
+
+        fun notify(subId: String, quoteId: String, state: String) {
+            socket!!.send(
+                """{"jsonrpc":"2.0","method":"subscribe","params":{"subId":"$subId",""" +
+                    """"payload":{"quote":"$quoteId","state":"$state"}}}"""
+            )
+        }
+    }
+
+    private lateinit var server: MockWebServer
+    private lateinit var scope: CoroutineScope
+    private lateinit var manager: MintSubscriptionManager
+    private lateinit var mintUrl: String
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        server.start()
+        scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+        manager = MintSubscriptionManager(OkHttpClient(), scope)
+        mintUrl = server.url("/").toString()
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+        server.shutdown()
+    }
+
+    private fun acceptConnection(): FakeMintSocket {
+        val mint = FakeMintSocket()
+        server.enqueue(MockResponse().withWebSocketUpgrade(mint))
+        return mint
+    }
+
+    private class RecordingListener : MintSubscriptionManager.SubscriptionListener {
+        val states = CopyOnWriteArrayList<String>()
+        override fun onState(state: String) {
+            states.add(state)
+        }
+
+        override fun onError(error: Exception) {}
+    }
+
+    private fun waitUntil(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + 5_000
+        while (!condition()) {
+            if (System.currentTimeMillis() > deadline) throw AssertionError("Timed out")
+            Thread.sleep(10)
+        }
+    }
+
+    @Test
+    fun `subscriptions to one mint share a socket and are routed by subId`() {
+        val mint = acceptConnection()
+        val first = RecordingListener()
+        val second = RecordingListener()
+
+        val firstId = manager.subscribe(mintUrl, MintSubscriptionManager.KIND_MINT_QUOTE, "quote-1", first)
+        val secondId = manager.subscribe(mintUrl, MintSubscriptionManager.KIND_MELT_QUOTE, "quote-2", second)
+
+        val requests = listOf(mint.nextRequest(), mint.nextRequest())
+        val kinds = requests.associate {
+            val params = it.getAsJsonObject("params")
+            params["subId"].asString to params["kind"].asString
+        }
+        assertEquals(MintSubscriptionManager.KIND_MINT_QUOTE, kinds[firstId])
+        assertEquals(MintSubscriptionManager.KIND_MELT_QUOTE, kinds[secondId])
+        assertTrue(manager.isConnected(mintUrl))
+
+        mint.notify(secondId, "quote-2", "PAID")
+        waitUntil { second.states.isNotEmpty() }
+
+        assertEquals(listOf("PAID"), second.states)
+        assertTrue(first.states.isEmpty())
+        assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun `awaitQuoteState resumes on a matching state and unsubscribes`() = runBlocking {
+        val mint = acceptConnection()
+
+        val result = async(Dispatchers.IO) {
+            manager.awaitQuoteState(mintUrl, MintSubscriptionManager.KIND_MINT_QUOTE, "quote-1", setOf("PAID"))
+        }
+        val subId = mint.nextRequest().getAsJsonObject("params")["subId"].asString
+        mint.notify(subId, "quote-1", "UNPAID")
+        mint.notify(subId, "quote-1", "PAID")
+
+        assertEquals("PAID", withTimeout(5_000) { result.await() })
+        val unsubscribe = mint.nextRequest()
+        assertEquals("unsubscribe", unsubscribe["method"].asString)
+        assertEquals(subId, unsubscribe.getAsJsonObject("params")["subId"].asString)
+    }
+
+    @Test
+    fun `live subscriptions are re-sent after a reconnect`() {
+        val firstConnection = acceptConnection()
+        val listener = RecordingListener()
+        val subId = manager.subscribe(mintUrl, MintSubscriptionManager.KIND_MINT_QUOTE, "quote-1", listener)
+        firstConnection.nextRequest()
+
+        val secondConnection = acceptConnection()
+        firstConnection.socket!!.close(1001, "going away")
+        waitUntil { !manager.isConnected(mintUrl) }
+        assertFalse(manager.isConnected(mintUrl))
+
+        val resubscribe = secondConnection.nextRequest()
+        assertEquals(subId, resubscribe.getAsJsonObject("params")["subId"].asString)
+        waitUntil { manager.isConnected(mintUrl) }
+
+        secondConnection.notify(subId, "quote-1", "PAID")
+        waitUntil { listener.states.isNotEmpty() }
+        assertEquals(listOf("PAID"), listener.states)
+    }
+}
@@ -0,0 +1,132 @@
+package com.electricdreams.numo.payment
+
+import android.content.Context
+import com.electricdreams.numo.nostr.NostrPaymentListener
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.verify
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@RunWith(RobolectricTestRunner::class)
+class PaymentPreparerTest {
+
+    private companion object {
+        val MINTS = listOf("https://mint.test")
+        val RELAYS = NostrPaymentHandler.NOSTR_RELAYS.toList()
+    }
+
+    private lateinit var context: Context
+    private lateinit var scope: TestScope
+    private lateinit var preparer: PaymentPreparer
+    private val listeners = mutableListOf<NostrPaymentListener>()
+    private var hceWarmUps = 0
+
+    @Before
+    fun setUp() {
+        context = RuntimeEnvironment.getApplication()
+        scope = TestScope()
+        preparer = PaymentPreparer(
+            scope = scope,
+            clock = { scope.testScheduler.currentTime },
+            mintsProvider = { MINTS },
+            listenerFactory = { _, _, _ -> mock<NostrPaymentListener>().also { listeners.add(it) } },
+            hceWarmUp = { hceWarmUps++ }
+        )
+    }
+
+    @Test
+    fun `prepares one session while the amount is typed`() {
+        repeat(3) {
+            preparer.prepare(context)
+            scope.runCurrent()
+        }
+
+        assertEquals(1, listeners.size)
+        assertEquals(1, hceWarmUps)
+        verify(listeners.single()).start()
+    }
+
+    @Test
+    fun `prepared session is handed out once`() {
+        preparer.prepare(context)
+        scope.runCurrent()
+
+        val session = preparer.takeNostr(MINTS, RELAYS)
+
+        assertNotNull(session)
+        assertSame(listeners.single(), session!!.listener)
+        assertEquals(MINTS, session.allowedMints)
+        verify(session.listener, never()).stop()
+        assertNull(preparer.takeNostr(MINTS, RELAYS))
+    }
+
+    @Test
+    fun `next payment gets a new key`() {
+        preparer.prepare(context)
+        scope.runCurrent()
+        val first = preparer.takeNostr(MINTS, RELAYS)!!
+
+        preparer.prepare(context)
+        scope.runCurrent()
+        val second = preparer.takeNostr(MINTS, RELAYS)!!
+
+        assertEquals(2, listeners.size)
+        assertNotEquals(first.keyPair.hexPub, second.keyPair.hexPub)
+    }
+
+    @Test
+    fun `session for other mints is discarded`() {
+        preparer.prepare(context)
+        scope.runCurrent()
+
+        assertNull(preparer.takeNostr(listOf("https://other.test"), RELAYS))
+        verify(listeners.single()).stop()
+    }
+
+    @Test
+    fun `idle session expires`() {
+        preparer.prepare(context)
+        scope.runCurrent()
+
+        scope.advanceTimeBy(PaymentPreparer.MAX_AGE_MS)
+        scope.runCurrent()
+
+        verify(listeners.single()).stop()
+        assertNull(preparer.takeNostr(MINTS, RELAYS))
+    }
+
+    @Test
+    fun `cancel closes the prepared session`() {
+        preparer.prepare(context)
+        scope.runCurrent()
+
+        preparer.cancel()
+
+        verify(listeners.single()).stop()
+        assertNull(preparer.takeNostr(MINTS, RELAYS))
+    }
+
+    @Test
+    fun `cancel before the session is ready drops it`() {
+        preparer.prepare(context)
+        preparer.cancel()
+        scope.runCurrent()
+
+        assertEquals(0, listeners.size)
+        assertNull(preparer.takeNostr(MINTS, RELAYS))
+    }
+}
@@ -0,0 +1,280 @@
+package com.electricdreams.numo.payment
+
+import android.content.Context
+import com.electricdreams.numo.core.data.PendingPaymentIndex
+import com.electricdreams.numo.core.data.model.PaymentHistoryEntry
+import com.electricdreams.numo.feature.history.PaymentsHistoryActivity
+import com.electricdreams.numo.nostr.NostrKeyPair
+import com.electricdreams.numo.nostr.NostrPaymentListener
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.verify
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+
+@OptIn(ExperimentalCoroutinesApi::class)
+@RunWith(RobolectricTestRunner::class)
+class PendingPaymentRecoveryTest {
+
+    private companion object {
+        const val MINT = "https://mint.test"
+    }
+
+    private lateinit var context: Context
+    private lateinit var scope: TestScope
+    private val checkedQuotes = mutableListOf<String>()
+    private val paidQuotes = mutableSetOf<String>()
+    private val listeners = mutableListOf<NostrPaymentListener>()
+    private val onTokens = mutableListOf<(String) -> Unit>()
+    private var walletReady = true
+    private var clockOffset = 0L
+
+    @Before
+    fun setUp() {
+        context = RuntimeEnvironment.getApplication()
+        context.getSharedPreferences("PaymentHistory", Context.MODE_PRIVATE).edit().clear().apply()
+        PendingPaymentIndex.clear(context)
+        scope = TestScope()
+    }
+
+    private fun recovery(quoteDelayMs: Long = 0) = PendingPaymentRecovery(
+        scope = scope,
+        clock = { System.currentTimeMillis() + clockOffset },
+        walletReady = { walletReady },
+        quoteSettler = { _, quoteId ->
+            checkedQuotes.add(quoteId)
+            delay(quoteDelayMs)
+            quoteId in paidQuotes
+        },
+        listenerFactory = { _, _, _, onToken ->
+            onTokens.add(onToken)
+            mock<NostrPaymentListener>().also { listeners.add(it) }
+        }
+    )
+
+    private fun addPending(quoteId: String? = null, withNostr: Boolean = false): String {
+        val paymentId = PaymentsHistoryActivity.addPendingPayment(
+            context = context,
+            amount = 1_000L,
+            entryUnit = "sat",
+            enteredAmount = 1_000L,
+            bitcoinPrice = null,
+            paymentRequest = null,
+            formattedAmount = null,
+        )
+        if (quoteId != null) {
+            PaymentsHistoryActivity.updatePendingWithLightningInfo(
+                context = context,
+                paymentId = paymentId,
+                lightningInvoice = "lnbc-$quoteId",
+                lightningQuoteId = quoteId,
+                lightningMintUrl = MINT,
+            )
+        }
+        if (withNostr) {
+            PaymentsHistoryActivity.updatePendingWithNostrInfo(
+                context = context,
+                paymentId = paymentId,
+                nostrSecretHex = NostrKeyPair.generate().hexSec,
+                nostrNprofile = "nprofile1...",
+            )
+        }
+        return paymentId
+    }
+
+    private fun historyEntry(paymentId: String): PaymentHistoryEntry =
+        PaymentsHistoryActivity.getPaymentHistory(context).single { it.id == paymentId }
+
+    @Test
+    fun `paid quote completes the payment`() {
+        val paymentId = addPending(quoteId = "quote-1")
+        paidQuotes.add("quote-1")
+
+        recovery().start(context)
+        scope.runCurrent()
+
+        val entry = historyEntry(paymentId)
+        assertTrue(entry.isCompleted())
+        assertEquals(PaymentHistoryEntry.TYPE_LIGHTNING, entry.paymentType)
+        assertEquals("quote-1", entry.lightningQuoteId)
+        assertEquals(MINT, entry.lightningMintUrl)
+        assertNull(PendingPaymentIndex.get(context, paymentId))
+    }
+
+    @Test
+    fun `unpaid quote stays pending`() {
+        val paymentId = addPending(quoteId = "quote-1")
+
+        recovery().start(context)
+        scope.runCurrent()
+
+        assertEquals(listOf("quote-1"), checkedQuotes)
+        assertTrue(historyEntry(paymentId).isPending())
+    }
+
+    @Test
+    fun `quotes of all pending payments are checked in parallel`() {
+        addPending(quoteId = "quote-1")
+        addPending(quoteId = "quote-2")
+
+        recovery(quoteDelayMs = 1_000).start(context)
+        scope.runCurrent()
+
+        // Both checks started before either finished
+        assertEquals(setOf("quote-1", "quote-2"), checkedQuotes.toSet())
+    }
+
+    @Test
+    fun `token delivered over nostr completes the payment`() {
+        val paymentId = addPending(quoteId = "quote-1", withNostr = true)
+
+        recovery().start(context)
+        scope.runCurrent()
+        verify(listeners.single()).start()
+
+        onTokens.single().invoke("cashuBtoken")
+
+        val entry = historyEntry(paymentId)
+        assertTrue(entry.isCompleted())
+        assertEquals(PaymentHistoryEntry.TYPE_CASHU, entry.paymentType)
+        assertEquals("cashuBtoken", entry.token)
+        verify(listeners.single()).stop()
+    }
+
+    @Test
+    fun `nostr listener stops after the listen window`() {
+        val paymentId = addPending(withNostr = true)
+
+        recovery().start(context)
+        scope.runCurrent()
+        scope.advanceTimeBy(PendingPaymentRecovery.NOSTR_LISTEN_MS)
+        scope.runCurrent()
+
+        verify(listeners.single()).stop()
+        assertTrue(historyEntry(paymentId).isPending())
+    }
+
+    @Test
+    fun `released payment is left to the payment screen`() {
+        val paymentId = addPending(withNostr = true)
+        val recovery = recovery()
+
+        recovery.start(context)
+        scope.runCurrent()
+        recovery.release(paymentId)
+        verify(listeners.single()).stop()
+
+        onTokens.single().invoke("cashuBtoken")
+
+        assertTrue(historyEntry(paymentId).isPending())
+    }
+
+    @Test
+    fun `payment released before start is skipped`() {
+        val paymentId = addPending(quoteId = "quote-1")
+        paidQuotes.add("quote-1")
+        val recovery = recovery()
+
+        recovery.release(paymentId)
+        recovery.start(context)
+        scope.runCurrent()
+
+        assertTrue(checkedQuotes.isEmpty())
+        assertTrue(historyEntry(paymentId).isPending())
+    }
+
+    @Test
+    fun `payments older than the recovery window are skipped`() {
+        addPending(quoteId = "quote-1", withNostr = true)
+        clockOffset = PendingPaymentRecovery.RECOVERY_WINDOW_MS + 1
+
+        recovery().start(context)
+        scope.runCurrent()
+
+        assertTrue(checkedQuotes.isEmpty())
+        assertTrue(listeners.isEmpty())
+    }
+
+    @Test
+    fun `payment created after start is left to the payment screen`() {
+        walletReady = false
+        recovery().start(context)
+        Thread.sleep(5)
+        addPending(quoteId = "quote-1")
+        paidQuotes.add("quote-1")
+
+        walletReady = true
+        scope.advanceTimeBy(1_000)
+        scope.runCurrent()
+
+        assertTrue(checkedQuotes.isEmpty())
+    }
+
+    @Test
+    fun `payment released while its quote is minted is still completed`() {
+        val paymentId = addPending(quoteId = "quote-1")
+        paidQuotes.add("quote-1")
+        val recovery = recovery(quoteDelayMs = 1_000)
+
+        recovery.start(context)
+        scope.runCurrent()
+        recovery.release(paymentId)
+        scope.advanceTimeBy(1_000)
+        scope.runCurrent()
+
+        assertTrue(historyEntry(paymentId).isCompleted())
+        assertNull(PendingPaymentIndex.get(context, paymentId))
+    }
+
+    @Test
+    fun `recovery waits for the wallet`() {
+        addPending(quoteId = "quote-1")
+        walletReady = false
+
+        recovery().start(context)
+        scope.runCurrent()
+        assertTrue(checkedQuotes.isEmpty())
+
+        walletReady = true
+        scope.advanceTimeBy(1_000)
+        scope.runCurrent()
+        assertEquals(listOf("quote-1"), checkedQuotes)
+    }
+
+    @Test
+    fun `recovery is skipped when the wallet never becomes ready`() {
+        addPending(quoteId = "quote-1")
+        walletReady = false
+
+        recovery().start(context)
+        scope.advanceTimeBy(PendingPaymentRecovery.WALLET_WAIT_MS * 2)
+        scope.runCurrent()
+        walletReady = true
+        scope.advanceTimeBy(1_000)
+        scope.runCurrent()
+
+        assertTrue(checkedQuotes.isEmpty())
+    }
+
+    @Test
+    fun `start only runs once`() {
+        addPending(quoteId = "quote-1")
+        val recovery = recovery()
+
+        recovery.start(context)
+        recovery.start(context)
+        scope.runCurrent()
+
+        assertEquals(listOf("quote-1"), checkedQuotes)
+    }
+}
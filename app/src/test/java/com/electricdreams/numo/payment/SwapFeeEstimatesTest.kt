@@ -0,0 +1,52 @@
+package com.electricdreams.numo.payment
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class SwapFeeEstimatesTest {
+
+    private companion object {
+        const val UNKNOWN_MINT = "https://unknown.test"
+        const val LIGHTNING_MINT = "https://lightning.test"
+    }
+
+    private var now = 0L
+    private val estimates = SwapFeeEstimates(clock = { now })
+
+    @Test
+    fun `estimate scales with the amount and rounds up`() {
+        estimates.record(UNKNOWN_MINT, LIGHTNING_MINT, 1_000, 10)
+
+        assertEquals(10L, estimates.estimate(UNKNOWN_MINT, LIGHTNING_MINT, 1_000))
+        assertEquals(16L, estimates.estimate(UNKNOWN_MINT, LIGHTNING_MINT, 1_550))
+        assertEquals(5L, estimates.estimate(UNKNOWN_MINT, LIGHTNING_MINT, 500))
+    }
+
+    @Test
+    fun `estimates are per mint pair`() {
+        estimates.record(UNKNOWN_MINT, LIGHTNING_MINT, 1_000, 10)
+
+        assertNull(estimates.estimate(UNKNOWN_MINT, "https://other.test", 1_000))
+        assertNull(estimates.estimate("https://other.test", LIGHTNING_MINT, 1_000))
+    }
+
+    @Test
+    fun `amounts far from the recorded one have no estimate`() {
+        estimates.record(UNKNOWN_MINT, LIGHTNING_MINT, 1_000, 10)
+
+        assertNull(estimates.estimate(UNKNOWN_MINT, LIGHTNING_MINT, 2_001))
+        assertNull(estimates.estimate(UNKNOWN_MINT, LIGHTNING_MINT, 499))
+    }
+
+    @Test
+    fun `estimates expire and can be invalidated`() {
+        estimates.record(UNKNOWN_MINT, LIGHTNING_MINT, 1_000, 10)
+        now += SwapFeeEstimates.ESTIMATE_TTL_MS
+        assertNull(estimates.estimate(UNKNOWN_MINT, LIGHTNING_MINT, 1_000))
+
+        estimates.record(UNKNOWN_MINT, LIGHTNING_MINT, 1_000, 10)
+        estimates.invalidate(UNKNOWN_MINT, LIGHTNING_MINT)
+        assertNull(estimates.estimate(UNKNOWN_MINT, LIGHTNING_MINT, 1_000))
+    }
+}
@@ -216,4 +216,34 @@ class AmountDisplayManagerTest {
         assert(fiatInput.toString() == "100")
         assert(manager.isUsdInputMode)
     }
+
+    @Test
+    fun `converted amount shows the age of a stale price`() {
+        `when`(bitcoinPriceWorker.getPriceSnapshot(CurrencyManager.CURRENCY_JPY)).thenReturn(
+            BitcoinPriceWorker.PriceSnapshot(
+                currency = CurrencyManager.CURRENCY_JPY,
+                price = 10_000_000.0,
+                updatedAt = System.currentTimeMillis() - 10 * 60_000L,
+                isStale = true
+            )
+        )
+        `when`(mockContext.getString(eq(R.string.pos_secondary_amount_stale_price), any(), any())).thenAnswer {
+            "${it.arguments[1]} (old price)"
+        }
+        manager = AmountDisplayManager(
+            mockContext,
+            amountDisplay,
+            secondaryAmountDisplay,
+            switchCurrencyButton,
+            submitButton,
+            bitcoinPriceWorker
+        )
+        val prefs = mockContext.getSharedPreferences("numo_prefs", Context.MODE_PRIVATE)
+        prefs.edit().putBoolean("inputMode", true).commit()
+        manager.initializeInputMode()
+
+        manager.updateDisplay(StringBuilder(), StringBuilder("1"), AmountDisplayManager.AnimationType.NONE)
+
+        verify(secondaryAmountDisplay).text = "₿10 (old price)"
+    }
 }
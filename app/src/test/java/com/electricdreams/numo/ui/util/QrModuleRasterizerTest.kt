@@ -0,0 +1,66 @@
+package com.electricdreams.numo.ui.util
+
+import com.google.zxing.common.BitMatrix
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class QrModuleRasterizerTest {
+
+    private fun matrixOf(vararg rows: String): BitMatrix {
+        val matrix = BitMatrix(rows[0].length, rows.size)
+        rows.forEachIndexed { y, row ->
+            row.forEachIndexed { x, c -> if (c == '#') matrix.set(x, y) }
+        }
+        return matrix
+    }
+
+    @Test
+    fun `square modules fill exactly their cells`() {
+        val pixels = QrModuleRasterizer.rasterize(matrixOf("#.", ".#"), 2, QrStyle.SQUARES)
+
+        val b = QrModuleRasterizer.BLACK
+        val w = QrModuleRasterizer.WHITE
+        assertArrayEquals(
+            intArrayOf(
+                b, b, w, w,
+                b, b, w, w,
+                w, w, b, b,
+                w, w, b, b,
+            ),
+            pixels
+        )
+    }
+
+    @Test
+    fun `dots are solid in the middle and blank in the corners`() {
+        val scale = 9
+        val sprite = QrModuleRasterizer.moduleSprite(scale, QrStyle.DOTS)
+
+        assertEquals(QrModuleRasterizer.BLACK, sprite[4 * scale + 4])
+        assertEquals(QrModuleRasterizer.WHITE, sprite[0])
+        assertEquals(QrModuleRasterizer.WHITE, sprite[scale * scale - 1])
+        // Symmetric across both axes
+        for (y in 0 until scale) {
+            for (x in 0 until scale) {
+                assertEquals(sprite[y * scale + x], sprite[y * scale + (scale - 1 - x)])
+                assertEquals(sprite[y * scale + x], sprite[(scale - 1 - y) * scale + x])
+            }
+        }
+    }
+
+    @Test
+    fun `dots are stamped at each dark module`() {
+        val scale = 5
+        val sprite = QrModuleRasterizer.moduleSprite(scale, QrStyle.DOTS)
+        val pixels = QrModuleRasterizer.rasterize(matrixOf("..", ".#"), scale, QrStyle.DOTS)
+
+        val width = 2 * scale
+        for (y in 0 until scale) {
+            for (x in 0 until scale) {
+                assertEquals(sprite[y * scale + x], pixels[(scale + y) * width + scale + x])
+                assertEquals(QrModuleRasterizer.WHITE, pixels[y * width + x])
+            }
+        }
+    }
+}
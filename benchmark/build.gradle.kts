@@ -0,0 +1,122 @@
+import org.jetbrains.kotlin.gradle.dsl.JvmTarget
+
+plugins {
+    id("org.jetbrains.kotlin.jvm")
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+// App sources that run on a plain JVM. android.util.Log, DevLogger and the CDK Token
+// they reference are replaced by stand-ins in src/main.
+val appSources = listOf(
+    "com/electricdreams/numo/core/model/Amount.kt",
+    "com/electricdreams/numo/core/dev/PaymentTrace.kt",
+    "com/electricdreams/numo/core/ur/*.kt",
+    "com/electricdreams/numo/ndef/CashuTokenText.kt",
+    "com/electricdreams/numo/ndef/NdefApduHandler.java",
+    "com/electricdreams/numo/ndef/NdefConstants.java",
+    "com/electricdreams/numo/ndef/NdefMessageBuilder.java",
+    "com/electricdreams/numo/ndef/NdefMessageParser.java",
+    "com/electricdreams/numo/ndef/NdefProcessor.java",
+    "com/electricdreams/numo/ndef/NdefStateManager.java",
+    "com/electricdreams/numo/ndef/NdefUpdateBinaryHandler.java",
+    "com/electricdreams/numo/ndef/NdefUriProcessor.java",
+    "com/electricdreams/numo/ndef/NdefUtils.java",
+    "com/electricdreams/numo/nostr/Bech32.java",
+    "com/electricdreams/numo/nostr/Nip19.java",
+    "com/electricdreams/numo/nostr/Nip44.java",
+    "com/electricdreams/numo/nostr/NostrEvent.java",
+    "com/electricdreams/numo/nostr/NostrKeyPair.java",
+    "com/electricdreams/numo/ui/util/QrModuleRasterizer.kt",
+)
+
+val syncAppSources by tasks.registering(Sync::class) {
+    from(rootProject.file("app/src/main/java")) {
+        include(appSources)
+    }
+    into(layout.buildDirectory.dir("generated/appSources"))
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+sourceSets {
+    main {
+        java.srcDir(syncAppSources)
+    }
+}
+
+kotlin {
+    sourceSets {
+        main {
+            kotlin.srcDir(syncAppSources)
+        }
+    }
+    compilerOptions {
+        jvmTarget.set(JvmTarget.JVM_17)
+    }
+}
+
+dependencies {
+    // Same versions as the app
+    implementation("org.bouncycastle:bcprov-jdk15on:1.70")
+    implementation("com.google.code.gson:gson:2.10.1")
+    implementation("com.google.zxing:core:3.5.3")
+}
+
+// Results are kept per commit in results/<commit>.json so runs can be compared later.
+// The commit is looked up when a task runs, so configuring the build never forks git.
+fun currentCommit(): String = try {
+    val git = ProcessBuilder("git", "rev-parse", "--short", "HEAD")
+        .directory(rootDir)
+        .redirectErrorStream(true)
+        .start()
+    val output = git.inputStream.bufferedReader().readText().trim()
+    if (git.waitFor() == 0) output.ifEmpty { "local" } else "local"
+} catch (e: java.io.IOException) {
+    "local"
+}
+
+val resultsDir = layout.projectDirectory.dir("results")
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    resultsFile.set(jmhResults)
+    // e.g. -Pbenchmarks=Nostr to run only matching benchmarks
+    providers.gradleProperty("benchmarks").orNull?.let { includes.add(it) }
+}
+
+tasks.named("jmh") {
+    doLast {
+        val target = resultsDir.file("${currentCommit()}.json").asFile
+        jmhResults.get().asFile.copyTo(target, overwrite = true)
+        logger.lifecycle("Results written to ${target.relativeTo(rootDir)}")
+    }
+}
+
+tasks.register<JavaExec>("compareBenchmarks") {
+    group = "benchmark"
+    description = "Compares stored results: [-Pbase=<commit>] [-Pcandidate=<commit>] [-Pthreshold=<percent>]"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.electricdreams.numo.benchmark.CompareResultsKt")
+    val base = providers.gradleProperty("base").orElse("baseline")
+    val candidate = providers.gradleProperty("candidate")
+    val threshold = providers.gradleProperty("threshold").orElse("10")
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(
+            resultsDir.file("${base.get()}.json").asFile.path,
+            resultsDir.file("${candidate.getOrElse(currentCommit())}.json").asFile.path,
+            threshold.get(),
+        )
+    })
+}
+
+tasks.register<JavaExec>("replayApdus") {
+    group = "benchmark"
+    description = "Replays NFC APDU transcripts against the NDEF processor, e.g. --args=\"--profile phone\""
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.electricdreams.numo.benchmark.replay.ReplayApdusKt")
+}
@@ -0,0 +1,114 @@
+package com.electricdreams.numo.benchmark;
+
+import com.electricdreams.numo.ndef.NdefMessageBuilder;
+import com.electricdreams.numo.ndef.NdefMessageParser;
+import com.electricdreams.numo.ndef.NdefProcessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Host card emulation paths: a reader fetching the payment request, a payer writing a
+ * token, and the NDEF message codec on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NdefBenchmark {
+
+    /** Characters in the request or token. */
+    @Param({"300", "3000"})
+    public int payloadLength;
+
+    private NdefProcessor reader;
+    private byte[][] readScript;
+    private byte[][] writeScript;
+    private String request;
+    private String token;
+    private NdefMessageParser parser;
+    private String parsed;
+
+    private static class Received implements NdefProcessor.NdefMessageCallback {
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        public void onNdefMessageReceived(String message) {
+            latch.countDown();
+        }
+
+        @Override
+        public void onMessageSent() {
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        request = Payloads.paymentRequest(payloadLength);
+        reader = new NdefProcessor(new Received());
+        reader.setMessageToSend(request);
+        reader.setWriteMode(true);
+        readScript = ApduScripts.read(NdefMessageBuilder.createNdefMessage(request).length);
+
+        token = Payloads.token(payloadLength);
+        writeScript = ApduScripts.write(NdefMessageBuilder.createNdefMessage(token));
+
+        parser = new NdefMessageParser(new NdefProcessor.NdefMessageCallback() {
+            @Override
+            public void onNdefMessageReceived(String message) {
+                parsed = message;
+            }
+
+            @Override
+            public void onMessageSent() {
+            }
+        });
+    }
+
+    @Benchmark
+    public void readPaymentRequest(Blackhole bh) {
+        for (byte[] apdu : readScript) {
+            bh.consume(reader.processCommandApdu(apdu));
+        }
+    }
+
+    /**
+     * From the first APDU until the token reaches the callback. The processor parses on
+     * its own thread, so this includes that hand-off.
+     */
+    @Benchmark
+    public void receiveToken(Blackhole bh) throws InterruptedException {
+        Received received = new Received();
+        NdefProcessor processor = new NdefProcessor(received);
+        processor.setMessageToSend(request);
+        processor.setWriteMode(true);
+        processor.setProcessIncomingMessages(true);
+        for (byte[] apdu : writeScript) {
+            bh.consume(processor.processCommandApdu(apdu));
+        }
+        if (!received.latch.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Token was not delivered");
+        }
+    }
+
+    @Benchmark
+    public String buildAndParseMessage() {
+        parser.processReceivedNdefMessage(NdefMessageBuilder.createNdefMessage(token), true);
+        return parsed;
+    }
+}
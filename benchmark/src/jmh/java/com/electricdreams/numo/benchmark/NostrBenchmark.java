@@ -0,0 +1,103 @@
+package com.electricdreams.numo.benchmark;
+
+import com.electricdreams.numo.nostr.Bech32;
+import com.electricdreams.numo.nostr.Nip19;
+import com.electricdreams.numo.nostr.Nip44;
+import com.electricdreams.numo.nostr.NostrEvent;
+import com.electricdreams.numo.nostr.NostrKeyPair;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nostr payment listener paths: NIP-44 encryption, event signature checks and
+ * NIP-19 / bech32 encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NostrBenchmark {
+
+    // A kind-1 event signed with BIP-340 by the key sha256("numo-benchmark")
+    private static final String SIGNED_EVENT = "{"
+            + "\"id\":\"05a70c3a89722425c18578bcf1d0248f48cc1f4817eab9e9a0b9c400844edcd0\","
+            + "\"pubkey\":\"9467107ee5bc783963b93555560b00dfbacb6c6eb1f4abbcd30d34c9da0a727b\","
+            + "\"created_at\":1700000000,\"kind\":1,"
+            + "\"tags\":[[\"p\",\"9467107ee5bc783963b93555560b00dfbacb6c6eb1f4abbcd30d34c9da0a727b\"],"
+            + "[\"t\",\"numo\"]],"
+            + "\"content\":\"Benchmark event for NostrEvent.verify\","
+            + "\"sig\":\"6e373690e8fbc0aca44b75d64ea67d4a9dd36de3b5d0f7f0b7618d00653ed519"
+            + "9c624ab729d65105e2b08582d5a49becc49d6e01e5d502b762bd579fcdaf6565\"}";
+
+    private NostrKeyPair merchant;
+    private NostrKeyPair payer;
+    private byte[] conversationKey;
+    private String plaintext;
+    private String ciphertext;
+    private NostrEvent event;
+    private String npub;
+
+    @Setup
+    public void setUp() throws Exception {
+        merchant = NostrKeyPair.fromSecretHex("900a70d49851a27123ff1af15ba15c0389949d75d20d3f8c2a61b010349a26a9");
+        payer = NostrKeyPair.fromSecretHex("3c1e0b5f9d2a7e4c8b6a5d4f3e2c1b0a99887766554433221100ffeeddccbbaa");
+        conversationKey = Nip44.getConversationKey(payer.getSecretKeyBytes(), merchant.getPublicKeyBytes());
+
+        // A NUT-18 payment payload carrying a token, as sent over Nostr
+        plaintext = "{\"id\":\"b1f3c2d4\",\"mint\":\"https://mint.example.com\",\"unit\":\"sat\","
+                + "\"proofs\":\"" + Payloads.token(1500) + "\"}";
+        ciphertext = Nip44.encrypt(plaintext, conversationKey);
+
+        event = new Gson().fromJson(SIGNED_EVENT, NostrEvent.class);
+        if (!event.verify()) {
+            throw new IllegalStateException("Benchmark event does not verify");
+        }
+        npub = merchant.getNpub();
+    }
+
+    @Benchmark
+    public byte[] nip44ConversationKey() {
+        return Nip44.getConversationKey(payer.getSecretKeyBytes(), merchant.getPublicKeyBytes());
+    }
+
+    @Benchmark
+    public String nip44Encrypt() throws Exception {
+        return Nip44.encrypt(plaintext, conversationKey);
+    }
+
+    @Benchmark
+    public String nip44Decrypt() throws Exception {
+        return Nip44.decrypt(ciphertext, conversationKey);
+    }
+
+    @Benchmark
+    public boolean verifyEvent() {
+        return event.verify();
+    }
+
+    @Benchmark
+    public String encodeNprofile() {
+        return Nip19.encodeNprofile(merchant.getPublicKeyBytes(),
+                Arrays.asList("wss://relay.damus.io", "wss://nos.lol"));
+    }
+
+    @Benchmark
+    public Bech32.Bech32Data decodeNpub() {
+        return Bech32.decode(npub);
+    }
+}
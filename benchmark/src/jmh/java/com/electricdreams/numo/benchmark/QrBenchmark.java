@@ -0,0 +1,105 @@
+package com.electricdreams.numo.benchmark;
+
+import com.electricdreams.numo.core.ur.UrDecoder;
+import com.electricdreams.numo.core.ur.UrEncoder;
+import com.electricdreams.numo.ui.util.QrModuleRasterizer;
+import com.electricdreams.numo.ui.util.QrStyle;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QR rendering by payload length, as QrCodeGenerator does it minus the final bitmap
+ * copy, and the animated-QR codec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QrBenchmark {
+
+    private static final int SIZE_PX = 512;
+
+    /** Characters in the encoded payload: a BOLT11 invoice up to a large token. */
+    @Param({"300", "1000", "2500"})
+    public int payloadLength;
+
+    private String payload;
+    private Map<EncodeHintType, Object> hints;
+    private BitMatrix matrix;
+    private int scale;
+    private List<String> urParts;
+
+    @Setup
+    public void setUp() throws WriterException {
+        payload = Payloads.token(payloadLength);
+        hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.L);
+        hints.put(EncodeHintType.MARGIN, 1);
+        matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0, hints);
+        scale = Math.max(1, SIZE_PX / matrix.getWidth());
+
+        UrEncoder encoder = new UrEncoder(payload.getBytes(StandardCharsets.UTF_8));
+        urParts = new ArrayList<>();
+        for (int i = 0; i < encoder.getSeqLen() * 2; i++) {
+            urParts.add(encoder.nextPart());
+        }
+    }
+
+    @Benchmark
+    public BitMatrix encodeMatrix() throws WriterException {
+        return new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0, hints);
+    }
+
+    @Benchmark
+    public int[] rasterizeDots() {
+        return QrModuleRasterizer.INSTANCE.rasterize(matrix, scale, QrStyle.DOTS);
+    }
+
+    @Benchmark
+    public int[] rasterizeSquares() {
+        return QrModuleRasterizer.INSTANCE.rasterize(matrix, scale, QrStyle.SQUARES);
+    }
+
+    @Benchmark
+    public String urNextPart() {
+        return new UrEncoder(payload.getBytes(StandardCharsets.UTF_8)).nextPart();
+    }
+
+    /** Decode from parts arriving in order; stops as soon as the payload is complete. */
+    @Benchmark
+    public byte[] urDecode() {
+        UrDecoder decoder = new UrDecoder();
+        for (String part : urParts) {
+            decoder.receivePart(part);
+            if (decoder.isComplete()) {
+                break;
+            }
+        }
+        return decoder.getResult();
+    }
+}
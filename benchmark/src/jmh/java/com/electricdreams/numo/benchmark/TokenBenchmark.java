@@ -0,0 +1,76 @@
+package com.electricdreams.numo.benchmark;
+
+import com.electricdreams.numo.core.model.Amount;
+import com.electricdreams.numo.ndef.CashuTokenText;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token extraction from scanned or received text, as done by
+ * CashuPaymentHelper.extractCashuToken, and amount formatting for the POS display.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBenchmark {
+
+    private String bareToken;
+    private String urlWithToken;
+    private String textWithToken;
+    private Amount usd;
+    private Amount eur;
+    private Amount sats;
+
+    @Setup
+    public void setUp() {
+        String token = Payloads.token(1500);
+        bareToken = token;
+        urlWithToken = "https://wallet.example.com/receive?token=" + token + "&lang=en";
+        textWithToken = "Here is your change: " + token + " thanks for shopping";
+        usd = new Amount(123456, Amount.Currency.USD);
+        eur = new Amount(123456, Amount.Currency.EUR);
+        sats = new Amount(2100000, Amount.Currency.BTC);
+    }
+
+    @Benchmark
+    public String extractBareToken() {
+        return CashuTokenText.extractCashuToken(bareToken);
+    }
+
+    @Benchmark
+    public String extractTokenFromUrl() {
+        return CashuTokenText.extractCashuToken(urlWithToken);
+    }
+
+    @Benchmark
+    public String extractTokenFromText() {
+        return CashuTokenText.extractCashuToken(textWithToken);
+    }
+
+    @Benchmark
+    public void formatAmounts(Blackhole bh) {
+        bh.consume(usd.toString());
+        bh.consume(eur.toString());
+        bh.consume(sats.toString());
+    }
+
+    @Benchmark
+    public Amount parseAmount() {
+        return Amount.parse("\u20AC1.234,56");
+    }
+}
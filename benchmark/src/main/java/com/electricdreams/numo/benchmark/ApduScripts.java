@@ -0,0 +1,83 @@
+package com.electricdreams.numo.benchmark;
+
+import com.electricdreams.numo.ndef.NdefConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * APDU sequences a payer's phone sends to the emulated Type 4 tag. By default they are
+ * chunked by the MLe/MLc limits advertised in {@link NdefConstants#CC_FILE}.
+ */
+public final class ApduScripts {
+
+    public static final int MAX_READ = 0x3B;
+    public static final int MAX_WRITE = 0x34;
+
+    private ApduScripts() {
+    }
+
+    /** Read the tag's NDEF file of {@code fileLength} bytes (2-byte NLEN included). */
+    public static byte[][] read(int fileLength) {
+        return read(fileLength, MAX_READ);
+    }
+
+    /** Like {@link #read(int)}, reading at most {@code maxRead} bytes per READ BINARY. */
+    public static byte[][] read(int fileLength, int maxRead) {
+        List<byte[]> script = new ArrayList<>();
+        script.add(NdefConstants.NDEF_SELECT_AID);
+        script.add(selectFile(NdefConstants.CC_FILE_ID));
+        script.add(readBinary(0, NdefConstants.CC_FILE.length));
+        script.add(selectFile(NdefConstants.NDEF_FILE_ID));
+        script.add(readBinary(0, 2));
+        for (int offset = 2; offset < fileLength; offset += maxRead) {
+            script.add(readBinary(offset, Math.min(maxRead, fileLength - offset)));
+        }
+        return script.toArray(new byte[0][]);
+    }
+
+    /**
+     * Write {@code ndefFile} (2-byte NLEN followed by the message) the way NFC Forum
+     * readers do: clear NLEN, write the message, then set NLEN.
+     */
+    public static byte[][] write(byte[] ndefFile) {
+        return write(ndefFile, MAX_WRITE);
+    }
+
+    /** Like {@link #write(byte[])}, writing at most {@code maxWrite} bytes per UPDATE BINARY. */
+    public static byte[][] write(byte[] ndefFile, int maxWrite) {
+        List<byte[]> script = new ArrayList<>();
+        script.add(NdefConstants.NDEF_SELECT_AID);
+        script.add(selectFile(NdefConstants.NDEF_FILE_ID));
+        script.add(updateBinary(0, new byte[2]));
+        for (int offset = 2; offset < ndefFile.length; offset += maxWrite) {
+            int end = Math.min(ndefFile.length, offset + maxWrite);
+            script.add(updateBinary(offset, Arrays.copyOfRange(ndefFile, offset, end)));
+        }
+        script.add(updateBinary(0, Arrays.copyOfRange(ndefFile, 0, 2)));
+        return script.toArray(new byte[0][]);
+    }
+
+    public static byte[] selectFile(byte[] fileId) {
+        byte[] header = NdefConstants.NDEF_SELECT_FILE_HEADER;
+        return new byte[] {header[0], header[1], header[2], header[3], 0x02, fileId[0], fileId[1]};
+    }
+
+    public static byte[] readBinary(int offset, int length) {
+        byte[] header = NdefConstants.NDEF_READ_BINARY_HEADER;
+        return new byte[] {header[0], header[1], (byte) (offset >> 8), (byte) offset, (byte) length};
+    }
+
+    public static byte[] updateBinary(int offset, byte[] data) {
+        byte[] header = NdefConstants.NDEF_UPDATE_BINARY_HEADER;
+        byte[] apdu = new byte[5 + data.length];
+        apdu[0] = header[0];
+        apdu[1] = header[1];
+        apdu[2] = (byte) (offset >> 8);
+        apdu[3] = (byte) offset;
+        apdu[4] = (byte) data.length;
+        System.arraycopy(data, 0, apdu, 5, data.length);
+        return apdu;
+    }
+}
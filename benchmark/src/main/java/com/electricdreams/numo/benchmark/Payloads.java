@@ -0,0 +1,46 @@
+package com.electricdreams.numo.benchmark;
+
+import java.util.Random;
+
+/**
+ * Deterministic stand-ins for the strings that flow through the hot paths. Content is
+ * random base64url, which is what encoded tokens and requests look like to the code
+ * under test.
+ */
+public final class Payloads {
+
+    private static final String ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private Payloads() {
+    }
+
+    /** A string of exactly {@code length} characters starting with {@code prefix}. */
+    public static String encoded(String prefix, int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder out = new StringBuilder(length).append(prefix);
+        while (out.length() < length) {
+            out.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return out.toString();
+    }
+
+    public static String token(int length) {
+        return encoded("cashuB", length, 1);
+    }
+
+    public static String paymentRequest(int length) {
+        return encoded("creqA", length, 2);
+    }
+
+    public static String invoice(int length) {
+        return encoded("lnbc", length, 3).toLowerCase();
+    }
+
+    /** Random bytes standing in for a binary (raw) Cashu token. */
+    public static byte[] rawToken(int length) {
+        byte[] bytes = new byte[length];
+        new Random(4).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+package com.electricdreams.numo.benchmark
+
+import com.google.gson.JsonParser
+import java.io.File
+import kotlin.math.abs
+import kotlin.system.exitProcess
+
+/**
+ * Compares two JMH JSON result files and flags benchmarks that got slower.
+ *
+ * A benchmark counts as a regression when its score worsened by more than the
+ * threshold percentage and by more than the combined error margins of both runs.
+ * Exits with status 1 if there is any regression.
+ *
+ * Usage: CompareResults <base.json> <candidate.json> [threshold-percent]
+ */
+fun main(args: Array<String>) {
+    if (args.size < 2) {
+        System.err.println("Usage: CompareResults <base.json> <candidate.json> [threshold-percent]")
+        exitProcess(2)
+    }
+    val base = readResults(File(args[0]))
+    val candidate = readResults(File(args[1]))
+    val threshold = args.getOrNull(2)?.toDoubleOrNull() ?: 10.0
+
+    var regressions = 0
+    println(String.format("%-70s %14s %14s %9s", "Benchmark", "Base", "Candidate", "Change"))
+    for ((name, result) in candidate.toSortedMap()) {
+        val before = base[name]
+        if (before == null) {
+            println(String.format("%-70s %14s %14s %9s", name, "-", result.formatted(), "new"))
+            continue
+        }
+        val change = (result.score - before.score) / before.score * 100
+        // Lower is better for time per op, higher for throughput
+        val worse = if (result.lowerIsBetter) change else -change
+        val regressed = worse > threshold && abs(result.score - before.score) > result.error + before.error
+        if (regressed) regressions++
+        println(
+            String.format(
+                "%-70s %14s %14s %+8.1f%%%s",
+                name, before.formatted(), result.formatted(), change, if (regressed) "  REGRESSION" else ""
+            )
+        )
+    }
+
+    if (regressions > 0) {
+        println("$regressions benchmark(s) regressed by more than $threshold%")
+        exitProcess(1)
+    }
+}
+
+private class Result(val score: Double, val error: Double, val unit: String) {
+    val lowerIsBetter: Boolean get() = unit.endsWith("/op")
+
+    fun formatted(): String = String.format("%.3f %s", score, unit)
+}
+
+private fun readResults(file: File): Map<String, Result> {
+    require(file.isFile) { "No results at ${file.path}" }
+    val results = LinkedHashMap<String, Result>()
+    for (element in JsonParser.parseString(file.readText()).asJsonArray) {
+        val entry = element.asJsonObject
+        val params = entry.getAsJsonObject("params")
+            ?.entrySet()
+            ?.joinToString(",", "[", "]") { "${it.key}=${it.value.asString}" }
+            .orEmpty()
+        val metric = entry.getAsJsonObject("primaryMetric")
+        val error = metric["scoreError"].asString.toDoubleOrNull()?.takeUnless { it.isNaN() } ?: 0.0
+        // Class and method, e.g. NostrBenchmark.verifyEvent
+        val name = entry["benchmark"].asString.split('.').takeLast(2).joinToString(".")
+        results[name + params] = Result(metric["score"].asDouble, error, metric["scoreUnit"].asString)
+    }
+    return results
+}
@@ -0,0 +1,119 @@
+package com.electricdreams.numo.benchmark.replay
+
+import com.electricdreams.numo.ndef.NdefProcessor
+import java.lang.management.ManagementFactory
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Replays a [Scenario] against a fresh [NdefProcessor], as the HCE service would see it.
+ *
+ * Service time and allocated bytes are measured per APDU on the calling thread, which
+ * stands in for the binder thread `processCommandApdu` runs on. A received message is
+ * parsed on the processor's own worker thread; the time from the last APDU until it
+ * reaches the callback is reported separately as delivery time.
+ */
+class ApduReplay(private val profile: ReaderProfile) {
+
+    companion object {
+        private const val DELIVERY_TIMEOUT_MS = 5_000L
+
+        private val threads = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+    }
+
+    enum class Command { SELECT, READ, UPDATE, OTHER }
+
+    class ApduTiming(val command: Command, val serviceNanos: Long, val allocatedBytes: Long, val airNanos: Long)
+
+    class Result(
+        val apdus: List<ApduTiming>,
+        /** Last APDU until the message reached the app, or -1 if none was awaited. */
+        val deliveryNanos: Long,
+        val failures: List<String>
+    ) {
+        val serviceNanos: Long get() = apdus.sumOf { it.serviceNanos }
+        val transferNanos: Long get() = serviceNanos + apdus.sumOf { it.airNanos }
+        val allocatedBytes: Long get() = apdus.sumOf { it.allocatedBytes }
+    }
+
+    private class Receiver : NdefProcessor.NdefMessageCallback {
+        val latch = CountDownLatch(1)
+        @Volatile
+        var message: String? = null
+        @Volatile
+        var receivedAt = 0L
+
+        override fun onNdefMessageReceived(message: String) {
+            receivedAt = System.nanoTime()
+            this.message = message
+            latch.countDown()
+        }
+
+        override fun onMessageSent() {}
+    }
+
+    /** True if allocations can be counted on this JVM; otherwise they are reported as 0. */
+    val countsAllocations: Boolean = threads != null && threads.isThreadAllocatedMemorySupported &&
+        threads.run {
+            isThreadAllocatedMemoryEnabled = true
+            isThreadAllocatedMemoryEnabled
+        }
+
+    fun run(scenario: Scenario): Result {
+        val receiver = Receiver()
+        val processor = NdefProcessor(receiver)
+        processor.setMessageToSend(scenario.messageToSend)
+        processor.setWriteMode(true)
+        processor.setProcessIncomingMessages(true)
+
+        val timings = ArrayList<ApduTiming>(scenario.transcript.steps.size)
+        val failures = ArrayList<String>()
+        for ((index, step) in scenario.transcript.steps.withIndex()) {
+            val allocatedBefore = allocatedBytes()
+            val start = System.nanoTime()
+            val response = processor.processCommandApdu(step.command)
+            val serviceNanos = System.nanoTime() - start
+            val allocated = allocatedBytes() - allocatedBefore
+
+            val status = if (response.size >= 2) {
+                ((response[response.size - 2].toInt() and 0xFF) shl 8) or (response[response.size - 1].toInt() and 0xFF)
+            } else {
+                -1
+            }
+            if (status != step.expectedStatus) {
+                failures.add(String.format("APDU %d: expected %04X, got %04X", index, step.expectedStatus, status))
+            }
+            timings.add(
+                ApduTiming(
+                    commandOf(step.command),
+                    serviceNanos,
+                    allocated,
+                    profile.airTimeNanos(step.command.size, response.size)
+                )
+            )
+        }
+        val finishedAt = System.nanoTime()
+
+        var deliveryNanos = -1L
+        if (scenario.awaitMessage) {
+            if (receiver.latch.await(DELIVERY_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                deliveryNanos = (receiver.receivedAt - finishedAt).coerceAtLeast(0)
+                if (scenario.expectedMessage != null && receiver.message != scenario.expectedMessage) {
+                    failures.add("Received a different message than was written")
+                }
+            } else {
+                failures.add("No message received within $DELIVERY_TIMEOUT_MS ms")
+            }
+        }
+        return Result(timings, deliveryNanos, failures)
+    }
+
+    private fun allocatedBytes(): Long = if (countsAllocations) threads!!.currentThreadAllocatedBytes else 0L
+
+    private fun commandOf(apdu: ByteArray): Command = when (apdu.getOrNull(1)?.toInt()?.and(0xFF)) {
+        0xA4 -> Command.SELECT
+        0xB0 -> Command.READ
+        0xD6 -> Command.UPDATE
+        else -> Command.OTHER
+    }
+}
@@ -0,0 +1,61 @@
+package com.electricdreams.numo.benchmark.replay
+
+import java.io.File
+
+/**
+ * Command APDUs in the order a reader sends them, each with the status word it should
+ * get back.
+ *
+ * Transcripts can be written by hand or captured from a device as text, one command
+ * per line in hex, optionally followed by `->` and the expected status word (9000 if
+ * omitted). Whitespace inside the hex is ignored and `#` starts a comment:
+ *
+ * ```
+ * # payer reads the payment request
+ * 00A4040007 D2760000850101 00   -> 9000
+ * 00A4000C02 E103
+ * 00B000000F
+ * ```
+ */
+class ApduTranscript(val name: String, val steps: List<Step>) {
+
+    class Step(val command: ByteArray, val expectedStatus: Int = STATUS_OK)
+
+    companion object {
+        const val STATUS_OK = 0x9000
+        const val STATUS_NOT_FOUND = 0x6A82
+
+        fun of(name: String, commands: Array<ByteArray>): ApduTranscript =
+            ApduTranscript(name, commands.map { Step(it) })
+
+        fun read(file: File): ApduTranscript = parse(file.nameWithoutExtension, file.readText())
+
+        fun parse(name: String, text: String): ApduTranscript {
+            val steps = text.lineSequence().mapIndexedNotNull { index, raw ->
+                val line = raw.substringBefore('#').trim()
+                if (line.isEmpty()) return@mapIndexedNotNull null
+                val command = line.substringBefore("->")
+                val status = line.substringAfter("->", "").filterNot { it.isWhitespace() }
+                try {
+                    Step(
+                        hexToBytes(command),
+                        if (status.isEmpty()) STATUS_OK else status.toInt(16)
+                    )
+                } catch (e: IllegalArgumentException) {
+                    throw IllegalArgumentException("$name line ${index + 1}: ${e.message}", e)
+                }
+            }.toList()
+            require(steps.isNotEmpty()) { "$name contains no APDUs" }
+            return ApduTranscript(name, steps)
+        }
+
+        private fun hexToBytes(text: String): ByteArray {
+            val hex = text.filterNot { it.isWhitespace() }
+            require(hex.length >= 8 && hex.length % 2 == 0) { "not a command APDU: $text" }
+            return ByteArray(hex.length / 2) { i ->
+                hex.substring(i * 2, i * 2 + 2).toIntOrNull(16)?.toByte()
+                    ?: throw IllegalArgumentException("invalid hex: $text")
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.electricdreams.numo.benchmark.replay
+
+import com.electricdreams.numo.benchmark.ApduScripts
+
+/**
+ * How a reader drives the emulated tag: the chunk sizes it uses and how long each
+ * exchange spends outside the service.
+ *
+ * Air time is modelled, not slept: every byte of an ISO 14443-4 frame takes 9 bits
+ * (8 data plus parity) at [bitRateKbps], each frame carries a PCB byte and a 2-byte
+ * CRC, and each command/response pair adds [turnaroundMicros] for frame delay and
+ * the reader's and OS's own processing.
+ */
+data class ReaderProfile(
+    val name: String,
+    val maxRead: Int,
+    val maxWrite: Int,
+    val bitRateKbps: Int,
+    val turnaroundMicros: Long
+) {
+
+    companion object {
+        private const val FRAME_OVERHEAD_BYTES = 3
+        private const val BITS_PER_BYTE = 9
+
+        /** A phone honouring the MLe/MLc advertised in the CC file, at the base bit rate. */
+        val PHONE = ReaderProfile("phone", ApduScripts.MAX_READ, ApduScripts.MAX_WRITE, 106, 1_500)
+
+        /** A reader using full short-APDU chunks at a higher bit rate. */
+        val FAST = ReaderProfile("fast", 0xFF, 0xFF, 424, 500)
+
+        val ALL = listOf(PHONE, FAST)
+
+        fun named(name: String): ReaderProfile = ALL.firstOrNull { it.name == name }
+            ?: throw IllegalArgumentException("Unknown reader profile $name, expected one of ${ALL.map { it.name }}")
+    }
+
+    fun airTimeNanos(commandBytes: Int, responseBytes: Int): Long {
+        val bits = (commandBytes + responseBytes + 2 * FRAME_OVERHEAD_BYTES).toLong() * BITS_PER_BYTE
+        return bits * 1_000_000 / bitRateKbps + turnaroundMicros * 1_000
+    }
+
+    override fun toString(): String =
+        "$name: MLe $maxRead, MLc $maxWrite, $bitRateKbps kbit/s, ${turnaroundMicros}us turnaround"
+}
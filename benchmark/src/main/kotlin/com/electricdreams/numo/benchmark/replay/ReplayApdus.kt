@@ -0,0 +1,126 @@
+package com.electricdreams.numo.benchmark.replay
+
+import com.electricdreams.numo.benchmark.Payloads
+import java.io.File
+import java.io.IOException
+import kotlin.system.exitProcess
+
+/**
+ * Replays APDU transcripts against the NDEF processor and prints per-APDU service
+ * time, modelled end-to-end transfer time, allocations and message delivery time.
+ *
+ * Usage: ReplayApdus [--profile phone|fast|all] [--iterations N] [--warmup N]
+ *                    [--transcript FILE]... [--message TEXT]
+ *
+ * Without --transcript the built-in [Scenarios] are run. Transcript files are replayed
+ * with --message (default: a synthetic payment request) as the tag's content. Exits with
+ * status 1 if any APDU got an unexpected status word or a written message did not arrive.
+ */
+fun main(args: Array<String>) {
+    var profiles = ReaderProfile.ALL
+    var iterations = 200
+    var warmup = 50
+    val transcripts = ArrayList<ApduTranscript>()
+    var message = Payloads.paymentRequest(300)
+
+    var i = 0
+    fun value(): String = args.getOrNull(++i) ?: usage("Missing value for ${args[i - 1]}")
+    while (i < args.size) {
+        try {
+            when (args[i]) {
+                "--profile" -> value().let {
+                    profiles = if (it == "all") ReaderProfile.ALL else listOf(ReaderProfile.named(it))
+                }
+                "--iterations" -> iterations = value().toIntOrNull()?.takeIf { it > 0 } ?: usage("Invalid --iterations")
+                "--warmup" -> warmup = value().toIntOrNull()?.takeIf { it >= 0 } ?: usage("Invalid --warmup")
+                "--transcript" -> transcripts.add(ApduTranscript.read(File(value())))
+                "--message" -> message = value()
+                else -> usage("Unknown argument ${args[i]}")
+            }
+        } catch (e: IOException) {
+            usage("Cannot read transcript: ${e.message}")
+        } catch (e: IllegalArgumentException) {
+            usage(e.message ?: "Invalid argument ${args[i]}")
+        }
+        i++
+    }
+
+    var failed = false
+    for (profile in profiles) {
+        val scenarios = if (transcripts.isEmpty()) {
+            Scenarios.all(profile)
+        } else {
+            transcripts.map { transcript ->
+                val writes = transcript.steps.any { it.command.getOrNull(1) == 0xD6.toByte() }
+                Scenario(transcript, message, awaitMessage = writes)
+            }
+        }
+        val replay = ApduReplay(profile)
+        println("Reader $profile")
+        if (!replay.countsAllocations) println("  (allocation counting is not supported on this JVM)")
+        for (scenario in scenarios) {
+            repeat(warmup) { replay.run(scenario) }
+            val results = List(iterations) { replay.run(scenario) }
+            report(scenario, results)
+            val failures = results.flatMap { it.failures }.distinct()
+            if (failures.isNotEmpty()) {
+                failed = true
+                failures.forEach { println("    FAILED: $it") }
+            }
+        }
+        println()
+    }
+    if (failed) exitProcess(1)
+}
+
+private fun report(scenario: Scenario, results: List<ApduReplay.Result>) {
+    val transfer = results.map { it.transferNanos }.sorted()
+    val service = results.map { it.serviceNanos }.sorted()
+    val allocated = results.map { it.allocatedBytes }.average()
+    println(
+        String.format(
+            "  %-30s %4d APDUs  transfer p50 %7.2f ms  p95 %7.2f ms  (service p50 %7.3f ms)  %8.1f KB allocated",
+            scenario.name, results.first().apdus.size,
+            millis(transfer.percentile(50)), millis(transfer.percentile(95)),
+            millis(service.percentile(50)), allocated / 1024
+        )
+    )
+
+    val delivery = results.map { it.deliveryNanos }.filter { it >= 0 }.sorted()
+    if (delivery.isNotEmpty()) {
+        println(
+            String.format(
+                "  %-30s delivery   p50 %7.2f ms  p95 %7.2f ms",
+                "", millis(delivery.percentile(50)), millis(delivery.percentile(95))
+            )
+        )
+    }
+
+    // Per command type, across all runs
+    val apdus = results.flatMap { it.apdus }
+    for ((command, timings) in apdus.groupBy { it.command }.toSortedMap()) {
+        val nanos = timings.map { it.serviceNanos }.sorted()
+        println(
+            String.format(
+                "  %-30s %-7s p50 %7.1f us  p95 %7.1f us  max %8.1f us  %8.0f B/APDU",
+                "", command, micros(nanos.percentile(50)), micros(nanos.percentile(95)),
+                micros(nanos.last()), timings.map { it.allocatedBytes }.average()
+            )
+        )
+    }
+}
+
+private fun List<Long>.percentile(p: Int): Long = this[((size - 1) * p / 100.0).toInt()]
+
+private fun millis(nanos: Long): Double = nanos / 1_000_000.0
+
+private fun micros(nanos: Long): Double = nanos / 1_000.0
+
+private fun usage(error: String): Nothing {
+    System.err.println(error)
+    System.err.println(
+        "Usage: ReplayApdus [--profile phone|fast|all] [--iterations N] [--warmup N] " +
+            "[--transcript FILE]... [--message TEXT]"
+    )
+    exitProcess(2)
+}
@@ -0,0 +1,124 @@
+package com.electricdreams.numo.benchmark.replay
+
+import com.electricdreams.numo.benchmark.ApduScripts
+import com.electricdreams.numo.benchmark.Payloads
+import com.electricdreams.numo.ndef.NdefConstants
+import com.electricdreams.numo.ndef.NdefMessageBuilder
+import java.io.ByteArrayOutputStream
+import java.util.Base64
+
+/**
+ * A transcript together with how the tag is set up for it.
+ *
+ * @property messageToSend What the tag offers to readers, usually a payment request
+ * @property awaitMessage Whether the transcript writes a message the app should receive
+ * @property expectedMessage What the app should receive, if known
+ */
+class Scenario(
+    val transcript: ApduTranscript,
+    val messageToSend: String,
+    val awaitMessage: Boolean,
+    val expectedMessage: String? = null
+) {
+    val name: String get() = transcript.name
+}
+
+/**
+ * Built-in scenarios: reading payment requests, writing text and binary tokens, and
+ * the retries and re-selects real readers produce when the phones shift mid-tap.
+ */
+object Scenarios {
+
+    // The legacy (mapping version 1) NDEF application, probed first by some readers
+    private val NDEF_V1_SELECT_AID = byteArrayOf(
+        0x00, 0xA4.toByte(), 0x04, 0x00, 0x07,
+        0xD2.toByte(), 0x76, 0x00, 0x00, 0x85.toByte(), 0x01, 0x00, 0x00
+    )
+
+    private const val SMALL_REQUEST_CHARS = 300
+    private const val LARGE_REQUEST_CHARS = 2_000
+    private const val TEXT_TOKEN_CHARS = 1_000
+    private const val BINARY_TOKEN_BYTES = 4_000
+
+    fun all(profile: ReaderProfile): List<Scenario> {
+        val smallRequest = Payloads.paymentRequest(SMALL_REQUEST_CHARS)
+        val largeRequest = Payloads.paymentRequest(LARGE_REQUEST_CHARS)
+        val textToken = Payloads.token(TEXT_TOKEN_CHARS)
+        val rawToken = Payloads.rawToken(BINARY_TOKEN_BYTES)
+        val binaryFile = mimeMessage(NdefConstants.CASHU_BINARY_MIME_TYPE, rawToken)
+        val binaryToken = "crawB" + Base64.getUrlEncoder().withoutPadding().encodeToString(rawToken)
+
+        return listOf(
+            Scenario(readRequest("read-creqA-small", smallRequest, profile), smallRequest, false),
+            Scenario(readRequest("read-creqA-large", largeRequest, profile), largeRequest, false),
+            Scenario(readWithRetries("read-creqA-retries", smallRequest, profile), smallRequest, false),
+            Scenario(
+                ApduTranscript.of(
+                    "write-token-text",
+                    ApduScripts.write(NdefMessageBuilder.createNdefMessage(textToken), profile.maxWrite)
+                ),
+                smallRequest, true, textToken
+            ),
+            Scenario(
+                ApduTranscript.of("write-token-binary", ApduScripts.write(binaryFile, profile.maxWrite)),
+                smallRequest, true, binaryToken
+            ),
+            Scenario(writeWithReselect("write-token-binary-reselect", binaryFile, profile), smallRequest, true, binaryToken),
+        )
+    }
+
+    private fun readRequest(name: String, request: String, profile: ReaderProfile): ApduTranscript {
+        val fileLength = NdefMessageBuilder.createNdefMessage(request).size
+        return ApduTranscript.of(name, ApduScripts.read(fileLength, profile.maxRead))
+    }
+
+    /**
+     * The reader probes the legacy NDEF application first, repeats a READ BINARY whose
+     * response it lost, then loses the field halfway and starts the read over.
+     */
+    private fun readWithRetries(name: String, request: String, profile: ReaderProfile): ApduTranscript {
+        val fileLength = NdefMessageBuilder.createNdefMessage(request).size
+        val read = ApduScripts.read(fileLength, profile.maxRead)
+        val steps = ArrayList<ApduTranscript.Step>()
+        steps.add(ApduTranscript.Step(NDEF_V1_SELECT_AID, ApduTranscript.STATUS_NOT_FOUND))
+        // Up to the first chunk of the message, then that chunk again
+        read.take(6).forEach { steps.add(ApduTranscript.Step(it)) }
+        steps.add(ApduTranscript.Step(read[5]))
+        read.drop(6).take((read.size - 6) / 2).forEach { steps.add(ApduTranscript.Step(it)) }
+        // Field lost: start over from SELECT
+        read.forEach { steps.add(ApduTranscript.Step(it)) }
+        return ApduTranscript(name, steps)
+    }
+
+    /**
+     * The writer gets halfway through the message, loses the field, and writes the
+     * whole message again from SELECT.
+     */
+    private fun writeWithReselect(name: String, ndefFile: ByteArray, profile: ReaderProfile): ApduTranscript {
+        val write = ApduScripts.write(ndefFile, profile.maxWrite)
+        // Everything except the final NLEN update
+        val interrupted = write.take((write.size - 1) / 2)
+        return ApduTranscript.of(name, (interrupted + write).toTypedArray())
+    }
+
+    /** An NDEF file (NLEN included) holding one MIME record. */
+    fun mimeMessage(type: String, payload: ByteArray): ByteArray {
+        val typeBytes = type.toByteArray(Charsets.US_ASCII)
+        val shortRecord = payload.size <= 255
+        val record = ByteArrayOutputStream()
+        // MB + ME, SR for short payloads
+        val flags = 0xC0 or (if (shortRecord) NdefConstants.SHORT_RECORD_FLAG.toInt() else 0)
+        record.write(flags or NdefConstants.TNF_MIME_MEDIA.toInt())
+        record.write(typeBytes.size)
+        if (shortRecord) {
+            record.write(payload.size)
+        } else {
+            for (shift in intArrayOf(24, 16, 8, 0)) record.write(payload.size shr shift)
+        }
+        record.write(typeBytes)
+        record.write(payload)
+
+        val body = record.toByteArray()
+        return byteArrayOf((body.size shr 8).toByte(), body.size.toByte()) + body
+    }
+}
@@ -0,0 +1,20 @@
+package com.electricdreams.numo.core.dev
+
+import android.util.Log
+
+/**
+ * Benchmark stand-in for the app's DevLogger, which also persists errors through
+ * Android storage. Errors only go to the (silent) [Log].
+ */
+object DevLogger {
+
+    @JvmStatic
+    fun e(tag: String, message: String, throwable: Throwable? = null) {
+        Log.e(tag, message, throwable)
+    }
+
+    @JvmStatic
+    fun e(tag: String, message: String) {
+        e(tag, message, null as Throwable?)
+    }
+}
@@ -0,0 +1,17 @@
+package org.cashudevkit
+
+import java.util.Base64
+
+/**
+ * Stand-in for the CDK token binding, which needs the native CDK library. Only the
+ * binary NDEF record path uses it; here a raw token is just wrapped and encoded as
+ * base64url, so timings for that path exclude CDK's own decoding.
+ */
+class Token private constructor(private val raw: ByteArray) {
+
+    fun encode(): String = "crawB" + Base64.getUrlEncoder().withoutPadding().encodeToString(raw)
+
+    companion object {
+        fun fromRawBytes(bytes: ByteArray): Token = Token(bytes.copyOf())
+    }
+}
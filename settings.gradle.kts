@@ -16,3 +16,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "Numo"
 include(":app")
+include(":benchmark")